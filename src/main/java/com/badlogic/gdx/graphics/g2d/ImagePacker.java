@@ -24,11 +24,15 @@ import com.badlogic.gdx.graphics.Pixmap.Format;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Comparator;
 
 /** Packs {@link Pixmap pixmaps} into one or more {@link Page pages} to generate an atlas of pixmap instances. Provides means to
@@ -172,15 +176,21 @@ public class ImagePacker implements Disposable {
 			throw new GdxRuntimeException("Page size too small for pixmap");
 		}
 
+		final long packStart = TextMetrics.start();
 		final Page page = packStrategy.pack(this, resultArea);
 
 		final int rectX = (int) resultArea.x, rectY = (int) resultArea.y,
 				rectWidth = (int) resultArea.width, rectHeight = (int) resultArea.height;
 
 		if (packToTexture && !duplicateBorder && page.texture != null && !page.dirty) {
+			final long uploadStart = TextMetrics.start();
 			page.texture.bind();
 			Gdx.gl.glTexSubImage2D(page.texture.glTarget, 0, rectX, rectY, rectWidth, rectHeight, image.getGLFormat(),
 				image.getGLType(), image.getPixels());
+			if (uploadStart != 0L) {
+				TextMetrics.end(TextMetrics.Stage.UPLOAD, null, uploadStart);
+				TextMetrics.count(TextMetrics.Counter.BYTES_UPLOADED, null, image.getPixels().limit());
+			}
 		} else
 			page.dirty = true;
 
@@ -203,6 +213,11 @@ public class ImagePacker implements Disposable {
 		page.statisticPixmapsPacked++;
 		page.statisticPixelsUsed += rectWidth * rectHeight;
 
+		if (packStart != 0L) {
+			TextMetrics.end(TextMetrics.Stage.PACK, null, packStart);
+			TextMetrics.count(TextMetrics.Counter.PIXMAPS_PACKED, null, 1);
+		}
+
 		return page;
 	}
 
@@ -217,6 +232,92 @@ public class ImagePacker implements Disposable {
 		disposed = true;
 	}
 
+	/** Add a page with existing content, for example one restored from a cache. Nothing more will be packed into it.
+	 * @param pixmap of the page, must have the {@link #pageWidth}, {@link #pageHeight} and {@link #pageFormat} of this packer.
+	 *               Owned by the page from now on.
+	 * @return the added page, one of {@link #pages} */
+	public Page addFrozenPage (Pixmap pixmap) {
+		if (disposed)
+			throw new GdxRuntimeException("Already disposed");
+		if (pixmap.getWidth() != pageWidth || pixmap.getHeight() != pageHeight || pixmap.getFormat() != pageFormat)
+			throw new GdxRuntimeException("Pixmap does not match the page size or format");
+
+		final Page page = new Page(this, pixmap, true);
+		pages.add(page);
+		return page;
+	}
+
+	/** Write the packing state of the page, that is which parts of it are still free,
+	 * so that more can be packed into it after it is restored by {@link #restorePage(Pixmap, DataInput)}.
+	 * Pixels of the page are not written.
+	 * Pages of custom {@link PackStrategy pack strategies} are written as {@link Page#frozen}. */
+	public void writePageState (Page page, DataOutput out) throws IOException {
+		if (page instanceof GuillotineStrategy.GuillotinePage) {
+			out.writeByte(PAGE_STATE_GUILLOTINE);
+		} else if (page instanceof SkylineStrategy.SkylinePage) {
+			out.writeByte(PAGE_STATE_SKYLINE);
+		} else {
+			out.writeByte(PAGE_STATE_FROZEN);
+		}
+		out.writeInt(page.statisticPixelsUsed);
+		out.writeInt(page.statisticPixmapsPacked);
+
+		if (page instanceof GuillotineStrategy.GuillotinePage) {
+			GuillotineStrategy.writeNode(((GuillotineStrategy.GuillotinePage) page).root, out);
+		} else if (page instanceof SkylineStrategy.SkylinePage) {
+			final Array<SkylineStrategy.SkylinePage.Row> rows = ((SkylineStrategy.SkylinePage) page).rows;
+			out.writeInt(rows.size);
+			for (SkylineStrategy.SkylinePage.Row row : rows) {
+				out.writeInt(row.x);
+				out.writeInt(row.y);
+				out.writeInt(row.height);
+			}
+		}
+	}
+
+	/** Create a page with existing content and the packing state written by {@link #writePageState(Page, DataOutput)}
+	 * of a packer with the same page size, padding and {@link #packStrategy}. Unlike {@link #addFrozenPage(Pixmap)},
+	 * the free space of the restored page is used for packing.
+	 * The page is not added to {@link #pages}, so that multiple pages can be restored all or nothing.
+	 * @param pixmap of the page, must have the {@link #pageWidth}, {@link #pageHeight} and {@link #pageFormat} of this packer.
+	 *               Owned by the page from now on.
+	 * @throws IOException when the state can't be read or does not belong to the strategy of this packer */
+	public Page restorePage (Pixmap pixmap, DataInput state) throws IOException {
+		if (pixmap.getWidth() != pageWidth || pixmap.getHeight() != pageHeight || pixmap.getFormat() != pageFormat)
+			throw new GdxRuntimeException("Pixmap does not match the page size or format");
+
+		final byte type = state.readByte();
+		final int pixelsUsed = state.readInt();
+		final int pixmapsPacked = state.readInt();
+		final Page page;
+		if (type == PAGE_STATE_FROZEN) {
+			page = new Page(this, pixmap, true);
+		} else if (type == PAGE_STATE_GUILLOTINE && packStrategy == GuillotineStrategy.INSTANCE) {
+			page = new GuillotineStrategy.GuillotinePage(this, pixmap, GuillotineStrategy.readNode(state, pageWidth, pageHeight));
+		} else if (type == PAGE_STATE_SKYLINE && packStrategy == SkylineStrategy.INSTANCE) {
+			final SkylineStrategy.SkylinePage skylinePage = new SkylineStrategy.SkylinePage(this, pixmap);
+			final int rowCount = state.readInt();
+			if (rowCount <= 0 || rowCount > pageHeight) throw new IOException("Invalid row count " + rowCount);
+			for (int i = 0; i < rowCount; i++) {
+				final SkylineStrategy.SkylinePage.Row row = new SkylineStrategy.SkylinePage.Row();
+				row.x = state.readInt();
+				row.y = state.readInt();
+				row.height = state.readInt();
+				skylinePage.rows.add(row);
+			}
+			page = skylinePage;
+		} else {
+			throw new IOException("Page state of type " + type + " does not belong to " + packStrategy.getClass().getSimpleName());
+		}
+		page.statisticPixelsUsed = pixelsUsed;
+		page.statisticPixmapsPacked = pixmapsPacked;
+		return page;
+	}
+
+	private static final byte PAGE_STATE_FROZEN = 0;
+	private static final byte PAGE_STATE_GUILLOTINE = 1;
+	private static final byte PAGE_STATE_SKYLINE = 2;
+
 	/** Calls {@link Page#updateTexture() updateTexture} for each page and adds a region to
 	 * the specified array for each page texture. */
 	public  void updateTextureRegions (Array<TextureRegion> regions) {
@@ -263,6 +364,9 @@ public class ImagePacker implements Disposable {
 
 		/** Backing pixmap. */
 		public final Pixmap pixmap;
+		/** Frozen pages are skipped by the {@link PackStrategy}, nothing more is packed into them.
+		 * @see ImagePacker#addFrozenPage(Pixmap) */
+		public final boolean frozen;
 
 		/** Statistical variable for tuning: How many pixels are already used? */
 		public int statisticPixelsUsed = 0;
@@ -277,6 +381,16 @@ public class ImagePacker implements Disposable {
 			pixmap.setBlending(Blending.None);
 			pixmap.setColor(packer.transparentColor);
 			pixmap.fill();
+			frozen = false;
+		}
+
+		/** Creates a new page with given content. */
+		Page(ImagePacker packer, Pixmap pixmap, boolean frozen) {
+			this.packer = packer;
+			this.pixmap = pixmap;
+			pixmap.setBlending(Blending.None);
+			this.frozen = frozen;
+			dirty = true;
 		}
 
 		/** Returns the texture for this page, or null if the texture has not been created.
@@ -289,8 +403,9 @@ public class ImagePacker implements Disposable {
 		 * if the pixmap has changed since this method was last called.
 		 * @return true if the texture was created or re-uploaded. */
 		protected boolean updateTexture() {
+			if (texture != null && !dirty) return false;
+			final long uploadStart = TextMetrics.start();
 			if (texture != null) {
-				if (!dirty) return false;
 				texture.load(texture.getTextureData());
 			} else {
 				texture = new Texture(new PixmapTextureData(pixmap, pixmap.getFormat(), packer.minFilter.isMipMap(), false, true)) {
@@ -303,6 +418,10 @@ public class ImagePacker implements Disposable {
 				texture.setFilter(packer.minFilter, packer.magFilter);
 			}
 			dirty = false;
+			if (uploadStart != 0L) {
+				TextMetrics.end(TextMetrics.Stage.UPLOAD, null, uploadStart);
+				TextMetrics.count(TextMetrics.Counter.BYTES_UPLOADED, null, pixmap.getPixels().limit());
+			}
 			return true;
 		}
 	}
@@ -340,8 +459,8 @@ public class ImagePacker implements Disposable {
 
 		public Page pack (ImagePacker packer, Rectangle rect) {
 			GuillotinePage page;
-			if (packer.pages.size == 0) {
-				// Add a page if empty.
+			if (packer.pages.size == 0 || packer.pages.peek().frozen) {
+				// Add a page if empty or if the last one is frozen.
 				page = new GuillotinePage(packer);
 				packer.pages.add(page);
 			} else {
@@ -412,6 +531,37 @@ public class ImagePacker implements Disposable {
 			public boolean full;
 		}
 
+		/** Writes the node and its children in pre-order. */
+		static void writeNode (Node node, DataOutput out) throws IOException {
+			out.writeShort((int)node.rect.x);
+			out.writeShort((int)node.rect.y);
+			out.writeShort((int)node.rect.width);
+			out.writeShort((int)node.rect.height);
+			out.writeBoolean(node.full);
+			out.writeBoolean(node.leftChild != null);
+			if (node.leftChild != null) {
+				writeNode(node.leftChild, out);
+				writeNode(node.rightChild, out);
+			}
+		}
+
+		/** Reads the node written by {@link #writeNode(Node, DataOutput)}. */
+		static Node readNode (DataInput in, int pageWidth, int pageHeight) throws IOException {
+			final Node node = new Node();
+			node.rect.x = in.readUnsignedShort();
+			node.rect.y = in.readUnsignedShort();
+			node.rect.width = in.readUnsignedShort();
+			node.rect.height = in.readUnsignedShort();
+			if (node.rect.x + node.rect.width > pageWidth || node.rect.y + node.rect.height > pageHeight)
+				throw new IOException("Node out of the page");
+			node.full = in.readBoolean();
+			if (in.readBoolean()) {
+				node.leftChild = readNode(in, pageWidth, pageHeight);
+				node.rightChild = readNode(in, pageWidth, pageHeight);
+			}
+			return node;
+		}
+
 		private static class GuillotinePage extends Page {
 			Node root;
 
@@ -423,6 +573,11 @@ public class ImagePacker implements Disposable {
 				root.rect.width = packer.pageWidth - packer.padding * 2;
 				root.rect.height = packer.pageHeight - packer.padding * 2;
 			}
+
+			GuillotinePage (ImagePacker packer, Pixmap pixmap, Node root) {
+				super(packer, pixmap, false);
+				this.root = root;
+			}
 		}
 	}
 
@@ -446,6 +601,7 @@ public class ImagePacker implements Disposable {
 			int pageWidth = packer.pageWidth - padding * 2, pageHeight = packer.pageHeight - padding * 2;
 			int rectWidth = (int)rect.width + padding, rectHeight = (int)rect.height + padding;
 			for (int i = 0, n = packer.pages.size; i < n; i++) {
+				if (packer.pages.get(i).frozen) continue;
 				SkylinePage page = (SkylinePage)packer.pages.get(i);
 				SkylinePage.Row bestRow = null;
 				// Fit in any row before the last.
@@ -496,6 +652,10 @@ public class ImagePacker implements Disposable {
 				super(packer);
 			}
 
+			SkylinePage (ImagePacker packer, Pixmap pixmap) {
+				super(packer, pixmap, false);
+			}
+
 			static final class Row {
 				int x, y, height;
 			}
@@ -36,4 +36,30 @@ public final class FreeTypeExtra {
 		request.vertResolution = (FT_UInt) vertResolution;
 		return (jint) FT_Request_Size((FT_Face)face, &request);
 	*/
+
+	/** Collect all character codes of the face's currently selected charmap (Unicode, unless changed)
+	 * into a flat bitset.
+	 * @param bits where bit <code>n</code> is set when character code <code>n</code> is mapped to a glyph,
+	 *             must be zeroed, codes that do not fit into it are skipped
+	 * @return total amount of mapped character codes */
+	public static int FT_Collect_Char_Codes(FreeType.Face face, long[] bits) {
+		return FT_Collect_Char_Codes(face.address, bits, bits.length);
+	}
+
+	/** Iterates the charmap through FT_Get_First_Char and FT_Get_Next_Char. See:
+	 * https://www.freetype.org/freetype2/docs/reference/ft2-base_interface.html#FT_Get_First_Char */
+	public native static int FT_Collect_Char_Codes(long face, long[] bits, int bitsLength);/*
+		FT_UInt glyphIndex;
+		FT_ULong charCode = FT_Get_First_Char((FT_Face)face, &glyphIndex);
+		FT_ULong limit = ((FT_ULong) bitsLength) * 64;
+		jint count = 0;
+		while (glyphIndex != 0) {
+			if (charCode < limit) {
+				bits[charCode >> 6] |= ((jlong) 1) << (charCode & 63);
+			}
+			count++;
+			charCode = FT_Get_Next_Char((FT_Face)face, charCode, &glyphIndex);
+		}
+		return count;
+	*/
 }
@@ -18,7 +18,7 @@ public interface Font <SelfFont extends Font<SelfFont>> extends Disposable {
      *
      * @return non-null array
      * @see #getGlyph(int) for further constraints
-     * @see #prepareGlyphs() has to be called before this, so that all glyphs are in the returned textures
+     * @see #prepareGlyphs(GlyphLayout) has to be called before this, so that drawn glyphs are in the returned textures
      */
     Texture[] getPages();
 
@@ -28,7 +28,7 @@ public interface Font <SelfFont extends Font<SelfFont>> extends Disposable {
      * There is no relation between glyphId and character (unless font establishes it itself).
      * Calling this method multiple times with the same glyphId MUST always return same Glyph.
      *
-     * After calling this, possibly multiple times, call {@link #prepareGlyphs()} to ensure that returned glyphs
+     * Before drawing the returned glyphs, call {@link #prepareGlyphs(GlyphLayout)} to ensure that they
      * contain valid references to texture page regions from {@link #getPages()}.
      * Until then, regions may be empty or pages may be missing completely. (Not needed if all this returned was null.)
      *
@@ -41,10 +41,29 @@ public interface Font <SelfFont extends Font<SelfFont>> extends Disposable {
     Glyph getGlyph(int glyphId);
 
     /**
-     * Ensure that any {@link Glyph}s returned by {@link #getGlyph(int)} since its last invocation contain valid data
-     * and reference valid texture areas.
+     * Ensure that the {@link Glyph}s of runs of this font in the layout contain valid data
+     * and reference valid texture areas. Glyphs of other runs are left untouched.
+     * Called by {@link GlyphLayout#prepareGlyphs()} before the glyphs are drawn,
+     * so fonts may defer rendering of glyph bitmaps until then. Glyphs which are only measured are never rendered.
      */
-    void prepareGlyphs();
+    void prepareGlyphs(GlyphLayout<SelfFont> layout);
+
+    /**
+     * Check whether this font (not its fallbacks) has a glyph for given Unicode code point.
+     * Unlike {@link #getGlyph(int)}, this must not create any glyphs and should be O(1).
+     *
+     * @param codepoint Unicode code point
+     * @return true if the font maps the code point to some glyph
+     */
+    boolean covers(int codepoint);
+
+    /**
+     * Check whether {@link #covers(int)} is true for all code points of the given text.
+     *
+     * @param text in UTF-16
+     * @return true if all code points are covered, true for empty text
+     */
+    boolean coversAll(CharSequence text);
 
     /**
      * Get font that should be used when some character is not found in this font.
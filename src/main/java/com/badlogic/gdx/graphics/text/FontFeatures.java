@@ -0,0 +1,197 @@
+package com.badlogic.gdx.graphics.text;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of <a href="https://docs.microsoft.com/en-us/typography/opentype/spec/featuretags">OpenType feature</a>
+ * settings, such as <code>liga</code> (standard ligatures), <code>kern</code> (kerning) or <code>tnum</code>
+ * (tabular numbers). Each feature is identified by its 4 character tag and has a value,
+ * 0 meaning disabled, 1 enabled and higher values selecting an alternate (for example for <code>salt</code>).
+ *
+ * Features can be specified per {@link LayoutText} region and font systems may have their own defaults.
+ * Font systems which don't support OpenType features (such as the Bitmap system) ignore them.
+ *
+ * <h4>Example</h4>
+ * <blockquote><pre>{@code
+ *     FontFeatures timer = FontFeatures.of("tnum", "-liga", "salt=2");
+ * }</pre></blockquote>
+ */
+public final class FontFeatures {
+
+    /** Empty feature set, uses the defaults of the font. */
+    public static final FontFeatures NONE = new FontFeatures(new int[0], new int[0]);
+
+    /** Sorted, no duplicates */
+    private final int[] tags;
+    private final int[] values;
+    private final int hashCode;
+
+    private FontFeatures(int[] tags, int[] values) {
+        this.tags = tags;
+        this.values = values;
+        this.hashCode = 31 * Arrays.hashCode(tags) + Arrays.hashCode(values);
+    }
+
+    /** Create a feature set from settings in the form <code>tag</code> or <code>+tag</code> (enable),
+     * <code>-tag</code> (disable) or <code>tag=value</code>. When a tag is present multiple times, last setting wins.
+     * @throws IllegalArgumentException when some setting is malformed */
+    public static FontFeatures of(String... settings) {
+        FontFeatures result = NONE;
+        for (String setting : settings) {
+            int value = 1;
+            int tagStart = 0;
+            int tagEnd = setting.length();
+            if (setting.startsWith("+")) {
+                tagStart = 1;
+            } else if (setting.startsWith("-")) {
+                tagStart = 1;
+                value = 0;
+            } else {
+                final int equals = setting.indexOf('=');
+                if (equals >= 0) {
+                    tagEnd = equals;
+                    try {
+                        value = Integer.parseInt(setting.substring(equals + 1).trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid feature value: " + setting, e);
+                    }
+                }
+            }
+            result = result.with(setting.substring(tagStart, tagEnd).trim(), value);
+        }
+        return result;
+    }
+
+    /** @return OpenType tag packed into an int, short tags are padded with spaces
+     * @throws IllegalArgumentException if the tag is empty, longer than 4 characters or not ASCII */
+    public static int tag(String tag) {
+        final int length = tag.length();
+        if (length == 0 || length > 4) {
+            throw new IllegalArgumentException("Invalid feature tag: '" + tag + "'");
+        }
+        int result = 0;
+        for (int i = 0; i < 4; i++) {
+            final char c = i < length ? tag.charAt(i) : ' ';
+            if (c < ' ' || c > '~') {
+                throw new IllegalArgumentException("Invalid feature tag: '" + tag + "'");
+            }
+            result = (result << 8) | c;
+        }
+        return result;
+    }
+
+    /** @return string form of the tag, packed by {@link #tag(String)} */
+    public static String tagName(int tag) {
+        final char[] chars = {(char) ((tag >>> 24) & 0xFF), (char) ((tag >>> 16) & 0xFF), (char) ((tag >>> 8) & 0xFF), (char) (tag & 0xFF)};
+        int length = 4;
+        while (length > 1 && chars[length - 1] == ' ') {
+            length--;
+        }
+        return new String(chars, 0, length);
+    }
+
+    /** @return new feature set with given feature set to value (or this, if it already is set to it) */
+    public FontFeatures with(String tag, int value) {
+        return with(tag(tag), value);
+    }
+
+    /** @param tag as packed by {@link #tag(String)}
+     * @see #with(String, int) */
+    public FontFeatures with(int tag, int value) {
+        final int[] tags = this.tags;
+        final int index = Arrays.binarySearch(tags, tag);
+        if (index >= 0) {
+            if (values[index] == value) {
+                return this;
+            }
+            final int[] newValues = values.clone();
+            newValues[index] = value;
+            return new FontFeatures(tags, newValues);
+        }
+
+        final int insert = -index - 1;
+        final int[] newTags = new int[tags.length + 1];
+        final int[] newValues = new int[tags.length + 1];
+        System.arraycopy(tags, 0, newTags, 0, insert);
+        System.arraycopy(values, 0, newValues, 0, insert);
+        newTags[insert] = tag;
+        newValues[insert] = value;
+        System.arraycopy(tags, insert, newTags, insert + 1, tags.length - insert);
+        System.arraycopy(values, insert, newValues, insert + 1, tags.length - insert);
+        return new FontFeatures(newTags, newValues);
+    }
+
+    /** @return new feature set with features of both sets, where features of overrides take precedence,
+     * null overrides are treated as empty */
+    public FontFeatures with(FontFeatures overrides) {
+        if (overrides == null || overrides.tags.length == 0) {
+            return this;
+        } else if (tags.length == 0) {
+            return overrides;
+        }
+        FontFeatures result = this;
+        for (int i = 0; i < overrides.tags.length; i++) {
+            result = result.with(overrides.tags[i], overrides.values[i]);
+        }
+        return result;
+    }
+
+    /** @return amount of features in this set */
+    public int size() {
+        return tags.length;
+    }
+
+    /** @return tag of i-th feature, as packed by {@link #tag(String)}. Features are sorted by their tag. */
+    public int tagAt(int i) {
+        return tags[i];
+    }
+
+    /** @return value of i-th feature */
+    public int valueAt(int i) {
+        return values[i];
+    }
+
+    /** @return value of the feature with given tag or defaultValue if this set does not specify it */
+    public int get(String tag, int defaultValue) {
+        return get(tag(tag), defaultValue);
+    }
+
+    /** @param tag as packed by {@link #tag(String)}
+     * @return value of the feature with given tag or defaultValue if this set does not specify it */
+    public int get(int tag, int defaultValue) {
+        final int index = Arrays.binarySearch(tags, tag);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    /** Null-safe equality, null is equal to {@link #NONE}. */
+    public static boolean equal(FontFeatures a, FontFeatures b) {
+        if (a == b) return true;
+        if (a == null) a = NONE;
+        if (b == null) b = NONE;
+        return a.equals(b);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final FontFeatures that = (FontFeatures) o;
+        return hashCode == that.hashCode && Arrays.equals(tags, that.tags) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; i < tags.length; i++) {
+            if (i != 0) sb.append(", ");
+            sb.append(tagName(tags[i])).append('=').append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
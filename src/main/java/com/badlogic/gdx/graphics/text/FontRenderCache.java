@@ -3,6 +3,8 @@ package com.badlogic.gdx.graphics.text;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.text.util.PerThreadPool;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
 import com.badlogic.gdx.math.Matrix3;
 import com.badlogic.gdx.utils.*;
 
@@ -30,7 +32,7 @@ public class FontRenderCache {
     /** Vertex data per page. Values are borrowed from pool. */
     private final Array<FloatArray> pageVertices = new Array<>(true, 10, FloatArray.class);
 
-    private static final Pool<FloatArray> PAGE_VERTICES_POOL = new Pool<FloatArray>() {
+    private static final PerThreadPool<FloatArray> PAGE_VERTICES_POOL = new PerThreadPool<FloatArray>("FontRenderCache.pageVertices", 16, 256) {
         @Override
         protected FloatArray newObject() {
             return new FloatArray(true, 20 * 50); // Preallocate space for 50 glyphs
@@ -77,7 +79,7 @@ public class FontRenderCache {
                 // Insert it, while keeping order
                 int insertPoint = -index - 1;
                 pageTextures.insert(insertPoint, texture);
-                FloatArray obtain = PAGE_VERTICES_POOL.obtain();
+                FloatArray obtain = PAGE_VERTICES_POOL.get().obtain();
                 obtain.clear();
                 pageVertices.insert(insertPoint, obtain);
             }
@@ -103,15 +105,19 @@ public class FontRenderCache {
     /**
      * Render the glyphs from glyphLayout to the cache.
      * What is currently in the cache will be kept.
+     * Glyphs of the layout are {@link GlyphLayout#prepareGlyphs() prepared} first, so this must be called on the GL thread.
      *
      * @param glyphLayout with some laid out glyphs, not null
      * @param x of the upper left corner at which text should be rendered to
      * @param y of the upper left corner at which text should be rendered to
      */
     public <F extends Font<F>> void addGlyphs(GlyphLayout<F> glyphLayout, float x, float y) {
+        final long cacheStart = TextMetrics.start();
         Font lastFont = null;
         FloatArray[] pageVertices = null;
 
+        // Glyphs may be rendered and packed only now, which may add pages
+        glyphLayout.prepareGlyphs();
         for (GlyphRun<F> run : glyphLayout.runs) {
             final F font = run.font;
             assert font != null;
@@ -122,6 +128,7 @@ public class FontRenderCache {
 
             final boolean flipMirrored = !run.isLtr();
             final float color = run.color;
+            final float[] glyphColors = run.glyphColors == null ? null : run.glyphColors.items;
 
             final int glyphAmount = run.glyphs.size;
             final Glyph[] glyphs = run.glyphs.items;
@@ -138,53 +145,111 @@ public class FontRenderCache {
                     continue;
                 }
 
-                final FloatArray vertexArray = pageVertices[page];
+                addGlyphVertices(pageVertices[page], glyph, baseX + glyphX[i], baseY + glyphY[i],
+                        glyphColors == null ? color : glyphColors[i], flipMirrored);
+            }
+        }
 
-                final float[] vertices = vertexArray.ensureCapacity(20);
-                int idx = vertexArray.size;
-                vertexArray.size += 20;
+        if (cacheStart != 0L) {
+            TextMetrics.end(TextMetrics.Stage.RENDER_CACHE, null, cacheStart);
+            for (GlyphRun<F> run : glyphLayout.runs) {
+                TextMetrics.count(TextMetrics.Counter.GLYPHS_CACHED, run.font, run.glyphs.size);
+            }
+        }
+    }
 
-                float gX = baseX + glyphX[i] + glyph.xOffset;
-                float gY = baseY + glyphY[i] + glyph.yOffset;
-                float gX2 = gX + glyph.width;
-                float gY2 = gY + glyph.height;
+    /**
+     * Render the glyphs of packed layout to the cache.
+     * What is currently in the cache will be kept.
+     *
+     * @param packedLayout with some packed glyphs, not null
+     * @param x of the upper left corner at which text should be rendered to
+     * @param y of the upper left corner at which text should be rendered to
+     */
+    public <F extends Font<F>> void addGlyphs(PackedGlyphLayout<F> packedLayout, float x, float y) {
+        final Glyph[] glyphs = packedLayout.glyphs.items;
+        final float[] glyphX = packedLayout.glyphX.items;
+        final float[] glyphY = packedLayout.glyphY.items;
+        final int[] runGlyphStarts = packedLayout.runGlyphStarts.items;
+        final Array<F> runFonts = packedLayout.runFonts;
+        final float[] runColors = packedLayout.runColors.items;
+        final boolean[] runFlipMirrored = packedLayout.runFlipMirrored.items;
+
+        final long cacheStart = TextMetrics.start();
+        F lastFont = null;
+        FloatArray[] pageVertices = null;
 
-                if (flipMirrored && (glyph.flags & Glyph.FLAG_MIRRORED) != 0) {
-                    // Flip RTL mirrored glyphs (https://www.compart.com/en/unicode/mirrored)
-                    float tmp = gX;
-                    gX = gX2;
-                    gX2 = tmp;
-                }
+        for (int r = 0, runCount = runFonts.size; r < runCount; r++) {
+            final F font = runFonts.get(r);
+            if (font != lastFont) {
+                lastFont = font;
+                pageVertices = preparePageMappingForFont(font);
+            }
+
+            final float color = runColors[r];
+            final boolean flipMirrored = runFlipMirrored[r];
+            for (int i = runGlyphStarts[r], end = runGlyphStarts[r + 1]; i < end; i++) {
+                final Glyph glyph = glyphs[i];
+                addGlyphVertices(pageVertices[glyph.page], glyph, x + glyphX[i], y + glyphY[i], color, flipMirrored);
+            }
+        }
 
-                final float u = glyph.u, u2 = glyph.u2, v = glyph.v, v2 = glyph.v2;
-
-                vertices[idx++] = gX;
-                vertices[idx++] = gY;
-                vertices[idx++] = color;
-                vertices[idx++] = u;
-                vertices[idx++] = v;
-
-                vertices[idx++] = gX;
-                vertices[idx++] = gY2;
-                vertices[idx++] = color;
-                vertices[idx++] = u;
-                vertices[idx++] = v2;
-
-                vertices[idx++] = gX2;
-                vertices[idx++] = gY2;
-                vertices[idx++] = color;
-                vertices[idx++] = u2;
-                vertices[idx++] = v2;
-
-                vertices[idx++] = gX2;
-                vertices[idx++] = gY;
-                vertices[idx++] = color;
-                vertices[idx++] = u2;
-                vertices[idx] = v;
+        if (cacheStart != 0L) {
+            TextMetrics.end(TextMetrics.Stage.RENDER_CACHE, null, cacheStart);
+            for (int r = 0, runCount = runFonts.size; r < runCount; r++) {
+                TextMetrics.count(TextMetrics.Counter.GLYPHS_CACHED, runFonts.get(r), runGlyphStarts[r + 1] - runGlyphStarts[r]);
             }
         }
     }
 
+    /** Add vertices of a single glyph.
+     * @param penX x of glyph's pen position
+     * @param penY y of glyph's pen position
+     * @param flipMirrored whether to flip {@link Glyph#FLAG_MIRRORED} glyphs */
+    private static void addGlyphVertices(FloatArray vertexArray, Glyph glyph, float penX, float penY, float color, boolean flipMirrored) {
+        final float[] vertices = vertexArray.ensureCapacity(20);
+        int idx = vertexArray.size;
+        vertexArray.size += 20;
+
+        float gX = penX + glyph.xOffset;
+        float gY = penY + glyph.yOffset;
+        float gX2 = gX + glyph.width;
+        float gY2 = gY + glyph.height;
+
+        if (flipMirrored && (glyph.flags & Glyph.FLAG_MIRRORED) != 0) {
+            // Flip RTL mirrored glyphs (https://www.compart.com/en/unicode/mirrored)
+            float tmp = gX;
+            gX = gX2;
+            gX2 = tmp;
+        }
+
+        final float u = glyph.u, u2 = glyph.u2, v = glyph.v, v2 = glyph.v2;
+
+        vertices[idx++] = gX;
+        vertices[idx++] = gY;
+        vertices[idx++] = color;
+        vertices[idx++] = u;
+        vertices[idx++] = v;
+
+        vertices[idx++] = gX;
+        vertices[idx++] = gY2;
+        vertices[idx++] = color;
+        vertices[idx++] = u;
+        vertices[idx++] = v2;
+
+        vertices[idx++] = gX2;
+        vertices[idx++] = gY2;
+        vertices[idx++] = color;
+        vertices[idx++] = u2;
+        vertices[idx++] = v2;
+
+        vertices[idx++] = gX2;
+        vertices[idx++] = gY;
+        vertices[idx++] = color;
+        vertices[idx++] = u2;
+        vertices[idx] = v;
+    }
+
     /** Sets the position of the text, relative to its current position.
      * Does not affect subsequently added text.
      * @param xAmount The amount in x to move the text
@@ -369,7 +434,7 @@ public class FontRenderCache {
 
     /** Removes all glyphs in the cache. */
     public void clear () {
-        PAGE_VERTICES_POOL.freeAll(pageVertices);
+        PAGE_VERTICES_POOL.get().freeAll(pageVertices);
         pageVertices.clear();
         pageTextures.clear();
     }
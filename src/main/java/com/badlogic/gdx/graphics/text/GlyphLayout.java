@@ -1,12 +1,21 @@
 package com.badlogic.gdx.graphics.text;
 
+import com.badlogic.gdx.graphics.text.LayoutTextRunArray.TextRun;
 import com.badlogic.gdx.graphics.text.util.CharArrayIterator;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.*;
 
+import java.text.Bidi;
 import java.text.BreakIterator;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /** Class responsible for laying out the glyphs constructed from fonts of this font system.
  * Also stores the laid out glyphs. */
@@ -30,12 +39,19 @@ public abstract class GlyphLayout<F extends Font<F>> {
     private float alignWidth;
     /** Current horizontal alignment of the laid text. */
     private int horizontalAlign = Align.left;
-    /** Contains run character start index (msb 17bits, msb bit 0) with index of run which contains it (lsb 15bits).
+    /** Contains run character start index (msb 32bits) with index of run which contains it (lsb 32bits).
      * Ordered for quick binary search of character->run mapping. */
-    private final IntArray charRuns = new IntArray();
+    private final LongArray charRuns = new LongArray();
     /** For each line in the layout (even if it has no GlyphRun), contains its height + <b>height of all previous lines</b>.
      * Size determines the amount of lines. Must have at least one entry. Determines {@link #getHeight()}. */
     protected final FloatArray lineHeights = new FloatArray();
+    /** For each line, index of its first run in {@link #runs}.
+     * Runs of line L are in [lineStartRuns[L], lineStartRuns[L+1]). Size is the amount of lines + 1. */
+    private final IntArray lineStartRuns = new IntArray();
+    /** @see #getSelectionRectangles(int, int) */
+    private final Array<Rectangle> selectionRectangles = new Array<>(Rectangle.class);
+    /** @see #prepareGlyphs() */
+    private final Array<F> preparedFonts = new Array<>(false, 4, Font.class);
 
     /** Sets this text layout to contain specified text, laid out in a virtual rectangle
      * of availableWidth x infinite height. This overwrites any previously added text.
@@ -71,32 +87,645 @@ public abstract class GlyphLayout<F extends Font<F>> {
             ellipsis = "";
         }
 
-        final LayoutTextRunArray<F> textRuns = LayoutTextRunArray.obtain(text);
+        final long layoutStart = TextMetrics.start();
+        if (availableWidth == Float.POSITIVE_INFINITY && isSingleLineText(text) && doLayoutSingleLine(text)) {
+            // Height limits don't matter, the first line is never truncated and there is no other
+            completeSingleLineLayout(horizontalAlign);
+        } else {
+            final LayoutTextRunArray<F> textRuns = LayoutTextRunArray.obtain(text, isScriptItemizationNeeded());
+            TextMetrics.end(TextMetrics.Stage.ITEMIZE, text.getInitialFont(), layoutStart);
+            try {
+                doLayoutText(text, textRuns, availableWidth, availableHeight, maxLines, ellipsis);
+            } finally {
+                LayoutTextRunArray.free(textRuns);
+            }
+
+            completeLayout(availableWidth, horizontalAlign);
+        }
+
+        if (layoutStart != 0L) {
+            TextMetrics.end(TextMetrics.Stage.LAYOUT, text.getInitialFont(), layoutStart);
+            TextMetrics.count(TextMetrics.Counter.RUNS_CREATED, text.getInitialFont(), runs.size);
+        }
+    }
+
+    /** Same as {@link #layoutText(LayoutText, float, float, int, String)}, but for text which was already itemized,
+     * shaped and measured by {@link PreparedText#prepare(LayoutText)}, so that only the line breaking and positioning
+     * of glyphs has to be done. Useful when the same text is laid out repeatedly with different widths.
+     * @param text prepared by the glyph layout of the same font system */
+    public void layoutText(PreparedText<F> text, float availableWidth, float availableHeight, int horizontalAlign, String ellipsis) {
+        if (text == null) throw new NullPointerException("text");
+        if (text.textRuns == null) throw new IllegalArgumentException("Prepared text is disposed");
+        clear();
+
+        if (availableWidth <= 0) {
+            availableWidth = Float.POSITIVE_INFINITY;
+        }
+        int maxLines = Integer.MAX_VALUE;
+        if (availableHeight == 0f) {
+            availableHeight = Float.POSITIVE_INFINITY;
+        } else if (availableHeight < 0f) {
+            maxLines = Math.max(Math.round(-availableHeight), 1);
+            availableHeight = Float.POSITIVE_INFINITY;
+        }
+
+        if (ellipsis == null) {
+            ellipsis = "";
+        }
+
+        final long layoutStart = TextMetrics.start();
+        doLayoutPreparedText(text, availableWidth, availableHeight, maxLines, ellipsis);
+        completeLayout(availableWidth, horizontalAlign);
+
+        if (layoutStart != 0L) {
+            final F font = text.text.getInitialFont();
+            TextMetrics.end(TextMetrics.Stage.LAYOUT, font, layoutStart);
+            TextMetrics.count(TextMetrics.Counter.RUNS_CREATED, font, runs.size);
+        }
+    }
+
+    /** Minimum amount of characters laid out by a single task of {@link #layoutTextParallel}. */
+    private static final int PARALLEL_CHUNK_LENGTH = 4096;
+
+    /** Same as {@link #layoutText(LayoutText, float, float, int, String)}, but paragraphs of large texts are laid out
+     * in parallel, on the given pool. Result is the same as that of the sequential layout.
+     *
+     * Falls back to the sequential layout when the text is small, when the height is limited
+     * (the ellipsis depends on all preceding paragraphs) or when this layout does not support it
+     * (see {@link #isParallelLayoutSupported()}). Parallel tasks lay out the paragraphs in new instances of
+     * {@link Font#createGlyphLayout()} of the text's initial font.
+     *
+     * @param pool to run the layout tasks on, may be null to lay out sequentially */
+    public void layoutTextParallel(LayoutText<F> text, float availableWidth, float availableHeight, int horizontalAlign, String ellipsis, ForkJoinPool pool) {
+        if (text == null) throw new NullPointerException("text");
+        if (pool == null || availableHeight != 0f || text.length() < PARALLEL_CHUNK_LENGTH * 2 || !isParallelLayoutSupported()) {
+            layoutText(text, availableWidth, availableHeight, horizontalAlign, ellipsis);
+            return;
+        }
+        clear();
+
+        if (availableWidth <= 0) {
+            availableWidth = Float.POSITIVE_INFINITY;
+        }
+
+        // Split to chunks of whole paragraphs, paragraphs are independent for bidi, shaping and wrapping
+        final char[] chars = text.text();
+        final int length = text.length();
+        final List<Callable<GlyphLayout<F>>> tasks = new ArrayList<>();
+        int chunkStart = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = chars[i];
+            if (c != '\n' && c != '\r') {
+                continue;
+            }
+            if (c == '\r' && i + 1 < length && chars[i + 1] == '\n') {
+                i++;
+            }
+            final int paragraphEnd = i + 1;
+            if (paragraphEnd - chunkStart >= PARALLEL_CHUNK_LENGTH && length - paragraphEnd >= PARALLEL_CHUNK_LENGTH) {
+                tasks.add(new ParagraphLayoutTask<>(text, chunkStart, paragraphEnd, availableWidth));
+                chunkStart = paragraphEnd;
+            }
+        }
+        if (tasks.isEmpty()) {
+            layoutText(text, availableWidth, availableHeight, horizontalAlign, ellipsis);
+            return;
+        }
+        tasks.add(new ParagraphLayoutTask<>(text, chunkStart, length, availableWidth));
+
+        final List<Future<GlyphLayout<F>>> results = pool.invokeAll(tasks);
+
+        // Stitch the chunks together
+        final Array<GlyphRun<F>> runs = this.runs;
+        final FloatArray lineHeights = this.lineHeights;
         try {
-            doLayoutText(text, textRuns, availableWidth, availableHeight, maxLines, ellipsis);
+            for (int chunk = 0; chunk < results.size(); chunk++) {
+                final GlyphLayout<F> chunkLayout = results.get(chunk).get();
+                final int chunkCharacterStart = ((ParagraphLayoutTask<F>) tasks.get(chunk)).start;
+                final int lineOffset = lineHeights.size;
+                final float heightOffset = getHeight();
+
+                final GlyphRun<F>[] chunkRuns = chunkLayout.runs.items;
+                for (int i = 0, n = chunkLayout.runs.size; i < n; i++) {
+                    final GlyphRun<F> run = chunkRuns[i];
+                    run.line += lineOffset;
+                    run.y -= heightOffset;
+                    run.charactersStart += chunkCharacterStart;
+                    run.charactersEnd += chunkCharacterStart;
+                    runs.add(run);
+                }
+                chunkLayout.runs.clear();
+
+                // Chunk that ends with a linebreak has an extra empty line at the end,
+                // which is the first line of the next chunk in the sequential layout
+                final boolean lastChunk = chunk + 1 == results.size();
+                final int chunkLines = chunkLayout.lineHeights.size - (lastChunk ? 0 : 1);
+                final float[] chunkLineHeights = chunkLayout.lineHeights.items;
+                for (int i = 0; i < chunkLines; i++) {
+                    lineHeights.add(heightOffset + chunkLineHeights[i]);
+                }
+                chunkLayout.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            clear();
+            throw new GdxRuntimeException("Interrupted during parallel layout", e);
+        } catch (ExecutionException e) {
+            clear();
+            throw new GdxRuntimeException("Parallel layout failed", e.getCause());
+        }
+
+        completeLayout(availableWidth, horizontalAlign);
+    }
+
+    /** Lays out range of paragraphs of the text, for {@link #layoutTextParallel}. */
+    private static final class ParagraphLayoutTask<F extends Font<F>> implements Callable<GlyphLayout<F>> {
+        final LayoutText<F> text;
+        final int start, end;
+        final float availableWidth;
+
+        ParagraphLayoutTask(LayoutText<F> text, int start, int end, float availableWidth) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.availableWidth = availableWidth;
+        }
+
+        @Override
+        public GlyphLayout<F> call() {
+            final LayoutText<F> chunkText = new LayoutText<>();
+            chunkText.initFrom(text, start, end);
+            final GlyphLayout<F> layout = text.getInitialFont().createGlyphLayout();
+            layout.layoutText(chunkText, availableWidth, 0f, Align.left, null);
+            return layout;
+        }
+    }
+
+    /** @return true if this layout can be done concurrently with other layouts of the same type,
+     * in separate instances, on different threads. Used by {@link #layoutTextParallel}. Default: false */
+    protected boolean isParallelLayoutSupported() {
+        return false;
+    }
+
+    /** @see #measure(LayoutText, float, TextMeasurement) */
+    private FloatArray measure_advances;
+    /** @see #measure(LayoutText, float, TextMeasurement) */
+    private FloatArray measure_positions;
+    /** @see #measureAdvances(LayoutText, LayoutTextRunArray, float[], IntArray, Array) */
+    private IntArray measure_pieces;
+    /** @see #measureAdvances(LayoutText, LayoutTextRunArray, float[], IntArray, Array) */
+    private Array<F> measure_pieceFonts;
+    /** Index of the first piece which may be on the currently measured line */
+    private int measure_piece;
+
+    /** Compute the size which the text would have when laid out by {@link #layoutText}, without creating any
+     * {@link GlyphRun}s or preparing any glyphs. Only advances of the glyphs are used, so it is much cheaper than
+     * a full layout and suitable for sizing UI elements before (or instead of) laying the text out.
+     *
+     * Text is wrapped at the same places as by the full layout, but the width is the width of line advances,
+     * which may slightly differ from {@link #getWidth()} for glyphs that extend past their advance,
+     * and bidirectional lines may be wrapped a bit differently. There is no height limit and no ellipsis.
+     * Does not change the laid out text of this layout.
+     *
+     * When this layout does not implement {@link #measureAdvances}, full layout is done
+     * in a new {@link Font#createGlyphLayout()} of the text's initial font.
+     *
+     * @param text to measure
+     * @param availableWidth to which the text must fit. Values <= 0 are same as {@link Float#POSITIVE_INFINITY}
+     * @param result to store the measurement into, may be null to create a new one
+     * @return result */
+    public final TextMeasurement measure(LayoutText<F> text, float availableWidth, TextMeasurement result) {
+        if (text == null) throw new NullPointerException("text");
+        if (result == null) {
+            result = new TextMeasurement();
+        }
+        if (availableWidth <= 0) {
+            availableWidth = Float.POSITIVE_INFINITY;
+        }
+
+        measureInit();
+
+        final long measureStart = TextMetrics.start();
+        boolean measured = true;
+        final LayoutTextRunArray<F> textRuns = LayoutTextRunArray.obtain(text, isScriptItemizationNeeded());
+        try {
+            if (textRuns.size <= 0) {
+                // At least one line is always present
+                result.set(0f, measureFontLineHeight(text.fontAt(0)), 1);
+            } else {
+                final int length = text.length();
+                final FloatArray advancesArray = measure_advances;
+                advancesArray.clear();
+                final float[] advances = advancesArray.ensureCapacity(length);
+                Arrays.fill(advances, 0, length, 0f);
+
+                if (measureAdvances(text, textRuns, advances, measure_pieces, measure_pieceFonts)) {
+                    measureLines(text, textRuns, advances, availableWidth, result, null);
+                } else {
+                    measured = false;
+                }
+            }
         } finally {
             LayoutTextRunArray.free(textRuns);
+            measure_pieces.clear();
+            measure_pieceFonts.clear();
+            measure_positions.clear();
+        }
+
+        if (!measured) {
+            final GlyphLayout<F> layout = text.getInitialFont().createGlyphLayout();
+            layout.layoutText(text, availableWidth, 0f, Align.left, null);
+            result.set(layout.getWidth(), layout.getHeight(), layout.getLineCount());
+            layout.clear();
+        }
+
+        TextMetrics.end(TextMetrics.Stage.MEASURE, text.getInitialFont(), measureStart);
+        return result;
+    }
+
+    private void measureInit() {
+        if (measure_advances == null) {
+            measure_advances = new FloatArray();
+            measure_positions = new FloatArray();
+            measure_pieces = new IntArray();
+            measure_pieceFonts = new Array<>();
+        }
+    }
+
+    /** Choose all line breaks of the text before laying it out, for {@link #doLayoutText} implementations which create
+     * the glyph runs of each line only once, instead of splitting them as they overflow.
+     * Lines are wrapped the same way as by {@link #measure}, using advances of {@link #measureAdvances}.
+     *
+     * There is no height limit, an extra empty line after a trailing line break is not included.
+     *
+     * @param textRuns of the text, passed to {@link #measureAdvances}
+     * @param availableWidth positive, possibly infinity
+     * @param lines to add three values for each line to: index of its first character, index where its collapsed
+     *              spaces start (or its end, if there are none) and index after its last character (which is the first
+     *              character of the next line)
+     * @return false if {@link #measureAdvances} is not supported, in which case nothing is added to lines */
+    protected final boolean measureLineBreaks(LayoutText<F> text, LayoutTextRunArray<F> textRuns, float availableWidth, IntArray lines) {
+        measureInit();
+        if (textRuns.size <= 0) {
+            return true;
+        }
+        final int length = text.length();
+        final FloatArray advancesArray = measure_advances;
+        advancesArray.clear();
+        final float[] advances = advancesArray.ensureCapacity(length);
+        Arrays.fill(advances, 0, length, 0f);
+
+        try {
+            if (!measureAdvances(text, textRuns, advances, measure_pieces, measure_pieceFonts)) {
+                return false;
+            }
+            measureLines(text, textRuns, advances, availableWidth, null, lines);
+            return true;
+        } finally {
+            measure_pieces.clear();
+            measure_pieceFonts.clear();
+            measure_positions.clear();
+        }
+    }
+
+    /** Choose all line breaks of the prepared text, like {@link #measureLineBreaks}, but from the advances
+     * measured when it was prepared, so nothing is shaped.
+     * @return false if the prepared text has no measured advances, in which case nothing is added to lines */
+    protected final boolean preparedLineBreaks(PreparedText<F> text, float availableWidth, IntArray lines) {
+        if (!text.measured) {
+            return false;
+        }
+        measureInit();
+        measureLines(text.text, text.textRuns, text.advances.items, availableWidth, null, lines);
+        measure_positions.clear();
+        return true;
+    }
+
+    /** Position of the character in the positions of {@link #measureLines}, skipping characters without position. */
+    private static float measurePositionAt(float[] positions, int positionsStart, int index, int end, float endPosition) {
+        for (int i = index; i < end; i++) {
+            final float position = positions[i - positionsStart];
+            if (!Float.isNaN(position)) {
+                return position;
+            }
+        }
+        return endPosition;
+    }
+
+    /** Greedy line breaking over character advances, which mirrors the wrapping of {@link #doLayoutText}.
+     * @param result to store the measurement into, may be null
+     * @param lines to add the lines into, see {@link #measureLineBreaks}, may be null */
+    private void measureLines(LayoutText<F> text, LayoutTextRunArray<F> textRuns, float[] advances, float availableWidth, TextMeasurement result, IntArray lines) {
+        final char[] chars = text.text();
+        final FloatArray positionsArray = measure_positions;
+        positionsArray.clear();
+        measure_piece = 0;
+
+        float width = 0f;
+        float height = 0f;
+        int lineCount = 0;
+
+        // Positions of characters since positionsStart (at most one paragraph), NaN for characters without position
+        int positionsStart = 0;
+        // First character of the current line and its position
+        int lineStart = 0;
+        float lineOrigin = 0f;
+        float penX = 0f;
+
+        for (int textRunIndex = 0; textRunIndex < textRuns.size; textRunIndex++) {
+            final TextRun<F> textRun = textRuns.items[textRunIndex];
+            final boolean lastTextRun = textRunIndex + 1 == textRuns.size;
+            final boolean linebreak = (textRun.flags & TextRun.FLAG_LINE_BREAK) != 0;
+            final int runStart = textRun.start;
+            final int runEnd = textRun.end;
+
+            final float[] positions = positionsArray.ensureCapacity(runEnd - runStart);
+            int p = positionsArray.size;
+            if (linebreak) {
+                for (int i = runStart; i < runEnd; i++) {
+                    positions[p++] = penX;
+                }
+            } else if ((textRun.flags & TextRun.FLAG_TAB_STOP) != 0) {
+                for (int i = runStart; i < runEnd; i++) {
+                    positions[p++] = penX;
+                }
+                final float defaultTabAdvance = measureFontSpaceXAdvance(textRun.font) * 8f;
+                final float lineX = penX - lineOrigin;
+                final int tabIndex = text.tabStopIndexFor(lineX, defaultTabAdvance);
+                if (tabIndex != -1) {
+                    penX += text.tabStopOffsetFor(tabIndex, defaultTabAdvance) - lineX;
+                }
+            } else {
+                for (int i = runStart; i < runEnd; i++) {
+                    final float advance = advances[i];
+                    if (Float.isNaN(advance)) {
+                        positions[p++] = Float.NaN;
+                    } else {
+                        positions[p++] = penX;
+                        penX += advance;
+                    }
+                }
+            }
+            positionsArray.size = p;
+
+            // Wrapping
+            while (penX - lineOrigin >= availableWidth) {
+                // Last character which starts before the available width
+                int hitIndex = lineStart;
+                for (int i = lineStart + 1; i < runEnd; i++) {
+                    final float position = positions[i - positionsStart];
+                    if (Float.isNaN(position)) {
+                        continue;
+                    }
+                    if (position - lineOrigin >= availableWidth) {
+                        break;
+                    }
+                    hitIndex = i;
+                }
+
+                final int wrapIndex = findWrapPointFor(text, lineStart, runEnd, hitIndex);
+                int realWrapIndex = wrapIndex;
+                while (realWrapIndex < runEnd && chars[realWrapIndex] == COLLAPSIBLE_SPACE) {
+                    realWrapIndex++;
+                }
+
+                int nextLineStart = realWrapIndex;
+                if (realWrapIndex == runEnd) {
+                    if (!lastTextRun) {
+                        // Collapsed spaces at the end, the wrapping is decided by what comes next
+                        break;
+                    }
+                } else if (linebreak && realWrapIndex == runStart) {
+                    // The linebreak stays on the line with collapsed spaces
+                    nextLineStart = runEnd;
+                }
+
+                float lineWidth;
+                if (realWrapIndex > wrapIndex) {
+                    lineWidth = measurePositionAt(positions, positionsStart, wrapIndex + 1, runEnd, penX) - lineOrigin;
+                    if (lineWidth > availableWidth) {
+                        lineWidth = availableWidth;
+                    }
+                } else {
+                    lineWidth = measurePositionAt(positions, positionsStart, wrapIndex, runEnd, penX) - lineOrigin;
+                }
+                width = Math.max(width, lineWidth);
+                if (result != null) {
+                    height += measureLineHeight(lineStart, realWrapIndex, textRun.font);
+                }
+                lineCount++;
+                if (lines != null) {
+                    lines.add(lineStart);
+                    lines.add(wrapIndex);
+                    lines.add(nextLineStart);
+                }
+
+                lineStart = nextLineStart;
+                lineOrigin = measurePositionAt(positions, positionsStart, nextLineStart, runEnd, penX);
+            }
+
+            if (lastTextRun || linebreak) {
+                if (lineStart < runEnd) {
+                    width = Math.max(width, penX - lineOrigin);
+                    if (result != null) {
+                        height += measureLineHeight(lineStart, runEnd, textRun.font);
+                    }
+                    lineCount++;
+                    if (lines != null) {
+                        lines.add(lineStart);
+                        lines.add(runEnd);
+                        lines.add(runEnd);
+                    }
+                    lineStart = runEnd;
+                }
+
+                if (lastTextRun && linebreak) {
+                    // Last line ends with \n, there is an additional empty line with the height of the current font
+                    height += measureFontLineHeight(textRun.font);
+                    lineCount++;
+                }
+
+                // Next paragraph starts from scratch
+                positionsArray.clear();
+                positionsStart = runEnd;
+                penX = 0f;
+                lineOrigin = 0f;
+            }
+        }
+
+        if (result != null) {
+            result.set(width, height, lineCount);
+        }
+    }
+
+    /** @return height of line with characters [from, to), based on the fonts of pieces it contains */
+    private float measureLineHeight(int from, int to, F defaultFont) {
+        final int[] pieces = measure_pieces.items;
+        final int pieceCount = measure_pieces.size / 2;
+        final Array<F> pieceFonts = measure_pieceFonts;
+
+        int piece = measure_piece;
+        while (piece < pieceCount && pieces[piece * 2 + 1] <= from) {
+            piece++;
+        }
+        measure_piece = piece;
+
+        float topToBaseline = 0f;
+        float baselineToDown = 0f;
+        boolean anyFont = false;
+        for (; piece < pieceCount && pieces[piece * 2] < to; piece++) {
+            final F font = pieceFonts.get(piece);
+            final float base = measureFontBase(font);
+            topToBaseline = Math.max(topToBaseline, base);
+            baselineToDown = Math.max(baselineToDown, measureFontLineHeight(font) - base);
+            anyFont = true;
         }
 
-        // Build charRuns and layout width
-        final IntArray charRuns = this.charRuns;
+        if (!anyFont) {
+            // No fonts on line, use only the default font
+            return measureFontLineHeight(defaultFont);
+        }
+        return topToBaseline + baselineToDown;
+    }
+
+    /**
+     * Compute advances of characters for {@link #measure}, without creating any glyph runs.
+     * Advance of a cluster belongs to its first character in logical order, other characters of the cluster
+     * (and low surrogates) must have {@link Float#NaN} advance, so that the text is never wrapped inside it.
+     * Kerning between two glyphs is added to the advance of either of them.
+     * Characters of linebreak and tab stop text runs are ignored.
+     *
+     * Line heights are computed from the fonts of pieces, which are pairs of character start and end
+     * (in logical order) with the font that provides glyphs for them. Characters without glyphs may be left out.
+     *
+     * @param advances to fill, indexed by character index, zeroed
+     * @param pieces to add start and end of each piece to, empty
+     * @param pieceFonts to add the font of each piece to, empty
+     * @return false if measurement is not supported (default), in which case full layout is done instead.
+     * Must be supported together with {@link #measureFontBase}, {@link #measureFontLineHeight}
+     * and {@link #measureFontSpaceXAdvance}.
+     */
+    protected boolean measureAdvances(LayoutText<F> text, LayoutTextRunArray<F> textRuns, float[] advances, IntArray pieces, Array<F> pieceFonts) {
+        return false;
+    }
+
+    /** @return distance from the top of the line to the baseline of the font, used by {@link #measure} */
+    protected float measureFontBase(F font) {
+        return 0f;
+    }
+
+    /** @return height of a line of the font, used by {@link #measure} */
+    protected float measureFontLineHeight(F font) {
+        return 0f;
+    }
+
+    /** @return advance of a space of the font, used for default tab stops by {@link #measure} */
+    protected float measureFontSpaceXAdvance(F font) {
+        return 0f;
+    }
+
+    /** @return whether the text satisfies the conditions of {@link #doLayoutSingleLine(LayoutText)} */
+    private static <F extends Font<F>> boolean isSingleLineText(LayoutText<F> text) {
+        final int length = text.length;
+        if (length <= 0 || !hasUniformRegions(text)) {
+            return false;
+        }
+
+        final char[] chars = text.text;
+        boolean bidiCandidate = false;
+        for (int i = 0; i < length; i++) {
+            final char c = chars[i];
+            if (c >= 0x0590) {
+                bidiCandidate = true;
+            } else if (c == '\n' || c == '\r' || c == '\t') {
+                return false;
+            }
+        }
+        // NOTE(jp): No character below the Hebrew block has right-to-left or Arabic number direction
+        return !bidiCandidate || !Bidi.requiresBidi(chars, 0, length);
+    }
+
+    /** @return whether all characters of the text have the same font, color and features */
+    private static <F extends Font<F>> boolean hasUniformRegions(LayoutText<F> text) {
+        final int regionCount = text.regionStarts.size;
+        if (regionCount <= 0) {
+            return true;
+        }
+
+        F font = text.initialFont;
+        float color = text.initialColor;
+        FontFeatures features = null;
+        int region = 0;
+        if (text.regionStarts.items[0] == 0) {
+            font = text.regionFonts.get(0);
+            color = text.regionColors.items[0];
+            features = text.regionFeatures.items[0];
+            region = 1;
+        }
+        for (; region < regionCount; region++) {
+            if (font != text.regionFonts.get(region) || color != text.regionColors.items[region]
+                    || !FontFeatures.equal(features, text.regionFeatures.items[region])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** {@link #completeLayout} of a layout created by {@link #doLayoutSingleLine}. */
+    private void completeSingleLineLayout(int horizontalAlign) {
+        assert runs.size == 1 && lineHeights.size == 1 : "Single line layout must have one run on one line";
+        final GlyphRun<F> run = runs.items[0];
+        assert run.checkpoints == null && run.line == 0;
+
+        charRuns.add((long) run.charactersStart << 32);
+        lineStartRuns.add(0);
+        lineStartRuns.add(1);
+
+        // The only line is as wide as the layout, so it never needs to be moved to align it
+        this.width = this.alignWidth = Math.max(0f, run.x + run.getDrawWidth());
+        if ((horizontalAlign & Align.left) != 0) {
+            this.horizontalAlign = Align.left;
+        } else {
+            this.horizontalAlign = (horizontalAlign & Align.right) == 0 ? Align.center : Align.right;
+        }
+    }
+
+    /** Build charRuns and lineStartRuns, compute layout width and align the lines. */
+    private void completeLayout(float availableWidth, int horizontalAlign) {
+        // Build charRuns, lineStartRuns and layout width
+        final LongArray charRuns = this.charRuns;
+        final IntArray lineStartRuns = this.lineStartRuns;
+        final int lineCount = lineHeights.size;
         final GlyphRun<F>[] glyphRuns = this.runs.items;
         final int runCount = this.runs.size;
         float width = 0f;
-
-        assert (runCount & ~0x7FFF) == 0;
+        // Left-to-right text has runs in logical order, so the sort can be skipped
+        boolean charRunsSorted = true;
 
         for (int i = 0; i < runCount; i++) {
             final GlyphRun<F> run = glyphRuns[i];
             run.setCheckpointsEnabled(false);
 
+            assert run.line >= lineStartRuns.size - 1 && run.line < lineCount : "Runs are not ordered by lines";
+            while (lineStartRuns.size <= run.line) {
+                lineStartRuns.add(i);
+            }
+
             width = Math.max(width, run.x + run.getDrawWidth());
             if (!run.isEllipsis()) {
-                assert (run.charactersStart & ~0xFFFF) == 0;
-                charRuns.add(run.charactersStart << 15 | i);
+                final long charRun = (long) run.charactersStart << 32 | i;
+                if (charRunsSorted && charRuns.size > 0 && charRuns.peek() > charRun) {
+                    charRunsSorted = false;
+                }
+                charRuns.add(charRun);
             }
         }
-        charRuns.sort();
+        while (lineStartRuns.size <= lineCount) {
+            lineStartRuns.add(runCount);
+        }
+        if (!charRunsSorted) {
+            charRuns.sort();
+        }
         assert assertCharRunsValid(charRuns);
 
         if ((horizontalAlign & Align.left) != 0) {
@@ -172,12 +801,67 @@ public abstract class GlyphLayout<F extends Font<F>> {
      */
     protected abstract void doLayoutText(LayoutText<F> text, LayoutTextRunArray<F> textRuns, float availableWidth, float availableHeight, int maxLines, String ellipsis);
 
-    private boolean assertCharRunsValid(IntArray charRuns) {
+    /**
+     * Single-line fast path of {@link #layoutText}, which skips the itemization, wrapping and line completion machinery.
+     * Used when the available width is infinite and the text (see {@link #isSingleLineText(LayoutText)}):
+     * <ul>
+     *     <li>is not empty</li>
+     *     <li>has the same font, color and features everywhere</li>
+     *     <li>contains no line breaks (<code>\n</code>, <code>\r</code>) and no tabs</li>
+     *     <li>does not require bidi analysis, so it is all left-to-right (level 0), regardless of {@link LayoutText#isLeftToRight()}</li>
+     * </ul>
+     * Implementation should lay the text out into a single {@link GlyphRun} without {@link GlyphRun#checkpoints},
+     * with <code>x = y = line = 0</code>, and add its height to {@link #lineHeights}, exactly as {@link #doLayoutText} would.
+     *
+     * @return false if not supported (default) or if the text needs the full layout after all,
+     * in which case the layout must not be modified
+     */
+    protected boolean doLayoutSingleLine(LayoutText<F> text) {
+        return false;
+    }
+
+    /**
+     * Do the width-independent part of the layout of the text ahead of time, for {@link PreparedText#prepare(LayoutText)}.
+     * Called on the thread which prepares the text, on a new instance of the layout.
+     * The result must not be modified by {@link #doLayoutPreparedText}, as the same prepared text may be laid out many times.
+     *
+     * @return font system specific data (typically shaped glyphs), or null if there is nothing to prepare (default)
+     */
+    protected Object doPrepareText(LayoutText<F> text, LayoutTextRunArray<F> textRuns) {
+        return null;
+    }
+
+    /**
+     * Same as {@link #measureAdvances}, but for the text being prepared by {@link PreparedText#prepare(LayoutText)},
+     * which may use the data of {@link #doPrepareText}. Default implementation calls {@link #measureAdvances}.
+     * @param prepared data returned by {@link #doPrepareText}
+     */
+    protected boolean measurePreparedAdvances(LayoutText<F> text, LayoutTextRunArray<F> textRuns, Object prepared,
+                                              float[] advances, IntArray pieces, Array<F> pieceFonts) {
+        return measureAdvances(text, textRuns, advances, pieces, pieceFonts);
+    }
+
+    /**
+     * Same as {@link #doLayoutText}, but for a prepared text. Implementations can reuse the data of {@link #doPrepareText}
+     * ({@link PreparedText#getShaping()}) and choose line breaks with {@link #preparedLineBreaks}.
+     * Default implementation calls {@link #doLayoutText} with the runs of the prepared text.
+     */
+    protected void doLayoutPreparedText(PreparedText<F> text, float availableWidth, float availableHeight, int maxLines, String ellipsis) {
+        doLayoutText(text.text, text.textRuns, availableWidth, availableHeight, maxLines, ellipsis);
+    }
+
+    /** @return true if text runs passed to {@link #doLayoutText} should be also split by Unicode script,
+     * see {@link LayoutTextRunArray.TextRun#script}. Default: false */
+    protected boolean isScriptItemizationNeeded() {
+        return false;
+    }
+
+    private boolean assertCharRunsValid(LongArray charRuns) {
         int lastCharStart = -1;
         for (int i = 0; i < charRuns.size; i++) {
-            final int item = charRuns.items[i];
-            final int characterStart = item >> 15;
-            final int runIndex = item & 0x7FFF;
+            final long item = charRuns.items[i];
+            final int characterStart = (int) (item >>> 32);
+            final int runIndex = (int) item;
             assert characterStart > lastCharStart : characterStart +" > "+ lastCharStart;
             lastCharStart = characterStart;
 
@@ -193,42 +877,32 @@ public abstract class GlyphLayout<F extends Font<F>> {
      * @return index into the {@link #runs} array of the run which contains character at given index
      */
     protected final int indexOfRunOf(int characterIndex, boolean closest) {
-        final int[] charRunItems = charRuns.items;
+        final long[] charRunItems = charRuns.items;
         final int charRunCount = charRuns.size;
         final Array<GlyphRun<F>> runs = this.runs;
 
-        if ((characterIndex & ~0xFFFF) != 0 || charRunCount <= 0) {
-            // characterIndex is out of supported bounds or there are no runs
+        if (characterIndex < 0 || charRunCount <= 0) {
+            // characterIndex is out of bounds or there are no runs
             if (closest && charRunCount > 0) {
-                if (characterIndex < 0) {
-                    return charRunItems[0] & 0x7FFF;
-                } else {
-                    return charRunItems[charRunCount - 1] & 0x7FFF;
-                }
+                return (int) charRunItems[0];
             }
             return -1;
         }
 
-        final int key = characterIndex << 15 | 0x7FFF;
-        final int i = Arrays.binarySearch(charRunItems, 0, charRunCount, key);
-        final int runIndex;
-        if (i >= 0) {
-            // Found key, which assumes 0x7FFF index, so the run index must be 0x7FFF
-            runIndex = 0x7FFF;
-        } else {
-            final int baseIndex = -i - 2;
-            if (baseIndex < 0) {
-                // This index is before first run
-                return closest ? charRunItems[0] & 0x7FFF : -1;
-            }
-            runIndex = charRunItems[baseIndex] & 0x7FFF;
+        // Run indices are never 0xFFFFFFFF, so the key is never found and points after the run that may contain it
+        final long key = (long) characterIndex << 32 | 0xFFFF_FFFFL;
+        final int baseIndex = -Arrays.binarySearch(charRunItems, 0, charRunCount, key) - 2;
+        if (baseIndex < 0) {
+            // This index is before first run
+            return closest ? (int) charRunItems[0] : -1;
         }
+        final int runIndex = (int) charRunItems[baseIndex];
         final GlyphRun<F> run = runs.items[runIndex];
         assert run.charactersStart <= characterIndex;
         if (run.charactersEnd > characterIndex) {
             return runIndex;
         }
-        return closest ? charRunItems[charRunCount - 1] & 0x7FFF : -1;
+        return closest ? (int) charRunItems[charRunCount - 1] : -1;
     }
 
     /** @return total width of the currently laid out text */
@@ -256,6 +930,37 @@ public abstract class GlyphLayout<F extends Font<F>> {
         return horizontalAlign;
     }
 
+    /** @return laid out runs, ordered by lines and then by X coordinate. Do not modify. */
+    public final Array<GlyphRun<F>> getRuns() {
+        return runs;
+    }
+
+    /** {@link Font#prepareGlyphs(GlyphLayout) Prepare} the glyphs of all runs for drawing, in each font once.
+     * Called by {@link FontRenderCache} and {@link PackedGlyphLayout}, must be called on the GL thread. */
+    public final void prepareGlyphs() {
+        final Array<F> preparedFonts = this.preparedFonts;
+        final Array<GlyphRun<F>> runs = this.runs;
+        for (int i = 0; i < runs.size; i++) {
+            final F font = runs.items[i].font;
+            if (!preparedFonts.contains(font, true)) {
+                preparedFonts.add(font);
+                font.prepareGlyphs(this);
+            }
+        }
+        preparedFonts.clear();
+    }
+
+    /** @return amount of lines of the laid out text, at least 1 when some text was laid out */
+    public final int getLineCount() {
+        return lineHeights.size;
+    }
+
+    /** @param line in [0, {@link #getLineCount()})
+     * @return distance from the top of the text to the bottom of the line */
+    public final float getLineBottom(int line) {
+        return lineHeights.get(line);
+    }
+
     private static final FlushablePool<Rectangle> SELECTION_POOL = new FlushablePool<Rectangle>(3, 16){
         @Override
         protected Rectangle newObject() {
@@ -338,8 +1043,88 @@ public abstract class GlyphLayout<F extends Font<F>> {
         return getCaretPosition(index, caret);
     }
 
+    /** Obtain rectangles which cover characters in the given range. Each rectangle covers a part of a single line,
+     * adjacent rectangles on the same line are merged. Only the lines of the selection are visited,
+     * so this is cheap even for selections in huge texts.
+     * @param startIndex inclusive index into the laid out text
+     * @param endIndex exclusive index into the laid out text
+     * @return rectangles, valid (including the array) only until next invocation of any {@link GlyphLayout} methods
+     * (on any instance), in coordinates relative to the layout origin, ordered by lines */
     public final Array<Rectangle> getSelectionRectangles(int startIndex, int endIndex) {
-        return null;//TODO
+        SELECTION_POOL.flush();
+        final Array<Rectangle> result = this.selectionRectangles;
+        result.clear();
+        if (startIndex > endIndex) {
+            final int tmp = startIndex;
+            startIndex = endIndex;
+            endIndex = tmp;
+        }
+        if (startIndex == endIndex || runs.size == 0) {
+            return result;
+        }
+
+        final int startRun = indexOfRunOf(startIndex, true);
+        final int endRun = indexOfRunOf(endIndex - 1, true);
+        if (startRun < 0 || endRun < 0) {
+            return result;
+        }
+        final GlyphRun<F>[] glyphRuns = runs.items;
+        final int startLine = glyphRuns[startRun].line;
+        final int endLine = glyphRuns[endRun].line;
+        final int[] lineStartRuns = this.lineStartRuns.items;
+        final float[] lineHeights = this.lineHeights.items;
+
+        for (int line = startLine; line <= endLine; line++) {
+            final float y = -lineHeights[line];
+            final float height = -y - (line == 0 ? 0 : lineHeights[line - 1]);
+            Rectangle last = null;
+
+            for (int i = lineStartRuns[line], lineEndRun = lineStartRuns[line + 1]; i < lineEndRun; i++) {
+                final GlyphRun<F> run = glyphRuns[i];
+                if (run.isEllipsis()) {
+                    continue;
+                }
+                final int from = Math.max(startIndex, run.charactersStart);
+                final int to = Math.min(endIndex, run.charactersEnd);
+                if (from >= to) {
+                    continue;
+                }
+
+                final float fromX = run.x + selectionEdgeX(run, from);
+                final float toX = run.x + selectionEdgeX(run, to);
+                final float left = Math.min(fromX, toX);
+                final float right = Math.max(fromX, toX);
+                if (left == right) {
+                    continue;
+                }
+
+                if (last != null && last.x + last.width == left) {
+                    last.width = right - last.x;
+                } else {
+                    last = SELECTION_POOL.obtain().set(left, y, right - left, height);
+                    result.add(last);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** @param index in [run.charactersStart, run.charactersEnd]
+     * @return x of the edge before the character at index, relative to the run */
+    private static <F extends Font<F>> float selectionEdgeX(GlyphRun<F> run, int index) {
+        if (index >= run.charactersEnd) {
+            return run.isLtr() ? run.width : 0f;
+        }
+        final float[] characterPositions = run.characterPositions.items;
+        int posIndex = index - run.charactersStart;
+        float characterX;
+        while (Float.isNaN(characterX = characterPositions[posIndex])) {
+            if (posIndex == 0) {
+                return run.isLtr() ? 0f : run.width;
+            }
+            posIndex--;
+        }
+        return characterX;
     }
 
     /**
@@ -444,23 +1229,33 @@ public abstract class GlyphLayout<F extends Font<F>> {
 
         // Find run
         final GlyphRun<F>[] glyphRuns = runs.items;
-        GlyphRun<F> lastRun = runs.items[0];
-        for (int i = 0; i < runs.size; i++) {
+        final int lineStartRun = lineStartRuns.items[line];
+        GlyphRun<F> lastRun = null;
+        for (int i = lineStartRun, lineEndRun = lineStartRuns.items[line + 1]; i < lineEndRun; i++) {
             final GlyphRun<F> run = glyphRuns[i];
-            if (run.line > line) {
-                break;
-            }
             if (run.isEllipsis()) {
                 continue;
             }
-            if (run.line == line && run.x > x) {
-                if (lastRun.line < line) {
+            if (run.x > x) {
+                if (lastRun == null) {
                     lastRun = run;
                 }
                 break;
             }
             lastRun = run;
         }
+        if (lastRun == null) {
+            // No usable run on this line, use the last one before it
+            for (int i = lineStartRun - 1; i >= 0; i--) {
+                if (!glyphRuns[i].isEllipsis()) {
+                    lastRun = glyphRuns[i];
+                    break;
+                }
+            }
+            if (lastRun == null) {
+                lastRun = glyphRuns[0];
+            }
+        }
 
         if (lastRun.isEllipsis()) {
             return closest ? 0 : -1;
@@ -530,10 +1325,11 @@ public abstract class GlyphLayout<F extends Font<F>> {
         GlyphRun.<F>pool().freeAll(runs);
         runs.clear();
         charRuns.clear();
+        lineStartRuns.clear();
         lineHeights.clear();
     }
 
-    private static boolean isIgnorableCodepoint(int codepoint) {
+    protected static boolean isIgnorableCodepoint(int codepoint) {
         // https://www.unicode.org/reports/tr44/#Default_Ignorable_Code_Point
         /*
         Other_Default_Ignorable_Code_Point
@@ -622,13 +1418,14 @@ public abstract class GlyphLayout<F extends Font<F>> {
         }
     }
 
-    private static ByteArray bidiLevelsFor_levelCache;
+    private static final ThreadLocal<ByteArray> bidiLevelsFor_levelCache = new ThreadLocal<>();
 
     protected static <F extends Font<F>> byte[] bidiLevelsFor(GlyphRun<F>[] runs, int runsStart, int runsEnd) {
-        ByteArray levels = bidiLevelsFor_levelCache;
+        ByteArray levels = bidiLevelsFor_levelCache.get();
         final int runCount = runsEnd - runsStart;
         if (levels == null) {
-            levels = bidiLevelsFor_levelCache = new ByteArray(true, runCount);
+            levels = new ByteArray(true, runCount);
+            bidiLevelsFor_levelCache.set(levels);
         } else {
             levels.size = 0;
             levels.ensureCapacity(runCount);
@@ -642,15 +1439,18 @@ public abstract class GlyphLayout<F extends Font<F>> {
         return levelItems;
     }
 
-    private static ObjectMap<Locale, BreakIterator> getLineBreakIterator_lineBreakIteratorCache;
-    private static CharArrayIterator getLineBreakIterator_charIteratorCache;
+    private static final ThreadLocal<ObjectMap<Locale, BreakIterator>> getLineBreakIterator_lineBreakIteratorCache = new ThreadLocal<>();
+    private static final ThreadLocal<CharArrayIterator> getLineBreakIterator_charIteratorCache = new ThreadLocal<>();
 
+    /** Returned iterator is cached per thread, valid until next call on the same thread. */
     protected static <F extends Font<F>> BreakIterator getLineBreakIterator(LayoutText<F> text, int start, int end, Locale locale) {
-        ObjectMap<Locale, BreakIterator> brItMap = GlyphLayout.getLineBreakIterator_lineBreakIteratorCache;
-        CharArrayIterator charIterator = getLineBreakIterator_charIteratorCache;
+        ObjectMap<Locale, BreakIterator> brItMap = GlyphLayout.getLineBreakIterator_lineBreakIteratorCache.get();
+        CharArrayIterator charIterator = getLineBreakIterator_charIteratorCache.get();
         if (brItMap == null) {
-            brItMap = getLineBreakIterator_lineBreakIteratorCache = new ObjectMap<>();
-            charIterator = getLineBreakIterator_charIteratorCache = new CharArrayIterator();
+            brItMap = new ObjectMap<>();
+            charIterator = new CharArrayIterator();
+            getLineBreakIterator_lineBreakIteratorCache.set(brItMap);
+            getLineBreakIterator_charIteratorCache.set(charIterator);
         }
         charIterator.reset(text.text(), start, end);
 
@@ -662,4 +1462,66 @@ public abstract class GlyphLayout<F extends Font<F>> {
         breakIterator.setText(charIterator);
         return breakIterator;
     }
+
+    /** Returns character index of line-break point at which the characters should fold to next line.
+     * Character at index and following characters may be {@link #COLLAPSIBLE_SPACE}, in which case the linebreak should
+     * be at the first character which is not that character.
+     * @param hitIndex which should already be at the next line
+     * @return index in [lineStart, lineEnd) range */
+    protected static <F extends Font<F>> int findWrapPointFor(LayoutText<F> text, final int lineStart, final int lineEnd, final int hitIndex) {
+        assert hitIndex >= lineStart && hitIndex < lineEnd;
+
+        if (hitIndex <= lineStart + 1) {
+            // We have to wrap at at least one character, at all times, so no reason to search further
+            return lineStart + 1;
+        }
+
+        final char[] chars = text.text();
+        final Locale locale = text.getLocale();
+        if (locale == null) {
+            int i = hitIndex;
+            if (!Character.isWhitespace(chars[i])) {
+                // Shift left, one after the nearest whitespace
+                while (i > lineStart && !Character.isWhitespace(chars[i - 1])) {
+                    i--;
+                }
+            } // else: Don't do anything, we can break here
+
+            if (i <= lineStart) {
+                // There is no whitespace to hang on, fallback to by-char mode
+                i = hitIndex;
+            }
+            return i;
+        } else {
+            // Use break iterator
+            BreakIterator lineBreakIterator = getLineBreakIterator(text, lineStart, lineEnd, locale);
+
+            if (lineBreakIterator.isBoundary(hitIndex)) {
+                // It is already perfect.
+                return hitIndex;
+            }
+            // Can we use hitIndex anyway because of collapsing?
+            collapseToNextBreak:
+            {
+                final int following = lineBreakIterator.following(hitIndex);
+                if (following == BreakIterator.DONE) {
+                    break collapseToNextBreak;
+                }
+                for (int i = hitIndex; i < following; i++) {
+                    if (chars[i] != COLLAPSIBLE_SPACE) {
+                        break collapseToNextBreak;
+                    }
+                }
+                return hitIndex;
+            }
+
+            final int preceding = lineBreakIterator.preceding(hitIndex);
+            if (preceding == BreakIterator.DONE || preceding <= lineStart) {
+                // Fall back to char mode
+                return hitIndex;
+            }
+
+            return preceding;
+        }
+    }
 }
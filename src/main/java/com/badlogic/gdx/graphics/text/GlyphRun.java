@@ -1,5 +1,6 @@
 package com.badlogic.gdx.graphics.text;
 
+import com.badlogic.gdx.graphics.text.util.PerThreadPool;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.LongArray;
@@ -11,27 +12,29 @@ import java.util.Arrays;
  * Contains laid out, colored text, along with some extra information to help {@link GlyphLayout}.
  *
  * All instances are obtained from and freed to {@link #pool()}.
+ * Pools are per-thread, so that layouts can be done concurrently on different threads.
+ * Runs may be freed to a pool of a different thread than the one they were obtained from.
  *
  * @param <F> Font that is used in the run - only for type safety of the API, can be freely changed on single instance when pooling
  */
 public final class GlyphRun<F extends Font<F>> implements Pool.Poolable {
 
-    @SuppressWarnings("unchecked")
-    private static final Pool<GlyphRun> POOL = new Pool<GlyphRun>(64, 2048) {
+    private static final PerThreadPool<GlyphRun<?>> POOL = new PerThreadPool<GlyphRun<?>>("GlyphRun", 64, 2048) {
         @Override
-        protected GlyphRun newObject() {
-            return new GlyphRun();
+        protected GlyphRun<?> newObject() {
+            return new GlyphRun<>();
         }
     };
 
     /**
      * Pool from which {@link GlyphRun} instances can be obtained and should be freed to.
      *
-     * Not exposed as field because of problems with generics, but always returns the same instance.
+     * Not exposed as field because of problems with generics, but always returns the same instance for the same thread.
+     * Pools of all threads can be observed and tuned through {@link PerThreadPool#find(String)} with name "GlyphRun".
      */
     @SuppressWarnings("unchecked")
     public static <F extends Font<F>> Pool<GlyphRun<F>> pool() {
-        return (Pool<GlyphRun<F>>)(Pool)POOL;
+        return (Pool<GlyphRun<F>>)(Pool<?>)POOL.get();
     }
 
     /**
@@ -64,7 +67,7 @@ public final class GlyphRun<F extends Font<F>> implements Pool.Poolable {
     public int line;
     /** Width of the run, according to the last pen position. */
     public float width;
-    /** Run color. */
+    /** Run color. Color of all glyphs, unless {@link #glyphColors} is set. */
     public float color;
 
     /** Font used by the run. */
@@ -110,6 +113,12 @@ public final class GlyphRun<F extends Font<F>> implements Pool.Poolable {
      * @see #createCheckpoint to populate */
     public LongArray checkpoints = null;
 
+    /** Color of each glyph, or null when all glyphs have {@link #color}.
+     * Set when the run spans text regions which differ only in color, which are shaped together.
+     * @see #setGlyphColorsEnabled(boolean)
+     * @see #getGlyphColor(int) */
+    public FloatArray glyphColors = null;
+
     /**
      * @return width of the run, extended by draw bounds of last glyph, if those protrude {@link #width}
      */
@@ -122,6 +131,12 @@ public final class GlyphRun<F extends Font<F>> implements Pool.Poolable {
         return this.width;
     }
 
+    /** @return color of the glyph at given index */
+    public float getGlyphColor(int glyphIndex) {
+        final FloatArray glyphColors = this.glyphColors;
+        return glyphColors == null ? color : glyphColors.items[glyphIndex];
+    }
+
     public boolean isLtr() {
         return LayoutTextRunArray.TextRun.isLevelLtr(charactersLevel);
     }
@@ -141,18 +156,35 @@ public final class GlyphRun<F extends Font<F>> implements Pool.Poolable {
     public void setCheckpointsEnabled(boolean enabled) {
         if (enabled) {
             if (checkpoints == null) {
-                checkpoints = CHECKPOINTS_POOL.obtain();
+                checkpoints = CHECKPOINTS_POOL.get().obtain();
             } else {
                 checkpoints.clear();
             }
         } else {
             if (checkpoints != null) {
-                CHECKPOINTS_POOL.free(checkpoints);
+                CHECKPOINTS_POOL.get().free(checkpoints);
                 checkpoints = null;
             }
         }
     }
 
+    /** Controls whether or not {@link #glyphColors} is used (is not null).
+     * @param enabled true = ensure that it is empty and not null, false = ensure that it is null */
+    public void setGlyphColorsEnabled(boolean enabled) {
+        if (enabled) {
+            if (glyphColors == null) {
+                glyphColors = GLYPH_COLORS_POOL.get().obtain();
+            } else {
+                glyphColors.clear();
+            }
+        } else {
+            if (glyphColors != null) {
+                GLYPH_COLORS_POOL.get().free(glyphColors);
+                glyphColors = null;
+            }
+        }
+    }
+
     /**
      * Add [32 bit characterPositions.size | 32 bit glyphs.size] packed value to {@link #checkpoints} array.
      * @throws NullPointerException when {@link #checkpoints} is null
@@ -176,7 +208,7 @@ public final class GlyphRun<F extends Font<F>> implements Pool.Poolable {
             index = -index - 1;
         }
 
-        if (checkpointGetCharacter(items[index]) == searchedCharacter) {
+        if (index < size && checkpointGetCharacter(items[index]) == searchedCharacter) {
             return index;
         }
         return -1;
@@ -203,9 +235,10 @@ public final class GlyphRun<F extends Font<F>> implements Pool.Poolable {
         characterPositions.clear();
 
         setCheckpointsEnabled(false);
+        setGlyphColorsEnabled(false);
     }
 
-    private final Pool<LongArray> CHECKPOINTS_POOL = new Pool<LongArray>() {
+    private static final PerThreadPool<LongArray> CHECKPOINTS_POOL = new PerThreadPool<LongArray>("GlyphRun.checkpoints", 16, 256) {
         @Override
         protected LongArray newObject() {
             return new LongArray(true, DEFAULT_SIZE);
@@ -216,4 +249,16 @@ public final class GlyphRun<F extends Font<F>> implements Pool.Poolable {
             object.clear();
         }
     };
+
+    private static final PerThreadPool<FloatArray> GLYPH_COLORS_POOL = new PerThreadPool<FloatArray>("GlyphRun.glyphColors", 16, 256) {
+        @Override
+        protected FloatArray newObject() {
+            return new FloatArray(true, DEFAULT_SIZE);
+        }
+
+        @Override
+        protected void reset(FloatArray object) {
+            object.clear();
+        }
+    };
 }
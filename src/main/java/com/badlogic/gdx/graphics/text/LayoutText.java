@@ -13,7 +13,8 @@ import java.util.Locale;
 /**
  * Represents a text to be laid out by {@link GlyphLayout}.
  * Contains characters of the text, base font and color of the text,
- * and zero or more regions (defined by their start position), that may override base font or color.
+ * and zero or more regions (defined by their start position), that may override base font or color
+ * and specify {@link FontFeatures}.
  *
  * Must be initialized with {@link #init(Font, float)} before first use.
  *
@@ -55,6 +56,8 @@ public class LayoutText<F extends Font<F>> implements CharSequence, Pool.Poolabl
     final Array<F> regionFonts = new Array<>(Font.class);
     /** Colors corresponding to the regions */
     final FloatArray regionColors = new FloatArray();
+    /** Font features corresponding to the regions, null for none */
+    final Array<FontFeatures> regionFeatures = new Array<>(FontFeatures.class);
 
     /**
      * Contains unit-based positions of <a href="https://en.wikipedia.org/wiki/Tab_stop">(left) tab stops</a>.
@@ -112,6 +115,15 @@ public class LayoutText<F extends Font<F>> implements CharSequence, Pool.Poolabl
      * @param color of the region (see {@link Color#toFloatBits()})
      */
     public final void addRegion(int start, F font, float color) {
+        addRegion(start, font, color, null);
+    }
+
+    /**
+     * Adds a region into the text, like {@link #addRegion(int, Font, float)}, but with specific OpenType features.
+     *
+     * @param features to use in this region, in addition to the defaults of the font, null for none
+     */
+    public final void addRegion(int start, F font, float color, FontFeatures features) {
         if (font == null) throw new NullPointerException("font");
 
         if (start < 0) {
@@ -122,6 +134,7 @@ public class LayoutText<F extends Font<F>> implements CharSequence, Pool.Poolabl
         final IntArray regionStarts = this.regionStarts;
         final Array<F> regionFonts = this.regionFonts;
         final FloatArray regionColors = this.regionColors;
+        final Array<FontFeatures> regionFeatures = this.regionFeatures;
 
         int regionCount = regionStarts.size;
         // When appending, don't do any searching and append directly
@@ -130,6 +143,7 @@ public class LayoutText<F extends Font<F>> implements CharSequence, Pool.Poolabl
             regionStarts.add(start);
             regionFonts.add(font);
             regionColors.add(color);
+            regionFeatures.add(features);
             return;
         }
 
@@ -140,12 +154,14 @@ public class LayoutText<F extends Font<F>> implements CharSequence, Pool.Poolabl
             regionStarts.items[index] = start;
             regionFonts.set(index, font);
             regionColors.set(index, color);
+            regionFeatures.set(index, features);
         } else {
             index = -index - 1;
             // Values are inserted
             regionStarts.insert(index, start);
             regionFonts.insert(index, font);
             regionColors.insert(index, color);
+            regionFeatures.insert(index, features);
         }
     }
 
@@ -156,6 +172,38 @@ public class LayoutText<F extends Font<F>> implements CharSequence, Pool.Poolabl
         regionStarts.clear();
         regionFonts.clear();
         regionColors.clear();
+        regionFeatures.clear();
+    }
+
+    /** Set this text to be a copy of the range of the source text, with the same regions (shifted to the range),
+     * initial font and color, tab stops, direction and locale. Text and regions are copied, tab stops are shared.
+     * @param start inclusive index into the source text
+     * @param end exclusive index into the source text */
+    public final void initFrom(LayoutText<F> source, int start, int end) {
+        init(source.initialFont, source.initialColor);
+        if (start < 0 || start > end || end > source.length) {
+            throw new IndexOutOfBoundsException("["+start+", "+end+") not in [0, "+source.length+")");
+        }
+        if (end > start) {
+            final char[] chars = new char[end - start];
+            System.arraycopy(source.text, start, chars, 0, chars.length);
+            setText(chars, chars.length);
+        }
+
+        final IntArray sourceRegionStarts = source.regionStarts;
+        for (int region = Math.max(source.regionAt(start), 0); region < sourceRegionStarts.size; region++) {
+            final int regionStart = sourceRegionStarts.items[region];
+            if (regionStart >= end && regionStart > start) {
+                // Region at start is kept even for empty range, so that the font of an empty line is right
+                break;
+            }
+            addRegion(Math.max(regionStart - start, 0), source.regionFonts.items[region],
+                    source.regionColors.items[region], source.regionFeatures.items[region]);
+        }
+
+        this.tabStopPositions = source.tabStopPositions;
+        this.leftToRight = source.leftToRight;
+        this.locale = source.locale;
     }
 
     /** @return characters of the text, not null
@@ -205,6 +253,26 @@ public class LayoutText<F extends Font<F>> implements CharSequence, Pool.Poolabl
         }
     }
 
+    /** @return true if all characters in [start, end) have the same color, see {@link #colorAt(int)} */
+    public final boolean isColorUniform(int start, int end) {
+        final IntArray regionStarts = this.regionStarts;
+        final int regionCount = regionStarts.size;
+        int region = regionAt(start);
+        if (region + 1 >= regionCount || regionStarts.items[region + 1] >= end) {
+            // No region starts inside
+            return true;
+        }
+
+        final float[] regionColors = this.regionColors.items;
+        final float color = region < 0 ? initialColor : regionColors[region];
+        for (region++; region < regionCount && regionStarts.items[region] < end; region++) {
+            if (regionColors[region] != color) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /** @param index into the text, may be out of bounds
      * @return font to be used at given character index */
     public final F fontAt(int index) {
@@ -225,6 +293,16 @@ public class LayoutText<F extends Font<F>> implements CharSequence, Pool.Poolabl
         }
     }
 
+    /** @param index into the text, may be out of bounds
+     * @return font features to be used at given character index, null for none */
+    public final FontFeatures featuresAt(int index) {
+        final int regionIndex = regionAt(index);
+        if (index < 0 || regionIndex < 0) {
+            return null;
+        }
+        return regionFeatures.items[regionIndex];
+    }
+
     /** Set the positions of tab stops. Must be sorted from leftmost to rightmost. Not copied, only reference held.
      * Note that these positions give meaningful results only in left-aligned text (even for RTL scripts).
      * @param tabStopPositions may be null */
@@ -330,6 +408,7 @@ public class LayoutText<F extends Font<F>> implements CharSequence, Pool.Poolabl
         regionStarts.clear();
         regionFonts.clear();
         regionColors.clear();
+        regionFeatures.clear();
 
         tabStopPositions = null;
         leftToRight = true;
@@ -1,7 +1,10 @@
 package com.badlogic.gdx.graphics.text;
 
+import com.badlogic.gdx.graphics.text.util.PerThreadPool;
+import com.badlogic.gdx.graphics.text.util.UnicodeScripts;
 import com.badlogic.gdx.utils.*;
 
+import java.lang.Character.UnicodeScript;
 import java.text.Bidi;
 import java.util.Iterator;
 
@@ -12,12 +15,19 @@ import java.util.Iterator;
  * <ul>
  *     <li>Font change</li>
  *     <li>Color change</li>
+ *     <li>Font features change</li>
  *     <li>Direction change</li>
+ *     <li>Script change (only when requested, see {@link #obtain(LayoutText, boolean)})</li>
  *     <li>Presence of <code>\n</code> or <code>\t</code></li>
  * </ul>
  */
 public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTextRunArray.TextRun<F>> implements Pool.Poolable {
 
+    /** Whether the runs are further split by script, see {@link TextRun#script} */
+    private boolean itemizeScripts;
+    /** Script of the last added script run of current paragraph, null if none yet */
+    private UnicodeScript lastScript;
+
     public LayoutTextRunArray() {
         super(true, 10, TextRun.class);
     }
@@ -27,15 +37,24 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
      *
      * @param text to iterate through */
     public static <F extends Font<F>> LayoutTextRunArray<F> obtain(LayoutText<F> text) {
-        @SuppressWarnings("unchecked")
-        final LayoutTextRunArray<F> iterable = ITERABLE_POOL.obtain();
+        return obtain(text, false);
+    }
+
+    /**Obtain iterable of runs in given text.
+     * Must be freed after use by {@link LayoutTextRunArray#free(LayoutTextRunArray)}.
+     *
+     * @param text to iterate through
+     * @param itemizeScripts if true, runs are also split where Unicode script changes and {@link TextRun#script} is set */
+    public static <F extends Font<F>> LayoutTextRunArray<F> obtain(LayoutText<F> text, boolean itemizeScripts) {
+        final LayoutTextRunArray<F> iterable = LayoutTextRunArray.<F>iterablePool().obtain();
+        iterable.itemizeScripts = itemizeScripts;
         iterable.setup(text);
         return iterable;
     }
 
     /** Free the given iterable. Do not use it after freeing. */
     public static <F extends Font<F>> void free(LayoutTextRunArray<F> iterable) {
-        ITERABLE_POOL.free(iterable);
+        LayoutTextRunArray.<F>iterablePool().free(iterable);
     }
 
     /**
@@ -50,8 +69,7 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
     private int addBreakRun(final LayoutText<F> text, final int start, final int maxEnd, final byte level) {
         assert start < maxEnd;
 
-        @SuppressWarnings("unchecked")
-        final TextRun<F> run = RUN_POOL.obtain();
+        final TextRun<F> run = LayoutTextRunArray.<F>runPool().obtain();
         run.start = start;
         run.end = start + 1;
         run.level = level;
@@ -65,6 +83,7 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
         } else {
             run.font = text.regionFonts.get(region);
             run.color = text.regionColors.items[region];
+            run.features = text.regionFeatures.items[region];
         }
 
         final char[] chars = text.text;
@@ -79,6 +98,7 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
                 // Fallthrough
             case '\n':
                 run.flags |= TextRun.FLAG_LINE_BREAK;
+                lastScript = null;
                 break;
             default:
                 assert false;
@@ -103,30 +123,36 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
 
         F font;
         float color;
+        FontFeatures features;
         if (region < 0) {
             font = text.initialFont;
             color = text.initialColor;
+            features = null;
         } else {
             font = text.regionFonts.get(region);
             color = text.regionColors.items[region];
+            features = text.regionFeatures.items[region];
         }
 
         while (true) {
             // Compute new end
             F nextFont = null;
             float nextColor = 0f;
+            FontFeatures nextFeatures = null;
             int nextRegionEndIndex = -1;
             if (regionEndIndex < end) {
-                // If following regions share same font and color, no need to stop here
-                // and even if they do, advance into them
+                // If following regions share same font and features, no need to stop here
+                // and even if they do, advance into them. Color changes don't split the run,
+                // so that the text is shaped together, colors are applied to the glyphs by the layout.
                 do {
                     region++;
                     assert region < text.regionStarts.size; // Because regionEndIndex < end
                     nextFont = text.regionFonts.get(region);
                     nextColor = text.regionColors.items[region];
+                    nextFeatures = text.regionFeatures.items[region];
                     nextRegionEndIndex = regionEndIndex(text, region);
 
-                    if (font != nextFont || color != nextColor) {
+                    if (font != nextFont || !FontFeatures.equal(features, nextFeatures)) {
                         break;
                     }
                     regionEndIndex = nextRegionEndIndex;
@@ -138,19 +164,18 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
             assert endIndex > index;
 
             // Create the run
-            @SuppressWarnings("unchecked")
-            final TextRun<F> run = RUN_POOL.obtain();
-            run.start = index;
-            run.color = color;
-            run.font = font;
-            run.level = level;
-            run.end = index = endIndex;
-            add(run);
+            if (itemizeScripts) {
+                addScriptRuns(text.text, index, endIndex, level, font, color, features);
+            } else {
+                addRun(index, endIndex, level, font, color, features, null);
+            }
+            index = endIndex;
 
             if (index < end) {
                 assert nextFont != null;
                 font = nextFont;
                 color = nextColor;
+                features = nextFeatures;
                 regionEndIndex = nextRegionEndIndex;
             } else {
                 break;
@@ -159,6 +184,51 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
         assert index == end;
     }
 
+    private void addRun(int start, int end, byte level, F font, float color, FontFeatures features, UnicodeScript script) {
+        final TextRun<F> run = LayoutTextRunArray.<F>runPool().obtain();
+        run.start = start;
+        run.end = end;
+        run.level = level;
+        run.font = font;
+        run.color = color;
+        run.features = features;
+        run.script = script;
+        add(run);
+    }
+
+    /**
+     * Add runs from start to end, split where the script changes.
+     * Characters of neutral scripts (Common, Inherited) take the script of preceding text in the paragraph,
+     * or of following text, if there is no preceding text.
+     */
+    private void addScriptRuns(char[] chars, int start, int end, byte level, F font, float color, FontFeatures features) {
+        UnicodeScript script = lastScript;
+        int pieceStart = start;
+        for (int i = start; i < end; ) {
+            final int codepointStart = i;
+            final int codepoint = Character.codePointAt(chars, i, end);
+            i += Character.charCount(codepoint);
+
+            final UnicodeScript codepointScript = UnicodeScripts.of(codepoint);
+            if (UnicodeScripts.isNeutral(codepointScript) || codepointScript == script) {
+                continue;
+            }
+            if (script != null && pieceStart < codepointStart) {
+                addRun(pieceStart, codepointStart, level, font, color, features, script);
+                pieceStart = codepointStart;
+            }
+            script = codepointScript;
+        }
+
+        if (script == null) {
+            // Only neutral characters so far
+            script = UnicodeScript.COMMON;
+        } else {
+            lastScript = script;
+        }
+        addRun(pieceStart, end, level, font, color, features, script);
+    }
+
     private void setup(LayoutText<F> text) {
         if (text.length <= 0) {
             // No point in continuing
@@ -273,7 +343,7 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
     }
 
     private static <F extends Font<F>> boolean assertLayoutRunsValid(Array<TextRun<F>> runs) {
-        for (TextRun run : runs) {
+        for (TextRun<F> run : runs) {
             assert run.start >= 0;
             assert run.start < run.end;
         }
@@ -306,11 +376,12 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
     /**
      * Do not call directly.
      */
-    @SuppressWarnings("unchecked")
     @Override
     public void reset() {
-        RUN_POOL.freeAll((Array<TextRun>)(Array)this);
+        LayoutTextRunArray.<F>runPool().freeAll(this);
         this.clear();
+        itemizeScripts = false;
+        lastScript = null;
     }
 
     /**
@@ -328,8 +399,16 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
         public int start, end;
         /** Font used in this run */
         public F font;
-        /** Color used in this run */
+        /** Color of the first character of this run.
+         * Other characters may have different colors, runs are not split by color, see {@link LayoutText#colorAt(int)}. */
         public float color;
+        /** Font features used in this run, null for none */
+        public FontFeatures features;
+        /** Unicode script of the run, if requested, otherwise null.
+         * Neutral characters are resolved to the script of the surrounding text,
+         * so this is {@link UnicodeScript#COMMON} only when the run and the preceding text of its paragraph
+         * consist only of neutral characters. */
+        public UnicodeScript script;
         /** @see #FLAG_LINE_BREAK
          * @see #FLAG_TAB_STOP
          * @see #FLAG_LAST_RUN */
@@ -346,14 +425,39 @@ public final class LayoutTextRunArray<F extends Font<F>> extends Array<LayoutTex
             start = end = -1;
             font = null;
             color = 0f;
+            features = null;
+            script = null;
             flags = 0;
         }
     }
 
     /* Max capacity translates to this many characters until GC starts running:
         worst case: MAX characters
-        best case: maxRunLength * MAX */
-    private static final Pool<TextRun> RUN_POOL = Pools.get(TextRun.class, 1024);
+        best case: maxRunLength * MAX
+       Pools are per-thread, so that layouts can be done concurrently. */
+    private static final PerThreadPool<TextRun<?>> RUN_POOL = new PerThreadPool<TextRun<?>>("TextRun", 16, 1024) {
+        @Override
+        protected TextRun<?> newObject() {
+            return new TextRun<>();
+        }
+    };
     /* Not exposed directly because of problems with generics */
-    private static final Pool<LayoutTextRunArray> ITERABLE_POOL = Pools.get(LayoutTextRunArray.class, 10);
+    private static final PerThreadPool<LayoutTextRunArray<?>> ITERABLE_POOL = new PerThreadPool<LayoutTextRunArray<?>>("LayoutTextRunArray", 4, 10) {
+        @Override
+        protected LayoutTextRunArray<?> newObject() {
+            return new LayoutTextRunArray<>();
+        }
+    };
+
+    /** @return {@link #RUN_POOL} of this thread, runs are pooled regardless of their font type */
+    @SuppressWarnings("unchecked")
+    private static <F extends Font<F>> Pool<TextRun<F>> runPool() {
+        return (Pool<TextRun<F>>) (Pool<?>) RUN_POOL.get();
+    }
+
+    /** @return {@link #ITERABLE_POOL} of this thread, arrays are pooled regardless of their font type */
+    @SuppressWarnings("unchecked")
+    private static <F extends Font<F>> Pool<LayoutTextRunArray<F>> iterablePool() {
+        return (Pool<LayoutTextRunArray<F>>) (Pool<?>) ITERABLE_POOL.get();
+    }
 }
@@ -0,0 +1,192 @@
+package com.badlogic.gdx.graphics.text;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BooleanArray;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Renderable glyphs of a {@link GlyphLayout}, packed into few flat arrays instead of per-run {@link GlyphRun} objects.
+ *
+ * Glyphs of all runs are stored consecutively, with positions already relative to the layout origin.
+ * Consecutive runs with the same font, color and direction are merged, runs with glyphs of multiple colors
+ * ({@link GlyphRun#glyphColors}) are split by color and glyphs that are not rendered are dropped.
+ * This is what {@link FontRenderCache#addGlyphs(PackedGlyphLayout, float, float)} needs, without chasing
+ * through thousands of small arrays of big layouts. It also allows to {@link GlyphLayout#clear()} the source layout
+ * right after packing, returning its runs to the pool.
+ *
+ * Holds no character information, so caret positions and hit-testing must still be done on the {@link GlyphLayout}.
+ */
+public final class PackedGlyphLayout<F extends Font<F>> {
+
+    final Array<Glyph> glyphs = new Array<>(true, 256, Glyph.class);
+    /** Pen position of the glyph, relative to the layout origin */
+    final FloatArray glyphX = new FloatArray(true, 256);
+    final FloatArray glyphY = new FloatArray(true, 256);
+
+    /** Index of the first glyph of each run, followed by the glyph count. Size is the amount of runs + 1. */
+    final IntArray runGlyphStarts = new IntArray(true, 16);
+    /** Backed by Object[], so must be accessed through get() */
+    final Array<F> runFonts = new Array<>(true, 16);
+    final FloatArray runColors = new FloatArray(true, 16);
+    /** Whether {@link Glyph#FLAG_MIRRORED} glyphs of the run are flipped (run is right-to-left) */
+    final BooleanArray runFlipMirrored = new BooleanArray(true, 16);
+
+    private float width, height;
+
+    public PackedGlyphLayout() {
+        runGlyphStarts.add(0);
+    }
+
+    /** Pack the glyphs of the layout, replacing the current content.
+     * Layout is not modified and may be cleared afterwards.
+     * Glyphs of the layout are {@link GlyphLayout#prepareGlyphs() prepared} first, so this must be called on the GL thread. */
+    public void set(GlyphLayout<F> layout) {
+        clear();
+        width = layout.getWidth();
+        height = layout.getHeight();
+
+        final Array<Glyph> glyphs = this.glyphs;
+        final FloatArray glyphX = this.glyphX;
+        final FloatArray glyphY = this.glyphY;
+        final IntArray runGlyphStarts = this.runGlyphStarts;
+
+        // Glyphs that are not rendered yet have no page
+        layout.prepareGlyphs();
+        final Array<GlyphRun<F>> runs = layout.getRuns();
+        int glyphCount = 0;
+        for (int i = 0; i < runs.size; i++) {
+            glyphCount += runs.items[i].glyphs.size;
+        }
+        final Glyph[] packedGlyphs = glyphs.ensureCapacity(glyphCount);
+        final float[] packedX = glyphX.ensureCapacity(glyphCount);
+        final float[] packedY = glyphY.ensureCapacity(glyphCount);
+
+        int g = 0;
+        for (int r = 0; r < runs.size; r++) {
+            final GlyphRun<F> run = runs.items[r];
+            final int runGlyphCount = run.glyphs.size;
+            if (runGlyphCount == 0) {
+                continue;
+            }
+
+            final F font = run.font;
+            final boolean flipMirrored = !run.isLtr();
+            final float[] runGlyphColors = run.glyphColors == null ? null : run.glyphColors.items;
+            if (runGlyphColors == null) {
+                startRun(font, run.color, flipMirrored, g);
+            }
+
+            final Glyph[] runGlyphs = run.glyphs.items;
+            final float[] runX = run.glyphX.items;
+            final float[] runY = run.glyphY.items;
+            final float x = run.x;
+            final float y = run.y;
+            for (int i = 0; i < runGlyphCount; i++) {
+                final Glyph glyph = runGlyphs[i];
+                if (glyph.page == -1) {
+                    continue;
+                }
+                if (runGlyphColors != null) {
+                    // Run with glyphs of multiple colors is packed into a run for each color
+                    startRun(font, runGlyphColors[i], flipMirrored, g);
+                }
+                packedGlyphs[g] = glyph;
+                packedX[g] = x + runX[i];
+                packedY[g] = y + runY[i];
+                g++;
+            }
+        }
+        glyphs.size = g;
+        glyphX.size = g;
+        glyphY.size = g;
+        if (runFonts.size > 0) {
+            runGlyphStarts.add(g);
+        }
+    }
+
+    /** Start a new packed run with glyph g, unless the last packed run has the same font, color and direction. */
+    private void startRun(F font, float color, boolean flipMirrored, int g) {
+        final Array<F> runFonts = this.runFonts;
+        final int runCount = runFonts.size;
+        if (runCount == 0 || runFonts.get(runCount - 1) != font || runColors.items[runCount - 1] != color
+                || runFlipMirrored.items[runCount - 1] != flipMirrored) {
+            if (runCount > 0) {
+                runGlyphStarts.add(g);
+            }
+            runFonts.add(font);
+            runColors.add(color);
+            runFlipMirrored.add(flipMirrored);
+        }
+    }
+
+    /** @return total width of the packed layout, as {@link GlyphLayout#getWidth()} */
+    public float getWidth() {
+        return width;
+    }
+
+    /** @return total height of the packed layout, as {@link GlyphLayout#getHeight()} */
+    public float getHeight() {
+        return height;
+    }
+
+    /** @return amount of rendered glyphs */
+    public int getGlyphCount() {
+        return glyphs.size;
+    }
+
+    public Glyph getGlyph(int glyph) {
+        return glyphs.get(glyph);
+    }
+
+    /** @return pen x position of the glyph, relative to the layout origin */
+    public float getGlyphX(int glyph) {
+        return glyphX.get(glyph);
+    }
+
+    /** @return pen y position of the glyph, relative to the layout origin */
+    public float getGlyphY(int glyph) {
+        return glyphY.get(glyph);
+    }
+
+    /** @return amount of packed runs, which may be less than the amount of runs of the source layout */
+    public int getRunCount() {
+        return runFonts.size;
+    }
+
+    /** @return index of the first glyph of the run */
+    public int getRunGlyphStart(int run) {
+        return runGlyphStarts.get(run);
+    }
+
+    /** @return index after the last glyph of the run */
+    public int getRunGlyphEnd(int run) {
+        return runGlyphStarts.get(run + 1);
+    }
+
+    public F getRunFont(int run) {
+        return runFonts.get(run);
+    }
+
+    public float getRunColor(int run) {
+        return runColors.get(run);
+    }
+
+    /** @return true if the run is right-to-left and its {@link Glyph#FLAG_MIRRORED} glyphs are flipped */
+    public boolean isRunFlipMirrored(int run) {
+        return runFlipMirrored.get(run);
+    }
+
+    /** Remove all glyphs. */
+    public void clear() {
+        glyphs.clear();
+        glyphX.clear();
+        glyphY.clear();
+        runGlyphStarts.clear();
+        runGlyphStarts.add(0);
+        runFonts.clear();
+        runColors.clear();
+        runFlipMirrored.clear();
+        width = height = 0f;
+    }
+}
@@ -0,0 +1,104 @@
+package com.badlogic.gdx.graphics.text;
+
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * {@link LayoutText} with all width-independent layout work done ahead of time: itemization into runs
+ * (including bidi levels), shaping (when supported by the font system) and measurement of character advances.
+ * Laying it out through {@link GlyphLayout#layoutText(PreparedText, float, float, int, String)} then only has to
+ * find the line breaks and position the glyphs, which makes it cheap to lay out the same text at many widths,
+ * for example while its container is being resized.
+ *
+ * Prepared text is not modified after {@link #prepare(LayoutText)}, so it can be prepared on a different thread
+ * than the one which lays it out. Fonts fill their glyph and shaping caches lazily, so this is safe only as long as
+ * the fonts of the text are not used by other threads at the same time, unless the glyph layout of the font system
+ * supports parallel layout (see {@link GlyphLayout#isParallelLayoutSupported()}).
+ * Other fonts may be used for layout meanwhile.
+ *
+ * <h4>Example</h4>
+ * <blockquote><pre>{@code
+ *     PreparedText<HBFont> prepared = PreparedText.prepare(text);
+ *     // When the width changes
+ *     layout.layoutText(prepared, newWidth, 0f, Align.left, null);
+ * }</pre></blockquote>
+ */
+public final class PreparedText<F extends Font<F>> implements Disposable {
+
+    /** Copy of the prepared text */
+    final LayoutText<F> text = new LayoutText<>();
+    LayoutTextRunArray<F> textRuns;
+    /** Font system specific data of {@link GlyphLayout#doPrepareText}, may be null */
+    Object shaping;
+
+    /** Whether {@link #advances}, {@link #pieces} and {@link #pieceFonts} are valid,
+     * see {@link GlyphLayout#measureAdvances}. */
+    boolean measured;
+    final FloatArray advances = new FloatArray();
+    final IntArray pieces = new IntArray();
+    final Array<F> pieceFonts = new Array<>();
+
+    private PreparedText() {
+    }
+
+    /** Prepare the text for layout by the glyph layout of its initial font.
+     * @param text to prepare, it is copied, so later modifications don't reflect in the prepared text */
+    public static <F extends Font<F>> PreparedText<F> prepare(LayoutText<F> text) {
+        if (text == null) throw new NullPointerException("text");
+        final PreparedText<F> prepared = new PreparedText<>();
+        final LayoutText<F> preparedText = prepared.text;
+        preparedText.initFrom(text, 0, text.length());
+
+        final GlyphLayout<F> layout = text.getInitialFont().createGlyphLayout();
+        final long itemizeStart = TextMetrics.start();
+        final LayoutTextRunArray<F> textRuns = LayoutTextRunArray.obtain(preparedText, layout.isScriptItemizationNeeded());
+        TextMetrics.end(TextMetrics.Stage.ITEMIZE, text.getInitialFont(), itemizeStart);
+        prepared.textRuns = textRuns;
+
+        prepared.shaping = layout.doPrepareText(preparedText, textRuns);
+
+        final int length = preparedText.length();
+        final float[] advances = prepared.advances.ensureCapacity(length);
+        Arrays.fill(advances, 0, length, 0f);
+        prepared.measured = textRuns.size > 0 && layout.measurePreparedAdvances(preparedText, textRuns, prepared.shaping,
+                advances, prepared.pieces, prepared.pieceFonts);
+        if (prepared.measured) {
+            prepared.advances.size = length;
+        } else {
+            prepared.pieces.clear();
+            prepared.pieceFonts.clear();
+        }
+        return prepared;
+    }
+
+    /** @return copy of the prepared text, must not be modified */
+    public LayoutText<F> getText() {
+        return text;
+    }
+
+    /** @return runs of the prepared text, must not be modified */
+    public LayoutTextRunArray<F> getTextRuns() {
+        return textRuns;
+    }
+
+    /** @return data of the prepared text, as returned by {@link GlyphLayout#doPrepareText}, may be null */
+    public Object getShaping() {
+        return shaping;
+    }
+
+    /** Frees the runs of the text. The prepared text must not be used after this. */
+    @Override
+    public void dispose() {
+        if (textRuns != null) {
+            LayoutTextRunArray.free(textRuns);
+            textRuns = null;
+        }
+        shaping = null;
+        measured = false;
+    }
+}
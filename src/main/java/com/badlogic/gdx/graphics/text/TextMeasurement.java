@@ -0,0 +1,27 @@
+package com.badlogic.gdx.graphics.text;
+
+/**
+ * Size of a text, as computed by {@link GlyphLayout#measure(LayoutText, float, TextMeasurement)}.
+ * Mutable, so that it can be reused between measurements.
+ */
+public final class TextMeasurement {
+
+    /** Width of the widest line */
+    public float width;
+    /** Sum of heights of all lines */
+    public float height;
+    /** Amount of lines, at least 1 */
+    public int lineCount;
+
+    public TextMeasurement set(float width, float height, int lineCount) {
+        this.width = width;
+        this.height = height;
+        this.lineCount = lineCount;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "TextMeasurement{" + width + " x " + height + ", " + lineCount + " lines}";
+    }
+}
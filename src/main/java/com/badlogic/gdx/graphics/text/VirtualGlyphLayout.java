@@ -0,0 +1,383 @@
+package com.badlogic.gdx.graphics.text;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+
+import java.util.Arrays;
+
+/**
+ * Layout of huge texts, of which only a small part is visible at a time, for example in a scroll pane.
+ *
+ * Text is split into paragraphs and only paragraphs that are needed (for rendering through
+ * {@link #addGlyphs(FontRenderCache, float, float, float, float)} or for caret and index queries) are laid out,
+ * each into its own {@link GlyphLayout}, together with their trailing linebreak. Only a limited amount of laid out paragraphs is kept, least recently used
+ * are cleared when more are needed.
+ *
+ * Heights of paragraphs which were not laid out yet are estimated from line height and average amount of
+ * characters per line of laid out paragraphs, unless exact heights are requested in {@link #setText}.
+ * Because of that, offsets of paragraphs (and {@link #getHeight()}) may change as more paragraphs get laid out.
+ *
+ * Coordinates are the same as in {@link GlyphLayout}: origin is in the upper left corner, y grows up.
+ * Paragraphs are laid out and aligned separately, so center and right alignment needs finite available width
+ * to give the same result as {@link GlyphLayout#layoutText}.
+ *
+ * Text must not be modified while in use by this layout, call {@link #setText} again after modifying it.
+ */
+public final class VirtualGlyphLayout<F extends Font<F>> {
+
+    private final int maxLaidOutParagraphs;
+
+    private LayoutText<F> text;
+    private float availableWidth;
+    private int horizontalAlign;
+
+    /** First char of paragraph, paragraph content ends before the linebreak which starts the next paragraph.
+     * Size is the amount of paragraphs + 1, last element is the text length + 1. */
+    private final IntArray paragraphStarts = new IntArray();
+    /** Exclusive, linebreak is not included. */
+    private final IntArray paragraphEnds = new IntArray();
+    /** Exact height of paragraphs that were laid out (at least once), NaN for others */
+    private final FloatArray paragraphHeights = new FloatArray();
+    /** Offset of the paragraph top from the top of the text. Size is the amount of paragraphs + 1. */
+    private final FloatArray paragraphTops = new FloatArray();
+    /** paragraphTops up to this index (inclusive) are valid */
+    private int validTops;
+
+    private float estimatedLineHeight;
+    /** Characters and lines of laid out wrapped paragraphs, for estimating the lines of other paragraphs */
+    private long sampledCharacters, sampledLines;
+    /** Heights and lines of all laid out paragraphs, for estimating the line height */
+    private double sampledHeight;
+    private long sampledHeightLines;
+
+    private final IntMap<GlyphLayout<F>> laidOut = new IntMap<>();
+    /** Paragraphs in {@link #laidOut}, least recently used first */
+    private final IntArray laidOutOrder = new IntArray();
+    private final Array<GlyphLayout<F>> freeLayouts = new Array<>();
+    private final LayoutText<F> paragraphText = new LayoutText<>();
+
+    private final Rectangle caret = new Rectangle();
+
+    /** @param maxLaidOutParagraphs how many laid out paragraphs are kept, should be more than the amount
+     *                             of paragraphs that are visible at once */
+    public VirtualGlyphLayout(int maxLaidOutParagraphs) {
+        if (maxLaidOutParagraphs < 1) throw new IllegalArgumentException("maxLaidOutParagraphs must be positive: " + maxLaidOutParagraphs);
+        this.maxLaidOutParagraphs = maxLaidOutParagraphs;
+    }
+
+    public VirtualGlyphLayout() {
+        this(256);
+    }
+
+    /** Prepare the layout of the text. Only paragraph boundaries are found, unless exactHeights is true.
+     * @param text to lay out, held by reference and must not be modified while in use by this layout
+     * @param availableWidth see {@link GlyphLayout#layoutText}
+     * @param horizontalAlign see {@link GlyphLayout#layoutText}
+     * @param exactHeights if true, all paragraphs are laid out immediately to compute their heights (glyphs are not kept),
+     *                     otherwise heights of paragraphs are estimated until they are laid out */
+    public void setText(LayoutText<F> text, float availableWidth, int horizontalAlign, boolean exactHeights) {
+        if (text == null) throw new NullPointerException("text");
+        clear();
+        this.text = text;
+        this.availableWidth = availableWidth <= 0f ? Float.POSITIVE_INFINITY : availableWidth;
+        this.horizontalAlign = horizontalAlign;
+
+        final char[] chars = text.text();
+        final int length = text.length();
+        final IntArray paragraphStarts = this.paragraphStarts;
+        final IntArray paragraphEnds = this.paragraphEnds;
+        paragraphStarts.add(0);
+        for (int i = 0; i < length; i++) {
+            final char c = chars[i];
+            if (c != '\n' && c != '\r') {
+                continue;
+            }
+            paragraphEnds.add(i);
+            if (c == '\r' && i + 1 < length && chars[i + 1] == '\n') {
+                i++;
+            }
+            paragraphStarts.add(i + 1);
+        }
+        paragraphEnds.add(length);
+        paragraphStarts.add(length + 1);
+
+        final int paragraphs = paragraphEnds.size;
+        final float[] heights = paragraphHeights.setSize(paragraphs);
+        Arrays.fill(heights, 0, paragraphs, Float.NaN);
+        paragraphTops.setSize(paragraphs + 1);
+        paragraphTops.items[0] = 0f;
+        validTops = 0;
+
+        // Height of an empty line
+        final GlyphLayout<F> layout = obtainLayout();
+        paragraphText.init(text.getInitialFont(), text.getInitialColor());
+        layout.layoutText(paragraphText, this.availableWidth, 0f, horizontalAlign, null);
+        estimatedLineHeight = layout.getHeight();
+        freeLayout(layout);
+
+        if (exactHeights) {
+            for (int p = 0; p < paragraphs; p++) {
+                final GlyphLayout<F> paragraphLayout = obtainLayout();
+                layoutParagraph(paragraphLayout, p);
+                freeLayout(paragraphLayout);
+            }
+        }
+    }
+
+    /** @return the text set by {@link #setText}, or null */
+    public LayoutText<F> getText() {
+        return text;
+    }
+
+    /** @return amount of paragraphs, at least 1 after {@link #setText} */
+    public int getParagraphCount() {
+        return paragraphEnds.size;
+    }
+
+    /** @return index of the first character of the paragraph */
+    public int getParagraphStart(int paragraph) {
+        return paragraphStarts.get(paragraph);
+    }
+
+    /** @return index after the last character of the paragraph, not including its trailing linebreak */
+    public int getParagraphEnd(int paragraph) {
+        return paragraphEnds.get(paragraph);
+    }
+
+    /** @return whether the height of the paragraph is known exactly (it was laid out) or only estimated */
+    public boolean isParagraphHeightExact(int paragraph) {
+        return !Float.isNaN(paragraphHeights.get(paragraph));
+    }
+
+    /** @return distance of the paragraph's top from the top of the text, possibly estimated */
+    public float getParagraphTop(int paragraph) {
+        if (paragraph < 0 || paragraph > paragraphEnds.size) {
+            throw new IndexOutOfBoundsException("paragraph: " + paragraph);
+        }
+        return computeTops(paragraph);
+    }
+
+    /** @return total height of the text, possibly estimated */
+    public float getHeight() {
+        return paragraphEnds.size == 0 ? 0f : computeTops(paragraphEnds.size);
+    }
+
+    /** @return width used for alignment, which is the available width (if not infinite)
+     * or the width of the widest laid out paragraph */
+    public float getAlignWidth() {
+        if (availableWidth != Float.POSITIVE_INFINITY) {
+            return availableWidth;
+        }
+        float width = 0f;
+        for (IntMap.Entry<GlyphLayout<F>> entry : laidOut) {
+            width = Math.max(width, entry.value.getAlignWidth());
+        }
+        return width;
+    }
+
+    /** @return paragraph which contains the character at index (linebreaks belong to the preceding paragraph) */
+    public int getParagraphOf(int index) {
+        final int paragraphs = paragraphEnds.size;
+        if (paragraphs == 0) {
+            return -1;
+        }
+        int paragraph = Arrays.binarySearch(paragraphStarts.items, 0, paragraphs, index);
+        if (paragraph < 0) {
+            paragraph = -paragraph - 2;
+        }
+        return Math.max(0, Math.min(paragraph, paragraphs - 1));
+    }
+
+    /** @param offset distance from the top of the text
+     * @return paragraph at the offset, clamped to valid paragraphs */
+    public int getParagraphAtOffset(float offset) {
+        final int paragraphs = paragraphEnds.size;
+        if (paragraphs == 0) {
+            return -1;
+        }
+        computeTops(paragraphs);
+        int paragraph = Arrays.binarySearch(paragraphTops.items, 0, paragraphs + 1, offset);
+        if (paragraph < 0) {
+            paragraph = -paragraph - 2;
+        }
+        return Math.max(0, Math.min(paragraph, paragraphs - 1));
+    }
+
+    /** Lay out the paragraph, if it is not laid out already.
+     * @return layout of the paragraph, whose origin is at {@link #getParagraphTop(int)} and whose character indices
+     * are relative to {@link #getParagraphStart(int)}. Valid until the paragraph is evicted by laying out other paragraphs. */
+    public GlyphLayout<F> getParagraphLayout(int paragraph) {
+        if (paragraph < 0 || paragraph >= paragraphEnds.size) {
+            throw new IndexOutOfBoundsException("paragraph: " + paragraph);
+        }
+
+        final IntArray laidOutOrder = this.laidOutOrder;
+        GlyphLayout<F> layout = laidOut.get(paragraph);
+        if (layout != null) {
+            final int orderIndex = laidOutOrder.lastIndexOf(paragraph);
+            if (orderIndex != laidOutOrder.size - 1) {
+                System.arraycopy(laidOutOrder.items, orderIndex + 1, laidOutOrder.items, orderIndex, laidOutOrder.size - 1 - orderIndex);
+                laidOutOrder.items[laidOutOrder.size - 1] = paragraph;
+            }
+            return layout;
+        }
+
+        if (laidOutOrder.size >= maxLaidOutParagraphs) {
+            final int evicted = laidOutOrder.removeIndex(0);
+            freeLayout(laidOut.remove(evicted));
+        }
+
+        layout = obtainLayout();
+        layoutParagraph(layout, paragraph);
+        laidOut.put(paragraph, layout);
+        laidOutOrder.add(paragraph);
+        return layout;
+    }
+
+    /** Render glyphs of paragraphs that intersect the given vertical range to the cache, laying them out if needed.
+     * @param x of the upper left corner of the text
+     * @param y of the upper left corner of the text
+     * @param viewTop distance of the visible range's top from the top of the text
+     * @param viewBottom distance of the visible range's bottom from the top of the text */
+    public void addGlyphs(FontRenderCache cache, float x, float y, float viewTop, float viewBottom) {
+        final int paragraphs = paragraphEnds.size;
+        if (paragraphs == 0) {
+            return;
+        }
+        for (int p = getParagraphAtOffset(viewTop); p < paragraphs; p++) {
+            final GlyphLayout<F> layout = getParagraphLayout(p);
+            // Laying out can change the estimates, so the top is computed after that
+            final float top = computeTops(p);
+            if (top >= viewBottom) {
+                break;
+            }
+            cache.addGlyphs(layout, x, y - top);
+        }
+    }
+
+    /** Like {@link GlyphLayout#getCaretPosition(int)}, lays out the paragraph of the index if needed.
+     * @return rectangle valid until the next call of this method */
+    public Rectangle getCaretPosition(int index) {
+        final int paragraph = getParagraphOf(index);
+        if (paragraph < 0) {
+            return caret.set(0f, 0f, 0f, 0f);
+        }
+        final GlyphLayout<F> layout = getParagraphLayout(paragraph);
+        final int start = paragraphStarts.items[paragraph];
+        final int localIndex = Math.max(0, Math.min(index - start, paragraphEnds.items[paragraph] - start));
+        caret.set(layout.getCaretPosition(localIndex));
+        caret.y -= computeTops(paragraph);
+        return caret;
+    }
+
+    /** Like {@link GlyphLayout#getIndexAt(float, float, boolean)}, lays out the paragraph at y if needed. */
+    public int getIndexAt(float x, float y, boolean closest) {
+        final int paragraphs = paragraphEnds.size;
+        if (paragraphs == 0) {
+            return -1;
+        }
+        final float offset = -y;
+        if (!closest && (offset < 0f || offset > getHeight())) {
+            return -1;
+        }
+
+        final int paragraph = getParagraphAtOffset(offset);
+        final GlyphLayout<F> layout = getParagraphLayout(paragraph);
+        final int start = paragraphStarts.items[paragraph];
+        final int localIndex = layout.getIndexAt(x, y + computeTops(paragraph), closest);
+        if (localIndex < 0) {
+            // Empty last paragraph has no runs, but it is still a valid position (unless the whole text is empty)
+            return closest && start > 0 ? start : -1;
+        }
+        return start + localIndex;
+    }
+
+    /** Clear the laid out paragraphs and forget the text. */
+    public void clear() {
+        for (IntMap.Entry<GlyphLayout<F>> entry : laidOut) {
+            freeLayout(entry.value);
+        }
+        laidOut.clear();
+        laidOutOrder.clear();
+        text = null;
+        paragraphStarts.clear();
+        paragraphEnds.clear();
+        paragraphHeights.clear();
+        paragraphTops.clear();
+        validTops = 0;
+        sampledCharacters = sampledLines = sampledHeightLines = 0;
+        sampledHeight = 0.0;
+        paragraphText.reset();
+    }
+
+    private GlyphLayout<F> obtainLayout() {
+        final Array<GlyphLayout<F>> freeLayouts = this.freeLayouts;
+        return freeLayouts.size > 0 ? freeLayouts.pop() : text.getInitialFont().createGlyphLayout();
+    }
+
+    private void freeLayout(GlyphLayout<F> layout) {
+        layout.clear();
+        freeLayouts.add(layout);
+    }
+
+    private void layoutParagraph(GlyphLayout<F> layout, int paragraph) {
+        final int start = paragraphStarts.items[paragraph];
+        final int end = paragraphEnds.items[paragraph];
+        // Linebreak is laid out with the paragraph, as it affects the line's height and alignment...
+        final int textEnd = Math.min(paragraphStarts.items[paragraph + 1], text.length());
+        final LayoutText<F> paragraphText = this.paragraphText;
+        paragraphText.initFrom(text, start, textEnd);
+        layout.layoutText(paragraphText, availableWidth, 0f, horizontalAlign, null);
+        paragraphText.reset();
+
+        // ...but the empty line after it belongs to the next paragraph
+        int lines = layout.getLineCount();
+        if (textEnd > end && lines > 1) {
+            lines--;
+        }
+        final float height = layout.getLineBottom(lines - 1);
+        final float[] heights = paragraphHeights.items;
+        if (Float.isNaN(heights[paragraph])) {
+            sampledHeight += height;
+            sampledHeightLines += lines;
+            if (lines > 1) {
+                sampledCharacters += end - start;
+                sampledLines += lines;
+            }
+            // Estimates of all paragraphs have changed
+            validTops = 0;
+        } else if (heights[paragraph] != height) {
+            validTops = Math.min(validTops, paragraph);
+        }
+        heights[paragraph] = height;
+    }
+
+    /** Make sure that tops are valid up to the given paragraph (inclusive).
+     * @return top of the paragraph */
+    private float computeTops(int paragraph) {
+        final float[] tops = paragraphTops.items;
+        if (paragraph <= validTops) {
+            return tops[paragraph];
+        }
+
+        final float[] heights = paragraphHeights.items;
+        final int[] starts = paragraphStarts.items;
+        final int[] ends = paragraphEnds.items;
+        final float lineHeight = sampledHeightLines == 0 ? estimatedLineHeight : (float) (sampledHeight / sampledHeightLines);
+        final double charactersPerLine = sampledLines == 0 ? Double.POSITIVE_INFINITY : (double) sampledCharacters / sampledLines;
+
+        for (int p = validTops; p < paragraph; p++) {
+            float height = heights[p];
+            if (Float.isNaN(height)) {
+                final int lines = Math.max(1, (int) Math.ceil((ends[p] - starts[p]) / charactersPerLine));
+                height = lines * lineHeight;
+            }
+            tops[p + 1] = tops[p] + height;
+        }
+        validTops = paragraph;
+        return tops[paragraph];
+    }
+}
@@ -7,6 +7,7 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.text.Font;
 import com.badlogic.gdx.graphics.text.Glyph;
 import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.util.CodepointSet;
 import com.badlogic.gdx.utils.*;
 
 import java.io.BufferedReader;
@@ -416,10 +417,48 @@ public class BitmapFont implements Font<BitmapFont> {
     }
 
     @Override
-    public void prepareGlyphs() {
+    public void prepareGlyphs(GlyphLayout<BitmapFont> layout) {
         // no-op, all glyphs are already preloaded
     }
 
+    @Override
+    public boolean covers(int codepoint) {
+        // Glyph IDs are code points and glyphs are preloaded, so the lookup is cheap
+        return getGlyph(codepoint) != null;
+    }
+
+    @Override
+    public boolean coversAll(CharSequence text) {
+        final int length = text.length();
+        for (int i = 0; i < length; ) {
+            final int codepoint = Character.codePointAt(text, i);
+            if (getGlyph(codepoint) == null) {
+                return false;
+            }
+            i += Character.charCount(codepoint);
+        }
+        return true;
+    }
+
+    /** Compute a set of all code points this font (not including fallbacks) has glyphs for.
+     * The result is computed on each call, cache it if needed. */
+    public CodepointSet getCoverage() {
+        final CodepointSet coverage = new CodepointSet();
+        for (BitmapGlyph[] page : glyphsBmp) {
+            if (page == null) continue;
+            for (BitmapGlyph glyph : page) {
+                if (glyph != null) coverage.add(glyph.glyphId);
+            }
+        }
+        final IntMap<BitmapGlyph> glyphsNonBmp = this.glyphsNonBmp;
+        if (glyphsNonBmp != null) {
+            for (IntMap.Entry<BitmapGlyph> entry : glyphsNonBmp.entries()) {
+                coverage.add(entry.key);
+            }
+        }
+        return coverage;
+    }
+
     @Override
     public BitmapFont getFallback() {
         return fallback;
@@ -2,13 +2,14 @@ package com.badlogic.gdx.graphics.text.bitmap;
 
 import com.badlogic.gdx.graphics.text.*;
 import com.badlogic.gdx.graphics.text.LayoutTextRunArray.TextRun;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
 
 import java.text.Bidi;
-import java.text.BreakIterator;
 import java.util.Arrays;
-import java.util.Locale;
 
 /**
  * Lays out codepoints for {@link BitmapFontSystem}.
@@ -18,11 +19,118 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
     private static final byte FLAG_GLYPH_RUN_KERN_TO_LAST_GLYPH = (byte) (1 << 7);
     private static final byte FLAG_GLYPH_RUN_HAS_COLLAPSED_SPACES = (byte) (1 << 6);
 
-    /** Borrowed by BitmapGlyphLayout instances when they are doing glyph layout, to store all fonts in the layout. */
-    private static final Array<BitmapFont> usedFonts = new Array<>(true, 10, BitmapFont.class);
+    /** Used when doing glyph layout, to store all fonts in the layout.
+     * Not static, so that different instances can do layout concurrently. */
+    private final Array<BitmapFont> usedFonts = new Array<>(true, 10, BitmapFont.class);
 
     private float startX;
 
+    @Override
+    protected boolean isParallelLayoutSupported() {
+        return true;
+    }
+
+    @Override
+    protected boolean measureAdvances(LayoutText<BitmapFont> text, LayoutTextRunArray<BitmapFont> textRuns, float[] advances, IntArray pieces, Array<BitmapFont> pieceFonts) {
+        final char[] chars = text.text();
+
+        // Same glyph selection and kerning as addRunsFor_doAddGlyphs, but only advances are kept
+        BitmapFont.BitmapGlyph lastGlyph = null;
+        BitmapFont lastFont = null;
+        byte lastLevel = -1;
+        for (int textRunIndex = 0; textRunIndex < textRuns.size; textRunIndex++) {
+            final TextRun<BitmapFont> textRun = textRuns.items[textRunIndex];
+            if ((textRun.flags & (TextRun.FLAG_LINE_BREAK | TextRun.FLAG_TAB_STOP)) != 0) {
+                lastGlyph = null;
+                continue;
+            }
+
+            final int runStart = textRun.start;
+            final int runEnd = textRun.end;
+            final BitmapFont font = textRun.font;
+            final byte level = textRun.level;
+            final boolean ltr = TextRun.isLevelLtr(level);
+            if (font != lastFont || level != lastLevel) {
+                lastGlyph = null;
+            }
+            lastFont = font;
+            lastLevel = level;
+
+            boolean hasGlyphs = false;
+            for (int i = ltr ? runStart : runEnd - 1, inc = ltr ? 1 : -1; i < runEnd && i >= runStart; i += inc) {
+                final int codepoint;
+                final int charIndex;
+                {
+                    final char c = chars[i];
+                    if (Character.isSurrogate(c)) {
+                        if (ltr && Character.isHighSurrogate(c) && i + 1 < runEnd && Character.isLowSurrogate(chars[i + 1])) {
+                            charIndex = i;
+                            advances[++i] = Float.NaN;
+                            codepoint = Character.toCodePoint(c, chars[i]);
+                        } else if (!ltr && Character.isLowSurrogate(c) && i - 1 >= runStart && Character.isHighSurrogate(chars[i - 1])) {
+                            advances[i] = Float.NaN;
+                            charIndex = --i;
+                            codepoint = Character.toCodePoint(chars[i], c);
+                        } else {
+                            charIndex = i;
+                            codepoint = '\uFFFD';
+                        }
+                    } else {
+                        charIndex = i;
+                        codepoint = c;
+                    }
+                }
+
+                BitmapFont.BitmapGlyph glyph = font.getGlyph(codepoint);
+                if (glyph == null) {
+                    byte handling = GlyphLayout.missingGlyphHandling(codepoint);
+                    if (handling < 0) {
+                        glyph = font.getGlyph(Font.MISSING_GLYPH_ID);
+                        if (glyph == null) {
+                            continue;
+                        }
+                    } else if (handling == 0) {
+                        continue;
+                    } else {
+                        advances[charIndex] = font.spaceXAdvance * (handling / 8f);
+                        lastGlyph = null;
+                        continue;
+                    }
+                }
+
+                float advance = glyph.xAdvance;
+                if (lastGlyph != null) {
+                    advance += font.getKerning(lastGlyph, glyph);
+                }
+                advances[charIndex] = advance;
+                lastGlyph = glyph;
+                hasGlyphs = true;
+            }
+
+            if (hasGlyphs) {
+                pieces.add(runStart);
+                pieces.add(runEnd);
+                pieceFonts.add(font);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected float measureFontBase(BitmapFont font) {
+        return font.base;
+    }
+
+    @Override
+    protected float measureFontLineHeight(BitmapFont font) {
+        return font.lineHeight;
+    }
+
+    @Override
+    protected float measureFontSpaceXAdvance(BitmapFont font) {
+        return font.spaceXAdvance;
+    }
+
     private void addLineHeight(float height) {
         lineHeights.add(getHeight() + height);
     }
@@ -202,17 +310,32 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
         runs.insert(insertIndex, run);
     }
 
+    /** @param colorText text of the run, to take glyph colors from, or null if the run has uniform color */
     private void addRunsFor_doAddGlyphs(final GlyphRun<BitmapFont> run, final char[] chars, final int runStart, final int runEnd,
                                            BitmapFont.BitmapGlyph lastGlyph, final float[] characterPositions,
-                                           final BitmapFont font, final boolean ltr) {
+                                           final BitmapFont font, final boolean ltr, final LayoutText<BitmapFont> colorText) {
         // Preallocate max possible amount and do rest of the glyph value assignment on raw arrays
         // This has surprisingly significant performance impact, as this loop is very tight.
         final Glyph[] glyphs = run.glyphs.ensureCapacity(runEnd - runStart);
         final float[] glyphX = run.glyphX.ensureCapacity(runEnd - runStart);
+        final float[] glyphColors;
+        if (colorText != null) {
+            run.setGlyphColorsEnabled(true);
+            glyphColors = run.glyphColors.ensureCapacity(runEnd - runStart);
+        } else {
+            glyphColors = null;
+        }
         int glyphI = 0;
 
-        final long[] checkpoints = run.checkpoints.ensureCapacity(runEnd - runStart);
-        run.checkpoints.size = runEnd - runStart;
+        // Runs of single line layout have no checkpoints
+        final LongArray runCheckpoints = run.checkpoints;
+        final long[] checkpoints;
+        if (runCheckpoints != null) {
+            checkpoints = runCheckpoints.ensureCapacity(runEnd - runStart);
+            runCheckpoints.size = runEnd - runStart;
+        } else {
+            checkpoints = null;
+        }
         int checkpointI = 0;
 
         float penX = 0;
@@ -253,15 +376,17 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
             }
 
             // Inlined run.createCheckpoint
-            final long checkpointValue;
-            if (ltr) {
-                checkpointValue = ((long) checkpointI << 32) | (glyphI & 0xFFFF_FFFFL);
-            } else {
-                // Slightly different from LTR variant because of different direction
-                // TODO(jp): But is it?
-                checkpointValue = ((long) (i - runStart) << 32) | (glyphI & 0xFFFF_FFFFL);
+            if (checkpoints != null) {
+                final long checkpointValue;
+                if (ltr) {
+                    checkpointValue = ((long) checkpointI << 32) | (glyphI & 0xFFFF_FFFFL);
+                } else {
+                    // Slightly different from LTR variant because of different direction
+                    // TODO(jp): But is it?
+                    checkpointValue = ((long) (i - runStart) << 32) | (glyphI & 0xFFFF_FFFFL);
+                }
+                checkpoints[checkpointI++] = checkpointValue;
             }
-            checkpoints[checkpointI++] = checkpointValue;
 
             // Normal glyph handling
             BitmapFont.BitmapGlyph glyph = font.getGlyph(codepoint);
@@ -288,6 +413,9 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
                 penX += font.getKerning(lastGlyph, glyph);
             }
 
+            if (glyphColors != null) {
+                glyphColors[glyphI] = colorText.colorAt(i);
+            }
             glyphs[glyphI] = glyph;
             glyphX[glyphI++] = penX;
             penX += glyph.xAdvance;
@@ -296,6 +424,9 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
 
         run.glyphs.size = glyphI;
         run.glyphX.size = glyphI;
+        if (glyphColors != null) {
+            run.glyphColors.size = glyphI;
+        }
         run.width = penX;
         if (lastGlyph != null) {
             run.characterFlags |= FLAG_GLYPH_RUN_KERN_TO_LAST_GLYPH;
@@ -303,8 +434,8 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
     }
 
     /** @return number of added runs (must be >= 1) */
-    private int addRunsFor(final char[] chars, final int runStart, final int runEnd, final byte level,
-                           final BitmapFont font, final float color, final int line, int insertIndex) {
+    private int addRunsFor(final LayoutText<BitmapFont> text, final int runStart, final int runEnd, final byte level,
+                           final BitmapFont font, final int line, int insertIndex) {
         assert runStart < runEnd;
         final boolean ltr = TextRun.isLevelLtr(level);
 
@@ -314,7 +445,7 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
         run.x = startX; // Y set later
         run.line = line;
         run.font = font;
-        run.color = color;
+        run.color = text.colorAt(runStart);
         run.charactersLevel = level;
         run.charactersStart = runStart;
         run.charactersEnd = runEnd;
@@ -324,7 +455,9 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
         BitmapFont.BitmapGlyph lastGlyph = findNextKerningGlyph(insertIndex, line, level, font);
 
         // Contains performance sensitive loop and putting it into separate method measurably improves performance (desktop JRE)
-        addRunsFor_doAddGlyphs(run, chars, runStart, runEnd, lastGlyph, characterPositions, font, ltr);
+        // Runs are not split on color changes, so each glyph takes the color of its character
+        final LayoutText<BitmapFont> colorText = text.isColorUniform(runStart, runEnd) ? null : text;
+        addRunsFor_doAddGlyphs(run, text.text(), runStart, runEnd, lastGlyph, characterPositions, font, ltr, colorText);
 
         // Complete
         startX += run.width;
@@ -332,6 +465,32 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
         return 1;
     }
 
+    @Override
+    protected boolean doLayoutSingleLine(LayoutText<BitmapFont> text) {
+        final char[] chars = text.text();
+        final int length = text.length();
+        final BitmapFont font = text.fontAt(0);
+
+        final GlyphRun<BitmapFont> run = GlyphRun.obtain(false);
+        run.ensureGlyphCapacity(length);
+        run.x = 0f; // Y set later
+        run.line = 0;
+        run.font = font;
+        run.color = text.colorAt(0);
+        run.charactersLevel = 0;
+        run.charactersStart = 0;
+        run.charactersEnd = length;
+        final float[] characterPositions = run.characterPositions.ensureCapacity(length);
+        run.characterPositions.size = length;
+
+        addRunsFor_doAddGlyphs(run, chars, 0, length, null, characterPositions, font, true, null);
+        runs.add(run);
+
+        completeLine(text, 0, 1, font);
+        usedFonts.clear();
+        return true;
+    }
+
     /** Reorders run according to BiDi algorithm, computes line height, sets Y of runs on the line,
      * and adjusts variables for next line. */
     private void completeLine(final LayoutText<BitmapFont> text, final int runsStart, final int runsEnd,
@@ -493,7 +652,7 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
         return run.charactersStart + characterIndexInWrapRun;
     }
 
-    private int splitRunForWrap(final char[] chars, final int runIndex, int splitIndex) {
+    private int splitRunForWrap(final LayoutText<BitmapFont> text, final int runIndex, int splitIndex) {
         final Array<GlyphRun<BitmapFont>> runs = this.runs;
 
         if (runIndex >= runs.size) {
@@ -526,7 +685,7 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
             // newGlyphRun.x, y -> no need to set, set elsewhere
             newGlyphRun.line = splitRun.line + 1;
             newGlyphRun.width = splitRun.width;
-            newGlyphRun.color = splitRun.color;
+            newGlyphRun.color = text.colorAt(splitIndex);
             newGlyphRun.font = splitRun.font;
 
             newGlyphRun.charactersStart = splitIndex;
@@ -541,6 +700,11 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
             // glyphY is not filled yet, it is filled in completeLine
             newGlyphRun.glyphs.size = glyphCount;
             newGlyphRun.glyphX.size = glyphCount;
+            if (splitRun.glyphColors != null) {
+                newGlyphRun.setGlyphColorsEnabled(true);
+                System.arraycopy(splitRun.glyphColors.items, runSplitGlyphIndex, newGlyphRun.glyphColors.ensureCapacity(glyphCount), 0, glyphCount);
+                newGlyphRun.glyphColors.size = glyphCount;
+            }
 
             final int characterCount = splitRun.characterPositions.size - runSplitCharacterIndex;
             assert characterCount == newGlyphRun.charactersEnd - newGlyphRun.charactersStart;
@@ -572,6 +736,9 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
             splitRun.glyphs.size = runSplitGlyphIndex;
             splitRun.glyphX.size = runSplitGlyphIndex;
             // glyphY is filled elsewhere
+            if (splitRun.glyphColors != null) {
+                splitRun.glyphColors.size = runSplitGlyphIndex;
+            }
             splitRun.characterPositions.size = runSplitCharacterIndex;
             splitRun.checkpoints.size = runSplitCheckpointIndex;
 
@@ -595,12 +762,12 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
 
             startX = splitRun.x;
             int insertIndex = runIndex;
-            insertIndex += addRunsFor(chars, splitRun.charactersStart, splitIndex, splitRun.charactersLevel,
-                    splitRun.font, splitRun.color, splitRun.line, insertIndex);
+            insertIndex += addRunsFor(text, splitRun.charactersStart, splitIndex, splitRun.charactersLevel,
+                    splitRun.font, splitRun.line, insertIndex);
 
             startX = 0f;// Not really needed as it is reordered later, but cleaner
-            addRunsFor(chars, splitIndex, splitRun.charactersEnd, splitRun.charactersLevel,
-                    splitRun.font, splitRun.color, splitRun.line + 1, // To prevent kerning with previous run
+            addRunsFor(text, splitIndex, splitRun.charactersEnd, splitRun.charactersLevel,
+                    splitRun.font, splitRun.line + 1, // To prevent kerning with previous run
                     insertIndex);
 
             GlyphRun.<BitmapFont>pool().free(splitRun);
@@ -608,68 +775,6 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
         }
     }
 
-    /** Returns character index of line-break point at which the characters should fold to next line.
-     * Character at index and following characters may be {@link #COLLAPSIBLE_SPACE}, in which case the linebreak should
-     * be at the first character which is not that character.
-     * @param hitIndex which should already be at the next line
-     * @return index in [lineStart, lineEnd) range */
-    private int findWrapPointFor(LayoutText<BitmapFont> text, final int lineStart, final int lineEnd, final int hitIndex) {
-        assert hitIndex >= lineStart && hitIndex < lineEnd;
-
-        if (hitIndex <= lineStart + 1) {
-            // We have to wrap at at least one character, at all times, so no reason to search further
-            return lineStart + 1;
-        }
-
-        final char[] chars = text.text();
-        final Locale locale = text.getLocale();
-        if (locale == null) {
-            int i = hitIndex;
-            if (!Character.isWhitespace(chars[i])) {
-                // Shift left, one after the nearest whitespace
-                while (i > lineStart && !Character.isWhitespace(chars[i - 1])) {
-                    i--;
-                }
-            } // else: Don't do anything, we can break here
-
-            if (i <= lineStart) {
-                // There is no whitespace to hang on, fallback to by-char mode
-                i = hitIndex;
-            }
-            return i;
-        } else {
-            // Use break iterator
-            BreakIterator lineBreakIterator = getLineBreakIterator(text, lineStart, lineEnd, locale);
-
-            if (lineBreakIterator.isBoundary(hitIndex)) {
-                // It is already perfect.
-                return hitIndex;
-            }
-            // Can we use hitIndex anyway because of collapsing?
-            collapseToNextBreak:
-            {
-                final int following = lineBreakIterator.following(hitIndex);
-                if (following == BreakIterator.DONE) {
-                    break collapseToNextBreak;
-                }
-                for (int i = hitIndex; i < following; i++) {
-                    if (chars[i] != COLLAPSIBLE_SPACE) {
-                        break collapseToNextBreak;
-                    }
-                }
-                return hitIndex;
-            }
-
-            final int preceding = lineBreakIterator.preceding(hitIndex);
-            if (preceding == BreakIterator.DONE || preceding <= lineStart) {
-                // Fall back to char mode
-                return hitIndex;
-            }
-
-            return preceding;
-        }
-    }
-
     @Override
     protected void doLayoutText(LayoutText<BitmapFont> text, LayoutTextRunArray<BitmapFont> textRuns, float availableWidth, float availableHeight, int maxLines, String ellipsis) {
         if (textRuns.size <= 0) {
@@ -698,7 +803,7 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
             } else if ((flags & TextRun.FLAG_TAB_STOP) != 0) {
                 addTabStopRunFor(text, textRun, line);
             } else {
-                addRunsFor(chars, textRun.start, textRun.end, textRun.level, textRun.font, textRun.color, line, runs.size);
+                addRunsFor(text, textRun.start, textRun.end, textRun.level, textRun.font, line, runs.size);
             }
 
             // Wrapping
@@ -731,7 +836,9 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
                 // Find suitable breaking point
                 final int lineCharactersStart = runs.items[lineLaidRuns].charactersStart;
                 final int lineCharactersEnd = runs.items[runs.size - 1].charactersEnd;
+                final long wrapStart = TextMetrics.start();
                 final int wrapIndex = findWrapPointFor(text, lineCharactersStart, lineCharactersEnd, wrapPointCharacterIndex);
+                TextMetrics.end(TextMetrics.Stage.WRAP, wrapPointRun.font, wrapStart);
 
                 // There may be some whitespace after the wrap index, which is not wrapped to the new line, but rather
                 // shrunk to 0-width on the last line. This is the index, where such whitespace ends (it starts at wrapIndex).
@@ -747,7 +854,7 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
 
                 // Find where actual split happens and split it there
                 final int splitRunIndex = runIndexWithCharIndex(lineLaidRuns, realWrapIndex);
-                int firstRunOnWrappedLineIndex = splitRunForWrap(chars, splitRunIndex, realWrapIndex);
+                int firstRunOnWrappedLineIndex = splitRunForWrap(text, splitRunIndex, realWrapIndex);
 
                 final boolean wrappedBecauseOfCollapsedText = firstRunOnWrappedLineIndex == runs.size;
                 // When collapsed spaces end with a newline, it won't be moved to a next line,
@@ -917,11 +1024,8 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
             clampExtraLines(text, availableWidth, availableHeight, maxLines, ellipsis);
         }
 
-        final Array<BitmapFont> fonts = usedFonts;
-        for (BitmapFont font : fonts) {
-            font.prepareGlyphs();
-        }
-        fonts.clear();
+        // Glyphs are prepared only when the layout is drawn, see FontRenderCache
+        usedFonts.clear();
     }
 
     private void clampExtraLines(final LayoutText<BitmapFont> text, final float availableWidth, final float availableHeight,
@@ -997,8 +1101,6 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
 
         // Trim previous runs, so that ellipsis fits on the line width-wise
         if (startX > availableWidth) {
-            final char[] chars = text.text();
-
             // We need to trim
             int trimmedIndex = ellipsisStart - 1;
             GlyphRun<BitmapFont> trimmedRun;
@@ -1026,8 +1128,8 @@ public class BitmapGlyphLayout extends GlyphLayout<BitmapFont> {
                     break;
                 } else {
                     // Run can be re-added, with less characters
-                    ellipsisStart += addRunsFor(chars, trimmedRun.charactersStart, charactersEnd, trimmedRun.charactersLevel,
-                            trimmedRun.font, trimmedRun.color, trimmedRun.line, trimmedIndex);
+                    ellipsisStart += addRunsFor(text, trimmedRun.charactersStart, charactersEnd, trimmedRun.charactersLevel,
+                            trimmedRun.font, trimmedRun.line, trimmedIndex);
                 }
                 GlyphRun.<BitmapFont>pool().free(trimmedRun);
             }
@@ -0,0 +1,205 @@
+package com.badlogic.gdx.graphics.text.harfbuzz;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.ImagePacker;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFont.HBGlyph;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem.FontParameters;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Persistence of packed glyphs of a {@link HBFont} with own packer, see {@link FontParameters#atlasCacheDirectory}.
+ *
+ * The cache file is a deflated stream of: header, page pixels with their packing state and metrics of packed glyphs.
+ * Restored pages keep their free space (see {@link ImagePacker#restorePage(Pixmap, DataInput)}),
+ * so new glyphs are packed into them and the cache does not grow by a page on each run.
+ */
+final class HBAtlasCache {
+
+    private static final int MAGIC = 0x48424143; // HBAC
+    private static final int FORMAT_VERSION = 2;
+
+    private HBAtlasCache() {
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** @return key which identifies the font data and everything that affects how its glyphs are rasterized and packed */
+    static String key(ByteBuffer fontData, float size, float pixelsPerPoint, FontParameters parameters, ImagePacker packer) {
+        long dataHash = FNV_OFFSET;
+        for (int i = 0, length = fontData.limit(); i < length; i++) {
+            dataHash = (dataHash ^ (fontData.get(i) & 0xFF)) * FNV_PRIME;
+        }
+
+        final String description = size + "|" + pixelsPerPoint
+                + "|" + parameters.mono + "|" + parameters.hinting + "|" + parameters.color + "|" + parameters.gamma
+                + "|" + parameters.renderCount + "|" + parameters.borderWidth + "|" + parameters.borderColor
+                + "|" + parameters.borderStraight + "|" + parameters.borderGamma
+                + "|" + parameters.shadowOffsetX + "|" + parameters.shadowOffsetY + "|" + parameters.shadowColor
+                + "|" + packer.pageWidth + "x" + packer.pageHeight + "|" + packer.pageFormat + "|" + packer.padding
+                + "|" + packer.duplicateBorder + "|" + packer.transparentColor + "|" + packer.packStrategy.getClass().getName();
+        long parametersHash = FNV_OFFSET;
+        for (int i = 0; i < description.length(); i++) {
+            parametersHash = (parametersHash ^ description.charAt(i)) * FNV_PRIME;
+        }
+
+        return Long.toHexString(dataHash) + "-" + Long.toHexString(parametersHash);
+    }
+
+    /** Restore the cached pages and glyphs into the font, if the cache file exists and is valid.
+     * Must be called before any glyph of the font is created.
+     * @return true if restored */
+    static boolean load(HBFont font, FileHandle file, String key) {
+        if (!file.exists()) {
+            return false;
+        }
+
+        final ImagePacker packer = font.packer;
+        final Array<Pixmap> pixmaps = new Array<>();
+        final Array<ImagePacker.Page> pages = new Array<>();
+        DataInputStream in = null;
+        try {
+            // One bulk read, then decompress in memory
+            in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(file.readBytes())));
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+                throw new IOException("Not a cache of this font");
+            }
+
+            final int pageCount = in.readUnsignedShort();
+            final byte[] pixels = new byte[pageCount == 0 ? 0 : in.readInt()];
+            for (int p = 0; p < pageCount; p++) {
+                in.readFully(pixels);
+                final Pixmap pixmap = new Pixmap(packer.pageWidth, packer.pageHeight, packer.pageFormat);
+                pixmaps.add(pixmap);
+                final ByteBuffer buffer = pixmap.getPixels();
+                if (buffer.capacity() != pixels.length) {
+                    throw new IOException("Page size mismatch");
+                }
+                buffer.position(0);
+                buffer.put(pixels);
+                buffer.position(0);
+                pages.add(packer.restorePage(pixmap, in));
+            }
+
+            final HBGlyph[] glyphs = font.glyphs;
+            final int glyphCount = in.readInt();
+            final Array<HBGlyph> restored = new Array<>(glyphCount);
+            for (int g = 0; g < glyphCount; g++) {
+                final int glyphId = in.readInt();
+                if (glyphId < 0 || glyphId >= glyphs.length) {
+                    throw new IOException("Invalid glyph " + glyphId);
+                }
+                final HBGlyph glyph = new HBGlyph(glyphId);
+                glyph.prepared = true;
+                glyph.page = in.readShort();
+                if (glyph.page < 0 || glyph.page >= pageCount) {
+                    throw new IOException("Invalid page of glyph " + glyphId);
+                }
+                glyph.flags = in.readByte();
+                glyph.u = in.readFloat();
+                glyph.v = in.readFloat();
+                glyph.u2 = in.readFloat();
+                glyph.v2 = in.readFloat();
+                glyph.xOffset = in.readFloat();
+                glyph.yOffset = in.readFloat();
+                glyph.width = in.readFloat();
+                glyph.height = in.readFloat();
+                restored.add(glyph);
+            }
+
+            // Everything is valid, commit
+            final int pageOffset = packer.pages.size;
+            packer.pages.addAll(pages);
+            pixmaps.clear();
+            for (HBGlyph glyph : restored) {
+                glyph.page += pageOffset;
+                glyphs[glyph.glyphId] = glyph;
+            }
+            return true;
+        } catch (Exception e) {
+            Gdx.app.error("HBFont", "Failed to load atlas cache " + file + ", ignoring", e);
+            return false;
+        } finally {
+            StreamUtils.closeQuietly(in);
+            for (Pixmap pixmap : pixmaps) {
+                pixmap.dispose();
+            }
+        }
+    }
+
+    /** Write all pages of the font's packer and all packed glyphs into the cache file.
+     * The cache is written into a temporary file first, which is then renamed over the cache file,
+     * or copied over it when renaming fails. Incomplete cache files are rejected by {@link #load}. */
+    static void save(HBFont font, FileHandle file, String key) throws IOException {
+        final ImagePacker packer = font.packer;
+        final HBGlyph[] glyphs = font.glyphs;
+
+        int glyphCount = 0;
+        for (int i = 0; i < glyphs.length; i++) {
+            final HBGlyph glyph = glyphs[i];
+            if (glyph != null && glyph.glyphId == i && glyph.page >= 0) {
+                glyphCount++;
+            }
+        }
+
+        final FileHandle tmpFile = file.sibling(file.name() + ".tmp");
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        final DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+                tmpFile.write(false, 64 * 1024), deflater, 64 * 1024));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(key);
+
+            final Array<ImagePacker.Page> pages = packer.pages;
+            out.writeShort(pages.size);
+            byte[] pixels = null;
+            for (ImagePacker.Page page : pages) {
+                final ByteBuffer buffer = page.pixmap.getPixels();
+                if (pixels == null) {
+                    pixels = new byte[buffer.capacity()];
+                    out.writeInt(pixels.length);
+                }
+                buffer.position(0);
+                buffer.get(pixels);
+                buffer.position(0);
+                out.write(pixels);
+                packer.writePageState(page, out);
+            }
+
+            out.writeInt(glyphCount);
+            for (int i = 0; i < glyphs.length; i++) {
+                final HBGlyph glyph = glyphs[i];
+                if (glyph == null || glyph.glyphId != i || glyph.page < 0) {
+                    continue;
+                }
+                out.writeInt(glyph.glyphId);
+                out.writeShort(glyph.page);
+                out.writeByte(glyph.flags);
+                out.writeFloat(glyph.u);
+                out.writeFloat(glyph.v);
+                out.writeFloat(glyph.u2);
+                out.writeFloat(glyph.v2);
+                out.writeFloat(glyph.xOffset);
+                out.writeFloat(glyph.yOffset);
+                out.writeFloat(glyph.width);
+                out.writeFloat(glyph.height);
+            }
+        } finally {
+            out.close();
+            deflater.end();
+        }
+        if (!tmpFile.file().renameTo(file.file())) {
+            tmpFile.moveTo(file);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.badlogic.gdx.graphics.text.harfbuzz;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
@@ -8,12 +9,19 @@ import com.badlogic.gdx.graphics.g2d.ImagePacker;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeType;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeExtra;
 import com.badlogic.gdx.graphics.text.Font;
+import com.badlogic.gdx.graphics.text.FontFeatures;
 import com.badlogic.gdx.graphics.text.Glyph;
 import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
 import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem.FontParameters;
+import com.badlogic.gdx.graphics.text.util.CodepointSet;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
 
 import java.nio.ByteBuffer;
 import java.util.Comparator;
@@ -32,14 +40,42 @@ public class HBFont implements Font<HBFont> {
     final HarfBuzz.Font hbFont;
     private final FreeType.Stroker stroker;
     private final FontParameters parameters;
-    private final ImagePacker packer;
+    final ImagePacker packer;
     private final Comparator<Glyph> packerComparator;
+    private final HBFont fallback;
+
+    /** File of the atlas cache, null if not cached. See {@link FontParameters#atlasCacheDirectory}. */
+    FileHandle atlasCacheFile;
+    /** Key which identifies the content of {@link #atlasCacheFile}. */
+    String atlasCacheKey;
+
+    /** Lazily computed, see {@link #getCoverage()}. */
+    private CodepointSet coverage;
+
+    /** Features from parameters, used when the text does not specify any. */
+    private final FontFeatures defaultFeatures;
+    /** Native form of {@link #defaultFeatures}, null if there are none. */
+    private final HarfBuzz.FeatureArray defaultFeatureArray;
+    /** Native forms of default features merged with text features, keyed by text features. */
+    private final ObjectMap<FontFeatures, HarfBuzz.FeatureArray> featureArrays = new ObjectMap<>();
+    /** Shape plans of {@link #hbFont}, see {@link #shapePlanFor(int, int, long, HarfBuzz.FeatureArray)}. */
+    private final ObjectMap<ShapePlanKey, HarfBuzz.ShapePlan> shapePlans = new ObjectMap<>();
+    private final ShapePlanKey shapePlanFor_key = new ShapePlanKey();
+    /** Shaped ellipsis strings, for left-to-right and right-to-left text, see {@link #getEllipsisRun(String, boolean)}. */
+    private final ObjectMap<String, GlyphRun<HBFont>> ellipsisRunsLtr = new ObjectMap<>();
+    private final ObjectMap<String, GlyphRun<HBFont>> ellipsisRunsRtl = new ObjectMap<>();
+    /** Cached ellipsis runs are dropped when there are more than this many different ellipsis strings of one direction. */
+    private static final int ELLIPSIS_RUN_CACHE_LIMIT = 16;
+    /** Lazily created, see {@link #getSimpleShaper()}. */
+    private HBSimpleShaper simpleShaper;
+    private boolean simpleShaperCreated;
 
     public final float densityScale;
 
     private final Array<Texture> textures = new Array<>(true, 4, Texture.class);
-    private final HBGlyph[] glyphs;
+    final HBGlyph[] glyphs;
 
+    /** Glyphs of layouts being prepared for drawing, which are not rasterized yet. */
     private final Array<HBGlyph> dirtyGlyphs = new Array<>(false, 32, HBGlyph.class);
 
     /** The distance from one line of text to the next. */
@@ -49,9 +85,9 @@ public class HBFont implements Font<HBFont> {
     /** The x-advance of the space character. Used for all unknown whitespace characters or tab advance. */
     public float spaceXAdvance;
 
-    protected HBFont(FreeType.Library library, FreeType.Face face, float size, float pixelsPerPoint, FontParameters parameters) {
+    protected HBFont(FreeType.Library library, FreeType.Face face, float size, float pixelsPerPoint, FontParameters parameters, HBFont fallback) {
         this.face = face;
-        this.hbFont = HarfBuzz.Font.createReferenced(face);
+        this.fallback = fallback;
         this.glyphs = new HBGlyph[face.getNumGlyphs()];
         this.densityScale = 1f / pixelsPerPoint;
 
@@ -65,6 +101,8 @@ public class HBFont implements Font<HBFont> {
         }
 
         this.parameters = parameters;
+        this.defaultFeatures = (parameters.kerning ? FontFeatures.NONE : FontFeatures.of("-kern")).with(parameters.features);
+        this.defaultFeatureArray = createFeatureArray(defaultFeatures);
         this.packer = parameters.packer != null ? parameters.packer : parameters.createDefaultImagePacker();
         this.packerComparator = new Comparator<Glyph>() {
             @Override
@@ -94,6 +132,132 @@ public class HBFont implements Font<HBFont> {
         final FreeType.SizeMetrics metrics = face.getSize().getMetrics();
         lineHeight = FreeType.toInt(metrics.getHeight()) * densityScale;
         base = FreeType.toInt(metrics.getAscender()) * densityScale;
+
+        // Created after the size is set, so that the font is scaled to it
+        this.hbFont = parameters.openTypeFontFuncs
+                ? HarfBuzz.Font.createOpenTypeReferenced(face)
+                : HarfBuzz.Font.createReferenced(face);
+    }
+
+    private static HarfBuzz.FeatureArray createFeatureArray(FontFeatures features) {
+        final int size = features.size();
+        if (size == 0) {
+            return null;
+        }
+        final int[] hbFeatures = new int[size * HarfBuzz.Font.FEATURE_SIZE];
+        for (int f = 0, i = 0; f < size; f++) {
+            hbFeatures[i++] = features.tagAt(f);
+            hbFeatures[i++] = features.valueAt(f);
+            hbFeatures[i++] = 0;
+            hbFeatures[i++] = ~0; // Unsigned max, whole buffer
+        }
+        return new HarfBuzz.FeatureArray(hbFeatures);
+    }
+
+    /** @param textFeatures features of the shaped text, may be null
+     * @return native features to shape text with given features with, null if there are none.
+     * Cached, owned by this font. */
+    HarfBuzz.FeatureArray featureArrayFor(FontFeatures textFeatures) {
+        if (textFeatures == null || textFeatures.size() == 0) {
+            return defaultFeatureArray;
+        }
+        HarfBuzz.FeatureArray featureArray = featureArrays.get(textFeatures);
+        if (featureArray == null && !featureArrays.containsKey(textFeatures)) {
+            featureArray = createFeatureArray(defaultFeatures.with(textFeatures));
+            featureArrays.put(textFeatures, featureArray);
+        }
+        return featureArray;
+    }
+
+    /** @param direction hb_direction_t
+     * @param script hb_script_t
+     * @param language hb_language_t
+     * @param featureArray obtained from {@link #featureArrayFor(FontFeatures)}
+     * @return plan for shaping with {@link #hbFont} with given segment properties and features.
+     * Cached, owned by this font. */
+    HarfBuzz.ShapePlan shapePlanFor(int direction, int script, long language, HarfBuzz.FeatureArray featureArray) {
+        final ShapePlanKey key = shapePlanFor_key;
+        key.direction = direction;
+        key.script = script;
+        key.language = language;
+        key.features = featureArray;
+        HarfBuzz.ShapePlan plan = shapePlans.get(key);
+        if (plan == null) {
+            plan = HarfBuzz.ShapePlan.createCached(hbFont, direction, script, language, featureArray);
+            shapePlans.put(new ShapePlanKey(key), plan);
+            TextMetrics.count(TextMetrics.Counter.SHAPE_PLANS_CREATED, this, 1);
+        }
+        return plan;
+    }
+
+    /** @return ellipsis shaped by {@link HBGlyphLayout} with default features, cached by {@link #putEllipsisRun},
+     * or null if not cached. Only glyphs, their positions and width of the run are valid. Owned by this font. */
+    GlyphRun<HBFont> getEllipsisRun(String ellipsis, boolean ltr) {
+        return (ltr ? ellipsisRunsLtr : ellipsisRunsRtl).get(ellipsis);
+    }
+
+    /** @param run obtained from the {@link GlyphRun#pool()}, now owned by this font
+     * @see #getEllipsisRun(String, boolean) */
+    void putEllipsisRun(String ellipsis, boolean ltr, GlyphRun<HBFont> run) {
+        final ObjectMap<String, GlyphRun<HBFont>> ellipsisRuns = ltr ? ellipsisRunsLtr : ellipsisRunsRtl;
+        if (ellipsisRuns.size >= ELLIPSIS_RUN_CACHE_LIMIT) {
+            freeEllipsisRuns(ellipsisRuns);
+        }
+        ellipsisRuns.put(ellipsis, run);
+    }
+
+    private static void freeEllipsisRuns(ObjectMap<String, GlyphRun<HBFont>> ellipsisRuns) {
+        final Pool<GlyphRun<HBFont>> pool = GlyphRun.pool();
+        for (GlyphRun<HBFont> run : ellipsisRuns.values()) {
+            pool.free(run);
+        }
+        ellipsisRuns.clear();
+    }
+
+    /** @return shaper of simple text, null if it is disabled, see {@link FontParameters#simpleShaping} */
+    HBSimpleShaper getSimpleShaper() {
+        if (!simpleShaperCreated) {
+            simpleShaper = parameters.simpleShaping ? new HBSimpleShaper(hbFont, defaultFeatures) : null;
+            simpleShaperCreated = true;
+        }
+        return simpleShaper;
+    }
+
+    /** Segment properties and features, which identify a shape plan. */
+    private static final class ShapePlanKey {
+        int direction;
+        int script;
+        long language;
+        /** Compared by identity, feature arrays are cached by the font. */
+        HarfBuzz.FeatureArray features;
+
+        ShapePlanKey() {
+        }
+
+        ShapePlanKey(ShapePlanKey key) {
+            this.direction = key.direction;
+            this.script = key.script;
+            this.language = key.language;
+            this.features = key.features;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ShapePlanKey)) return false;
+            final ShapePlanKey that = (ShapePlanKey) o;
+            return direction == that.direction && script == that.script
+                    && language == that.language && features == that.features;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = direction;
+            result = 31 * result + script;
+            result = 31 * result + (int) (language ^ (language >>> 32));
+            result = 31 * result + System.identityHashCode(features);
+            return result;
+        }
     }
 
     private static boolean isFaceScalable(FreeType.Face face) {
@@ -116,10 +280,8 @@ public class HBFont implements Font<HBFont> {
         HBGlyph resultGlyph = glyphs[glyphId];
 
         if (resultGlyph == null) {
+            // Only metrics for now, the bitmap is rendered when a layout with the glyph is prepared for drawing
             resultGlyph = glyphs[glyphId] = createGlyph(glyphId);
-            if (resultGlyph.unpackedPixmap != null) {
-                dirtyGlyphs.add(resultGlyph);
-            }
         }
 
         if (resultGlyph == ERROR_GLYPH) {
@@ -132,15 +294,55 @@ public class HBFont implements Font<HBFont> {
     private static Rectangle prepareGlyphs_packedTo = new Rectangle();
 
     @Override
-    public void prepareGlyphs() {
+    public void prepareGlyphs(GlyphLayout<HBFont> layout) {
+        final Array<GlyphRun<HBFont>> runs = layout.getRuns();
+        for (int r = 0; r < runs.size; r++) {
+            final GlyphRun<HBFont> run = runs.items[r];
+            if (run.font != this) {
+                continue;
+            }
+            final Glyph[] runGlyphs = run.glyphs.items;
+            for (int i = 0, glyphCount = run.glyphs.size; i < glyphCount; i++) {
+                markDirty((HBGlyph) runGlyphs[i]);
+            }
+        }
+        prepareDirtyGlyphs();
+    }
+
+    private void markDirty(HBGlyph glyph) {
+        if (!glyph.prepared) {
+            glyph.prepared = true;
+            dirtyGlyphs.add(glyph);
+        }
+    }
+
+    /** Rasterize and pack all {@link #dirtyGlyphs}. */
+    private void prepareDirtyGlyphs() {
         final Array<HBGlyph> dirtyGlyphs = this.dirtyGlyphs;
         final int dirtyGlyphCount = dirtyGlyphs.size;
         if (dirtyGlyphCount == 0) {
+            if (textures.size < packer.pages.size) {
+                // Pages restored from the atlas cache
+                packer.updateTextures(textures);
+            }
             return;
         }
 
-        dirtyGlyphs.sort(packerComparator);
+        final long prepareStart = TextMetrics.start();
         final HBGlyph[] dirtyGlyphItems = dirtyGlyphs.items;
+        for (int i = 0; i < dirtyGlyphCount; i++) {
+            final long rasterizeStart = TextMetrics.start();
+            final HBGlyph dirtyGlyph = dirtyGlyphItems[i];
+            if (!rasterizeGlyph(dirtyGlyph)) {
+                // Layouts which already have it just don't draw it, further lookups get no glyph, like for glyphs that fail to load
+                glyphs[dirtyGlyph.glyphId] = ERROR_GLYPH;
+            }
+            if (rasterizeStart != 0L) {
+                TextMetrics.end(TextMetrics.Stage.RASTERIZE, this, rasterizeStart);
+                TextMetrics.count(TextMetrics.Counter.GLYPHS_RASTERIZED, this, 1);
+            }
+        }
+        dirtyGlyphs.sort(packerComparator);
 
         packer.packToTexture = dirtyGlyphCount < PACK_TO_TEXTURE_THRESHOLD;
 
@@ -152,6 +354,10 @@ public class HBFont implements Font<HBFont> {
             final HBGlyph dirtyGlyph = dirtyGlyphItems[i];
 
             final Pixmap glyphPixmap = dirtyGlyph.unpackedPixmap;
+            if (glyphPixmap == null) {
+                // Failed to render, stays without graphic representation
+                continue;
+            }
             dirtyGlyph.unpackedPixmap = null;
             final ImagePacker.Page page = packer.pack(glyphPixmap, packedTo);
             glyphPixmap.dispose();
@@ -168,11 +374,128 @@ public class HBFont implements Font<HBFont> {
         dirtyGlyphs.size = 0;
 
         packer.updateTextures(textures);
+        TextMetrics.end(TextMetrics.Stage.PREPARE_GLYPHS, this, prepareStart);
+    }
+
+    /** Rasterize and pack glyphs for all code points of the text in advance, so that they are not created
+     * in the middle of gameplay. Code points which this font does not cover are precached in the fallback font.
+     * Must be called on the GL thread.
+     * <p>
+     * Only glyphs mapped directly by the character map are precached. Glyphs that are produced only by shaping
+     * (for example ligatures or contextual forms) will still be created when they are first used.
+     * @return amount of newly created glyphs, including the fallback fonts
+     * @see com.badlogic.gdx.graphics.text.util.CodepointCollector */
+    public int precache(CharSequence text) {
+        final CodepointSet codepoints = new CodepointSet();
+        codepoints.addAll(text);
+        return precache(codepoints);
+    }
+
+    /** @see #precache(CharSequence) */
+    public int precache(CodepointSet codepoints) {
+        return precacheCodepoints(codepoints.toArray());
+    }
+
+    /** @see #precache(CharSequence) */
+    public int precacheCodepoints(int[] codepoints) {
+        final IntArray glyphIds = new IntArray(codepoints.length);
+        final IntArray uncovered = new IntArray();
+        for (int codepoint : codepoints) {
+            final int glyphId = face.getCharIndex(codepoint);
+            if (glyphId != 0) {
+                glyphIds.add(glyphId);
+            } else if (fallback != null) {
+                uncovered.add(codepoint);
+            }
+        }
+
+        int created = precacheGlyphIds(glyphIds.toArray());
+        if (uncovered.size > 0) {
+            created += fallback.precacheCodepoints(uncovered.toArray());
+        }
+        return created;
+    }
+
+    /** Rasterize all given glyphs which were not created yet and pack them, in a single batch sorted by the packer's
+     * strategy and uploaded at once. Must be called on the GL thread.
+     * @param glyphIds of this font, invalid ids are ignored
+     * @return amount of newly created glyphs */
+    public int precacheGlyphIds(int[] glyphIds) {
+        final HBGlyph[] glyphs = this.glyphs;
+        int created = 0;
+        for (int glyphId : glyphIds) {
+            if (glyphId >= 0 && glyphId < glyphs.length && glyphs[glyphId] == null) {
+                final HBGlyph glyph = getGlyph(glyphId);
+                if (glyph != null) {
+                    markDirty(glyph);
+                }
+                created++;
+            }
+        }
+        prepareDirtyGlyphs();
+        return created;
+    }
+
+    /** @return file in which the packed glyphs are cached, null if this font does not use the atlas cache
+     * @see FontParameters#atlasCacheDirectory */
+    public FileHandle getAtlasCacheFile() {
+        return atlasCacheFile;
+    }
+
+    /** Write all packed glyphs into the atlas cache, so that they can be restored on the next run.
+     * Glyphs that were not packed yet by {@link #prepareGlyphs(GlyphLayout)} are not written.
+     * Call for example when the application is paused, after new glyphs were created.
+     * @return true if the cache was written, false if this font does not use the atlas cache or on failure
+     * @see FontParameters#atlasCacheDirectory */
+    public boolean saveAtlasCache() {
+        final FileHandle file = atlasCacheFile;
+        if (file == null) {
+            return false;
+        }
+        try {
+            HBAtlasCache.save(this, file, atlasCacheKey);
+            return true;
+        } catch (Exception e) {
+            Gdx.app.error("HBFont", "Failed to save atlas cache " + file, e);
+            return false;
+        }
     }
 
     @Override
     public HBFont getFallback() {
-        return null;
+        return fallback;
+    }
+
+    /** Set of all code points that are mapped to some glyph by the font's character map.
+     * Computed on first use by walking the character map once.
+     * Do not modify the returned set.
+     * @see #setCoverage(CodepointSet) */
+    public CodepointSet getCoverage() {
+        CodepointSet coverage = this.coverage;
+        if (coverage == null) {
+            final long[] bits = new long[(Character.MAX_CODE_POINT + 1) / 64];
+            FreeTypeExtra.FT_Collect_Char_Codes(face, bits);
+            coverage = this.coverage = new CodepointSet();
+            coverage.addAll(bits);
+        }
+        return coverage;
+    }
+
+    /** Use previously computed coverage of this font, for example one persisted through
+     * {@link CodepointSet#write(java.io.DataOutput)}, so that the character map does not have to be walked.
+     * Must be exactly the set returned by {@link #getCoverage()} for the same font file. */
+    public void setCoverage(CodepointSet coverage) {
+        this.coverage = coverage;
+    }
+
+    @Override
+    public boolean covers(int codepoint) {
+        return getCoverage().contains(codepoint);
+    }
+
+    @Override
+    public boolean coversAll(CharSequence text) {
+        return getCoverage().containsAll(text);
     }
 
     @Override
@@ -182,6 +505,13 @@ public class HBFont implements Font<HBFont> {
 
     @Override
     public void dispose() {
+        for (HarfBuzz.ShapePlan plan : shapePlans.values()) {
+            plan.destroy();
+        }
+        TextMetrics.count(TextMetrics.Counter.SHAPE_PLANS_DESTROYED, this, shapePlans.size);
+        shapePlans.clear();
+        freeEllipsisRuns(ellipsisRunsLtr);
+        freeEllipsisRuns(ellipsisRunsRtl);
         face.dispose();
         if (stroker != null) {
             stroker.dispose();
@@ -189,15 +519,76 @@ public class HBFont implements Font<HBFont> {
         if (parameters.packer == null) {
             packer.dispose();
         }
+        if (defaultFeatureArray != null) {
+            defaultFeatureArray.dispose();
+        }
+        for (HarfBuzz.FeatureArray featureArray : featureArrays.values()) {
+            if (featureArray != null) {
+                featureArray.dispose();
+            }
+        }
+        featureArrays.clear();
     }
 
+    /** Create glyph with metrics only, without rendering its bitmap.
+     * Metrics are computed from the outline the same way as FreeType computes the bitmap bounds
+     * (extended by border and shadow) and are final, {@link #rasterizeGlyph(HBGlyph)} fits the bitmap to them. */
     HBGlyph createGlyph (int glyphId) {
-        if (!face.loadGlyph(glyphId, parameters.hinting.toFreeTypeLoadFlags())) {
+        int loadFlags = parameters.hinting.toFreeTypeLoadFlags();
+        if (isFaceScalable(face)) {
+            loadFlags |= FreeType.FT_LOAD_NO_BITMAP;
+        }
+        if (!face.loadGlyph(glyphId, loadFlags)) {
             // Should not happen!
             Gdx.app.error("HBFont", "Failed to load glyph " + glyphId);
             return ERROR_GLYPH;
         }
 
+        final FreeType.GlyphMetrics metrics = face.getGlyph().getMetrics();
+        // 26.6 outline bounds to whole pixels
+        int left = metrics.getHoriBearingX() >> 6;
+        final int right = (metrics.getHoriBearingX() + metrics.getWidth() + 63) >> 6;
+        int top = (metrics.getHoriBearingY() + 63) >> 6;
+        final int bottom = (metrics.getHoriBearingY() - metrics.getHeight()) >> 6;
+        int width = right - left;
+        int height = top - bottom;
+
+        if (width > 0 && height > 0) {
+            if (parameters.borderWidth > 0) {
+                final int border = (int) Math.ceil(parameters.borderWidth);
+                left -= border;
+                top += border;
+                width += border * 2;
+                height += border * 2;
+            }
+            width += Math.abs(parameters.shadowOffsetX);
+            height += Math.abs(parameters.shadowOffsetY);
+        }
+
+        final HBGlyph resultGlyph = new HBGlyph(glyphId);
+        resultGlyph.bitmapLeft = left;
+        resultGlyph.bitmapTop = top;
+        resultGlyph.bitmapWidth = width;
+        resultGlyph.bitmapHeight = height;
+        final float densityScale = this.densityScale;
+        resultGlyph.width = width * densityScale;
+        resultGlyph.height = height * densityScale;
+        resultGlyph.xOffset = left * densityScale;
+        resultGlyph.yOffset = -(height - top) * densityScale;
+        return resultGlyph;
+    }
+
+    /** Render the bitmap of the glyph to {@link HBGlyph#unpackedPixmap}, fitted to the bounds of {@link #createGlyph(int)},
+     * so that the metrics, which layouts may already use, don't change.
+     * @return false on failure, the glyph is then left without the bitmap */
+    private boolean rasterizeGlyph (HBGlyph resultGlyph) {
+        final int glyphId = resultGlyph.glyphId;
+        if (!face.loadGlyph(glyphId, parameters.hinting.toFreeTypeLoadFlags())) {
+            // Should not happen!
+            Gdx.app.error("HBFont", "Failed to load glyph " + glyphId);
+            return false;
+        }
+
         FreeType.GlyphSlot slot = face.getGlyph();
         FreeType.Glyph mainGlyph = slot.getGlyph();
 
@@ -206,10 +597,9 @@ public class HBFont implements Font<HBFont> {
         } catch (GdxRuntimeException e) {
             mainGlyph.dispose();
             Gdx.app.error("FreeTypeFontGenerator", "Couldn't render glyph " + glyphId);
-            return ERROR_GLYPH;
+            return false;
         }
 
-        final HBGlyph resultGlyph = new HBGlyph(glyphId);
         final FreeType.Bitmap glyphBitmap = mainGlyph.getBitmap();
         Pixmap mainPixmap = glyphBitmap.getPixmap(Pixmap.Format.RGBA8888, parameters.color, parameters.gamma);
 
@@ -297,22 +687,32 @@ public class HBFont implements Font<HBFont> {
         }
         */
 
-        resultGlyph.unpackedPixmap = mainPixmap;
+        final int left = mainGlyph.getLeft();
+        final int top = mainGlyph.getTop();
+        mainGlyph.dispose();
 
-        final float densityScale = this.densityScale;
-        resultGlyph.width = mainPixmap.getWidth() * densityScale;
-        resultGlyph.height = mainPixmap.getHeight() * densityScale;
-        resultGlyph.xOffset = mainGlyph.getLeft() * densityScale;
-        resultGlyph.yOffset = -(mainPixmap.getHeight() - mainGlyph.getTop()) * densityScale;
+        if (left != resultGlyph.bitmapLeft || top != resultGlyph.bitmapTop
+                || mainPixmap.getWidth() != resultGlyph.bitmapWidth || mainPixmap.getHeight() != resultGlyph.bitmapHeight) {
+            // Estimate was off (for example because of an embedded bitmap), clip or pad the bitmap to it
+            final Pixmap fittedPixmap = new Pixmap(resultGlyph.bitmapWidth, resultGlyph.bitmapHeight, mainPixmap.getFormat());
+            fittedPixmap.setBlending(Pixmap.Blending.None);
+            fittedPixmap.drawPixmap(mainPixmap, left - resultGlyph.bitmapLeft, resultGlyph.bitmapTop - top);
+            mainPixmap.dispose();
+            mainPixmap = fittedPixmap;
+        }
 
-        mainGlyph.dispose();
-        return resultGlyph;
+        resultGlyph.unpackedPixmap = mainPixmap;
+        return true;
     }
 
     public static final class HBGlyph extends Glyph {
 
         /** Pixmap awaiting to be packed to the font packer. */
         Pixmap unpackedPixmap = null;
+        /** True once the glyph was queued for rasterization and packing, or restored from the atlas cache. */
+        boolean prepared = false;
+        /** Bounds of the bitmap in pixels, relative to the origin, y up. Decided when the glyph is created. */
+        int bitmapLeft, bitmapTop, bitmapWidth, bitmapHeight;
 
         HBGlyph(int glyphId) {
             super(glyphId);
@@ -8,6 +8,7 @@ import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.ImagePacker;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeType;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+import com.badlogic.gdx.graphics.text.FontFeatures;
 import com.badlogic.gdx.graphics.text.FontSystem;
 import com.badlogic.gdx.utils.*;
 
@@ -43,6 +44,23 @@ public class HBFontSystem implements FontSystem<HBGlyphLayout>, Disposable {
      * @return created font
      */
     public HBFont createIncrementalFont(FileHandle fontFile, float size, float pixelsPerPoint, FontParameters parameters) {
+        return createIncrementalFont(fontFile, size, pixelsPerPoint, parameters, null);
+    }
+
+    /**
+     * Create incrementally built font of given dimensions, with a fallback font.
+     * Text that is not covered by the font's character map will be shaped with the first font in the fallback chain
+     * that covers it. Fallback fonts can themselves have fallbacks, forming a chain (for example Latin -> CJK -> emoji).
+     *
+     * @param fontFile font supported by TrueType, such as ttf or otf
+     * @param size of the font (height), in arbitrary units that will be used for public HBGlyphLayout measures
+     * @param pixelsPerPoint physical pixels per one unit of size. Measurements will be aligned to physical pixels to achieve
+     *               pixel-perfect look.
+     * @param parameters to be used by the font, may be null. Kept by the font, do not modify later!
+     * @param fallback font, to use when characters are missing, or null
+     * @return created font
+     */
+    public HBFont createIncrementalFont(FileHandle fontFile, float size, float pixelsPerPoint, FontParameters parameters, HBFont fallback) {
         // TODO(jp): Api for creating multiple fonts from the same buffer with different sizes
         try {
             final ByteBuffer buffer;
@@ -71,7 +89,14 @@ public class HBFontSystem implements FontSystem<HBGlyphLayout>, Disposable {
                 parameters = new FontParameters();
             }
 
-            return new HBFont(freeTypeLibrary, face, size, pixelsPerPoint, parameters);// TODO(jp): Probably not all three size metrics are needed
+            final HBFont font = new HBFont(freeTypeLibrary, face, size, pixelsPerPoint, parameters, fallback);// TODO(jp): Probably not all three size metrics are needed
+            if (parameters.atlasCacheDirectory != null && parameters.packer == null) {
+                final String key = HBAtlasCache.key(buffer, size, pixelsPerPoint, parameters, font.packer);
+                font.atlasCacheKey = key;
+                font.atlasCacheFile = parameters.atlasCacheDirectory.child("hbfont-" + key + ".atlas");
+                HBAtlasCache.load(font, font.atlasCacheFile, key);
+            }
+            return font;
         } catch (Exception e) {
             throw new GdxRuntimeException("Failed to load "+fontFile, e);
         }
@@ -172,6 +197,21 @@ public class HBFontSystem implements FontSystem<HBGlyphLayout>, Disposable {
         /** Whether the font should use kerning (if there is any specified by the font) */
         public boolean kerning = true;
 
+        /** If true, shaping uses HarfBuzz's built-in OpenType font functions, which read glyph mapping and advances
+         * directly from the font tables, instead of querying FreeType for each glyph. This makes shaping several times
+         * faster. Advances are unhinted in both cases and may differ only by rounding, at most 1/64 of a pixel.
+         * Glyphs are rasterized by FreeType either way. */
+        public boolean openTypeFontFuncs = false;
+
+        /** If true, simple runs (left-to-right Latin) are shaped from cached glyph advances and kerning pairs,
+         * without going through HarfBuzz, when no OpenType substitution or positioning of enabled features applies to their glyphs.
+         * The result is the same. */
+        public boolean simpleShaping = true;
+
+        /** OpenType features to use when shaping with this font, unless overridden by {@link com.badlogic.gdx.graphics.text.LayoutText} region.
+         * Features not specified here are on or off according to HarfBuzz defaults for given script. */
+        public FontFeatures features = FontFeatures.NONE;
+
         /** Optional: PixmapPacker to use. This is useful when different than default parameters are needed
          * (see {@link #createDefaultImagePacker()}) or when it is necessary to pack multiple {@link HBFont}s
          * into a single Texture atlas. This can lead to better performance and memory usage, when you plan to use
@@ -189,6 +229,14 @@ public class HBFontSystem implements FontSystem<HBGlyphLayout>, Disposable {
          * automatically with the font. */
         public ImagePacker packer = null;
 
+        /** Optional: directory in which the packed glyphs of the font are cached across runs, so that they don't have
+         * to be rasterized and packed again on each launch. The cache is restored when the font is created
+         * and written by {@link HBFont#saveAtlasCache()}. Glyphs that are not in the cache are created as usual.
+         * <p/>
+         * Cache files are specific to the font file, size, pixels per point and these parameters.
+         * Ignored when a custom {@link #packer} is used. */
+        public FileHandle atlasCacheDirectory = null;
+
         /** Create a default {@link ImagePacker} suitable for packing font glyphs.
          * Default parameters: pageSize = 2048, filters = Nearest. */
         public ImagePacker createDefaultImagePacker() {
@@ -1,21 +1,35 @@
 package com.badlogic.gdx.graphics.text.harfbuzz;
 
+import com.badlogic.gdx.graphics.text.FontFeatures;
 import com.badlogic.gdx.graphics.text.GlyphLayout;
 import com.badlogic.gdx.graphics.text.GlyphRun;
 import com.badlogic.gdx.graphics.text.LayoutText;
 import com.badlogic.gdx.graphics.text.LayoutTextRunArray;
 import com.badlogic.gdx.graphics.text.LayoutTextRunArray.TextRun;
+import com.badlogic.gdx.graphics.text.PreparedText;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
+import com.badlogic.gdx.graphics.text.util.UnicodeScripts;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
 
+import java.lang.Character.UnicodeScript;
+import java.nio.IntBuffer;
 import java.text.Bidi;
-import java.text.BreakIterator;
+import java.util.Arrays;
 import java.util.Locale;
 
 import static com.badlogic.gdx.graphics.text.GlyphRun.FLAG_ELLIPSIS;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_INFO_CLUSTER;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_INFO_CODEPOINT;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_INFO_MASK;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_INFO_STRIDE;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_POSITION_STRIDE;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_POSITION_X_ADVANCE;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_POSITION_X_OFFSET;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_POSITION_Y_OFFSET;
 import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.HB_GLYPH_FLAG_UNSAFE_TO_BREAK;
-import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Font.NO_FEATURES;
 import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.toFloatFrom26p6;
 
 /**
@@ -34,6 +48,126 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
 
     /** Cached. */
     private static final HarfBuzz.Buffer shapeBuffer = HarfBuzz.Buffer.create();
+    /** Cached. */
+    private static final HBShapeBatch shapeBatch = new HBShapeBatch();
+    /** Output of {@link HBSimpleShaper} in {@link #addRunsFor}, grown as needed. */
+    private static IntBuffer simpleGlyphInfos = IntBuffer.allocate(64 * GLYPH_INFO_STRIDE);
+    private static IntBuffer simpleGlyphPositions = IntBuffer.allocate(64 * GLYPH_POSITION_STRIDE);
+
+    /** hb_script_t by {@link UnicodeScript#ordinal()}, 0 if not known yet, -1 if it has no ISO code or is neutral.
+     * Shared by all threads without synchronization: the entries are ints, which are always computed to the same value,
+     * so a thread which does not see an entry of another thread just computes it again. */
+    private static final int[] hbScripts = new int[UnicodeScript.values().length];
+    /** hb_language_t by locale. Synchronized on itself, because text may be prepared on other threads
+     * (see {@link com.badlogic.gdx.graphics.text.PreparedText}). */
+    private static final ObjectMap<Locale, HarfBuzz.Language> hbLanguages = new ObjectMap<>();
+
+    /** @return hb_script_t for the script, 0 (HB_SCRIPT_INVALID, to be guessed) for null or neutral scripts */
+    static int hbScriptOf(UnicodeScript script) {
+        if (script == null) {
+            return 0;
+        }
+        final int[] hbScripts = HBGlyphLayout.hbScripts;
+        int hbScript = hbScripts[script.ordinal()];
+        if (hbScript == 0) {
+            final String code = UnicodeScripts.isNeutral(script) ? null : UnicodeScripts.iso15924Code(script);
+            hbScript = code == null ? -1 : HarfBuzz.Script.hb_script_from_iso15924_tag(HarfBuzz.hb_tag_from_string(code));
+            hbScripts[script.ordinal()] = hbScript;
+        }
+        return hbScript == -1 ? 0 : hbScript;
+    }
+
+    /** @return hb_script_t of the first non-neutral character in range, 0 (to be guessed) if there is none */
+    private static int hbScriptOf(char[] chars, int start, int end) {
+        for (int i = start; i < end; ) {
+            final int codepoint = Character.codePointAt(chars, i, end);
+            final UnicodeScript script = UnicodeScripts.of(codepoint);
+            if (!UnicodeScripts.isNeutral(script)) {
+                return hbScriptOf(script);
+            }
+            i += Character.charCount(codepoint);
+        }
+        return 0;
+    }
+
+    /** @return hb_language_t for the locale, 0 (HB_LANGUAGE_INVALID, to be guessed) for null */
+    static long hbLanguageOf(Locale locale) {
+        if (locale == null) {
+            return HarfBuzz.Language.HB_LANGUAGE_INVALID;
+        }
+        final ObjectMap<Locale, HarfBuzz.Language> hbLanguages = HBGlyphLayout.hbLanguages;
+        synchronized (hbLanguages) {
+            HarfBuzz.Language language = hbLanguages.get(locale);
+            if (language == null) {
+                language = new HarfBuzz.Language(locale.toLanguageTag());
+                hbLanguages.put(locale, language);
+            }
+            return language.value;
+        }
+    }
+
+    @Override
+    protected boolean isScriptItemizationNeeded() {
+        return true;
+    }
+
+    @Override
+    protected boolean measureAdvances(LayoutText<HBFont> text, LayoutTextRunArray<HBFont> textRuns, float[] advances, IntArray pieces, Array<HBFont> pieceFonts) {
+        final HBShapeBatch batch = HBGlyphLayout.shapeBatch;
+        itemizeText(batch, text, textRuns);
+        measureBatchAdvances(batch, shapeBuffer, text.text(), text.length(), advances, pieces, pieceFonts);
+        return true;
+    }
+
+    /** Shape the runs of the batch, if they are not shaped yet, and measure their advances for {@link #measureAdvances}.
+     * @param buffer to shape with, may be null if the batch is already shaped whole */
+    private static void measureBatchAdvances(HBShapeBatch batch, HarfBuzz.Buffer buffer, char[] chars, int charsLength,
+                                             float[] advances, IntArray pieces, Array<HBFont> pieceFonts) {
+        // Glyphs are only shaped, never retrieved from the font, so nothing is rasterized
+        for (int batchRun = 0; batchRun < batch.size(); batchRun++) {
+            if (buffer != null) {
+                batch.ensureShaped(buffer, chars, charsLength, batchRun);
+            }
+            final int runStart = batch.runStart(batchRun);
+            final int runEnd = batch.runEnd(batchRun);
+            final int glyphFrom = batch.runGlyphStart(batchRun);
+            final int glyphTo = batch.runGlyphEnd(batchRun);
+            final HBFont font = batch.runFont(batchRun);
+            final float densityScale = font.densityScale;
+            final IntBuffer glyphInfo = batch.glyphInfos;
+            final IntBuffer glyphPositions = batch.glyphPositions;
+
+            // Characters which do not start a cluster have no position
+            Arrays.fill(advances, runStart, runEnd, Float.NaN);
+            for (int g = glyphFrom; g < glyphTo; g++) {
+                final int cluster = glyphInfo.get(g * GLYPH_INFO_STRIDE + GLYPH_INFO_CLUSTER);
+                final float xAdvance = toFloatFrom26p6(glyphPositions.get(g * GLYPH_POSITION_STRIDE + GLYPH_POSITION_X_ADVANCE)) * densityScale;
+                final float advance = advances[cluster];
+                advances[cluster] = Float.isNaN(advance) ? xAdvance : advance + xAdvance;
+            }
+
+            if (glyphTo > glyphFrom) {
+                pieces.add(runStart);
+                pieces.add(runEnd);
+                pieceFonts.add(font);
+            }
+        }
+    }
+
+    @Override
+    protected float measureFontBase(HBFont font) {
+        return font.base;
+    }
+
+    @Override
+    protected float measureFontLineHeight(HBFont font) {
+        return font.lineHeight;
+    }
+
+    @Override
+    protected float measureFontSpaceXAdvance(HBFont font) {
+        return font.spaceXAdvance;
+    }
 
     private void addLineHeight(float height) {
         lineHeights.add(getHeight() + height);
@@ -105,8 +239,22 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
         runs.add(run);
     }
 
-    private void addEllipsisRunFor(String chars, final byte level,
-                                   final HBFont font, final float color, final int line, int insertIndex) {
+    /** Shape the buffer, whose segment properties are already set, with a cached shape plan of the font. */
+    private static void shape(HarfBuzz.Buffer buffer, HBFont font, HarfBuzz.FeatureArray featureArray) {
+        final long bufferAddr = buffer.addr;
+        final HarfBuzz.ShapePlan plan = font.shapePlanFor(HarfBuzz.Buffer.hb_buffer_get_direction(bufferAddr),
+                HarfBuzz.Buffer.hb_buffer_get_script(bufferAddr), HarfBuzz.Buffer.hb_buffer_get_language(bufferAddr),
+                featureArray);
+        plan.execute(font.hbFont, buffer, featureArray);
+    }
+
+    /** @return run with glyphs and their positions of the shaped ellipsis, owned by the cache of the font */
+    private static GlyphRun<HBFont> shapedEllipsisFor(String chars, final boolean ltr, final HBFont font) {
+        GlyphRun<HBFont> shaped = font.getEllipsisRun(chars, ltr);
+        if (shaped != null) {
+            return shaped;
+        }
+
         final HarfBuzz.Buffer shapeBuffer = HBGlyphLayout.shapeBuffer;
         shapeBuffer.reset();
 
@@ -125,69 +273,99 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
         shapeBuffer.add(chars, 0, chars.length(), 0, chars.length());
 
         shapeBuffer.guessSegmentProperties();
-        shapeBuffer.setDirection(TextRun.isLevelLtr(level) ? HarfBuzz.Direction.LTR : HarfBuzz.Direction.RTL);
+        shapeBuffer.setDirection(ltr ? HarfBuzz.Direction.LTR : HarfBuzz.Direction.RTL);
 
-        // Shape with default features
+        // Shape with default features of the font
         final float densityScale = font.densityScale;
-        font.hbFont.shape(shapeBuffer, NO_FEATURES);// TODO(jp): Examine what features can/should we use
+        final long shapeStart = TextMetrics.start();
+        shape(shapeBuffer, font, font.featureArrayFor(null));
+        if (shapeStart != 0L) {
+            TextMetrics.end(TextMetrics.Stage.SHAPE, font, shapeStart);
+            TextMetrics.count(TextMetrics.Counter.GLYPHS_SHAPED, font, shapeBuffer.getLength());
+        }
 
-        // Create runs
         final int shapedGlyphCount = shapeBuffer.getLength();
 
-        final IntArray glyphInfoArray = HBGlyphLayout.addRunsForTextRuns_glyphInfo;
-        shapeBuffer.getGlyphInfos(glyphInfoArray);
-        assert shapedGlyphCount * 3 == glyphInfoArray.size;
-        final int[] glyphInfo = glyphInfoArray.items;
+        // Read directly from HarfBuzz memory, without copying
+        final IntBuffer glyphInfo = shapeBuffer.getGlyphInfosView();
+        final IntBuffer glyphPositions = shapeBuffer.getGlyphPositionsView();
 
-        final IntArray glyphPositionsArray = HBGlyphLayout.addRunsForTextRuns_glyphPositions;
-        shapeBuffer.getGlyphPositions(glyphPositionsArray);
-        assert shapedGlyphCount * 4 == glyphPositionsArray.size;
-        final int[] glyphPositions = glyphPositionsArray.items;
-
-        GlyphRun<HBFont> currentGlyphRun = GlyphRun.obtain(true);
-        currentGlyphRun.x = startX;
-        currentGlyphRun.line = line;
-        currentGlyphRun.font = font;
-        currentGlyphRun.color = color;
-        currentGlyphRun.charactersLevel = level;
-        currentGlyphRun.charactersStart = -1;
-        currentGlyphRun.charactersEnd = -1;
-        currentGlyphRun.characterFlags |= FLAG_ELLIPSIS;
+        shaped = GlyphRun.obtain(false);
+        shaped.font = font;
+        shaped.ensureGlyphCapacity(shapedGlyphCount);
 
         final float fontBase = font.base;
 
         float penX = 0f;
-        for (int i = 0, gi = 0, gp = 0; i < shapedGlyphCount; i++, gi += 3, gp += 4) {
-            final int glyphId = glyphInfo[gi];
-            final int glyphFlags = glyphInfo[gi + 1];
-            final int originalIndex = glyphInfo[gi + 2];
+        for (int i = 0, gi = 0, gp = 0; i < shapedGlyphCount; i++, gi += GLYPH_INFO_STRIDE, gp += GLYPH_POSITION_STRIDE) {
+            final int glyphId = glyphInfo.get(gi + GLYPH_INFO_CODEPOINT);
 
-            final float xAdvance = toFloatFrom26p6(glyphPositions[gp]) * densityScale;
-            final float xOffset = toFloatFrom26p6(glyphPositions[gp + 2]) * densityScale;
-            final float yOffset = toFloatFrom26p6(glyphPositions[gp + 3]) * densityScale;
+            final float xAdvance = toFloatFrom26p6(glyphPositions.get(gp + GLYPH_POSITION_X_ADVANCE)) * densityScale;
+            final float xOffset = toFloatFrom26p6(glyphPositions.get(gp + GLYPH_POSITION_X_OFFSET)) * densityScale;
+            final float yOffset = toFloatFrom26p6(glyphPositions.get(gp + GLYPH_POSITION_Y_OFFSET)) * densityScale;
 
-            if ((glyphFlags & HB_GLYPH_FLAG_UNSAFE_TO_BREAK) == 0) {
-                currentGlyphRun.createCheckpoint(originalIndex, currentGlyphRun.glyphs.size);
-            }
-            currentGlyphRun.glyphs.add(font.getGlyph(glyphId));
-            currentGlyphRun.glyphX.add(penX + xOffset);
-            currentGlyphRun.glyphY.add(yOffset - fontBase);
+            shaped.glyphs.add(font.getGlyph(glyphId));
+            shaped.glyphX.add(penX + xOffset);
+            shaped.glyphY.add(yOffset - fontBase);
 
             penX += xAdvance;
         }
+        shaped.width = penX;
 
-        currentGlyphRun.width = penX;
+        font.putEllipsisRun(chars, ltr, shaped);
+        return shaped;
+    }
 
-        startX += penX;
-        runs.insert(insertIndex, currentGlyphRun);
+    private void addEllipsisRunFor(String chars, final byte level,
+                                   final HBFont font, final float color, final int line, int insertIndex) {
+        final GlyphRun<HBFont> shaped = shapedEllipsisFor(chars, TextRun.isLevelLtr(level), font);
+
+        // Ellipsis is never split, so it needs no checkpoints
+        final GlyphRun<HBFont> ellipsisRun = GlyphRun.obtain(false);
+        ellipsisRun.x = startX;
+        ellipsisRun.line = line;
+        ellipsisRun.font = font;
+        ellipsisRun.color = color;
+        ellipsisRun.charactersLevel = level;
+        ellipsisRun.charactersStart = -1;
+        ellipsisRun.charactersEnd = -1;
+        ellipsisRun.characterFlags |= FLAG_ELLIPSIS;
+
+        ellipsisRun.glyphs.addAll(shaped.glyphs);
+        ellipsisRun.glyphX.addAll(shaped.glyphX);
+        ellipsisRun.glyphY.addAll(shaped.glyphY);
+        ellipsisRun.width = shaped.width;
+
+        startX += shaped.width;
+        runs.insert(insertIndex, ellipsisRun);
     }
 
-    private static final IntArray addRunsForTextRuns_glyphInfo = new IntArray();
-    private static final IntArray addRunsForTextRuns_glyphPositions = new IntArray();
+    private int addRunsFor(final LayoutText<HBFont> text, final int runStart, final int runEnd, final byte level,
+                           final HBFont font, final FontFeatures features, final long language,
+                           final int line, int insertIndex,
+                           boolean paragraphStart, boolean paragraphEnd, boolean withCheckpoints) {
+        final char[] chars = text.text();
+        final int charsLength = text.length();
+        final HBSimpleShaper simpleShaper = font.getSimpleShaper();
+        if (simpleShaper != null && TextRun.isLevelLtr(level) && simpleShaper.canShape(chars, runStart, runEnd, features, hbScriptOf(chars, runStart, runEnd))) {
+            final int glyphCount = runEnd - runStart;
+            if (simpleGlyphInfos.capacity() < glyphCount * GLYPH_INFO_STRIDE) {
+                simpleGlyphInfos = IntBuffer.allocate(glyphCount * GLYPH_INFO_STRIDE);
+                simpleGlyphPositions = IntBuffer.allocate(glyphCount * GLYPH_POSITION_STRIDE);
+            }
+            final long shapeStart = TextMetrics.start();
+            simpleShaper.shape(chars, runStart, runEnd, simpleShaper.isKerned(features),
+                    simpleGlyphInfos, simpleGlyphPositions, 0);
+            if (shapeStart != 0L) {
+                TextMetrics.end(TextMetrics.Stage.SHAPE, font, shapeStart);
+                TextMetrics.count(TextMetrics.Counter.GLYPHS_SHAPED, font, glyphCount);
+                TextMetrics.count(TextMetrics.Counter.GLYPHS_SHAPED_SIMPLE, font, glyphCount);
+            }
+            addGlyphRun(text, simpleGlyphInfos, simpleGlyphPositions, 0, glyphCount,
+                    runStart, runEnd, level, font, line, insertIndex, paragraphStart, paragraphEnd, withCheckpoints);
+            return 1;
+        }
 
-    private int addRunsFor(final char[] chars, final int charsLength, final int runStart, final int runEnd, final byte level,
-                           final HBFont font, final float color, final int line, int insertIndex,
-                           boolean paragraphStart, boolean paragraphEnd) {
         final HarfBuzz.Buffer shapeBuffer = HBGlyphLayout.shapeBuffer;
         shapeBuffer.reset();
 
@@ -212,32 +390,51 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
                 0, charsLength,
                 runStart, runEnd - runStart);
 
+        // Runs are never shaped across script boundaries, so the script of the first character is the script of the run
+        final int script = hbScriptOf(chars, runStart, runEnd);
+        if (script != 0) {
+            HarfBuzz.Buffer.hb_buffer_set_script(shapeBuffer.addr, script);
+        }
+        if (language != HarfBuzz.Language.HB_LANGUAGE_INVALID) {
+            HarfBuzz.Buffer.hb_buffer_set_language(shapeBuffer.addr, language);
+        }
         shapeBuffer.guessSegmentProperties();
-        final boolean ltr = TextRun.isLevelLtr(level);
-        shapeBuffer.setDirection(ltr ? HarfBuzz.Direction.LTR : HarfBuzz.Direction.RTL);
-
-        // Shape with default features
-        final float densityScale = font.densityScale;
-        font.hbFont.shape(shapeBuffer, NO_FEATURES);// TODO(jp): Examine what features can/should we use
+        shapeBuffer.setDirection(TextRun.isLevelLtr(level) ? HarfBuzz.Direction.LTR : HarfBuzz.Direction.RTL);
 
-        // Create runs
-        final int shapedGlyphCount = shapeBuffer.getLength();
+        final long shapeStart = TextMetrics.start();
+        shape(shapeBuffer, font, font.featureArrayFor(features));
+        if (shapeStart != 0L) {
+            TextMetrics.end(TextMetrics.Stage.SHAPE, font, shapeStart);
+            TextMetrics.count(TextMetrics.Counter.GLYPHS_SHAPED, font, shapeBuffer.getLength());
+        }
 
-        final IntArray glyphInfoArray = HBGlyphLayout.addRunsForTextRuns_glyphInfo;
-        shapeBuffer.getGlyphInfos(glyphInfoArray);
-        assert shapedGlyphCount * 3 == glyphInfoArray.size;
-        final int[] glyphInfo = glyphInfoArray.items;
+        // Read directly from HarfBuzz memory, without copying
+        addGlyphRun(text, shapeBuffer.getGlyphInfosView(), shapeBuffer.getGlyphPositionsView(), 0, shapeBuffer.getLength(),
+                runStart, runEnd, level, font, line, insertIndex, paragraphStart, paragraphEnd, withCheckpoints);
+        return 1;
+    }
 
-        final IntArray glyphPositionsArray = HBGlyphLayout.addRunsForTextRuns_glyphPositions;
-        shapeBuffer.getGlyphPositions(glyphPositionsArray);
-        assert shapedGlyphCount * 4 == glyphPositionsArray.size;
-        final int[] glyphPositions = glyphPositionsArray.items;
+    /** Create a glyph run from shaped glyphs.
+     * @param glyphInfo in the format of {@link HarfBuzz.Buffer#getGlyphInfosView()}
+     * @param glyphPositions in the format of {@link HarfBuzz.Buffer#getGlyphPositionsView()}
+     * @param glyphFrom index of the first glyph of the run in glyphInfo and glyphPositions
+     * @param glyphTo index after the last glyph of the run
+     * @param withCheckpoints whether to create {@link GlyphRun#checkpoints}, needed for wrapping */
+    private void addGlyphRun(final LayoutText<HBFont> text, final IntBuffer glyphInfo, final IntBuffer glyphPositions, final int glyphFrom, final int glyphTo,
+                             final int runStart, final int runEnd, final byte level,
+                             final HBFont font, final int line, int insertIndex,
+                             boolean paragraphStart, boolean paragraphEnd, boolean withCheckpoints) {
+        final boolean ltr = TextRun.isLevelLtr(level);
+        final float densityScale = font.densityScale;
 
-        GlyphRun<HBFont> currentGlyphRun = GlyphRun.obtain(true);
+        GlyphRun<HBFont> currentGlyphRun = GlyphRun.obtain(withCheckpoints);
         currentGlyphRun.x = startX;
         currentGlyphRun.line = line;
         currentGlyphRun.font = font;
-        currentGlyphRun.color = color;
+        currentGlyphRun.color = text.colorAt(runStart);
+        // Runs are not split on color changes, so each glyph takes the color of its cluster
+        final boolean colorUniform = text.isColorUniform(runStart, runEnd);
+        currentGlyphRun.setGlyphColorsEnabled(!colorUniform);
         if (paragraphStart) {
             currentGlyphRun.characterFlags |= FLAG_GLYPH_RUN_IS_PARAGRAPH_START;
         }
@@ -255,21 +452,25 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
 
         float penX = 0f;
         int c = ltr ? 0 : characterCount-1;
-        for (int i = 0, gi = 0, gp = 0; i < shapedGlyphCount; i++, gi += 3, gp += 4) {
-            final int glyphId = glyphInfo[gi];
-            final int glyphFlags = glyphInfo[gi + 1];
-            final int originalIndex = glyphInfo[gi + 2];
-
-            final float xAdvance = toFloatFrom26p6(glyphPositions[gp]) * densityScale;
-            final float xOffset = toFloatFrom26p6(glyphPositions[gp + 2]) * densityScale;
-            final float yOffset = toFloatFrom26p6(glyphPositions[gp + 3]) * densityScale;
-
-            if ((glyphFlags & HB_GLYPH_FLAG_UNSAFE_TO_BREAK) == 0) {
-                currentGlyphRun.createCheckpoint(originalIndex, currentGlyphRun.glyphs.size);
+        for (int gi = glyphFrom * GLYPH_INFO_STRIDE, gp = glyphFrom * GLYPH_POSITION_STRIDE, gEnd = glyphTo * GLYPH_INFO_STRIDE;
+             gi < gEnd; gi += GLYPH_INFO_STRIDE, gp += GLYPH_POSITION_STRIDE) {
+            final int glyphId = glyphInfo.get(gi + GLYPH_INFO_CODEPOINT);
+            final int glyphFlags = glyphInfo.get(gi + GLYPH_INFO_MASK);
+            final int originalIndex = glyphInfo.get(gi + GLYPH_INFO_CLUSTER);
+
+            final float xAdvance = toFloatFrom26p6(glyphPositions.get(gp + GLYPH_POSITION_X_ADVANCE)) * densityScale;
+            final float xOffset = toFloatFrom26p6(glyphPositions.get(gp + GLYPH_POSITION_X_OFFSET)) * densityScale;
+            final float yOffset = toFloatFrom26p6(glyphPositions.get(gp + GLYPH_POSITION_Y_OFFSET)) * densityScale;
+
+            if (withCheckpoints && (glyphFlags & HB_GLYPH_FLAG_UNSAFE_TO_BREAK) == 0) {
+                currentGlyphRun.createCheckpoint(originalIndex - runStart, currentGlyphRun.glyphs.size);
             }
             currentGlyphRun.glyphs.add(font.getGlyph(glyphId));
             currentGlyphRun.glyphX.add(penX + xOffset);
             currentGlyphRun.glyphY.add(yOffset - fontBase);
+            if (!colorUniform) {
+                currentGlyphRun.glyphColors.add(text.colorAt(originalIndex));
+            }
 
             final int newC = originalIndex - runStart;
             if (ltr) {
@@ -300,7 +501,139 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
 
         startX += penX;
         runs.insert(insertIndex, currentGlyphRun);
-        return 1;
+    }
+
+    /** Splits the run into pieces by font coverage of the font's fallback chain and adds each piece to the batch.
+     * Codepoints that continue a cluster (marks, joiners, variation selectors...) stay with the font of the piece
+     * they belong to, as does whitespace, if that font covers it. Codepoints that no font in the chain covers
+     * are shaped with the primary font (and will probably end up as a missing glyph). */
+    private static void itemizeRun(final HBShapeBatch batch, final char[] chars, final int runStart, final int runEnd,
+                                   final byte level, final HBFont font, final FontFeatures features,
+                                   final int script, final long language,
+                                   boolean paragraphStart, boolean paragraphEnd) {
+        if (font.getFallback() == null) {
+            batch.add(chars, runStart, runEnd, level, font, features, script, language, paragraphStart, paragraphEnd);
+            return;
+        }
+
+        int pieceStart = runStart;
+        HBFont pieceFont = null;
+        boolean afterJoiner = false;
+        for (int i = runStart; i < runEnd; ) {
+            final int codepoint = Character.codePointAt(chars, i, runEnd);
+
+            HBFont codepointFont;
+            if (pieceFont != null && (afterJoiner || isClusterContinuation(codepoint) || Character.isWhitespace(codepoint))
+                    && pieceFont.covers(codepoint)) {
+                codepointFont = pieceFont;
+            } else {
+                codepointFont = font;
+                for (HBFont f = font; f != null; f = f.getFallback()) {
+                    if (f.covers(codepoint)) {
+                        codepointFont = f;
+                        break;
+                    }
+                }
+            }
+
+            if (codepointFont != pieceFont) {
+                if (pieceFont != null) {
+                    batch.add(chars, pieceStart, i, level, pieceFont, features, script, language, paragraphStart, false);
+                    paragraphStart = false;
+                }
+                pieceStart = i;
+                pieceFont = codepointFont;
+            }
+
+            afterJoiner = codepoint == 0x200D /* ZERO WIDTH JOINER */;
+            i += Character.charCount(codepoint);
+        }
+
+        batch.add(chars, pieceStart, runEnd, level, pieceFont, features, script, language, paragraphStart, paragraphEnd);
+    }
+
+    /** Clear the batch and add all text runs to it, split by font coverage. */
+    private static void itemizeText(final HBShapeBatch batch, final LayoutText<HBFont> text, final LayoutTextRunArray<HBFont> textRuns) {
+        batch.clear();
+        final char[] chars = text.text();
+        final long language = hbLanguageOf(text.getLocale());
+        boolean paragraphStart = true;
+        for (int textRunIndex = 0; textRunIndex < textRuns.size; textRunIndex++) {
+            final TextRun<HBFont> textRun = textRuns.items[textRunIndex];
+            if ((textRun.flags & TextRun.FLAG_LINE_BREAK) != 0) {
+                paragraphStart = true;
+            } else if ((textRun.flags & TextRun.FLAG_TAB_STOP) == 0) {
+                itemizeRun(batch, chars, textRun.start, textRun.end, textRun.level, textRun.font, textRun.features,
+                        hbScriptOf(textRun.script), language, paragraphStart,
+                        textRunIndex + 1 == textRuns.size || (textRuns.items[textRunIndex + 1].flags & TextRun.FLAG_LINE_BREAK) != 0);
+                paragraphStart = false;
+            }
+        }
+    }
+
+    /** Add glyph runs for all batch runs that belong to the text run ending at textRunEnd.
+     * @return index of the first batch run after the text run */
+    private int addBatchRunsFor(final HBShapeBatch batch, int batchRun, final LayoutText<HBFont> text,
+                                final int textRunEnd, final int line) {
+        while (batchRun < batch.size() && batch.runStart(batchRun) < textRunEnd) {
+            batch.ensureShaped(shapeBuffer, text.text(), text.length(), batchRun);
+            addGlyphRun(text, batch.glyphInfos, batch.glyphPositions, batch.runGlyphStart(batchRun), batch.runGlyphEnd(batchRun),
+                    batch.runStart(batchRun), batch.runEnd(batchRun), batch.runLevel(batchRun), batch.runFont(batchRun),
+                    line, runs.size, batch.runParagraphStart(batchRun), batch.runParagraphEnd(batchRun), true);
+            batchRun++;
+        }
+        return batchRun;
+    }
+
+    /** @return true if the codepoint can't start a cluster on its own and should be shaped with the preceding codepoint */
+    private static boolean isClusterContinuation(int codepoint) {
+        switch (Character.getType(codepoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+                return true;
+        }
+        return (codepoint >= 0x1F3FB && codepoint <= 0x1F3FF) // Emoji skin tone modifiers
+                || (codepoint >= 0xE0020 && codepoint <= 0xE007F) // Tags (emoji flag sequences)
+                || isIgnorableCodepoint(codepoint);
+    }
+
+    /** @return true if the characters are of at most one non-neutral script, so script itemization does not split them */
+    private static boolean isSingleScript(char[] chars, int start, int end) {
+        UnicodeScript script = null;
+        for (int i = start; i < end; ) {
+            final int codepoint = Character.codePointAt(chars, i, end);
+            i += Character.charCount(codepoint);
+
+            final UnicodeScript codepointScript = UnicodeScripts.of(codepoint);
+            if (UnicodeScripts.isNeutral(codepointScript) || codepointScript == script) {
+                continue;
+            }
+            if (script != null) {
+                return false;
+            }
+            script = codepointScript;
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean doLayoutSingleLine(LayoutText<HBFont> text) {
+        final char[] chars = text.text();
+        final int length = text.length();
+        final HBFont font = text.fontAt(0);
+
+        // Otherwise the run would be split by font coverage or by script
+        if ((font.getFallback() != null && !font.coversAll(text)) || !isSingleScript(chars, 0, length)) {
+            return false;
+        }
+
+        startX = 0f;
+        addRunsFor(text, 0, length, (byte) 0, font, text.featuresAt(0), hbLanguageOf(text.getLocale()),
+                0, 0, true, true, false);
+        completeLine(text, 0, 1, font);
+        usedFonts.clear();
+        return true;
     }
 
     /** Reorders run according to BiDi algorithm, computes line height, sets Y of runs on the line,
@@ -428,15 +761,24 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
 
         int characterIndexInWrapRun = 0;
         if (run.isLtr()) {
-            for (int i = 0; i < charPositionCount; i++) {
-                final float position = charPositions[i];
-                if (Float.isNaN(position)) {
-                    continue;
+            // Positions of left-to-right run never decrease, so binary search for the last one before the target,
+            // skipping characters without position (which are inside clusters)
+            int low = 0;
+            int high = charPositionCount - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                int probe = mid;
+                while (probe >= low && Float.isNaN(charPositions[probe])) {
+                    probe--;
                 }
-                if (position >= targetRunWidth) {
-                    break;
+                if (probe < low) {
+                    low = mid + 1;
+                } else if (charPositions[probe] < targetRunWidth) {
+                    characterIndexInWrapRun = probe;
+                    low = mid + 1;
+                } else {
+                    high = probe - 1;
                 }
-                characterIndexInWrapRun = i;
             }
         } else {
             final float runWidth = run.width;
@@ -457,7 +799,7 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
         return run.charactersStart + characterIndexInWrapRun;
     }
 
-    private int splitRunForWrap(final char[] chars, final int charsLength, final int runIndex, int splitIndex) {
+    private int splitRunForWrap(final LayoutText<HBFont> text, final int runIndex, int splitIndex) {
         final Array<GlyphRun<HBFont>> runs = this.runs;
 
         if (runIndex >= runs.size) {
@@ -479,7 +821,8 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
         assert splitRun.checkpoints != null;
 
         final int runSplitCharacterIndex = splitIndex - splitRun.charactersStart;
-        final int runSplitCheckpointIndex = splitRun.getCheckpointIndexOfCharacter(runSplitCharacterIndex);
+        // Checkpoints of right-to-left runs are in visual order, so they can't be searched (and split from the end)
+        final int runSplitCheckpointIndex = splitRun.isLtr() ? splitRun.getCheckpointIndexOfCharacter(runSplitCharacterIndex) : -1;
 
         if (runSplitCheckpointIndex >= 0) {
             // Do the optimized split
@@ -490,7 +833,7 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
             // newGlyphRun.x, y -> no need to set, set elsewhere
             newGlyphRun.line = splitRun.line + 1;
             newGlyphRun.width = splitRun.width;
-            newGlyphRun.color = splitRun.color;
+            newGlyphRun.color = text.colorAt(splitIndex);
             newGlyphRun.font = splitRun.font;
 
             newGlyphRun.charactersStart = splitIndex;
@@ -506,6 +849,11 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
             newGlyphRun.glyphs.size = glyphCount;
             newGlyphRun.glyphX.size = glyphCount;
             newGlyphRun.glyphY.size = glyphCount;
+            if (splitRun.glyphColors != null) {
+                newGlyphRun.setGlyphColorsEnabled(true);
+                System.arraycopy(splitRun.glyphColors.items, runSplitGlyphIndex, newGlyphRun.glyphColors.ensureCapacity(glyphCount), 0, glyphCount);
+                newGlyphRun.glyphColors.size = glyphCount;
+            }
 
             final int characterCount = splitRun.characterPositions.size - runSplitCharacterIndex;
             assert characterCount == newGlyphRun.charactersEnd - newGlyphRun.charactersStart;
@@ -514,8 +862,14 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
 
             newGlyphRun.setCheckpointsEnabled(true);
             final int checkpointCount = splitRun.checkpoints.size - runSplitCheckpointIndex;
-            System.arraycopy(splitRun.checkpoints.items, runSplitCheckpointIndex, newGlyphRun.checkpoints.ensureCapacity(checkpointCount), 0, checkpointCount);
+            final long[] newCheckpoints = newGlyphRun.checkpoints.ensureCapacity(checkpointCount);
+            System.arraycopy(splitRun.checkpoints.items, runSplitCheckpointIndex, newCheckpoints, 0, checkpointCount);
             newGlyphRun.checkpoints.size = checkpointCount;
+            // Make the checkpoints relative to the new run
+            final long checkpointZero = ((long) runSplitCharacterIndex << 32) | runSplitGlyphIndex;
+            for (int i = 0; i < checkpointCount; i++) {
+                newCheckpoints[i] -= checkpointZero;
+            }
 
             // Adjust new values (shift x coordinate)
             final float glyphZeroX = splitRun.glyphX.get(runSplitGlyphIndex);
@@ -544,6 +898,9 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
             splitRun.glyphs.size = runSplitGlyphIndex;
             splitRun.glyphX.size = runSplitGlyphIndex;
             splitRun.glyphY.size = runSplitGlyphIndex;
+            if (splitRun.glyphColors != null) {
+                splitRun.glyphColors.size = runSplitGlyphIndex;
+            }
             splitRun.characterPositions.size = runSplitCharacterIndex;
             splitRun.checkpoints.size = runSplitCheckpointIndex;
 
@@ -556,102 +913,307 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
             // (the checkpoint check above probably hit a ligature or something, this shouldn't happen often)
             runs.removeIndex(runIndex);
 
+            final FontFeatures features = text.featuresAt(splitRun.charactersStart);
+            final long language = hbLanguageOf(text.getLocale());
+
             startX = splitRun.x;
             int insertIndex = runIndex;
-            insertIndex += addRunsFor(chars, charsLength, splitRun.charactersStart, splitIndex, splitRun.charactersLevel,
-                    splitRun.font, splitRun.color, splitRun.line, insertIndex, (splitRun.characterFlags & FLAG_GLYPH_RUN_IS_PARAGRAPH_START) != 0, true);
+            insertIndex += addRunsFor(text, splitRun.charactersStart, splitIndex, splitRun.charactersLevel,
+                    splitRun.font, features, language, splitRun.line, insertIndex, (splitRun.characterFlags & FLAG_GLYPH_RUN_IS_PARAGRAPH_START) != 0, true, true);
 
             startX = 0f;// Not really needed as it is reordered later, but cleaner
-            addRunsFor(chars, charsLength, splitIndex, splitRun.charactersEnd, splitRun.charactersLevel,
-                    splitRun.font, splitRun.color, splitRun.line + 1, // To prevent kerning with previous run
-                    insertIndex, true, (splitRun.characterFlags & FLAG_GLYPH_RUN_IS_PARAGRAPH_END) != 0);
+            addRunsFor(text, splitIndex, splitRun.charactersEnd, splitRun.charactersLevel,
+                    splitRun.font, features, language, splitRun.line + 1, // To prevent kerning with previous run
+                    insertIndex, true, (splitRun.characterFlags & FLAG_GLYPH_RUN_IS_PARAGRAPH_END) != 0, true);
 
             GlyphRun.<HBFont>pool().free(splitRun);
             return insertIndex;
         }
     }
 
-    /** Returns character index of line-break point at which the characters should fold to next line.
-     * Character at index and following characters may be {@link #COLLAPSIBLE_SPACE}, in which case the linebreak should
-     * be at the first character which is not that character.
-     * @param hitIndex which should already be at the next line
-     * @return index in [lineStart, lineEnd) range */
-    private int findWrapPointFor(LayoutText<HBFont> text, final int lineStart, final int lineEnd, final int hitIndex) {
-        assert hitIndex >= lineStart && hitIndex < lineEnd;
+    /** Collapse spaces of the line with runs [lineRunsStart, lineRunsEnd), from wrapIndex to the end of the line,
+     * so that they do not extend the line over availableWidth. */
+    private void collapseSpaces(final int lineRunsStart, final int lineRunsEnd, final int wrapIndex, final float availableWidth) {
+        final Array<GlyphRun<HBFont>> runs = this.runs;
+        int collapseRunIndex = runIndexWithCharIndex(lineRunsStart, wrapIndex);
+        if (collapseRunIndex < lineRunsEnd) {
+            // There is something to truncate
+            GlyphRun<HBFont> collapseRun = runs.items[collapseRunIndex];
+            int collapseFromIndex = wrapIndex - collapseRun.charactersStart;
+            assert (collapseRun.characterFlags & GlyphRun.FLAG_TAB) == 0;
+            assert (collapseRun.characterFlags & GlyphRun.FLAG_LINEBREAK) == 0 || collapseRunIndex + 1 == lineRunsEnd;
+
+            float collapseToPos;
+            {// Ensure that we don't overflow the available width
+                final int collapseToCharacterIndex = wrapIndex - collapseRun.charactersStart + 1;
+                if (collapseToCharacterIndex >= collapseRun.characterPositions.size) {
+                    collapseToPos = collapseRun.width;
+                } else {
+                    collapseToPos = collapseRun.characterPositions.items[collapseToCharacterIndex];
+                }
 
-        if (hitIndex <= lineStart + 1) {
-            // We have to wrap at at least one character, at all times, so no reason to search further
-            return lineStart + 1;
-        }
+                final float maxCollapseToPos = availableWidth - collapseRun.x;
+                if (maxCollapseToPos < collapseToPos) {
+                    collapseToPos = maxCollapseToPos;
+                }
+            }
 
-        final char[] chars = text.text();
-        final Locale locale = text.getLocale();
-        if (locale == null) {
-            int i = hitIndex;
-            if (!Character.isWhitespace(chars[i])) {
-                // Shift left, one after the nearest whitespace
-                while (i > lineStart && !Character.isWhitespace(chars[i - 1])) {
-                    i--;
+            while (true) {
+                // Set positions of glyphs (space glyphs, presumably, from back to front)
+                for (int i = collapseRun.glyphs.size-1; i > 0; i--) {
+                    // NOTE(jp): should technically be x advance, not width, but we don't have any info on that
+                    final float glyphXAdvance = collapseRun.glyphs.items[i].width;
+                    final float originalX = collapseRun.glyphX.items[i];
+                    if (originalX + glyphXAdvance <= collapseToPos) {
+                        // Glyphs that were not collapsed start here
+                        break;
+                    }
+                    // This glyph should be moved so that it does not extend the size of the layout
+                    collapseRun.glyphX.items[i] = collapseToPos - glyphXAdvance;
                 }
-            } // else: Don't do anything, we can break here
 
-            if (i <= lineStart) {
-                // There is no whitespace to hang on, fallback to by-char mode
-                i = hitIndex;
+                // Set positions of characters
+                for (int i = collapseFromIndex; i < collapseRun.characterPositions.size; i++) {
+                    collapseRun.characterPositions.items[i] = collapseToPos;
+                }
+
+                // Trim width
+                collapseRun.width = collapseToPos;
+
+                // Set flag indicating that this has collapsed spaces
+                collapseRun.characterFlags |= FLAG_GLYPH_RUN_HAS_COLLAPSED_SPACES;
+
+                // Advance to next run for truncation
+                if (++collapseRunIndex >= lineRunsEnd) {
+                    break;
+                }
+
+                final GlyphRun<HBFont> newCollapseRun = runs.items[collapseRunIndex];
+                newCollapseRun.x = collapseRun.x + collapseRun.width;
+                // This new run should not have any glyphs
+                assert newCollapseRun.glyphs.size == 0;
+                collapseRun = newCollapseRun;
+                collapseFromIndex = 0;
+                collapseToPos = 0f;
             }
-            return i;
-        } else {
-            // Use break iterator
-            BreakIterator lineBreakIterator = getLineBreakIterator(text, lineStart, lineEnd, locale);
-
-            if (lineBreakIterator.isBoundary(hitIndex)) {
-                // It is already perfect.
-                return hitIndex;
-            }
-            // Can we use hitIndex anyway because of collapsing?
-            collapseToNextBreak:
-            {
-                final int following = lineBreakIterator.following(hitIndex);
-                if (following == BreakIterator.DONE) {
-                    break collapseToNextBreak;
+        }
+    }
+
+    /** Lines chosen by {@link #measureLineBreaks} or {@link #preparedLineBreaks}, for {@link #doLayoutLines}. */
+    private static final IntArray doLayoutText_lines = new IntArray();
+
+    /** @return whether {@link #doLayoutLines} can lay out text with these runs and limits. There must be no height limits,
+     * runs must be left-to-right, because they are sliced into lines in logical order,
+     * and there must be no tab stops, as their width depends on the line. */
+    private static boolean isLineLayoutPossible(LayoutTextRunArray<HBFont> textRuns, float availableWidth, float availableHeight, int maxLines) {
+        if (availableWidth == Float.POSITIVE_INFINITY || availableHeight != Float.POSITIVE_INFINITY || maxLines != Integer.MAX_VALUE) {
+            return false;
+        }
+        for (int i = 0; i < textRuns.size; i++) {
+            final TextRun<HBFont> textRun = textRuns.items[i];
+            if (textRun.level != 0 || (textRun.flags & TextRun.FLAG_TAB_STOP) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Lay out text without height limits, with all line breaks chosen beforehand from measured advances,
+     * creating the glyph runs of each line exactly once, without splitting them afterwards.
+     * Glyph runs reuse the glyphs of the batch and are reshaped only when a line starts or ends
+     * in a place where it is not safe to break (such as inside a ligature or a kerned pair).
+     * @param batch with all runs of the text itemized and shaped
+     * @param lines in the format of {@link #measureLineBreaks} */
+    private void doLayoutLines(LayoutText<HBFont> text, LayoutTextRunArray<HBFont> textRuns, HBShapeBatch batch,
+                               IntArray lines, float availableWidth) {
+        final Array<GlyphRun<HBFont>> runs = this.runs;
+        final long language = hbLanguageOf(text.getLocale());
+
+        int textRunIndex = 0;
+        int batchRun = 0;
+        for (int l = 0; l < lines.size; l += 3) {
+            final int line = l / 3;
+            final int lineStart = lines.items[l];
+            final int wrapIndex = lines.items[l + 1];
+            final int lineEnd = lines.items[l + 2];
+            final int lineRunsStart = runs.size;
+
+            while (textRuns.items[textRunIndex].end <= lineStart) {
+                textRunIndex++;
+            }
+            while (batchRun < batch.size() && batch.runEnd(batchRun) <= lineStart) {
+                batchRun++;
+            }
+
+            for (int t = textRunIndex; t < textRuns.size && textRuns.items[t].start < lineEnd; t++) {
+                final TextRun<HBFont> textRun = textRuns.items[t];
+                if ((textRun.flags & TextRun.FLAG_LINE_BREAK) != 0) {
+                    addLinebreakRunFor(textRun, line);
+                    continue;
                 }
-                for (int i = hitIndex; i < following; i++) {
-                    if (chars[i] != COLLAPSIBLE_SPACE) {
-                        break collapseToNextBreak;
+
+                // Batch runs never cross text runs
+                final int sliceFrom = Math.max(textRun.start, lineStart);
+                final int sliceTo = Math.min(textRun.end, lineEnd);
+                for (int b = batchRun; b < batch.size() && batch.runStart(b) < sliceTo; b++) {
+                    if (batch.runEnd(b) > sliceFrom) {
+                        addBatchRunSlice(batch, b, text,
+                                Math.max(batch.runStart(b), sliceFrom), Math.min(batch.runEnd(b), sliceTo),
+                                textRun.features, language, line);
                     }
                 }
-                return hitIndex;
             }
 
-            final int preceding = lineBreakIterator.preceding(hitIndex);
-            if (preceding == BreakIterator.DONE || preceding <= lineStart) {
-                // Fall back to char mode
-                return hitIndex;
+            if (wrapIndex < lineEnd) {
+                collapseSpaces(lineRunsStart, runs.size, wrapIndex, availableWidth);
             }
+            completeLine(text, lineRunsStart, runs.size, runs.peek().font);
+        }
 
-            return preceding;
+        final TextRun<HBFont> lastTextRun = textRuns.items[textRuns.size - 1];
+        if ((lastTextRun.flags & TextRun.FLAG_LINE_BREAK) != 0) {
+            // Last line ends with \n, there should be additional new line with the height of current font
+            addLineHeight(lastTextRun.font.lineHeight);
         }
+        usedFonts.clear();
     }
 
-    @Override
-    protected void doLayoutText(LayoutText<HBFont> text, LayoutTextRunArray<HBFont> textRuns, float availableWidth, float availableHeight, int maxLines, String ellipsis) {
-        final Array<GlyphRun<HBFont>> runs = this.runs;
+    /** Add glyph run for characters [sliceStart, sliceEnd) of a shaped left-to-right batch run.
+     * Glyphs of the batch are used when the slice starts and ends where it is safe to break, otherwise it is reshaped. */
+    private void addBatchRunSlice(final HBShapeBatch batch, final int batchRun, final LayoutText<HBFont> text,
+                                  final int sliceStart, final int sliceEnd, final FontFeatures features, final long language,
+                                  final int line) {
+        final int runStart = batch.runStart(batchRun);
+        final int runEnd = batch.runEnd(batchRun);
+        final int glyphStart = batch.runGlyphStart(batchRun);
+        final int glyphEnd = batch.runGlyphEnd(batchRun);
+        final IntBuffer glyphInfo = batch.glyphInfos;
+
+        final int glyphFrom = sliceStart == runStart ? glyphStart : glyphIndexOfCluster(glyphInfo, glyphStart, glyphEnd, sliceStart);
+        final int glyphTo = sliceEnd == runEnd ? glyphEnd : glyphIndexOfCluster(glyphInfo, glyphFrom, glyphEnd, sliceEnd);
+        final boolean paragraphStart = sliceStart != runStart || batch.runParagraphStart(batchRun);
+        final boolean paragraphEnd = sliceEnd != runEnd || batch.runParagraphEnd(batchRun);
+
+        if ((sliceStart == runStart || isSafeToBreakAt(glyphInfo, glyphFrom, glyphEnd, sliceStart))
+                && (sliceEnd == runEnd || isSafeToBreakAt(glyphInfo, glyphTo, glyphEnd, sliceEnd))) {
+            addGlyphRun(text, glyphInfo, batch.glyphPositions, glyphFrom, glyphTo, sliceStart, sliceEnd, batch.runLevel(batchRun),
+                    batch.runFont(batchRun), line, runs.size, paragraphStart, paragraphEnd, false);
+        } else {
+            addRunsFor(text, sliceStart, sliceEnd, batch.runLevel(batchRun), batch.runFont(batchRun),
+                    features, language, line, runs.size, paragraphStart, paragraphEnd, false);
+        }
+    }
 
-        int line = 0;
-        int lineLaidRuns = 0;
+    /** @return index of the first glyph in [glyphFrom, glyphTo) of left-to-right shaped glyphs,
+     * whose cluster is at least charIndex, glyphTo if there is none */
+    private static int glyphIndexOfCluster(IntBuffer glyphInfo, int glyphFrom, int glyphTo, int charIndex) {
+        int low = glyphFrom;
+        int high = glyphTo;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (glyphInfo.get(mid * GLYPH_INFO_STRIDE + GLYPH_INFO_CLUSTER) < charIndex) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
 
-        boolean clampLines = false;
+    /** @return true if the glyph starts the cluster of charIndex and the shaping would not change when broken there */
+    private static boolean isSafeToBreakAt(IntBuffer glyphInfo, int glyph, int glyphEnd, int charIndex) {
+        if (glyph >= glyphEnd) {
+            return false;
+        }
+        final int gi = glyph * GLYPH_INFO_STRIDE;
+        return glyphInfo.get(gi + GLYPH_INFO_CLUSTER) == charIndex
+                && (glyphInfo.get(gi + GLYPH_INFO_MASK) & HB_GLYPH_FLAG_UNSAFE_TO_BREAK) == 0;
+    }
 
+    @Override
+    protected void doLayoutText(LayoutText<HBFont> text, LayoutTextRunArray<HBFont> textRuns, float availableWidth, float availableHeight, int maxLines, String ellipsis) {
         if (textRuns.size <= 0) {
             // At least one line must be always present, even if there is no text run
             addLineHeight(text.fontAt(0).lineHeight);
             return;
         }
 
+        final HBShapeBatch batch = HBGlyphLayout.shapeBatch;
+        if (isLineLayoutPossible(textRuns, availableWidth, availableHeight, maxLines)) {
+            final IntArray lines = doLayoutText_lines;
+            lines.clear();
+            if (measureLineBreaks(text, textRuns, availableWidth, lines)) {
+                // NOTE(jp): measureAdvances itemized and shaped the whole text into the shape batch, which is reused here
+                doLayoutLines(text, textRuns, batch, lines, availableWidth);
+                lines.clear();
+                return;
+            }
+        }
+
+        // Collect all runs to shape, they are then shaped in batches as needed
+        itemizeText(batch, text, textRuns);
+        doLayoutWrapped(text, textRuns, batch, availableWidth, availableHeight, maxLines, ellipsis);
+    }
+
+    @Override
+    protected Object doPrepareText(LayoutText<HBFont> text, LayoutTextRunArray<HBFont> textRuns) {
+        // Own batch and buffer, so that the shared ones are not touched when the text is prepared on another thread
+        final HBShapeBatch batch = new HBShapeBatch();
+        itemizeText(batch, text, textRuns);
+        final HarfBuzz.Buffer buffer = HarfBuzz.Buffer.create();
+        try {
+            batch.shapeAll(buffer, text.text(), text.length());
+        } finally {
+            buffer.destroy();
+        }
+        return batch;
+    }
+
+    @Override
+    protected boolean measurePreparedAdvances(LayoutText<HBFont> text, LayoutTextRunArray<HBFont> textRuns, Object prepared,
+                                              float[] advances, IntArray pieces, Array<HBFont> pieceFonts) {
+        measureBatchAdvances((HBShapeBatch) prepared, null, text.text(), text.length(), advances, pieces, pieceFonts);
+        return true;
+    }
+
+    @Override
+    protected void doLayoutPreparedText(PreparedText<HBFont> text, float availableWidth, float availableHeight, int maxLines, String ellipsis) {
+        final LayoutText<HBFont> layoutText = text.getText();
+        final LayoutTextRunArray<HBFont> textRuns = text.getTextRuns();
+        if (textRuns.size <= 0) {
+            addLineHeight(layoutText.fontAt(0).lineHeight);
+            return;
+        }
+
+        // Prepared batch is already shaped whole, it is only read
+        final HBShapeBatch batch = (HBShapeBatch) text.getShaping();
+        if (isLineLayoutPossible(textRuns, availableWidth, availableHeight, maxLines)) {
+            final IntArray lines = doLayoutText_lines;
+            lines.clear();
+            if (preparedLineBreaks(text, availableWidth, lines)) {
+                doLayoutLines(layoutText, textRuns, batch, lines, availableWidth);
+                lines.clear();
+                return;
+            }
+        }
+        doLayoutWrapped(layoutText, textRuns, batch, availableWidth, availableHeight, maxLines, ellipsis);
+    }
+
+    /** Lay out text, wrapping the runs as they overflow the available width.
+     * @param batch with all runs of the text itemized, shaped as needed */
+    private void doLayoutWrapped(LayoutText<HBFont> text, LayoutTextRunArray<HBFont> textRuns, HBShapeBatch batch,
+                                 float availableWidth, float availableHeight, int maxLines, String ellipsis) {
+        final Array<GlyphRun<HBFont>> runs = this.runs;
+
+        int line = 0;
+        int lineLaidRuns = 0;
+
+        boolean clampLines = false;
+
         final char[] chars = text.text();
         final int charsLength = text.length();
+        int batchRun = 0;
 
-        boolean paragraphStart = true;
         forTextRuns:
         for (int textRunIndex = 0; textRunIndex < textRuns.size; textRunIndex++) {
             final boolean lastTextRun = textRunIndex + 1 == textRuns.size;
@@ -662,16 +1224,10 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
 
             if (linebreak) {
                 addLinebreakRunFor(textRun, line);
-                paragraphStart = true;
             } else if ((textRun.flags & TextRun.FLAG_TAB_STOP) != 0) {
                 addTabStopRunFor(text, textRun, line);
             } else {
-                addRunsFor(chars, charsLength, textRun.start, textRun.end,
-                        textRun.level, textRun.font, textRun.color,
-                        line, runs.size,
-                        paragraphStart,
-                        lastTextRun || (textRuns.items[textRunIndex + 1].flags & TextRun.FLAG_LINE_BREAK) != 0);
-                paragraphStart = false;
+                batchRun = addBatchRunsFor(batch, batchRun, text, textRun.end, line);
             }
 
             // Wrapping
@@ -704,7 +1260,9 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
                 // Find suitable breaking point
                 final int lineCharactersStart = runs.items[lineLaidRuns].charactersStart;
                 final int lineCharactersEnd = runs.items[runs.size - 1].charactersEnd;
+                final long wrapStart = TextMetrics.start();
                 final int wrapIndex = findWrapPointFor(text, lineCharactersStart, lineCharactersEnd, wrapPointCharacterIndex);
+                TextMetrics.end(TextMetrics.Stage.WRAP, wrapPointRun.font, wrapStart);
 
                 // There may be some whitespace after the wrap index, which is not wrapped to the new line, but rather
                 // shrunk to 0-width on the last line. This is the index, where such whitespace ends (it starts at wrapIndex).
@@ -720,7 +1278,7 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
 
                 // Find where actual split happens and split it there
                 final int splitRunIndex = runIndexWithCharIndex(lineLaidRuns, realWrapIndex);
-                int firstRunOnWrappedLineIndex = splitRunForWrap(chars, charsLength, splitRunIndex, realWrapIndex);
+                int firstRunOnWrappedLineIndex = splitRunForWrap(text, splitRunIndex, realWrapIndex);
 
                 final boolean wrappedBecauseOfCollapsedText = firstRunOnWrappedLineIndex == runs.size;
                 // When collapsed spaces end with a newline, it won't be moved to a next line,
@@ -759,68 +1317,7 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
                 }
 
                 // Collapse everything between wrapIndex and firstRunOnWrappedLineIndex run
-                int collapseRunIndex = runIndexWithCharIndex(lineLaidRuns, wrapIndex);
-                if (collapseRunIndex < firstRunOnWrappedLineIndex) {
-                    // There is something to truncate
-                    GlyphRun<HBFont> collapseRun = runs.items[collapseRunIndex];
-                    int collapseFromIndex = wrapIndex - collapseRun.charactersStart;
-                    assert (collapseRun.characterFlags & GlyphRun.FLAG_TAB) == 0;
-                    assert (collapseRun.characterFlags & GlyphRun.FLAG_LINEBREAK) == 0 || collapseRunIndex + 1 == firstRunOnWrappedLineIndex;
-
-                    float collapseToPos;
-                    {// Ensure that we don't overflow the available width
-                        final int collapseToCharacterIndex = wrapIndex - collapseRun.charactersStart + 1;
-                        if (collapseToCharacterIndex >= collapseRun.characterPositions.size) {
-                            collapseToPos = collapseRun.width;
-                        } else {
-                            collapseToPos = collapseRun.characterPositions.items[collapseToCharacterIndex];
-                        }
-
-                        final float maxCollapseToPos = availableWidth - collapseRun.x;
-                        if (maxCollapseToPos < collapseToPos) {
-                            collapseToPos = maxCollapseToPos;
-                        }
-                    }
-
-                    while (true) {
-                        // Set positions of glyphs (space glyphs, presumably, from back to front)
-                        for (int i = collapseRun.glyphs.size-1; i > 0; i--) {
-                            // NOTE(jp): should technically be x advance, not width, but we don't have any info on that
-                            final float glyphXAdvance = collapseRun.glyphs.items[i].width;
-                            final float originalX = collapseRun.glyphX.items[i];
-                            if (originalX + glyphXAdvance <= collapseToPos) {
-                                // Glyphs that were not collapsed start here
-                                break;
-                            }
-                            // This glyph should be moved so that it does not extend the size of the layout
-                            collapseRun.glyphX.items[i] = collapseToPos - glyphXAdvance;
-                        }
-
-                        // Set positions of characters
-                        for (int i = collapseFromIndex; i < collapseRun.characterPositions.size; i++) {
-                            collapseRun.characterPositions.items[i] = collapseToPos;
-                        }
-
-                        // Trim width
-                        collapseRun.width = collapseToPos;
-
-                        // Set flag indicating that this has collapsed spaces
-                        collapseRun.characterFlags |= FLAG_GLYPH_RUN_HAS_COLLAPSED_SPACES;
-
-                        // Advance to next run for truncation
-                        if (++collapseRunIndex >= firstRunOnWrappedLineIndex) {
-                            break;
-                        }
-
-                        final GlyphRun<HBFont> newCollapseRun = runs.items[collapseRunIndex];
-                        newCollapseRun.x = collapseRun.x + collapseRun.width;
-                        // This new run should not have any glyphs
-                        assert newCollapseRun.glyphs.size == 0;
-                        collapseRun = newCollapseRun;
-                        collapseFromIndex = 0;
-                        collapseToPos = 0f;
-                    }
-                }
+                collapseSpaces(lineLaidRuns, firstRunOnWrappedLineIndex, wrapIndex, availableWidth);
 
                 // Complete the wrapped line
                 completeLine(text, lineLaidRuns, firstRunOnWrappedLineIndex, runs.items[firstRunOnWrappedLineIndex - 1].font);
@@ -890,11 +1387,37 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
             clampExtraLines(text, availableWidth, availableHeight, maxLines, ellipsis);
         }
 
-        final Array<HBFont> fonts = usedFonts;
-        for (HBFont font : fonts) {
-            font.prepareGlyphs();
+        // Glyphs are prepared only when the layout is drawn, see FontRenderCache
+        usedFonts.clear();
+    }
+
+    /** Trim left-to-right run so that it ends at charactersEnd, without reshaping it.
+     * @return false if the run can't be cut there, because it is not safe to break there (or the run has no checkpoints) */
+    private static boolean trimRunInPlace(GlyphRun<HBFont> run, int charactersEnd) {
+        if (run.checkpoints == null) {
+            return false;
+        }
+        final int characterIndex = charactersEnd - run.charactersStart;
+        final int checkpointIndex = run.getCheckpointIndexOfCharacter(characterIndex);
+        if (checkpointIndex < 0) {
+            return false;
+        }
+        final int glyphIndex = GlyphRun.checkpointGetGlyph(run.checkpoints.items[checkpointIndex]);
+
+        // Same as shaping only the remaining characters, which would end the paragraph
+        run.width = run.characterPositions.items[characterIndex];
+        run.charactersEnd = charactersEnd;
+        run.characterFlags |= FLAG_GLYPH_RUN_IS_PARAGRAPH_END;
+        // NOTE(jp): Only length manipulation, as in splitRunForWrap
+        run.glyphs.size = glyphIndex;
+        run.glyphX.size = glyphIndex;
+        run.glyphY.size = glyphIndex;
+        if (run.glyphColors != null) {
+            run.glyphColors.size = glyphIndex;
         }
-        fonts.clear();
+        run.characterPositions.size = characterIndex;
+        run.checkpoints.size = checkpointIndex;
+        return true;
     }
 
     private void clampExtraLines(final LayoutText<HBFont> text, final float availableWidth, final float availableHeight,
@@ -990,15 +1513,21 @@ public class HBGlyphLayout extends GlyphLayout<HBFont> {
                 startX = trimmedRun.x;
                 final boolean trimmedRunLtr = trimmedRun.isLtr();
                 int charactersEnd = charEndIndexForTargetRunWidth(trimmedRun, availableWidth - ellipsisWidth - trimmedRun.x);
+                if (trimmedRunLtr && charactersEnd > trimmedRun.charactersStart && trimRunInPlace(trimmedRun, charactersEnd)) {
+                    // Cut at a break-safe point, nothing to reshape
+                    startX += trimmedRun.width;
+                    continue;
+                }
                 runs.removeIndex(trimmedIndex);
                 ellipsisStart--;
                 if (trimmedRunLtr ? charactersEnd <= trimmedRun.charactersStart : charactersEnd > trimmedRun.charactersEnd) {
                     // Run has to be removed completely anyway
+                    GlyphRun.<HBFont>pool().free(trimmedRun);
                     break;
                 } else {
                     // Run can be re-added, with less characters
-                    ellipsisStart += addRunsFor(text.text(), text.length(), trimmedRun.charactersStart, charactersEnd, trimmedRun.charactersLevel,
-                            trimmedRun.font, trimmedRun.color, trimmedRun.line, trimmedIndex, (trimmedRun.characterFlags & FLAG_GLYPH_RUN_IS_PARAGRAPH_START) != 0, true);
+                    ellipsisStart += addRunsFor(text, trimmedRun.charactersStart, charactersEnd, trimmedRun.charactersLevel,
+                            trimmedRun.font, text.featuresAt(trimmedRun.charactersStart), hbLanguageOf(text.getLocale()), trimmedRun.line, trimmedIndex, (trimmedRun.characterFlags & FLAG_GLYPH_RUN_IS_PARAGRAPH_START) != 0, true, true);
                 }
                 GlyphRun.<HBFont>pool().free(trimmedRun);
             }
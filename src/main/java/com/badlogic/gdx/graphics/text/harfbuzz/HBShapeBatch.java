@@ -0,0 +1,282 @@
+package com.badlogic.gdx.graphics.text.harfbuzz;
+
+import com.badlogic.gdx.graphics.text.FontFeatures;
+import com.badlogic.gdx.graphics.text.LayoutTextRunArray.TextRun;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_INFO_STRIDE;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.GLYPH_POSITION_STRIDE;
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Font.*;
+
+/**
+ * List of runs of a single text, which are shaped together through {@link HarfBuzz.Font#hb_shape_batch},
+ * to avoid the JNI overhead of shaping each run separately.
+ *
+ * Runs which {@link HBSimpleShaper} can shape are shaped by it instead.
+ *
+ * Shaped glyphs are available through {@link #glyphInfos} and {@link #glyphPositions}, which have the same layout
+ * as {@link HarfBuzz.Buffer#getGlyphInfosView()} and {@link HarfBuzz.Buffer#getGlyphPositionsView()}.
+ */
+final class HBShapeBatch {
+
+    /** Runs are shaped lazily, in windows of at most this many runs... */
+    private static final int SHAPE_WINDOW_RUNS = 64;
+    /** ...or this many characters, so that text which gets clamped early is not shaped whole. */
+    private static final int SHAPE_WINDOW_CHARACTERS = 4096;
+
+    /** Run is shaped by HarfBuzz */
+    private static final byte SHAPING_HARFBUZZ = 0;
+    /** Run is shaped by {@link HBSimpleShaper}, without kerning */
+    private static final byte SHAPING_SIMPLE = 1;
+    /** Run is shaped by {@link HBSimpleShaper}, with kerning */
+    private static final byte SHAPING_SIMPLE_KERNED = 2;
+
+    /** hb_language_get_default(), which HarfBuzz would guess for runs without a language. Lazily initialized.
+     * Volatile, because batches of prepared text may be filled on other threads. */
+    private static volatile long defaultLanguage = HarfBuzz.Language.HB_LANGUAGE_INVALID;
+
+    private final LongArray runs = new LongArray(true, 64 * BATCH_RUN_STRIDE);
+    private final Array<HBFont> runFonts = new Array<>(true, 64, HBFont.class);
+    private final ByteArray runLevels = new ByteArray(true, 64);
+    /** SHAPING_* constant of each run */
+    private final ByteArray runShaping = new ByteArray(true, 64);
+    private int runCount = 0;
+
+    /** Size is always runCount + 1, valid for shaped runs. */
+    private final IntArray runGlyphStarts = new IntArray(true, 65);
+    private int shapedRunCount = 0;
+
+    private ByteBuffer glyphInfosOut, glyphPositionsOut;
+    /** Views of the shaped glyphs. Use absolute gets. */
+    IntBuffer glyphInfos, glyphPositions;
+
+    HBShapeBatch() {
+        allocateOutput(256);
+        runGlyphStarts.add(0);
+    }
+
+    private void allocateOutput(int glyphCapacity) {
+        glyphInfosOut = ByteBuffer.allocateDirect(glyphCapacity * GLYPH_INFO_STRIDE * 4).order(ByteOrder.nativeOrder());
+        glyphPositionsOut = ByteBuffer.allocateDirect(glyphCapacity * GLYPH_POSITION_STRIDE * 4).order(ByteOrder.nativeOrder());
+        glyphInfos = glyphInfosOut.asIntBuffer();
+        glyphPositions = glyphPositionsOut.asIntBuffer();
+    }
+
+    private void ensureOutputCapacity(int glyphCapacity, int keepGlyphs) {
+        final int currentCapacity = glyphInfos.capacity() / GLYPH_INFO_STRIDE;
+        if (glyphCapacity <= currentCapacity) {
+            return;
+        }
+        final ByteBuffer oldInfos = glyphInfosOut;
+        final ByteBuffer oldPositions = glyphPositionsOut;
+        allocateOutput(Math.max(glyphCapacity, currentCapacity * 2));
+
+        oldInfos.position(0).limit(keepGlyphs * GLYPH_INFO_STRIDE * 4);
+        glyphInfosOut.put(oldInfos).clear();
+        oldPositions.position(0).limit(keepGlyphs * GLYPH_POSITION_STRIDE * 4);
+        glyphPositionsOut.put(oldPositions).clear();
+    }
+
+    /** Remove all runs. */
+    void clear() {
+        runs.clear();
+        runFonts.clear();
+        runLevels.clear();
+        runShaping.clear();
+        runCount = 0;
+        runGlyphStarts.size = 1;
+        shapedRunCount = 0;
+    }
+
+    /** Add run to be shaped.
+     * @param chars text of the run, the same as the one which will be passed for shaping
+     * @param level bidi level of the run
+     * @param paragraphStart whether the run starts a paragraph (or the text)
+     * @param paragraphEnd whether the run ends a paragraph (or the text)
+     * @param features of the run's text, null for none
+     * @param script hb_script_t of the run, 0 if it has only neutral characters
+     * @param language hb_language_t of the run, 0 for the default language */
+    void add(char[] chars, int start, int end, byte level, HBFont font, FontFeatures features, int script, long language,
+             boolean paragraphStart, boolean paragraphEnd) {
+        int flags = HarfBuzz.Buffer.HB_BUFFER_FLAG_DEFAULT;
+        if (paragraphStart) {
+            flags |= HarfBuzz.Buffer.HB_BUFFER_FLAG_BOT;
+        }
+        if (paragraphEnd) {
+            flags |= HarfBuzz.Buffer.HB_BUFFER_FLAG_EOT;
+        }
+
+        if (language == HarfBuzz.Language.HB_LANGUAGE_INVALID) {
+            language = defaultLanguage;
+            if (language == HarfBuzz.Language.HB_LANGUAGE_INVALID) {
+                language = defaultLanguage = HarfBuzz.Language.hb_language_get_default();
+            }
+        }
+        final boolean ltr = TextRun.isLevelLtr(level);
+        final int direction = ltr ? HarfBuzz.Direction.LTR.value : HarfBuzz.Direction.RTL.value;
+
+        byte shaping = SHAPING_HARFBUZZ;
+        final HBSimpleShaper simpleShaper = font.getSimpleShaper();
+        if (ltr && simpleShaper != null && simpleShaper.canShape(chars, start, end, features, script)) {
+            shaping = simpleShaper.isKerned(features) ? SHAPING_SIMPLE_KERNED : SHAPING_SIMPLE;
+        }
+        final HarfBuzz.FeatureArray featureArray = shaping == SHAPING_HARFBUZZ ? font.featureArrayFor(features) : null;
+
+        final long[] run = runs.ensureCapacity(BATCH_RUN_STRIDE);
+        final int r = runs.size;
+        run[r + BATCH_RUN_START] = start;
+        run[r + BATCH_RUN_END] = end;
+        run[r + BATCH_RUN_FLAGS] = flags;
+        run[r + BATCH_RUN_DIRECTION] = direction;
+        run[r + BATCH_RUN_SCRIPT] = script;
+        run[r + BATCH_RUN_LANGUAGE] = language;
+        run[r + BATCH_RUN_FONT] = font.hbFont.addr;
+        run[r + BATCH_RUN_FEATURES] = featureArray == null ? 0L : featureArray.addr;
+        run[r + BATCH_RUN_SHAPE_PLAN] = shaping == SHAPING_HARFBUZZ ? font.shapePlanFor(direction, script, language, featureArray).addr : 0L;
+        runs.size = r + BATCH_RUN_STRIDE;
+
+        runFonts.add(font);
+        runLevels.add(level);
+        runShaping.add(shaping);
+        runCount++;
+    }
+
+    int size() {
+        return runCount;
+    }
+
+    int runStart(int run) {
+        return (int) runs.items[run * BATCH_RUN_STRIDE + BATCH_RUN_START];
+    }
+
+    int runEnd(int run) {
+        return (int) runs.items[run * BATCH_RUN_STRIDE + BATCH_RUN_END];
+    }
+
+    HBFont runFont(int run) {
+        return runFonts.items[run];
+    }
+
+    byte runLevel(int run) {
+        return runLevels.items[run];
+    }
+
+    boolean runParagraphStart(int run) {
+        return (runs.items[run * BATCH_RUN_STRIDE + BATCH_RUN_FLAGS] & HarfBuzz.Buffer.HB_BUFFER_FLAG_BOT) != 0;
+    }
+
+    boolean runParagraphEnd(int run) {
+        return (runs.items[run * BATCH_RUN_STRIDE + BATCH_RUN_FLAGS] & HarfBuzz.Buffer.HB_BUFFER_FLAG_EOT) != 0;
+    }
+
+    /** Run must be shaped. */
+    int runGlyphStart(int run) {
+        assert run < shapedRunCount;
+        return runGlyphStarts.items[run];
+    }
+
+    /** Run must be shaped. */
+    int runGlyphEnd(int run) {
+        assert run < shapedRunCount;
+        return runGlyphStarts.items[run + 1];
+    }
+
+    /** Ensure that given run (and possibly some following runs) is shaped. */
+    void ensureShaped(HarfBuzz.Buffer buffer, char[] text, int textLength, int run) {
+        if (run < shapedRunCount) {
+            return;
+        }
+        assert run < runCount;
+
+        // Extend the shaped window
+        int shapeTo = run + 1;
+        final int characterLimit = runStart(run) + SHAPE_WINDOW_CHARACTERS;
+        while (shapeTo < runCount && shapeTo - run < SHAPE_WINDOW_RUNS && runEnd(shapeTo) <= characterLimit) {
+            shapeTo++;
+        }
+        shape(buffer, text, textLength, shapedRunCount, shapeTo);
+    }
+
+    /** Shape all runs that were not shaped yet. */
+    void shapeAll(HarfBuzz.Buffer buffer, char[] text, int textLength) {
+        if (shapedRunCount < runCount) {
+            shape(buffer, text, textLength, shapedRunCount, runCount);
+        }
+    }
+
+    private void shape(HarfBuzz.Buffer buffer, char[] text, int textLength, int from, int to) {
+        final long shapeStart = TextMetrics.start();
+        final IntArray runGlyphStarts = this.runGlyphStarts;
+        runGlyphStarts.ensureCapacity(to + 1 - runGlyphStarts.size);
+        runGlyphStarts.size = to + 1;
+
+        final byte[] runShaping = this.runShaping.items;
+        int r = from;
+        while (r < to) {
+            if (runShaping[r] != SHAPING_HARFBUZZ) {
+                final int start = runStart(r);
+                final int end = runEnd(r);
+                final int glyphStart = runGlyphStarts.items[r];
+                final int glyphEnd = glyphStart + end - start;
+                ensureOutputCapacity(glyphEnd, glyphStart);
+                runFonts.items[r].getSimpleShaper().shape(text, start, end, runShaping[r] == SHAPING_SIMPLE_KERNED,
+                        glyphInfos, glyphPositions, glyphStart);
+                runGlyphStarts.items[r + 1] = glyphEnd;
+                r++;
+                continue;
+            }
+
+            // Shape all following HarfBuzz runs in one call
+            int harfBuzzTo = r + 1;
+            while (harfBuzzTo < to && runShaping[harfBuzzTo] == SHAPING_HARFBUZZ) {
+                harfBuzzTo++;
+            }
+            while (true) {
+                r = hb_shape_batch(buffer.addr, text, textLength,
+                        runs.items, r, harfBuzzTo, runGlyphStarts.items,
+                        glyphInfosOut, glyphPositionsOut, glyphInfos.capacity() / GLYPH_INFO_STRIDE);
+                if (r >= harfBuzzTo) {
+                    break;
+                }
+                // Not enough space for run r
+                ensureOutputCapacity(runGlyphStarts.items[r + 1], runGlyphStarts.items[r]);
+            }
+        }
+        shapedRunCount = to;
+
+        if (shapeStart != 0L) {
+            reportShaped(shapeStart, from, to);
+        }
+    }
+
+    /** Report shaping of runs [from, to) to {@link TextMetrics}. Time is attributed to a font only when all runs have it. */
+    private void reportShaped(long shapeStart, int from, int to) {
+        final HBFont[] runFonts = this.runFonts.items;
+        final int[] runGlyphStarts = this.runGlyphStarts.items;
+        final byte[] runShaping = this.runShaping.items;
+        HBFont windowFont = runFonts[from];
+        for (int r = from + 1; r < to; r++) {
+            if (runFonts[r] != windowFont) {
+                windowFont = null;
+                break;
+            }
+        }
+        TextMetrics.end(TextMetrics.Stage.SHAPE, windowFont, shapeStart);
+
+        for (int r = from; r < to; r++) {
+            final int glyphCount = runGlyphStarts[r + 1] - runGlyphStarts[r];
+            TextMetrics.count(TextMetrics.Counter.GLYPHS_SHAPED, runFonts[r], glyphCount);
+            if (runShaping[r] != SHAPING_HARFBUZZ) {
+                TextMetrics.count(TextMetrics.Counter.GLYPHS_SHAPED_SIMPLE, runFonts[r], glyphCount);
+            }
+        }
+    }
+}
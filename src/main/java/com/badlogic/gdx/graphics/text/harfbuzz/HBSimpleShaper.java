@@ -0,0 +1,237 @@
+package com.badlogic.gdx.graphics.text.harfbuzz;
+
+import com.badlogic.gdx.graphics.text.FontFeatures;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongFloatMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import static com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz.Buffer.*;
+
+/**
+ * Shapes simple text without going through hb_shape, from cached glyphs, advances and kerning of a font.
+ *
+ * Only left-to-right Latin (or neutral) runs of whitelisted code points (without marks and default ignorables) qualify,
+ * and only when no OpenType lookup of the features in effect (HarfBuzz defaults and those of the font and text)
+ * may substitute or position their glyphs, see {@link #canShape(char[], int, int, FontFeatures, int)}.
+ * HarfBuzz shapes such runs by mapping each character to its nominal glyph, taking its advance
+ * and applying fallback kerning (TrueType 'kern' table, only when the font has no GPOS) - all through the font functions,
+ * which are used here as well, so the result is the same.
+ */
+final class HBSimpleShaper {
+
+    /** Code points at and above this are never shaped */
+    static final int CODEPOINT_LIMIT = 0x250;
+
+    /** Glyph of the code point was not looked up yet */
+    private static final int GLYPH_UNKNOWN = -1;
+    /** Code point is not whitelisted, has no glyph or its glyph is a mark */
+    private static final int GLYPH_UNSUPPORTED = -2;
+
+    private static final int HB_SCRIPT_LATIN = FontFeatures.tag("Latn");
+    /** Scripts whose lookups HarfBuzz may choose for Latin or neutral text, 0 terminated */
+    private static final int[] LAYOUT_SCRIPTS = {
+            FontFeatures.tag("latn"), FontFeatures.tag("DFLT"), FontFeatures.tag("dflt"), 0
+    };
+    /** Features which HarfBuzz enables by default for horizontal left-to-right text of the default shaper */
+    private static final int[] DEFAULT_FEATURES = {
+            FontFeatures.tag("rvrn"), FontFeatures.tag("ltra"), FontFeatures.tag("ltrm"),
+            FontFeatures.tag("ccmp"), FontFeatures.tag("locl"), FontFeatures.tag("mark"), FontFeatures.tag("mkmk"), FontFeatures.tag("rlig"),
+            FontFeatures.tag("calt"), FontFeatures.tag("clig"), FontFeatures.tag("curs"), FontFeatures.tag("kern"), FontFeatures.tag("liga"), FontFeatures.tag("rclt")
+    };
+    private static final int KERN_TAG = FontFeatures.tag("kern");
+
+    private final long hbFont;
+    private final long hbFace;
+    private final FontFeatures defaultFeatures;
+    /** Whether the font has GPOS, in which case HarfBuzz does no fallback kerning */
+    private final boolean positioning;
+    private final boolean layout;
+    /** Glyph of each code point, or GLYPH_UNKNOWN or GLYPH_UNSUPPORTED */
+    private final int[] glyphs = new int[CODEPOINT_LIMIT];
+    /** Advance of each code point with known glyph, in 26.6 */
+    private final int[] advances = new int[CODEPOINT_LIMIT];
+    /** Kerning of glyph pairs (see {@link #pairKey(int, int)}), in 26.6. Filled lazily. */
+    private final LongFloatMap kerning = new LongFloatMap();
+    /** For each text features (NONE for null), 1 at glyphs which may be changed by lookups of features in effect,
+     * see {@link #layoutGlyphsFor(FontFeatures)}. */
+    private final ObjectMap<FontFeatures, byte[]> layoutGlyphs = new ObjectMap<>();
+    private final IntBuffer lookUpGlyph_glyph = ByteBuffer.allocateDirect(4).order(ByteOrder.nativeOrder()).asIntBuffer();
+
+    /** @param defaultFeatures features of the font, which are overridden by those of the text */
+    HBSimpleShaper(HarfBuzz.Font font, FontFeatures defaultFeatures) {
+        this.hbFont = font.addr;
+        this.hbFace = HarfBuzz.Font.hb_font_get_face(font.addr);
+        this.defaultFeatures = defaultFeatures;
+        this.positioning = HarfBuzz.Face.hb_ot_layout_has_positioning(hbFace);
+        this.layout = positioning || HarfBuzz.Face.hb_ot_layout_has_substitution(hbFace);
+        Arrays.fill(glyphs, GLYPH_UNKNOWN);
+    }
+
+    /** @return tags of features in effect for text with given features, 0 terminated */
+    private int[] featureTagsFor(FontFeatures textFeatures) {
+        final IntArray tags = new IntArray(DEFAULT_FEATURES);
+        final FontFeatures features = defaultFeatures.with(textFeatures);
+        for (int i = 0; i < features.size(); i++) {
+            final int tag = features.tagAt(i);
+            if (features.valueAt(i) == 0) {
+                tags.removeValue(tag);
+            } else if (!tags.contains(tag)) {
+                tags.add(tag);
+            }
+        }
+        tags.add(0);
+        return tags.toArray();
+    }
+
+    /** @return 1 at glyphs which are input of some GSUB or GPOS lookup of features in effect for text with given features,
+     * null if there are no such lookups */
+    private byte[] layoutGlyphsFor(FontFeatures textFeatures) {
+        if (textFeatures == null) {
+            textFeatures = FontFeatures.NONE;
+        }
+        byte[] result = layoutGlyphs.get(textFeatures);
+        if (result == null && !layoutGlyphs.containsKey(textFeatures)) {
+            final int glyphCount = HarfBuzz.Face.hb_face_get_glyph_count(hbFace);
+            final int[] features = featureTagsFor(textFeatures);
+            result = new byte[glyphCount];
+            int lookups = HarfBuzz.Face.hb_ot_layout_collect_input_glyphs(hbFace, HarfBuzz.Face.HB_OT_TAG_GSUB,
+                    LAYOUT_SCRIPTS, features, result, glyphCount);
+            lookups += HarfBuzz.Face.hb_ot_layout_collect_input_glyphs(hbFace, HarfBuzz.Face.HB_OT_TAG_GPOS,
+                    LAYOUT_SCRIPTS, features, result, glyphCount);
+            if (lookups == 0) {
+                result = null;
+            }
+            layoutGlyphs.put(textFeatures, result);
+        }
+        return result;
+    }
+
+    private static boolean isWhitelisted(char c) {
+        // Basic Latin, Latin-1 Supplement (without soft hyphen), Latin Extended-A and B, all without control characters
+        return (c >= 0x20 && c < 0x7F) || (c >= 0xA0 && c < CODEPOINT_LIMIT && c != 0xAD);
+    }
+
+    private int lookUpGlyph(char c) {
+        int glyph = GLYPH_UNSUPPORTED;
+        final IntBuffer glyphOut = lookUpGlyph_glyph;
+        if (isWhitelisted(c) && HarfBuzz.Font.hb_font_get_glyph(hbFont, c, 0, glyphOut)) {
+            glyph = glyphOut.get(0);
+            // Marks would be zeroed and positioned by HarfBuzz
+            if (HarfBuzz.Face.hb_ot_layout_get_glyph_class(hbFace, glyph) == HarfBuzz.Face.HB_OT_LAYOUT_GLYPH_CLASS_MARK) {
+                glyph = GLYPH_UNSUPPORTED;
+            } else {
+                advances[c] = HarfBuzz.Font.hb_font_get_glyph_h_advance(hbFont, glyph);
+            }
+        }
+        glyphs[c] = glyph;
+        return glyph;
+    }
+
+    /**
+     * @param textFeatures features of the text, may be null
+     * @param script hb_script_t of the run, 0 if it has only neutral characters
+     * @return whether left-to-right characters [start, end) can be shaped by {@link #shape} */
+    boolean canShape(char[] chars, int start, int end, FontFeatures textFeatures, int script) {
+        if (script != 0 && script != HB_SCRIPT_LATIN) {
+            // Lookups of other scripts would apply
+            return false;
+        }
+        final int[] glyphs = this.glyphs;
+        final byte[] layoutGlyphs = layout ? layoutGlyphsFor(textFeatures) : null;
+        for (int i = start; i < end; i++) {
+            final char c = chars[i];
+            if (c >= CODEPOINT_LIMIT) {
+                return false;
+            }
+            int glyph = glyphs[c];
+            if (glyph == GLYPH_UNKNOWN) {
+                glyph = lookUpGlyph(c);
+            }
+            if (glyph == GLYPH_UNSUPPORTED || (layoutGlyphs != null && glyph < layoutGlyphs.length && layoutGlyphs[glyph] != 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @param textFeatures features of the text, may be null
+     * @return whether text with given features gets fallback kerning, which {@link #shape} should do */
+    boolean isKerned(FontFeatures textFeatures) {
+        if (positioning) {
+            return false;
+        }
+        int kern = defaultFeatures.get(KERN_TAG, 1);
+        if (textFeatures != null) {
+            kern = textFeatures.get(KERN_TAG, kern);
+        }
+        return kern != 0;
+    }
+
+    private static long pairKey(int left, int right) {
+        return ((long) left << 32) | (right & 0xFFFF_FFFFL);
+    }
+
+    private int kerning(int left, int right) {
+        final long key = pairKey(left, right);
+        final float cached = kerning.get(key, Float.NaN);
+        if (cached == cached) {
+            return (int) cached;
+        }
+        final int value = HarfBuzz.Font.hb_font_get_glyph_h_kerning(hbFont, left, right);
+        kerning.put(key, value);
+        return value;
+    }
+
+    /**
+     * Shape characters [start, end), which were accepted by {@link #canShape(char[], int, int, FontFeatures, int)}, left-to-right.
+     * There is exactly one glyph per character and clusters are indices of the characters.
+     * @param kern whether to apply fallback kerning, see {@link #isKerned(FontFeatures)}
+     * @param glyphInfos output in the format of {@link HarfBuzz.Buffer#getGlyphInfosView()},
+     *                   only codepoint, cluster and glyph flags in mask are set
+     * @param glyphPositions output in the format of {@link HarfBuzz.Buffer#getGlyphPositionsView()}
+     * @param glyphStart index of the glyph in the output to store the first glyph at
+     */
+    void shape(char[] chars, int start, int end, boolean kern, IntBuffer glyphInfos, IntBuffer glyphPositions, int glyphStart) {
+        final int[] glyphs = this.glyphs;
+        final int[] advances = this.advances;
+        int previousGlyph = -1;
+        int previousGp = -1;
+        for (int i = start, gi = glyphStart * GLYPH_INFO_STRIDE, gp = glyphStart * GLYPH_POSITION_STRIDE; i < end;
+             i++, gi += GLYPH_INFO_STRIDE, gp += GLYPH_POSITION_STRIDE) {
+            final char c = chars[i];
+            final int glyph = glyphs[c];
+            int mask = 0;
+            int xAdvance = advances[c];
+            int xOffset = 0;
+
+            if (kern && previousGlyph != -1) {
+                final int kerning = kerning(previousGlyph, glyph);
+                if (kerning != 0) {
+                    // Split between the glyphs, the same way as HarfBuzz's fallback kerning does
+                    final int kern1 = kerning >> 1;
+                    final int kern2 = kerning - kern1;
+                    glyphPositions.put(previousGp + GLYPH_POSITION_X_ADVANCE, glyphPositions.get(previousGp + GLYPH_POSITION_X_ADVANCE) + kern1);
+                    xAdvance += kern2;
+                    xOffset += kern2;
+                    mask = HB_GLYPH_FLAG_UNSAFE_TO_BREAK;
+                }
+            }
+
+            glyphInfos.put(gi + GLYPH_INFO_CODEPOINT, glyph);
+            glyphInfos.put(gi + GLYPH_INFO_MASK, mask);
+            glyphInfos.put(gi + GLYPH_INFO_CLUSTER, i);
+            glyphPositions.put(gp + GLYPH_POSITION_X_ADVANCE, xAdvance);
+            glyphPositions.put(gp + GLYPH_POSITION_Y_ADVANCE, 0);
+            glyphPositions.put(gp + GLYPH_POSITION_X_OFFSET, xOffset);
+            glyphPositions.put(gp + GLYPH_POSITION_Y_OFFSET, 0);
+
+            previousGlyph = glyph;
+            previousGp = gp;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.SharedLibraryLoader;
 import org.lwjgl.system.MemoryStack;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 
 /**
@@ -51,6 +53,9 @@ public final class HarfBuzz {
 	/*JNI
 	#include <harfbuzz/hb.h>
 	#include <harfbuzz/hb-ft.h>
+	#include <harfbuzz/hb-ot.h>
+	#include <stdlib.h>
+	#include <string.h>
 
 	// Test that the assumptions used in bridging types are valid
 
@@ -81,6 +86,22 @@ public final class HarfBuzz {
 	STATIC_ASSERT(sizeof(unsigned int *) == sizeof(jlong));
 	STATIC_ASSERT(sizeof(hb_tag_t *) == sizeof(jlong));
 
+	// Views into glyph arrays rely on these
+	STATIC_ASSERT(sizeof(hb_glyph_info_t) == 5 * sizeof(jint));
+	STATIC_ASSERT(sizeof(hb_glyph_position_t) == 5 * sizeof(jint));
+
+	// Same as Font.BATCH_RUN_* constants, for hb_shape_batch
+	#define BATCH_RUN_STRIDE 9
+	#define BATCH_RUN_START 0
+	#define BATCH_RUN_END 1
+	#define BATCH_RUN_FLAGS 2
+	#define BATCH_RUN_DIRECTION 3
+	#define BATCH_RUN_SCRIPT 4
+	#define BATCH_RUN_LANGUAGE 5
+	#define BATCH_RUN_FONT 6
+	#define BATCH_RUN_FEATURES 7
+	#define BATCH_RUN_SHAPE_PLAN 8
+
 	*/
 
 	// region https://harfbuzz.github.io/harfbuzz-hb-common.html
@@ -860,6 +881,96 @@ public final class HarfBuzz {
 			}
 		*/
 
+		/** Amount of ints per one glyph in {@link #getGlyphInfosView()}. Same as sizeof(hb_glyph_info_t) / sizeof(int). */
+		public static final int GLYPH_INFO_STRIDE = 5;
+		/** Offset of hb_glyph_info_t.codepoint in {@link #getGlyphInfosView()} */
+		public static final int GLYPH_INFO_CODEPOINT = 0;
+		/** Offset of hb_glyph_info_t.mask in {@link #getGlyphInfosView()} */
+		public static final int GLYPH_INFO_MASK = 1;
+		/** Offset of hb_glyph_info_t.cluster in {@link #getGlyphInfosView()} */
+		public static final int GLYPH_INFO_CLUSTER = 2;
+
+		/** Amount of ints per one glyph in {@link #getGlyphPositionsView()}. Same as sizeof(hb_glyph_position_t) / sizeof(int). */
+		public static final int GLYPH_POSITION_STRIDE = 5;
+		/** Offset of hb_glyph_position_t.x_advance in {@link #getGlyphPositionsView()} */
+		public static final int GLYPH_POSITION_X_ADVANCE = 0;
+		/** Offset of hb_glyph_position_t.y_advance in {@link #getGlyphPositionsView()} */
+		public static final int GLYPH_POSITION_Y_ADVANCE = 1;
+		/** Offset of hb_glyph_position_t.x_offset in {@link #getGlyphPositionsView()} */
+		public static final int GLYPH_POSITION_X_OFFSET = 2;
+		/** Offset of hb_glyph_position_t.y_offset in {@link #getGlyphPositionsView()} */
+		public static final int GLYPH_POSITION_Y_OFFSET = 3;
+
+		private ByteBuffer glyphInfosView, glyphPositionsView;
+		private IntBuffer glyphInfosIntView, glyphPositionsIntView;
+
+		/**
+		 * Zero-copy alternative to {@link #getGlyphInfos(IntArray)}.
+		 * Returned buffer is a view directly into the native hb_glyph_info_t array of this buffer,
+		 * glyph i has its fields at <code>i * {@link #GLYPH_INFO_STRIDE} + GLYPH_INFO_*</code>.
+		 *
+		 * View is valid only until the buffer is modified. It is cached and returned again when the native array
+		 * did not move, so steady-state use does not allocate. Use absolute gets, position and limit are not maintained.
+		 *
+		 * @return view with capacity for at least {@link #getLength()} glyphs
+		 */
+		public IntBuffer getGlyphInfosView() {
+			final ByteBuffer view = hb_buffer_get_glyph_infos_view(addr, glyphInfosView);
+			if (view != glyphInfosView) {
+				glyphInfosView = view;
+				glyphInfosIntView = view.order(ByteOrder.nativeOrder()).asIntBuffer();
+			}
+			return glyphInfosIntView;
+		}
+
+		/**
+		 * @param buffer hb_buffer_t *
+		 * @param previous view returned by the previous call, or null
+		 * @return previous, if it still views the whole array, new direct buffer otherwise
+		 */
+		public static native ByteBuffer hb_buffer_get_glyph_infos_view (long buffer, ByteBuffer previous); /*
+			unsigned int length = 0;
+			hb_glyph_info_t * infos = hb_buffer_get_glyph_infos((hb_buffer_t *) buffer, &length);
+			jlong size = (jlong) length * sizeof(hb_glyph_info_t);
+			if (obj_previous != NULL && (char *) infos == previous && env->GetDirectBufferCapacity(obj_previous) >= size) {
+				return obj_previous;
+			}
+			return env->NewDirectByteBuffer(infos, size);
+		*/
+
+		/**
+		 * Zero-copy alternative to {@link #getGlyphPositions(IntArray)}.
+		 * Returned buffer is a view directly into the native hb_glyph_position_t array of this buffer,
+		 * glyph i has its fields at <code>i * {@link #GLYPH_POSITION_STRIDE} + GLYPH_POSITION_*</code>.
+		 *
+		 * Same validity rules as for {@link #getGlyphInfosView()} apply.
+		 *
+		 * @return view with capacity for at least {@link #getLength()} glyphs
+		 */
+		public IntBuffer getGlyphPositionsView() {
+			final ByteBuffer view = hb_buffer_get_glyph_positions_view(addr, glyphPositionsView);
+			if (view != glyphPositionsView) {
+				glyphPositionsView = view;
+				glyphPositionsIntView = view.order(ByteOrder.nativeOrder()).asIntBuffer();
+			}
+			return glyphPositionsIntView;
+		}
+
+		/**
+		 * @param buffer hb_buffer_t *
+		 * @param previous view returned by the previous call, or null
+		 * @return previous, if it still views the whole array, new direct buffer otherwise
+		 */
+		public static native ByteBuffer hb_buffer_get_glyph_positions_view (long buffer, ByteBuffer previous); /*
+			unsigned int length = 0;
+			hb_glyph_position_t * positions = hb_buffer_get_glyph_positions((hb_buffer_t *) buffer, &length);
+			jlong size = (jlong) length * sizeof(hb_glyph_position_t);
+			if (obj_previous != NULL && (char *) positions == previous && env->GetDirectBufferCapacity(obj_previous) >= size) {
+				return obj_previous;
+			}
+			return env->NewDirectByteBuffer(positions, size);
+		*/
+
 		public void setReplacementCodepoint(int replacementCodepoint) {
 			hb_buffer_set_replacement_codepoint(addr, replacementCodepoint);
 		}
@@ -991,6 +1102,85 @@ public final class HarfBuzz {
 
 		//endregion
 
+		//region https://harfbuzz.github.io/harfbuzz-hb-ot-layout.html
+
+		/** hb_ot_layout_glyph_class_t */
+		public static final int HB_OT_LAYOUT_GLYPH_CLASS_UNCLASSIFIED = 0;
+		public static final int HB_OT_LAYOUT_GLYPH_CLASS_BASE_GLYPH = 1;
+		public static final int HB_OT_LAYOUT_GLYPH_CLASS_LIGATURE = 2;
+		public static final int HB_OT_LAYOUT_GLYPH_CLASS_MARK = 3;
+		public static final int HB_OT_LAYOUT_GLYPH_CLASS_COMPONENT = 4;
+
+		/**
+		 * @param face hb_face_t *
+		 * @return hb_bool_t whether the face has GDEF glyph classes
+		 */
+		public static native boolean hb_ot_layout_has_glyph_classes (long face); /*
+			return (jboolean) hb_ot_layout_has_glyph_classes((hb_face_t *) face);
+		*/
+
+		/**
+		 * @param face hb_face_t *
+		 * @param glyph hb_codepoint_t
+		 * @return hb_ot_layout_glyph_class_t from GDEF, see HB_OT_LAYOUT_GLYPH_CLASS_* constants
+		 */
+		public static native int hb_ot_layout_get_glyph_class (long face, int glyph); /*
+			return (jint) hb_ot_layout_get_glyph_class((hb_face_t *) face, (hb_codepoint_t) glyph);
+		*/
+
+		/**
+		 * @param face hb_face_t *
+		 * @return hb_bool_t whether the face has GSUB table
+		 */
+		public static native boolean hb_ot_layout_has_substitution (long face); /*
+			return (jboolean) hb_ot_layout_has_substitution((hb_face_t *) face);
+		*/
+
+		/**
+		 * @param face hb_face_t *
+		 * @return hb_bool_t whether the face has GPOS table
+		 */
+		public static native boolean hb_ot_layout_has_positioning (long face); /*
+			return (jboolean) hb_ot_layout_has_positioning((hb_face_t *) face);
+		*/
+
+		public static final int HB_OT_TAG_GSUB = ('G' << 24) | ('S' << 16) | ('U' << 8) | 'B';
+		public static final int HB_OT_TAG_GPOS = ('G' << 24) | ('P' << 16) | ('O' << 8) | 'S';
+
+		/**
+		 * Find lookups of given features in given scripts (of any language) and mark their input glyphs,
+		 * that is glyphs which may be substituted or positioned by them.
+		 * Combination of hb_ot_layout_collect_lookups and hb_ot_layout_lookup_collect_glyphs.
+		 * @param face hb_face_t *
+		 * @param table_tag {@link #HB_OT_TAG_GSUB} or {@link #HB_OT_TAG_GPOS}
+		 * @param scripts script tags, terminated by 0
+		 * @param features feature tags, terminated by 0
+		 * @param glyphs_input output, set to 1 at the index of each input glyph, glyphs at glyphs_length and above are ignored
+		 * @return amount of found lookups
+		 */
+		public static native int hb_ot_layout_collect_input_glyphs (long face, int table_tag, int[] scripts, int[] features,
+																	 byte[] glyphs_input, int glyphs_length); /*
+			hb_set_t *lookups = hb_set_create();
+			hb_ot_layout_collect_lookups((hb_face_t *) face, (hb_tag_t) table_tag, (const hb_tag_t *) scripts, NULL, (const hb_tag_t *) features, lookups);
+			const unsigned int lookupCount = hb_set_get_population(lookups);
+
+			hb_set_t *glyphs = hb_set_create();
+			hb_codepoint_t lookup = HB_SET_VALUE_INVALID;
+			while (hb_set_next(lookups, &lookup)) {
+				hb_ot_layout_lookup_collect_glyphs((hb_face_t *) face, (hb_tag_t) table_tag, lookup, NULL, glyphs, NULL, NULL);
+			}
+			hb_codepoint_t glyph = HB_SET_VALUE_INVALID;
+			while (hb_set_next(glyphs, &glyph) && glyph < (hb_codepoint_t) glyphs_length) {
+				glyphs_input[glyph] = 1;
+			}
+
+			hb_set_destroy(glyphs);
+			hb_set_destroy(lookups);
+			return (jint) lookupCount;
+		*/
+
+		//endregion
+
 		public boolean isImmutable() {
 			return hb_face_is_immutable(addr);
 		}
@@ -1227,6 +1417,50 @@ public final class HarfBuzz {
 
 		//endregion
 
+		//region https://harfbuzz.github.io/harfbuzz-hb-ot-font.html
+
+		/**
+		 * Create a font which uses HarfBuzz's own OpenType implementation (reading cmap, hmtx and other tables
+		 * directly) for glyph lookup, advances and extents, instead of calling back into FreeType.
+		 * Scale and ppem are taken from the current size of the face, as hb_ft_font_create does,
+		 * so set the size first. Advances are not hinted.
+		 * @see #hb_ot_font_create_from_ft_referenced(long)
+		 */
+		public static Font createOpenTypeReferenced(FreeType.Face face) {
+			return new Font(hb_ot_font_create_from_ft_referenced(HarfBuzzHelper.addressOf(face)));
+		}
+
+		/**
+		 * Combination of hb_ft_face_create_referenced, hb_font_create, {@link #hb_ot_font_set_funcs(long)} and scale
+		 * and ppem of the FreeType size.
+		 * @param ft_face FT_Face
+		 * @return hb_font_t *
+		 */
+		public static native long hb_ot_font_create_from_ft_referenced(long ft_face); /*
+			FT_Face ftFace = (FT_Face) ft_face;
+			hb_face_t *face = hb_ft_face_create_referenced(ftFace);
+			hb_font_t *font = hb_font_create(face);
+			hb_face_destroy(face);
+			hb_ot_font_set_funcs(font);
+			if (ftFace->size) {
+				const FT_Size_Metrics *metrics = &ftFace->size->metrics;
+				hb_font_set_scale(font,
+					(int) (((uint64_t) metrics->x_scale * (uint64_t) ftFace->units_per_EM + (1u<<15)) >> 16),
+					(int) (((uint64_t) metrics->y_scale * (uint64_t) ftFace->units_per_EM + (1u<<15)) >> 16));
+				hb_font_set_ppem(font, metrics->x_ppem, metrics->y_ppem);
+			}
+			return (jlong) font;
+		*/
+
+		/**
+		 * @param font hb_font_t *
+		 */
+		public static native void hb_ot_font_set_funcs (long font); /*
+			hb_ot_font_set_funcs((hb_font_t *) font);
+		*/
+
+		//endregion
+
 		/**
 		 * Procedures that return hb_font_extents_t struct instead take int[] with length {@link #FONT_EXTENTS_SIZE}.
 		 * Struct's fields are then stored at those indices.
@@ -1541,6 +1775,29 @@ public final class HarfBuzz {
 			hb_shape(addr, buffer.addr, features);
 		}
 
+		/**
+		 * @param features may be null for no features
+		 * @see #hb_shape_feature_array(long, long, long)
+		 */
+		public void shape(Buffer buffer, FeatureArray features) {
+			hb_shape_feature_array(addr, buffer.addr, features == null ? 0L : features.addr);
+		}
+
+		/**
+		 * Like {@link #hb_shape(long, long, int[])}, but with features that were already marshalled to native memory.
+		 * @param font hb_font_t *
+		 * @param buffer hb_buffer_t *
+		 * @param features {@link FeatureArray#addr}, 0 for no features
+		 */
+		public static native void hb_shape_feature_array (long font, long buffer, long features); /*
+			const unsigned int * featureArray = (const unsigned int *) features;
+			if (featureArray == NULL) {
+				hb_shape((hb_font_t *) font, (hb_buffer_t *) buffer, NULL, 0);
+			} else {
+				hb_shape((hb_font_t *) font, (hb_buffer_t *) buffer, (const hb_feature_t *) (featureArray + 1), featureArray[0]);
+			}
+		*/
+
 		/**
 		 * @param font hb_font_t *
 		 * @param buffer hb_buffer_t *
@@ -1626,6 +1883,288 @@ public final class HarfBuzz {
 
 		//endregion
 
+		//region Batch shaping (not a part of HarfBuzz API)
+
+		/** Amount of longs per one run descriptor in {@link #hb_shape_batch}.
+		 * This and the BATCH_RUN_* indices are duplicated as macros in the native code, keep them in sync. */
+		public static final int BATCH_RUN_STRIDE = 9;
+		/** Index of the first character of the item, in text */
+		public static final int BATCH_RUN_START = 0;
+		/** Index after the last character of the item, in text */
+		public static final int BATCH_RUN_END = 1;
+		/** hb_buffer_flags_t */
+		public static final int BATCH_RUN_FLAGS = 2;
+		/** hb_direction_t */
+		public static final int BATCH_RUN_DIRECTION = 3;
+		/** hb_script_t, 0 (HB_SCRIPT_INVALID) to guess */
+		public static final int BATCH_RUN_SCRIPT = 4;
+		/** hb_language_t, 0 (HB_LANGUAGE_INVALID) to guess */
+		public static final int BATCH_RUN_LANGUAGE = 5;
+		/** hb_font_t * */
+		public static final int BATCH_RUN_FONT = 6;
+		/** {@link FeatureArray#addr}, 0 for no features */
+		public static final int BATCH_RUN_FEATURES = 7;
+		/** {@link ShapePlan#addr} for the direction, script, language and features of the run, 0 to shape without a plan */
+		public static final int BATCH_RUN_SHAPE_PLAN = 8;
+
+		/**
+		 * Shape multiple runs of the same text in a single native call.
+		 * Each run is shaped as if by: reset, set content type to unicode, set cluster level to monotone characters,
+		 * set flags, add the run from text, set script and language (if specified), guess segment properties,
+		 * set direction, shape with features of the run.
+		 * Runs with a shape plan are shaped by executing it instead, their script and language are not guessed,
+		 * but set exactly, so that they match the plan.
+		 *
+		 * Output for glyph i is stored in the output buffers in the same format as in
+		 * {@link Buffer#getGlyphInfosView()} and {@link Buffer#getGlyphPositionsView()}.
+		 * Clusters are indices into text.
+		 *
+		 * When output buffers are not big enough to hold the result of a run, shaping stops before that run,
+		 * its index is returned and <code>runGlyphStarts[returnedRun + 1]</code> contains the amount of glyphs
+		 * the output buffers must be able to hold to store it.
+		 *
+		 * @param buffer hb_buffer_t * to use for shaping, its contents are undefined afterwards
+		 * @param text UTF-16 text, whole text is used as a shaping context
+		 * @param textLength used length of text
+		 * @param runs {@link #BATCH_RUN_STRIDE} longs per run, see BATCH_RUN_* constants
+		 * @param runFrom index of the first run to shape
+		 * @param runTo index after the last run to shape
+		 * @param runGlyphStarts index of the first glyph of run i in output is at index i, glyph after its last glyph at i+1,
+		 *                       <code>runGlyphStarts[runFrom]</code> must be set by the caller, size must be at least runTo + 1
+		 * @param glyphInfosOut direct buffer for hb_glyph_info_t array
+		 * @param glyphPositionsOut direct buffer for hb_glyph_position_t array
+		 * @param glyphCapacity amount of glyphs which both output buffers can hold (queried here, because JNI
+		 *                      functions like GetDirectBufferCapacity must not be called while the arrays are pinned)
+		 * @return index of first run that was not shaped, runTo when all runs were shaped
+		 */
+		public static native int hb_shape_batch (long buffer, char[] text, int textLength,
+												long[] runs, int runFrom, int runTo, int[] runGlyphStarts,
+												ByteBuffer glyphInfosOut, ByteBuffer glyphPositionsOut, int glyphCapacity); /*
+			hb_buffer_t * buf = (hb_buffer_t *) buffer;
+
+			jint r = runFrom;
+			for (; r < runTo; r++) {
+				const jlong * run = runs + r * BATCH_RUN_STRIDE;
+				hb_buffer_reset(buf);
+				hb_buffer_set_content_type(buf, HB_BUFFER_CONTENT_TYPE_UNICODE);
+				hb_buffer_set_cluster_level(buf, HB_BUFFER_CLUSTER_LEVEL_MONOTONE_CHARACTERS);
+				hb_buffer_set_flags(buf, (hb_buffer_flags_t) run[BATCH_RUN_FLAGS]);
+				hb_buffer_add_utf16(buf, (const uint16_t *) text, textLength, (unsigned int) run[BATCH_RUN_START], (int) (run[BATCH_RUN_END] - run[BATCH_RUN_START]));
+				hb_shape_plan_t * plan = (hb_shape_plan_t *) run[BATCH_RUN_SHAPE_PLAN];
+				if (plan != NULL) {
+					hb_buffer_set_script(buf, (hb_script_t) run[BATCH_RUN_SCRIPT]);
+					hb_buffer_set_language(buf, (hb_language_t) run[BATCH_RUN_LANGUAGE]);
+				} else {
+					if (run[BATCH_RUN_SCRIPT] != 0) {
+						hb_buffer_set_script(buf, (hb_script_t) run[BATCH_RUN_SCRIPT]);
+					}
+					if (run[BATCH_RUN_LANGUAGE] != 0) {
+						hb_buffer_set_language(buf, (hb_language_t) run[BATCH_RUN_LANGUAGE]);
+					}
+					hb_buffer_guess_segment_properties(buf);
+				}
+				hb_buffer_set_direction(buf, (hb_direction_t) run[BATCH_RUN_DIRECTION]);
+
+				const unsigned int * features = (const unsigned int *) run[BATCH_RUN_FEATURES];
+				const hb_feature_t * feats = features == NULL ? NULL : (const hb_feature_t *) (features + 1);
+				const unsigned int featureCount = features == NULL ? 0 : features[0];
+				if (plan != NULL) {
+					hb_shape_plan_execute(plan, (hb_font_t *) run[BATCH_RUN_FONT], buf, feats, featureCount);
+				} else {
+					hb_shape((hb_font_t *) run[BATCH_RUN_FONT], buf, feats, featureCount);
+				}
+
+				unsigned int length = 0;
+				const hb_glyph_info_t * infos = hb_buffer_get_glyph_infos(buf, &length);
+				const hb_glyph_position_t * positions = hb_buffer_get_glyph_positions(buf, NULL);
+
+				const jint glyphStart = runGlyphStarts[r];
+				const jint glyphEnd = glyphStart + (jint) length;
+				runGlyphStarts[r + 1] = glyphEnd;
+				if (glyphEnd > glyphCapacity) {
+					break;
+				}
+
+				memcpy(((hb_glyph_info_t *) glyphInfosOut) + glyphStart, infos, length * sizeof(hb_glyph_info_t));
+				memcpy(((hb_glyph_position_t *) glyphPositionsOut) + glyphStart, positions, length * sizeof(hb_glyph_position_t));
+			}
+			return r;
+		*/
+
+		//endregion
+
+	}
+
+	/**
+	 * Array of hb_feature_t, marshalled to native memory once, so that it does not have to be converted on each
+	 * shaping call. Native memory is a count (unsigned int), immediately followed by the features.
+	 * Must be {@link #dispose()}d when no longer used. (Not a part of HarfBuzz API)
+	 */
+	public static final class FeatureArray implements Disposable {
+
+		/** Address of the native memory, valid until disposed */
+		public final long addr;
+		/** Amount of features in the array */
+		public final int size;
+
+		/**
+		 * @param features concatenated features, {@link Font#FEATURE_SIZE} ints per feature, see {@link Font#hb_feature_create(String, int)}
+		 */
+		public FeatureArray(int[] features) {
+			this.addr = hb_feature_array_create(features);
+			this.size = features.length / Font.FEATURE_SIZE;
+		}
+
+		@Override
+		public void dispose() {
+			hb_feature_array_destroy(addr);
+		}
+
+		/**
+		 * @return pointer to the allocated array, free with {@link #hb_feature_array_destroy(long)}
+		 */
+		public static native long hb_feature_array_create (int[] features); /*
+			const jsize featureCount = env->GetArrayLength(obj_features) / 4;
+			unsigned int * result = (unsigned int *) malloc(sizeof(unsigned int) + featureCount * sizeof(hb_feature_t));
+			result[0] = (unsigned int) featureCount;
+			hb_feature_t * feats = (hb_feature_t *) (result + 1);
+			for (int f = 0, i = 0; f < featureCount; f++) {
+				feats[f].tag = (hb_tag_t) features[i++];
+				feats[f].value = (uint32_t) features[i++];
+				feats[f].start = (unsigned int) features[i++];
+				feats[f].end = (unsigned int) features[i++];
+			}
+			return (jlong) result;
+		*/
+
+		public static native void hb_feature_array_destroy (long array); /*
+			free((void *) array);
+		*/
+
+		@Override
+		public String toString() {
+			return "FeatureArray@"+addr+"["+size+"]";
+		}
+	}
+
+	//endregion
+
+	//region https://harfbuzz.github.io/harfbuzz-Shape-plans.html
+
+	/**
+	 * Shape plan holds everything HarfBuzz resolves for shaping with given face, segment properties and features:
+	 * the shaper, OpenType lookups to apply and so on. {@link Font#hb_shape(long, long, int[])} finds or creates
+	 * a plan on each call, so when shaping many runs with the same properties, executing a plan directly is cheaper.
+	 */
+	public static final class ShapePlan extends Pointer {
+
+		public ShapePlan(long addr) {
+			super(addr);
+		}
+
+		/**
+		 * @param font whose face to create the plan for, the plan can be then executed with any font of that face
+		 * @param direction hb_direction_t
+		 * @param script hb_script_t
+		 * @param language hb_language_t
+		 * @param features may be null for no features
+		 * @see #hb_shape_plan_create_cached(long, int, int, long, long)
+		 */
+		public static ShapePlan createCached(Font font, int direction, int script, long language, FeatureArray features) {
+			return new ShapePlan(hb_shape_plan_create_cached(Font.hb_font_get_face(font.addr),
+					direction, script, language, features == null ? 0L : features.addr));
+		}
+
+		/**
+		 * @param face hb_face_t *
+		 * @param direction hb_direction_t of hb_segment_properties_t
+		 * @param script hb_script_t of hb_segment_properties_t
+		 * @param language hb_language_t of hb_segment_properties_t
+		 * @param features {@link FeatureArray#addr}, 0 for no features
+		 * @return hb_shape_plan_t *
+		 */
+		public static native long hb_shape_plan_create_cached (long face, int direction, int script, long language, long features); /*
+			hb_segment_properties_t props = HB_SEGMENT_PROPERTIES_DEFAULT;
+			props.direction = (hb_direction_t) direction;
+			props.script = (hb_script_t) script;
+			props.language = (hb_language_t) language;
+			const unsigned int * featureArray = (const unsigned int *) features;
+			if (featureArray == NULL) {
+				return (jlong) hb_shape_plan_create_cached((hb_face_t *) face, &props, NULL, 0, NULL);
+			} else {
+				return (jlong) hb_shape_plan_create_cached((hb_face_t *) face, &props, (const hb_feature_t *) (featureArray + 1), featureArray[0], NULL);
+			}
+		*/
+
+		@Override
+		public void reference() {
+			hb_shape_plan_reference(addr);
+		}
+
+		/**
+		 * @param shape_plan hb_shape_plan_t *
+		 * @return hb_shape_plan_t *
+		 */
+		public static native long hb_shape_plan_reference (long shape_plan); /*
+			return (jlong) hb_shape_plan_reference((hb_shape_plan_t *) shape_plan);
+		*/
+
+		@Override
+		public void destroy() {
+			hb_shape_plan_destroy(addr);
+		}
+
+		/**
+		 * @param shape_plan hb_shape_plan_t *
+		 */
+		public static native void hb_shape_plan_destroy (long shape_plan); /*
+			hb_shape_plan_destroy((hb_shape_plan_t *) shape_plan);
+		*/
+
+		/**
+		 * Segment properties of the buffer must be equal to those of the plan,
+		 * features should be the same as those the plan was created with.
+		 * @param features may be null for no features
+		 * @see #hb_shape_plan_execute(long, long, long, long)
+		 */
+		public boolean execute(Font font, Buffer buffer, FeatureArray features) {
+			return hb_shape_plan_execute(addr, font.addr, buffer.addr, features == null ? 0L : features.addr);
+		}
+
+		/**
+		 * Like hb_shape_plan_execute, but also marks the buffer as containing glyphs on success, as hb_shape does.
+		 * @param shape_plan hb_shape_plan_t *
+		 * @param font hb_font_t *
+		 * @param buffer hb_buffer_t *
+		 * @param features {@link FeatureArray#addr}, 0 for no features
+		 * @return hb_bool_t
+		 */
+		public static native boolean hb_shape_plan_execute (long shape_plan, long font, long buffer, long features); /*
+			hb_buffer_t * buf = (hb_buffer_t *) buffer;
+			const unsigned int * featureArray = (const unsigned int *) features;
+			hb_bool_t result;
+			if (featureArray == NULL) {
+				result = hb_shape_plan_execute((hb_shape_plan_t *) shape_plan, (hb_font_t *) font, buf, NULL, 0);
+			} else {
+				result = hb_shape_plan_execute((hb_shape_plan_t *) shape_plan, (hb_font_t *) font, buf, (const hb_feature_t *) (featureArray + 1), featureArray[0]);
+			}
+			if (result) {
+				hb_buffer_set_content_type(buf, HB_BUFFER_CONTENT_TYPE_GLYPHS);
+			}
+			return (jboolean) result;
+		*/
+
+		public String getShaper() {
+			return hb_shape_plan_get_shaper(addr);
+		}
+
+		/**
+		 * @param shape_plan hb_shape_plan_t *
+		 * @return name of the shaper that the plan uses
+		 */
+		public static native String hb_shape_plan_get_shaper (long shape_plan); /*
+			return env->NewStringUTF(hb_shape_plan_get_shaper((hb_shape_plan_t *) shape_plan));
+		*/
 	}
 
 	//endregion
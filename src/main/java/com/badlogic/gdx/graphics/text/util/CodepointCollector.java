@@ -0,0 +1,96 @@
+package com.badlogic.gdx.graphics.text.util;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Properties;
+
+/**
+ * Collects code points used by localized string files, so that glyphs for them can be precached
+ * (see {@link com.badlogic.gdx.graphics.text.harfbuzz.HBFont#precache(CodepointSet)}) before they are needed.
+ *
+ * Intended to run at build time, with the result {@link CodepointSet#write(DataOutput) written}
+ * to a file which is shipped with the game:
+ * <blockquote><pre>{@code
+ *     java -cp ... com.badlogic.gdx.graphics.text.util.CodepointCollector assets/codepoints.bin assets/i18n
+ * }</pre></blockquote>
+ *
+ * Files with the {@code .properties} extension (as used by {@link com.badlogic.gdx.utils.I18NBundle}) contribute
+ * only their values, other files contribute all of their text. Files are read as UTF-8.
+ */
+public final class CodepointCollector {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final CodepointSet codepoints = new CodepointSet();
+
+    /** @return set of all collected code points, modified by further collection */
+    public CodepointSet getCodepoints() {
+        return codepoints;
+    }
+
+    /** Add code points of the text. */
+    public void add(CharSequence text) {
+        codepoints.addAll(text);
+    }
+
+    /** Add code points of the file, or of all files in the directory and its subdirectories. */
+    public void add(File file) throws IOException {
+        if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    add(child);
+                }
+            }
+            return;
+        }
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8)) {
+            if (file.getName().endsWith(".properties")) {
+                addProperties(reader);
+            } else {
+                addText(reader);
+            }
+        }
+    }
+
+    /** Add code points of all values of the properties file. */
+    public void addProperties(Reader reader) throws IOException {
+        final Properties properties = new Properties();
+        properties.load(reader);
+        for (String name : properties.stringPropertyNames()) {
+            add(properties.getProperty(name));
+        }
+    }
+
+    /** Add code points of all text of the reader. */
+    public void addText(Reader reader) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        final char[] buffer = new char[4096];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            sb.append(buffer, 0, read);
+        }
+        add(sb);
+    }
+
+    /** Collect code points of given files and directories and write them to a file.
+     * @param args output file, followed by the input files and directories */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CodepointCollector <output file> <input file or directory>...");
+            System.exit(1);
+            return;
+        }
+
+        final CodepointCollector collector = new CodepointCollector();
+        for (int i = 1; i < args.length; i++) {
+            collector.add(new File(args[i]));
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(args[0])))) {
+            collector.getCodepoints().write(out);
+        }
+        System.out.println("Collected " + collector.getCodepoints().size() + " code points to " + args[0]);
+    }
+}
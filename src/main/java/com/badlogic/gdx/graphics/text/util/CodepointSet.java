@@ -0,0 +1,184 @@
+package com.badlogic.gdx.graphics.text.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Compact set of Unicode code points, designed for O(1) coverage queries.
+ *
+ * Implemented as a two-level bitset: code point space is split into blocks of 256 code points
+ * and only blocks which contain something are allocated. Fonts tend to cover few contiguous ranges,
+ * so the memory overhead is small even for large CJK fonts.
+ *
+ * Can be persisted through {@link #write(DataOutput)} and {@link #read(DataInput)}, to skip computing it on startup.
+ */
+public final class CodepointSet {
+
+    private static final int BLOCK_SHIFT = 8;
+    private static final int BLOCK_WORDS = (1 << BLOCK_SHIFT) / 64;
+    private static final int BLOCK_COUNT = (Character.MAX_CODE_POINT + 1) >> BLOCK_SHIFT;
+
+    private final long[][] blocks = new long[BLOCK_COUNT][];
+    private int size = 0;
+
+    /** @return true if the set contains given code point, false if not or if it is not a valid code point */
+    public boolean contains(int codepoint) {
+        if (codepoint < 0 || codepoint > Character.MAX_CODE_POINT) {
+            return false;
+        }
+        final long[] block = blocks[codepoint >>> BLOCK_SHIFT];
+        return block != null && (block[(codepoint >>> 6) & (BLOCK_WORDS - 1)] & (1L << codepoint)) != 0;
+    }
+
+    /** @return true if the set contains all code points of the text. Unpaired surrogates are checked as they are. */
+    public boolean containsAll(CharSequence text) {
+        final int length = text.length();
+        for (int i = 0; i < length; ) {
+            final char c = text.charAt(i++);
+            int codepoint = c;
+            if (Character.isHighSurrogate(c) && i < length) {
+                final char low = text.charAt(i);
+                if (Character.isLowSurrogate(low)) {
+                    codepoint = Character.toCodePoint(c, low);
+                    i++;
+                }
+            }
+            if (!contains(codepoint)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Add given code point into the set. Invalid code points are ignored. */
+    public void add(int codepoint) {
+        if (codepoint < 0 || codepoint > Character.MAX_CODE_POINT) {
+            return;
+        }
+        long[] block = blocks[codepoint >>> BLOCK_SHIFT];
+        if (block == null) {
+            block = blocks[codepoint >>> BLOCK_SHIFT] = new long[BLOCK_WORDS];
+        }
+        final int word = (codepoint >>> 6) & (BLOCK_WORDS - 1);
+        final long bit = 1L << codepoint;
+        if ((block[word] & bit) == 0) {
+            block[word] |= bit;
+            size++;
+        }
+    }
+
+    /**
+     * Add all code points from a flat bitset, where bit <code>n</code> (<code>bits[n / 64] & (1L << n % 64)</code>)
+     * represents code point <code>n</code>.
+     */
+    public void addAll(long[] bits) {
+        final int words = Math.min(bits.length, BLOCK_COUNT * BLOCK_WORDS);
+        for (int w = 0; w < words; w++) {
+            final long value = bits[w];
+            if (value == 0L) {
+                continue;
+            }
+            final int blockIndex = w / BLOCK_WORDS;
+            long[] block = blocks[blockIndex];
+            if (block == null) {
+                block = blocks[blockIndex] = new long[BLOCK_WORDS];
+            }
+            final int word = w & (BLOCK_WORDS - 1);
+            size += Long.bitCount(value & ~block[word]);
+            block[word] |= value;
+        }
+    }
+
+    /** Add all code points of the text. Unpaired surrogates are added as they are. */
+    public void addAll(CharSequence text) {
+        final int length = text.length();
+        for (int i = 0; i < length; ) {
+            final char c = text.charAt(i++);
+            int codepoint = c;
+            if (Character.isHighSurrogate(c) && i < length) {
+                final char low = text.charAt(i);
+                if (Character.isLowSurrogate(low)) {
+                    codepoint = Character.toCodePoint(c, low);
+                    i++;
+                }
+            }
+            add(codepoint);
+        }
+    }
+
+    /** @return all code points of the set, in ascending order */
+    public int[] toArray() {
+        final int[] result = new int[size];
+        int r = 0;
+        final long[][] blocks = this.blocks;
+        for (int b = 0; b < blocks.length; b++) {
+            final long[] block = blocks[b];
+            if (block == null) continue;
+            for (int w = 0; w < BLOCK_WORDS; w++) {
+                long word = block[w];
+                while (word != 0L) {
+                    result[r++] = (b << BLOCK_SHIFT) | (w << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** @return amount of code points in the set */
+    public int size() {
+        return size;
+    }
+
+    private static final int FORMAT_VERSION = 1;
+
+    /** Write the set in a compact binary form, readable by {@link #read(DataInput)}. */
+    public void write(DataOutput out) throws IOException {
+        final long[][] blocks = this.blocks;
+        int blockCount = 0;
+        for (long[] block : blocks) {
+            if (block != null) blockCount++;
+        }
+
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(size);
+        out.writeShort(blockCount);
+        for (int i = 0; i < blocks.length; i++) {
+            final long[] block = blocks[i];
+            if (block == null) continue;
+            out.writeShort(i);
+            for (long word : block) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    /** Read the set written by {@link #write(DataOutput)}.
+     * @throws IOException on read failure or when the data are not valid */
+    public static CodepointSet read(DataInput in) throws IOException {
+        final int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported CodepointSet format version: " + version);
+        }
+        final CodepointSet set = new CodepointSet();
+        final int size = in.readInt();
+        final int blockCount = in.readUnsignedShort();
+        int readSize = 0;
+        for (int b = 0; b < blockCount; b++) {
+            final int blockIndex = in.readUnsignedShort();
+            if (blockIndex >= BLOCK_COUNT) {
+                throw new IOException("Invalid block index: " + blockIndex);
+            }
+            final long[] block = set.blocks[blockIndex] = new long[BLOCK_WORDS];
+            for (int w = 0; w < BLOCK_WORDS; w++) {
+                readSize += Long.bitCount(block[w] = in.readLong());
+            }
+        }
+        if (readSize != size) {
+            throw new IOException("Corrupted CodepointSet, expected " + size + " code points, got " + readSize);
+        }
+        set.size = size;
+        return set;
+    }
+}
@@ -0,0 +1,144 @@
+package com.badlogic.gdx.graphics.text.util;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * {@link Pool} which collects usage statistics and whose maximum amount of free objects can be changed and trimmed.
+ *
+ * Like {@link Pool}, it is not thread safe, with the exception of {@link #setMaxFree(int)} and {@link #requestTrim(int)},
+ * which can be called from any thread. Statistics may be read from any thread, but are only approximate then.
+ *
+ * @see PerThreadPool
+ */
+public abstract class InstrumentedPool<T> extends Pool<T> {
+
+    /** Name for debugging and reporting */
+    public final String name;
+    /** Thread which uses this pool, or null if not known */
+    public final Thread owner;
+
+    private volatile int maxFree;
+    /** Max free objects to trim to on next use, -1 if no trim is requested */
+    private volatile int pendingTrim = -1;
+
+    private long obtainCount, allocationCount, freeCount, discardCount;
+
+    /** @param maxFree maximum amount of free objects kept, further freed objects are discarded */
+    public InstrumentedPool(String name, int initialCapacity, int maxFree, Thread owner) {
+        super(initialCapacity, Integer.MAX_VALUE);
+        this.name = name;
+        this.owner = owner;
+        this.maxFree = maxFree;
+    }
+
+    @Override
+    public T obtain() {
+        applyPendingTrim();
+        obtainCount++;
+        if (getFree() == 0) {
+            allocationCount++;
+        }
+        return super.obtain();
+    }
+
+    @Override
+    public void free(T object) {
+        if (object == null) throw new IllegalArgumentException("object cannot be null.");
+        freeCount++;
+        if (getFree() >= maxFree) {
+            discardCount++;
+            reset(object);
+            return;
+        }
+        super.free(object);
+    }
+
+    @Override
+    public void freeAll(Array<T> objects) {
+        if (objects == null) throw new IllegalArgumentException("objects cannot be null.");
+        applyPendingTrim();
+        final T[] items = objects.items;
+        for (int i = 0, n = objects.size; i < n; i++) {
+            final T object = items[i];
+            if (object != null) {
+                free(object);
+            }
+        }
+    }
+
+    /** Discard free objects, until at most maxFree remain. Must be called from the thread which uses the pool,
+     * use {@link #requestTrim(int)} otherwise. */
+    public void trim(int maxFree) {
+        pendingTrim = -1;
+        while (getFree() > Math.max(maxFree, 0)) {
+            // Pops a free object, which is then left for GC
+            super.obtain();
+        }
+    }
+
+    /** Trim the pool like {@link #trim(int)}, immediately when called from the {@link #owner} thread,
+     * otherwise on the next use of the pool. */
+    public void requestTrim(int maxFree) {
+        if (owner == Thread.currentThread()) {
+            trim(maxFree);
+        } else {
+            pendingTrim = Math.max(maxFree, 0);
+        }
+    }
+
+    private void applyPendingTrim() {
+        final int pendingTrim = this.pendingTrim;
+        if (pendingTrim >= 0) {
+            trim(pendingTrim);
+        }
+    }
+
+    /** @return maximum amount of free objects kept */
+    public int getMaxFree() {
+        return maxFree;
+    }
+
+    /** Set maximum amount of free objects kept. If there are more free objects currently, they are trimmed
+     * (possibly only on the next use of the pool, see {@link #requestTrim(int)}). */
+    public void setMaxFree(int maxFree) {
+        this.maxFree = maxFree;
+        if (getFree() > maxFree) {
+            requestTrim(maxFree);
+        }
+    }
+
+    /** @return how many times was an object obtained */
+    public long getObtainCount() {
+        return obtainCount;
+    }
+
+    /** @return how many objects had to be created, because there were no free objects (pool misses) */
+    public long getAllocationCount() {
+        return allocationCount;
+    }
+
+    /** @return how many times was an object freed */
+    public long getFreeCount() {
+        return freeCount;
+    }
+
+    /** @return how many freed objects were discarded, because there already was {@link #getMaxFree()} free objects */
+    public long getDiscardCount() {
+        return discardCount;
+    }
+
+    /** Reset all counters and {@link #peak}. */
+    public void resetStatistics() {
+        obtainCount = allocationCount = freeCount = discardCount = 0;
+        peak = getFree();
+    }
+
+    @Override
+    public String toString() {
+        return name + (owner == null ? "" : " (" + owner.getName() + ")")
+                + ": free=" + getFree() + ", peak=" + peak + ", maxFree=" + maxFree
+                + ", obtained=" + obtainCount + ", allocated=" + allocationCount
+                + ", freed=" + freeCount + ", discarded=" + discardCount;
+    }
+}
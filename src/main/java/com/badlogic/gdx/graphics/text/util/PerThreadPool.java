@@ -0,0 +1,150 @@
+package com.badlogic.gdx.graphics.text.util;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Provides a separate {@link InstrumentedPool} for each thread, so that pooled objects can be used concurrently
+ * on multiple threads. Objects may be freed to a pool of a different thread than the one they were obtained from.
+ *
+ * All instances are registered (see {@link #getAll()}), so that the pools can be observed and tuned
+ * by the application, for example logged after a play session or trimmed after a loading screen.
+ *
+ * <h4>Example</h4>
+ * <blockquote><pre>{@code
+ *     for (PerThreadPool<?> pool : PerThreadPool.getAll()) {
+ *         Gdx.app.log("Pools", pool.toString());
+ *     }
+ *     PerThreadPool.trimAll(16);
+ * }</pre></blockquote>
+ */
+public abstract class PerThreadPool<T> extends ThreadLocal<InstrumentedPool<T>> {
+
+    private static final Array<PerThreadPool<?>> ALL = new Array<>();
+
+    /** Name for debugging and reporting */
+    public final String name;
+    private final int initialCapacity;
+    private volatile int maxFree;
+
+    /** Pools of all threads which used this pool and are still alive */
+    private final Map<InstrumentedPool<T>, Boolean> pools = new WeakHashMap<>();
+
+    /** @param maxFree maximum amount of free objects kept by the pool of each thread */
+    public PerThreadPool(String name, int initialCapacity, int maxFree) {
+        this.name = name;
+        this.initialCapacity = initialCapacity;
+        this.maxFree = maxFree;
+        synchronized (ALL) {
+            ALL.add(this);
+        }
+    }
+
+    /** @see Pool#newObject() */
+    protected abstract T newObject();
+
+    /** @see Pool#reset(Object) */
+    protected void reset(T object) {
+        if (object instanceof Pool.Poolable) {
+            ((Pool.Poolable) object).reset();
+        }
+    }
+
+    @Override
+    protected final InstrumentedPool<T> initialValue() {
+        final InstrumentedPool<T> pool = new InstrumentedPool<T>(name, initialCapacity, maxFree, Thread.currentThread()) {
+            @Override
+            protected T newObject() {
+                return PerThreadPool.this.newObject();
+            }
+
+            @Override
+            protected void reset(T object) {
+                PerThreadPool.this.reset(object);
+            }
+        };
+        synchronized (pools) {
+            pools.put(pool, Boolean.TRUE);
+        }
+        return pool;
+    }
+
+    /** @return maximum amount of free objects kept by the pool of each thread */
+    public int getMaxFree() {
+        return maxFree;
+    }
+
+    /** Set maximum amount of free objects kept by the pool of each thread, including the existing ones. */
+    public void setMaxFree(int maxFree) {
+        this.maxFree = maxFree;
+        for (InstrumentedPool<T> pool : getPools()) {
+            pool.setMaxFree(maxFree);
+        }
+    }
+
+    /** Trim pools of all threads, see {@link InstrumentedPool#requestTrim(int)}. */
+    public void trim(int maxFree) {
+        for (InstrumentedPool<T> pool : getPools()) {
+            pool.requestTrim(maxFree);
+        }
+    }
+
+    /** @return snapshot of the pools of all threads, should be only observed and not used from other threads */
+    public Array<InstrumentedPool<T>> getPools() {
+        final Array<InstrumentedPool<T>> result = new Array<>();
+        synchronized (pools) {
+            for (InstrumentedPool<T> pool : pools.keySet()) {
+                result.add(pool);
+            }
+        }
+        return result;
+    }
+
+    /** @return statistics of the pools of all threads */
+    @Override
+    public String toString() {
+        long obtained = 0, allocated = 0, freed = 0, discarded = 0;
+        int free = 0, peak = 0;
+        final Array<InstrumentedPool<T>> pools = getPools();
+        for (InstrumentedPool<T> pool : pools) {
+            obtained += pool.getObtainCount();
+            allocated += pool.getAllocationCount();
+            freed += pool.getFreeCount();
+            discarded += pool.getDiscardCount();
+            free += pool.getFree();
+            peak = Math.max(peak, pool.peak);
+        }
+        return name + " (" + pools.size + " threads): free=" + free + ", peak=" + peak + ", maxFree=" + maxFree
+                + ", obtained=" + obtained + ", allocated=" + allocated + ", freed=" + freed + ", discarded=" + discarded;
+    }
+
+    /** @return snapshot of all per-thread pools */
+    public static Array<PerThreadPool<?>> getAll() {
+        synchronized (ALL) {
+            return new Array<>(ALL);
+        }
+    }
+
+    /** @return per-thread pool with given name or null */
+    public static PerThreadPool<?> find(String name) {
+        synchronized (ALL) {
+            for (int i = 0; i < ALL.size; i++) {
+                final PerThreadPool<?> pool = ALL.get(i);
+                if (pool.name.equals(name)) {
+                    return pool;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** {@link #trim(int)} all per-thread pools. */
+    public static void trimAll(int maxFree) {
+        for (PerThreadPool<?> pool : getAll()) {
+            pool.trim(maxFree);
+        }
+    }
+}
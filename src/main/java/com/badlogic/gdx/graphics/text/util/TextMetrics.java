@@ -0,0 +1,124 @@
+package com.badlogic.gdx.graphics.text.util;
+
+import com.badlogic.gdx.graphics.text.Font;
+
+/**
+ * Instrumentation of the text pipeline. When a {@link Listener} is set through {@link #setListener(Listener)},
+ * the layout, shaping, rasterization, packing and rendering code reports how long its stages took
+ * and how much work they did. When no listener is set (default), the reporting code does nothing but a null check.
+ *
+ * <h4>Example</h4>
+ * <blockquote><pre>{@code
+ *     final TextMetricsHistogram metrics = new TextMetricsHistogram();
+ *     TextMetrics.setListener(metrics);
+ *     // Each frame
+ *     Gdx.app.debug("Text", metrics.toString());
+ *     metrics.reset();
+ * }</pre></blockquote>
+ *
+ * @see TextMetricsHistogram
+ */
+public final class TextMetrics {
+
+    /** Timed parts of the text pipeline. Stages may nest, for example {@link #LAYOUT} includes {@link #SHAPE}. */
+    public enum Stage {
+        /** {@link com.badlogic.gdx.graphics.text.GlyphLayout#layoutText} as a whole */
+        LAYOUT,
+        /** Bidi analysis and splitting of text to runs of the same font, level and script */
+        ITEMIZE,
+        /** Shaping of runs by HarfBuzz */
+        SHAPE,
+        /** Search for a line-break point */
+        WRAP,
+        /** Rendering of a glyph to a pixmap */
+        RASTERIZE,
+        /** {@link Font#prepareGlyphs()}, which includes {@link #PACK} and {@link #UPLOAD} */
+        PREPARE_GLYPHS,
+        /** Packing of a pixmap to a page of {@link com.badlogic.gdx.graphics.g2d.ImagePacker} */
+        PACK,
+        /** Upload of a page, or a part of it, to its texture */
+        UPLOAD,
+        /** {@link com.badlogic.gdx.graphics.text.FontRenderCache#addGlyphs} */
+        RENDER_CACHE,
+        /** {@link com.badlogic.gdx.graphics.text.GlyphLayout#measure} as a whole */
+        MEASURE
+    }
+
+    /** Counted amounts of work. */
+    public enum Counter {
+        /** Glyphs produced by shaping */
+        GLYPHS_SHAPED,
+        /** Glyphs produced by shaping without HarfBuzz, see {@link com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem.FontParameters#simpleShaping}.
+         * Also counted in {@link #GLYPHS_SHAPED}. */
+        GLYPHS_SHAPED_SIMPLE,
+        /** HarfBuzz shape plans created, each font caches its plans until it is disposed */
+        SHAPE_PLANS_CREATED,
+        /** HarfBuzz shape plans destroyed, when their font is disposed */
+        SHAPE_PLANS_DESTROYED,
+        /** Glyphs rendered to pixmaps */
+        GLYPHS_RASTERIZED,
+        /** Pixmaps packed to pages */
+        PIXMAPS_PACKED,
+        /** Bytes of pixel data uploaded to textures */
+        BYTES_UPLOADED,
+        /** Glyph runs of finished layouts */
+        RUNS_CREATED,
+        /** Glyphs added to render caches */
+        GLYPHS_CACHED
+    }
+
+    /** Receives the reports. Methods may be called from any thread which does text work. */
+    public interface Listener {
+        /** @param font whose work was timed, null when not known or when the work was done for multiple fonts
+         * @param nanos duration of the stage, in nanoseconds */
+        void timing(Stage stage, Font<?> font, long nanos);
+
+        /** @param font whose work was counted, null when not known */
+        void count(Counter counter, Font<?> font, long amount);
+    }
+
+    /** Not volatile, so that disabled reporting stays as cheap as possible.
+     * Set it before the text work starts, other threads may observe the change late. */
+    private static Listener listener;
+
+    private TextMetrics() {
+    }
+
+    /** @param listener to receive all reports, null to disable the reporting */
+    public static void setListener(Listener listener) {
+        TextMetrics.listener = listener;
+    }
+
+    /** @return current listener, null when reporting is disabled */
+    public static Listener getListener() {
+        return listener;
+    }
+
+    /** @return true if there is a listener */
+    public static boolean isEnabled() {
+        return listener != null;
+    }
+
+    /** Begin timing of a stage.
+     * @return value to pass to {@link #end(Stage, Font, long)}, 0 when reporting is disabled */
+    public static long start() {
+        return listener == null ? 0L : System.nanoTime();
+    }
+
+    /** Finish timing of a stage.
+     * @param start value returned by {@link #start()}, nothing is reported when 0 */
+    public static void end(Stage stage, Font<?> font, long start) {
+        final Listener listener = TextMetrics.listener;
+        if (listener != null && start != 0L) {
+            listener.timing(stage, font, System.nanoTime() - start);
+        }
+    }
+
+    /** Report an amount of work. */
+    public static void count(Counter counter, Font<?> font, long amount) {
+        final Listener listener = TextMetrics.listener;
+        if (listener != null) {
+            listener.count(counter, font, amount);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.badlogic.gdx.graphics.text.util;
+
+import com.badlogic.gdx.graphics.text.Font;
+import com.badlogic.gdx.graphics.text.util.TextMetrics.Counter;
+import com.badlogic.gdx.graphics.text.util.TextMetrics.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+
+/**
+ * Default {@link TextMetrics.Listener}, which aggregates the reports into per-stage histograms, counters
+ * and per-font totals. Thread safe.
+ *
+ * Durations are sorted to power-of-two buckets: bucket 0 holds durations below 2ns and bucket {@code i}
+ * durations in {@code [2^i, 2^(i+1))} nanoseconds. The last bucket holds everything longer.
+ *
+ * Call {@link #reset()} to begin a new measurement period, for example each frame, after the values were
+ * {@link #toString() dumped} or read through the getters and exported.
+ */
+public class TextMetricsHistogram implements TextMetrics.Listener {
+
+    /** Amount of histogram buckets, the last one begins at ~17 seconds */
+    public static final int BUCKETS = 35;
+
+    private static final int STAGES = Stage.values().length;
+    private static final int COUNTERS = Counter.values().length;
+
+    private final long[] stageCounts = new long[STAGES];
+    private final long[] stageNanos = new long[STAGES];
+    private final long[] stageMaxNanos = new long[STAGES];
+    private final long[][] histograms = new long[STAGES][BUCKETS];
+    private final long[] counters = new long[COUNTERS];
+
+    /** Per-font totals: stage nanos, followed by counters */
+    private final IdentityMap<Font<?>, long[]> fonts = new IdentityMap<>();
+
+    /** @return bucket for given duration */
+    public static int bucketOf(long nanos) {
+        return Math.min(Math.max(63 - Long.numberOfLeadingZeros(nanos), 0), BUCKETS - 1);
+    }
+
+    private long[] fontTotals(Font<?> font) {
+        long[] totals = fonts.get(font);
+        if (totals == null) {
+            totals = new long[STAGES + COUNTERS];
+            fonts.put(font, totals);
+        }
+        return totals;
+    }
+
+    @Override
+    public synchronized void timing(Stage stage, Font<?> font, long nanos) {
+        final int s = stage.ordinal();
+        stageCounts[s]++;
+        stageNanos[s] += nanos;
+        if (nanos > stageMaxNanos[s]) {
+            stageMaxNanos[s] = nanos;
+        }
+        histograms[s][bucketOf(nanos)]++;
+        if (font != null) {
+            fontTotals(font)[s] += nanos;
+        }
+    }
+
+    @Override
+    public synchronized void count(Counter counter, Font<?> font, long amount) {
+        final int c = counter.ordinal();
+        counters[c] += amount;
+        if (font != null) {
+            fontTotals(font)[STAGES + c] += amount;
+        }
+    }
+
+    /** @return how many times was the stage timed */
+    public synchronized long getCount(Stage stage) {
+        return stageCounts[stage.ordinal()];
+    }
+
+    /** @return total duration of the stage in nanoseconds */
+    public synchronized long getTotalNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /** @return longest duration of the stage in nanoseconds */
+    public synchronized long getMaxNanos(Stage stage) {
+        return stageMaxNanos[stage.ordinal()];
+    }
+
+    /** @return copy of the histogram of the stage's durations, see {@link TextMetricsHistogram} for bucket ranges */
+    public synchronized long[] getHistogram(Stage stage) {
+        return histograms[stage.ordinal()].clone();
+    }
+
+    /** @param percentile in [0, 1] range
+     * @return upper bound of the histogram bucket in which the percentile of the stage's durations lies,
+     * 0 if the stage was not timed */
+    public synchronized long getPercentileNanos(Stage stage, float percentile) {
+        final int s = stage.ordinal();
+        final long count = stageCounts[s];
+        if (count == 0) {
+            return 0L;
+        }
+        final long[] histogram = histograms[s];
+        final long threshold = Math.max((long) (count * (double) percentile), 1L);
+        long accumulated = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            accumulated += histogram[i];
+            if (accumulated >= threshold) {
+                return Math.min(1L << (i + 1), stageMaxNanos[s]);
+            }
+        }
+        return stageMaxNanos[s];
+    }
+
+    /** @return total reported amount of the counter */
+    public synchronized long getCounter(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    /** @return fonts which had some attributed reports */
+    public synchronized Array<Font<?>> getFonts() {
+        final Array<Font<?>> result = new Array<>();
+        for (Font<?> font : fonts.keys()) {
+            result.add(font);
+        }
+        return result;
+    }
+
+    /** @return total duration of the stage attributed to the font, in nanoseconds */
+    public synchronized long getFontNanos(Font<?> font, Stage stage) {
+        final long[] totals = fonts.get(font);
+        return totals == null ? 0L : totals[stage.ordinal()];
+    }
+
+    /** @return total amount of the counter attributed to the font */
+    public synchronized long getFontCounter(Font<?> font, Counter counter) {
+        final long[] totals = fonts.get(font);
+        return totals == null ? 0L : totals[STAGES + counter.ordinal()];
+    }
+
+    /** Clear all collected values. */
+    public synchronized void reset() {
+        for (int s = 0; s < STAGES; s++) {
+            stageCounts[s] = 0;
+            stageNanos[s] = 0;
+            stageMaxNanos[s] = 0;
+            final long[] histogram = histograms[s];
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = 0;
+            }
+        }
+        for (int c = 0; c < COUNTERS; c++) {
+            counters[c] = 0;
+        }
+        fonts.clear();
+    }
+
+    /** @return human readable summary of the collected values, only stages and counters with some reports are listed */
+    @Override
+    public synchronized String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("TextMetrics:\n");
+        for (Stage stage : Stage.values()) {
+            final int s = stage.ordinal();
+            if (stageCounts[s] == 0) {
+                continue;
+            }
+            sb.append('\t').append(stage).append(": ").append(stageCounts[s]).append("x, total=")
+                    .append(stageNanos[s] / 1000).append("us, p50<=").append(getPercentileNanos(stage, 0.5f) / 1000)
+                    .append("us, p99<=").append(getPercentileNanos(stage, 0.99f) / 1000)
+                    .append("us, max=").append(stageMaxNanos[s] / 1000).append("us\n");
+        }
+        for (Counter counter : Counter.values()) {
+            final long value = counters[counter.ordinal()];
+            if (value != 0) {
+                sb.append('\t').append(counter).append(": ").append(value).append('\n');
+            }
+        }
+        for (IdentityMap.Entry<Font<?>, long[]> entry : fonts.entries()) {
+            sb.append('\t').append(entry.key).append(':');
+            final long[] totals = entry.value;
+            for (Stage stage : Stage.values()) {
+                final long nanos = totals[stage.ordinal()];
+                if (nanos != 0) {
+                    sb.append(' ').append(stage).append('=').append(nanos / 1000).append("us");
+                }
+            }
+            for (Counter counter : Counter.values()) {
+                final long value = totals[STAGES + counter.ordinal()];
+                if (value != 0) {
+                    sb.append(' ').append(counter).append('=').append(value);
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
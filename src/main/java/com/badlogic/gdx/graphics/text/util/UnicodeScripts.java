@@ -0,0 +1,109 @@
+package com.badlogic.gdx.graphics.text.util;
+
+import java.lang.Character.UnicodeScript;
+
+/**
+ * Fast lookup of {@link UnicodeScript} of code points and their ISO 15924 codes.
+ *
+ * {@link UnicodeScript#of(int)} does a binary search over all script ranges, which is too slow to do
+ * for each character of each laid out text, so BMP code points are looked up in a table, built on first use.
+ */
+public final class UnicodeScripts {
+
+    private static final UnicodeScript[] SCRIPTS = UnicodeScript.values();
+
+    private UnicodeScripts() {}
+
+    /** @return script of the code point, {@link UnicodeScript#UNKNOWN} for invalid code points */
+    public static UnicodeScript of(int codepoint) {
+        if (codepoint >= 0 && codepoint <= Character.MAX_VALUE) {
+            return SCRIPTS[BmpTable.ORDINALS[codepoint] & 0xFF];
+        }
+        if (codepoint > Character.MAX_CODE_POINT) {
+            return UnicodeScript.UNKNOWN;
+        }
+        return UnicodeScript.of(codepoint);
+    }
+
+    /** @return true if the script does not determine the script of the text on its own
+     * and takes the script of surrounding text instead (Common, Inherited and Unknown) */
+    public static boolean isNeutral(UnicodeScript script) {
+        return script == UnicodeScript.COMMON || script == UnicodeScript.INHERITED || script == UnicodeScript.UNKNOWN;
+    }
+
+    /** @return 4 letter ISO 15924 code of the script (for example "Latn"),
+     * or null if this class does not know it (scripts added to Java after this was written) */
+    public static String iso15924Code(UnicodeScript script) {
+        final String[] codes = IsoCodes.CODES;
+        final int ordinal = script.ordinal();
+        return ordinal < codes.length ? codes[ordinal] : null;
+    }
+
+    /** Initialized lazily on first use. */
+    private static final class BmpTable {
+        static final byte[] ORDINALS = new byte[Character.MAX_VALUE + 1];
+
+        static {
+            assert SCRIPTS.length <= 256;
+            final byte[] ordinals = ORDINALS;
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                ordinals[c] = (byte) UnicodeScript.of(c).ordinal();
+            }
+        }
+    }
+
+    private static final class IsoCodes {
+        static final String[] CODES = new String[SCRIPTS.length];
+
+        static {
+            // Scripts of newer Java versions are included, unknown names are skipped
+            final String[] pairs = {
+                    "COMMON", "Zyyy", "LATIN", "Latn", "GREEK", "Grek", "CYRILLIC", "Cyrl", "ARMENIAN", "Armn",
+                    "HEBREW", "Hebr", "ARABIC", "Arab", "SYRIAC", "Syrc", "THAANA", "Thaa", "DEVANAGARI", "Deva",
+                    "BENGALI", "Beng", "GURMUKHI", "Guru", "GUJARATI", "Gujr", "ORIYA", "Orya", "TAMIL", "Taml",
+                    "TELUGU", "Telu", "KANNADA", "Knda", "MALAYALAM", "Mlym", "SINHALA", "Sinh", "THAI", "Thai",
+                    "LAO", "Laoo", "TIBETAN", "Tibt", "MYANMAR", "Mymr", "GEORGIAN", "Geor", "HANGUL", "Hang",
+                    "ETHIOPIC", "Ethi", "CHEROKEE", "Cher", "CANADIAN_ABORIGINAL", "Cans", "OGHAM", "Ogam", "RUNIC", "Runr",
+                    "KHMER", "Khmr", "MONGOLIAN", "Mong", "HIRAGANA", "Hira", "KATAKANA", "Kana", "BOPOMOFO", "Bopo",
+                    "HAN", "Hani", "YI", "Yiii", "OLD_ITALIC", "Ital", "GOTHIC", "Goth", "DESERET", "Dsrt",
+                    "INHERITED", "Zinh", "TAGALOG", "Tglg", "HANUNOO", "Hano", "BUHID", "Buhd", "TAGBANWA", "Tagb",
+                    "LIMBU", "Limb", "TAI_LE", "Tale", "LINEAR_B", "Linb", "UGARITIC", "Ugar", "SHAVIAN", "Shaw",
+                    "OSMANYA", "Osma", "CYPRIOT", "Cprt", "BRAILLE", "Brai", "BUGINESE", "Bugi", "COPTIC", "Copt",
+                    "NEW_TAI_LUE", "Talu", "GLAGOLITIC", "Glag", "TIFINAGH", "Tfng", "SYLOTI_NAGRI", "Sylo",
+                    "OLD_PERSIAN", "Xpeo", "KHAROSHTHI", "Khar", "BALINESE", "Bali", "CUNEIFORM", "Xsux",
+                    "PHOENICIAN", "Phnx", "PHAGS_PA", "Phag", "NKO", "Nkoo", "SUNDANESE", "Sund", "BATAK", "Batk",
+                    "LEPCHA", "Lepc", "OL_CHIKI", "Olck", "VAI", "Vaii", "SAURASHTRA", "Saur", "KAYAH_LI", "Kali",
+                    "REJANG", "Rjng", "LYCIAN", "Lyci", "CARIAN", "Cari", "LYDIAN", "Lydi", "CHAM", "Cham",
+                    "TAI_THAM", "Lana", "TAI_VIET", "Tavt", "AVESTAN", "Avst", "EGYPTIAN_HIEROGLYPHS", "Egyp",
+                    "SAMARITAN", "Samr", "MANDAIC", "Mand", "LISU", "Lisu", "BAMUM", "Bamu", "JAVANESE", "Java",
+                    "MEETEI_MAYEK", "Mtei", "IMPERIAL_ARAMAIC", "Armi", "OLD_SOUTH_ARABIAN", "Sarb",
+                    "INSCRIPTIONAL_PARTHIAN", "Prti", "INSCRIPTIONAL_PAHLAVI", "Phli", "OLD_TURKIC", "Orkh",
+                    "BRAHMI", "Brah", "KAITHI", "Kthi", "MEROITIC_HIEROGLYPHS", "Mero", "MEROITIC_CURSIVE", "Merc",
+                    "SORA_SOMPENG", "Sora", "CHAKMA", "Cakm", "SHARADA", "Shrd", "TAKRI", "Takr", "MIAO", "Plrd",
+                    "CAUCASIAN_ALBANIAN", "Aghb", "BASSA_VAH", "Bass", "DUPLOYAN", "Dupl", "ELBASAN", "Elba",
+                    "GRANTHA", "Gran", "PAHAWH_HMONG", "Hmng", "KHOJKI", "Khoj", "LINEAR_A", "Lina", "MAHAJANI", "Mahj",
+                    "MANICHAEAN", "Mani", "MENDE_KIKAKUI", "Mend", "MODI", "Modi", "MRO", "Mroo",
+                    "OLD_NORTH_ARABIAN", "Narb", "NABATAEAN", "Nbat", "PALMYRENE", "Palm", "PAU_CIN_HAU", "Pauc",
+                    "OLD_PERMIC", "Perm", "PSALTER_PAHLAVI", "Phlp", "SIDDHAM", "Sidd", "KHUDAWADI", "Sind",
+                    "TIRHUTA", "Tirh", "WARANG_CITI", "Wara", "AHOM", "Ahom", "ANATOLIAN_HIEROGLYPHS", "Hluw",
+                    "HATRAN", "Hatr", "MULTANI", "Mult", "OLD_HUNGARIAN", "Hung", "SIGNWRITING", "Sgnw",
+                    "ADLAM", "Adlm", "BHAIKSUKI", "Bhks", "MARCHEN", "Marc", "NEWA", "Newa", "OSAGE", "Osge",
+                    "TANGUT", "Tang", "MASARAM_GONDI", "Gonm", "NUSHU", "Nshu", "SOYOMBO", "Soyo",
+                    "ZANABAZAR_SQUARE", "Zanb", "HANIFI_ROHINGYA", "Rohg", "OLD_SOGDIAN", "Sogo", "SOGDIAN", "Sogd",
+                    "DOGRA", "Dogr", "GUNJALA_GONDI", "Gong", "MAKASAR", "Maka", "MEDEFAIDRIN", "Medf",
+                    "ELYMAIC", "Elym", "NANDINAGARI", "Nand", "NYIAKENG_PUACHUE_HMONG", "Hmnp", "WANCHO", "Wcho",
+                    "YEZIDI", "Yezi", "CHORASMIAN", "Chrs", "DIVES_AKURU", "Diak", "KHITAN_SMALL_SCRIPT", "Kits",
+                    "UNKNOWN", "Zzzz"
+            };
+            for (int i = 0; i < pairs.length; i += 2) {
+                final UnicodeScript script;
+                try {
+                    script = UnicodeScript.valueOf(pairs[i]);
+                } catch (IllegalArgumentException ignored) {
+                    continue;
+                }
+                CODES[script.ordinal()] = pairs[i + 1];
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.darkyen.libgdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.TextMeasurement;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFont;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
+import com.badlogic.gdx.graphics.text.util.TextMetricsHistogram;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+import java.util.Locale;
+
+/**
+ * Compares shaping throughput of {@link HBFont} with FreeType font functions
+ * and with HarfBuzz's OpenType font functions ({@link HBFontSystem.FontParameters#openTypeFontFuncs}).
+ * Both shape every run with HarfBuzz. Shaping with {@link HBFontSystem.FontParameters#simpleShaping} is reported separately.
+ *
+ * Only shapes (through {@link GlyphLayout#measure(LayoutText, float, TextMeasurement)}), nothing is rasterized.
+ */
+public class ShapingBenchmark {
+
+    private static final String TEXT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Vivamus vel mauris quis nisl " +
+            "ultrices efficitur. Fusce finibus, ipsum quis tempus rutrum, lectus massa tristique magna, a volutpat felis " +
+            "lacus ac sem. Donec at odio ante. Nulla facilisi. Sed fermentum, arcu in varius lobortis, tellus ligula " +
+            "consequat justo, vel aliquet quam nisi id quam. Ut tristique, enim non hendrerit ultrices, erat dui ultricies " +
+            "nunc, quis maximus nunc est sit amet magna. Curabitur ac ipsum a elit fermentum ultricies et in ex.\n" +
+            "Příliš žluťoučký kůň úpěl ďábelské ódy. Voix ambiguë d'un cœur qui au zéphyr préfère les jattes de kiwis. " +
+            "Falsches Üben von Xylophonmusik quält jeden größeren Zwerg.";
+
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 2000;
+
+    public static void main(String[] args) {
+        GdxNativesLoader.load();
+        final HBFontSystem fontSystem = new HBFontSystem();
+        final FileHandle fontFile = new FileHandle("test-fonts/caladea/caladea-regular.ttf");
+
+        // Simple shaping would bypass the font functions for most of the text
+        final HBFontSystem.FontParameters freeTypeParameters = new HBFontSystem.FontParameters();
+        freeTypeParameters.openTypeFontFuncs = false;
+        freeTypeParameters.simpleShaping = false;
+        final HBFontSystem.FontParameters openTypeParameters = new HBFontSystem.FontParameters();
+        openTypeParameters.openTypeFontFuncs = true;
+        openTypeParameters.simpleShaping = false;
+        final HBFontSystem.FontParameters simpleParameters = new HBFontSystem.FontParameters();
+        simpleParameters.openTypeFontFuncs = false;
+        simpleParameters.simpleShaping = true;
+
+        final HBFont freeTypeFont = fontSystem.createIncrementalFont(fontFile, 16f, 1f, freeTypeParameters);
+        final HBFont openTypeFont = fontSystem.createIncrementalFont(fontFile, 16f, 1f, openTypeParameters);
+        final HBFont simpleFont = fontSystem.createIncrementalFont(fontFile, 16f, 1f, simpleParameters);
+
+        final double freeTypeGlyphsPerSecond = benchmark("FreeType", freeTypeFont);
+        final double openTypeGlyphsPerSecond = benchmark("OpenType", openTypeFont);
+        final double simpleGlyphsPerSecond = benchmark("FreeType with simple shaping", simpleFont);
+        System.out.println(String.format(Locale.ROOT, "OpenType font funcs speedup: %.2fx", openTypeGlyphsPerSecond / freeTypeGlyphsPerSecond));
+        System.out.println(String.format(Locale.ROOT, "Simple shaping speedup: %.2fx", simpleGlyphsPerSecond / freeTypeGlyphsPerSecond));
+
+        freeTypeFont.dispose();
+        openTypeFont.dispose();
+        simpleFont.dispose();
+        fontSystem.dispose();
+    }
+
+    /** @return shaped glyphs per second */
+    private static double benchmark(String name, HBFont font) {
+        final LayoutText<HBFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText(TEXT);
+        final GlyphLayout<HBFont> layout = font.createGlyphLayout();
+        final TextMeasurement measurement = new TextMeasurement();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            layout.measure(text, 400f, measurement);
+        }
+
+        final TextMetricsHistogram histogram = new TextMetricsHistogram();
+        final TextMetrics.Listener previousListener = TextMetrics.getListener();
+        TextMetrics.setListener(histogram);
+        final long start = System.nanoTime();
+        try {
+            for (int i = 0; i < ITERATIONS; i++) {
+                layout.measure(text, 400f, measurement);
+            }
+        } finally {
+            TextMetrics.setListener(previousListener);
+        }
+        final long totalNanos = System.nanoTime() - start;
+
+        final long shapeNanos = histogram.getTotalNanos(TextMetrics.Stage.SHAPE);
+        final long glyphs = histogram.getCounter(TextMetrics.Counter.GLYPHS_SHAPED);
+        final double glyphsPerSecond = glyphs / (shapeNanos / 1e9);
+        System.out.println(String.format(Locale.ROOT, "%s: %.1f ms total, %.1f ms shaping, %d glyphs, %.0f glyphs/s, %s",
+                name, totalNanos / 1e6, shapeNanos / 1e6, glyphs, glyphsPerSecond, measurement));
+        return glyphsPerSecond;
+    }
+}
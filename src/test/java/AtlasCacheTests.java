@@ -0,0 +1,136 @@
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.ImagePacker;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFont;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that pages restored from a saved state are packed into, like they would be without saving,
+ * so that the atlas cache of {@link HBFont} does not grow on each run.
+ * Skipped when natives are not available.
+ */
+public class AtlasCacheTests {
+
+    @BeforeEach
+    public void assumeNatives() {
+        NativeTestFixtures.assumeGdxNatives();
+    }
+
+    private static ImagePacker createPacker(ImagePacker.PackStrategy strategy) {
+        return new ImagePacker(256, 256, Pixmap.Format.RGBA8888, Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest,
+                1, false, strategy);
+    }
+
+    private static void pack(ImagePacker packer, Random random, int count, Rectangle[] result) {
+        for (int i = 0; i < count; i++) {
+            final Pixmap pixmap = new Pixmap(4 + random.nextInt(20), 4 + random.nextInt(30), Pixmap.Format.RGBA8888);
+            final Rectangle packedTo = new Rectangle();
+            final ImagePacker.Page page = packer.pack(pixmap, packedTo);
+            pixmap.dispose();
+            result[i] = packedTo.setX(packedTo.x + packer.pages.indexOf(page, true) * packer.pageWidth);
+        }
+    }
+
+    private static void packerStateRoundTrip(ImagePacker.PackStrategy strategy) throws IOException {
+        final ImagePacker original = createPacker(strategy);
+        final Rectangle[] expected = new Rectangle[100];
+        pack(original, new Random(1), 100, expected);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        for (ImagePacker.Page page : original.pages) {
+            original.writePageState(page, out);
+        }
+        out.close();
+
+        final ImagePacker restored = createPacker(strategy);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (ImagePacker.Page page : original.pages) {
+            final Pixmap pixmap = new Pixmap(page.pixmap.getWidth(), page.pixmap.getHeight(), page.pixmap.getFormat());
+            pixmap.drawPixmap(page.pixmap, 0, 0);
+            restored.pages.add(restored.restorePage(pixmap, in));
+        }
+        assertEquals(-1, in.read());
+
+        // Both continue packing the same way
+        final int pageCount = original.pages.size;
+        final Rectangle[] actual = new Rectangle[100];
+        pack(original, new Random(2), 50, expected);
+        pack(restored, new Random(2), 50, actual);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(expected[i], actual[i], strategy.getClass().getSimpleName() + " " + i);
+        }
+        assertEquals(original.pages.size, restored.pages.size);
+        assertTrue(restored.pages.size <= pageCount + 1);
+
+        original.dispose();
+        restored.dispose();
+    }
+
+    @Test
+    public void guillotineStateRoundTrip() throws IOException {
+        packerStateRoundTrip(ImagePacker.GuillotineStrategy.INSTANCE);
+    }
+
+    @Test
+    public void skylineStateRoundTrip() throws IOException {
+        packerStateRoundTrip(ImagePacker.SkylineStrategy.INSTANCE);
+    }
+
+    private static int pageCount(HBFont font) {
+        int count = 0;
+        for (Texture page : font.getPages()) {
+            if (page != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Packing glyphs into pages needs textures, so this runs only with GL. */
+    @Test
+    public void fontCacheDoesNotGrow() throws IOException {
+        NativeTestFixtures.assumeHarfBuzzNatives();
+        assumeTrue(Gdx.gl != null, "GL not available");
+        final HBFontSystem fontSystem = new HBFontSystem();
+        final File directory = File.createTempFile("atlas-cache", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        final HBFontSystem.FontParameters parameters = new HBFontSystem.FontParameters();
+        parameters.atlasCacheDirectory = new FileHandle(directory);
+        final FileHandle fontFile = NativeTestFixtures.caladea("regular");
+
+        try {
+            final String[] runs = {"abcdefghijklm", "nopqrstuvwxyz", "ABCDEFGHIJKLM", "NOPQRSTUVWXYZ"};
+            int pageCount = -1;
+            for (String characters : runs) {
+                final HBFont font = fontSystem.createIncrementalFont(fontFile, 20f, 1f, parameters);
+                font.precache(characters);
+                assertTrue(font.saveAtlasCache());
+                if (pageCount == -1) {
+                    pageCount = pageCount(font);
+                } else {
+                    assertEquals(pageCount, pageCount(font), characters);
+                }
+                font.dispose();
+            }
+            assertEquals(1, pageCount);
+        } finally {
+            for (File file : directory.listFiles()) {
+                assertTrue(file.delete());
+            }
+            assertTrue(directory.delete());
+            fontSystem.dispose();
+        }
+    }
+}
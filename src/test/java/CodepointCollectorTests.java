@@ -0,0 +1,56 @@
+import com.badlogic.gdx.graphics.text.util.CodepointCollector;
+import com.badlogic.gdx.graphics.text.util.CodepointSet;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link CodepointCollector} and code point enumeration of {@link CodepointSet}.
+ */
+public class CodepointCollectorTests {
+
+    @Test
+    public void propertiesValuesAreCollected() throws IOException {
+        final CodepointCollector collector = new CodepointCollector();
+        collector.addProperties(new StringReader("# Comment xyz\nkey=Ahoj\\u0021\nother.key = čau 😀\n"));
+
+        final CodepointSet codepoints = collector.getCodepoints();
+        assertTrue(codepoints.containsAll("Ahoj! čau😀"));
+        assertFalse(codepoints.contains('k'), "Keys are not collected");
+        assertFalse(codepoints.contains('x'), "Comments are not collected");
+        assertFalse(codepoints.contains('='));
+        assertArrayEquals(new int[]{' ', '!', 'A', 'a', 'h', 'j', 'o', 'u', 0x10D, 0x1F600}, codepoints.toArray());
+    }
+
+    @Test
+    public void textFilesAreCollected() throws IOException {
+        final File directory = File.createTempFile("strings", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        final File properties = new File(directory, "bundle_cs.properties");
+        final File text = new File(directory, "credits.txt");
+        try {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(properties), "UTF-8")) {
+                writer.write("title=Příběh\n");
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(text), "UTF-8")) {
+                writer.write("= Zz =");
+            }
+
+            final CodepointCollector collector = new CodepointCollector();
+            collector.add(directory);
+            final CodepointSet codepoints = collector.getCodepoints();
+            assertTrue(codepoints.containsAll("Příběh= Zz"));
+            assertFalse(codepoints.contains('t'));
+            assertEquals(10, codepoints.size());
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            codepoints.write(new DataOutputStream(bytes));
+            final CodepointSet read = CodepointSet.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertArrayEquals(codepoints.toArray(), read.toArray());
+        } finally {
+            assertTrue(properties.delete() && text.delete() && directory.delete());
+        }
+    }
+}
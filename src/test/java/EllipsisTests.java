@@ -0,0 +1,140 @@
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFont;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.StringBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that runs trimmed to fit the ellipsis are the same as runs shaped from the kept characters only,
+ * which is what the layout did before it could trim runs without reshaping them.
+ * Skipped when natives are not available.
+ */
+public class EllipsisTests {
+
+    private static HBFontSystem fontSystem;
+
+    @BeforeAll
+    public static void setUp() {
+        fontSystem = NativeTestFixtures.createFontSystem();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (fontSystem != null) {
+            fontSystem.dispose();
+        }
+    }
+
+    @BeforeEach
+    public void assumeNatives() {
+        NativeTestFixtures.assumeHarfBuzzNatives();
+    }
+
+    private static final String[] WORDS = {"lorem", "ipsum", "dolor", "sit", "amet,", "AVATAR", "office", "affluent",
+            "Příliš", "žluťoučký", "(1234)", "a", "To", "Wavy.", "Supercalifragilisticexpialidocious"};
+
+    private static String createString(Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int words = 10 + random.nextInt(30);
+        for (int i = 0; i < words; i++) {
+            if (i != 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static LayoutText<HBFont> text(HBFont font, String string) {
+        final LayoutText<HBFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText(string);
+        return text;
+    }
+
+    private static void assertSameRun(GlyphRun<HBFont> expected, GlyphRun<HBFont> actual, String message) {
+        assertEquals(expected.line, actual.line, message);
+        assertEquals(expected.charactersStart, actual.charactersStart, message);
+        assertEquals(expected.charactersEnd, actual.charactersEnd, message);
+        assertEquals(expected.x, actual.x, 0.001f, message);
+        assertEquals(expected.y, actual.y, 0.001f, message);
+        assertEquals(expected.width, actual.width, 0.001f, message);
+        assertArrayEquals(expected.glyphs.toArray(), actual.glyphs.toArray(), message);
+        assertArrayEquals(expected.glyphX.toArray(), actual.glyphX.toArray(), 0.001f, message);
+        assertArrayEquals(expected.glyphY.toArray(), actual.glyphY.toArray(), 0.001f, message);
+        assertArrayEquals(expected.characterPositions.toArray(), actual.characterPositions.toArray(), 0.001f, message);
+    }
+
+    private static void assertTrimmedLikeReshaped(boolean simpleShaping) {
+        final HBFontSystem.FontParameters parameters = new HBFontSystem.FontParameters();
+        parameters.simpleShaping = simpleShaping;
+        final HBFont font = fontSystem.createIncrementalFont(NativeTestFixtures.caladea("regular"), 20f, 1f, parameters);
+        final GlyphLayout<HBFont> actual = font.createGlyphLayout();
+        final GlyphLayout<HBFont> expected = font.createGlyphLayout();
+        final Random random = new Random(47);
+        int trimmed = 0;
+        try {
+            for (int t = 0; t < 50; t++) {
+                final String string = createString(random);
+                final float availableWidth = 100f + random.nextInt(300);
+                final int lines = 1 + random.nextInt(3);
+                final String message = "\"" + string + "\", width " + availableWidth + ", lines " + lines;
+
+                actual.layoutText(text(font, string), availableWidth, -lines, Align.left, "...");
+                final Array<GlyphRun<HBFont>> actualRuns = actual.getRuns();
+                int textRuns = actualRuns.size;
+                while (textRuns > 0 && (actualRuns.get(textRuns - 1).characterFlags & GlyphRun.FLAG_ELLIPSIS) != 0) {
+                    textRuns--;
+                }
+                if (textRuns == actualRuns.size) {
+                    // Fits, no ellipsis
+                    continue;
+                }
+                final int charactersEnd = textRuns == 0 ? 0 : actualRuns.get(textRuns - 1).charactersEnd;
+                if (charactersEnd == 0) {
+                    continue;
+                }
+
+                // Layout of the kept characters only, shaped without the rest of the text
+                expected.layoutText(text(font, string.substring(0, charactersEnd)), availableWidth, 0f, Align.left, null);
+                final Array<GlyphRun<HBFont>> expectedRuns = expected.getRuns();
+                assertEquals(expectedRuns.size, textRuns, message);
+                for (int r = 0; r < textRuns; r++) {
+                    assertSameRun(expectedRuns.get(r), actualRuns.get(r), message + ", run " + r);
+                }
+
+                // Ellipsis follows right after the trimmed run
+                final GlyphRun<HBFont> lastRun = actualRuns.get(textRuns - 1);
+                assertEquals(lastRun.x + lastRun.width, actualRuns.get(textRuns).x, 0.001f, message);
+                assertTrue(actualRuns.peek().x + actualRuns.peek().width <= availableWidth + 0.001f, message);
+                if (charactersEnd < string.length() && string.charAt(charactersEnd) != ' ' && string.charAt(charactersEnd - 1) != ' ') {
+                    trimmed++;
+                }
+            }
+            assertTrue(trimmed > 0, "Some runs were trimmed inside a word");
+        } finally {
+            actual.clear();
+            expected.clear();
+            font.dispose();
+        }
+    }
+
+    @Test
+    public void trimmedRunsMatchReshapedRuns() {
+        assertTrimmedLikeReshaped(false);
+    }
+
+    @Test
+    public void trimmedSimpleRunsMatchReshapedRuns() {
+        assertTrimmedLikeReshaped(true);
+    }
+}
@@ -0,0 +1,73 @@
+import com.badlogic.gdx.graphics.g2d.freetype.FreeType;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link HBFontSystem.FontParameters#openTypeFontFuncs} gives the same advances as the FreeType font functions.
+ * Skipped when natives are not available.
+ */
+public class FontFuncsTests {
+
+    private static FreeType.Library library;
+
+    @BeforeAll
+    public static void setUp() {
+        if (NativeTestFixtures.loadHarfBuzzNatives()) {
+            library = FreeType.initFreeType();
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (library != null) {
+            library.dispose();
+        }
+    }
+
+    @BeforeEach
+    public void assumeNatives() {
+        NativeTestFixtures.assumeHarfBuzzNatives();
+    }
+
+    private static void assertSameAdvances(String style) {
+        final FreeType.Face face = library.newFace(NativeTestFixtures.caladea(style), 0);
+        try {
+            final int glyphCount = face.getNumGlyphs();
+            assertTrue(glyphCount > 1);
+            for (int pixelSize : new int[]{9, 16, 23, 40, 97}) {
+                assertTrue(face.setPixelSizes(0, pixelSize));
+                final HarfBuzz.Font ftFont = HarfBuzz.Font.createReferenced(face);
+                final HarfBuzz.Font otFont = HarfBuzz.Font.createOpenTypeReferenced(face);
+                try {
+                    for (int glyph = 0; glyph < glyphCount; glyph++) {
+                        final int ft = HarfBuzz.Font.hb_font_get_glyph_h_advance(ftFont.addr, glyph);
+                        final int ot = HarfBuzz.Font.hb_font_get_glyph_h_advance(otFont.addr, glyph);
+                        // HarfBuzz loads FreeType advances unhinted too, both differ only in rounding of the scale
+                        assertEquals(ft, ot, 1, style + " " + pixelSize + "px, glyph " + glyph);
+                    }
+                } finally {
+                    ftFont.destroy();
+                    otFont.destroy();
+                }
+            }
+        } finally {
+            face.dispose();
+        }
+    }
+
+    @Test
+    public void sameAdvancesRegular() {
+        assertSameAdvances("regular");
+    }
+
+    @Test
+    public void sameAdvancesBold() {
+        assertSameAdvances("bold");
+    }
+}
@@ -0,0 +1,69 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that regions which differ only in color are laid out like uniformly colored text,
+ * with the colors carried by {@link GlyphRun#glyphColors}.
+ */
+public class GlyphColorTests {
+
+    private static BitmapFont font;
+
+    @BeforeAll
+    public static void setUp() {
+        font = new BitmapFont("regular", null);
+        font.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-regular64.fnt"), 1f);
+    }
+
+    @Test
+    public void rainbowTextMatchesPlainText() {
+        // No spaces, so that every character has exactly one glyph
+        final String string = "Averylongwordwithoutanyspacesthatwrapsanywhere";
+        final LayoutText<BitmapFont> plain = new LayoutText<>();
+        plain.init(font, 0f);
+        plain.setText(string);
+        final LayoutText<BitmapFont> rainbow = new LayoutText<>();
+        rainbow.init(font, 0f);
+        rainbow.setText(string);
+        for (int i = 0; i < string.length(); i++) {
+            rainbow.addRegion(i, font, i % 3);
+        }
+
+        final GlyphLayout<BitmapFont> expected = font.createGlyphLayout();
+        final GlyphLayout<BitmapFont> actual = font.createGlyphLayout();
+        for (float availableWidth : new float[]{0f, 100f, 400f}) {
+            expected.layoutText(plain, availableWidth, 0f, Align.left, null);
+            actual.layoutText(rainbow, availableWidth, 0f, Align.left, null);
+
+            final String message = "width " + availableWidth;
+            assertEquals(expected.getLineCount(), actual.getLineCount(), message);
+            final Array<GlyphRun<BitmapFont>> expectedRuns = expected.getRuns();
+            final Array<GlyphRun<BitmapFont>> actualRuns = actual.getRuns();
+            assertEquals(expectedRuns.size, actualRuns.size, message);
+
+            int character = 0;
+            for (int r = 0; r < actualRuns.size; r++) {
+                final GlyphRun<BitmapFont> e = expectedRuns.get(r);
+                final GlyphRun<BitmapFont> a = actualRuns.get(r);
+                final String runMessage = message + ", run " + r;
+                assertNull(e.glyphColors, runMessage);
+                assertEquals(rainbow.colorAt(a.charactersStart), a.color, runMessage);
+                assertArrayEquals(e.glyphX.toArray(), a.glyphX.toArray(), runMessage);
+                assertArrayEquals(e.glyphs.toArray(), a.glyphs.toArray(), runMessage);
+                for (int i = 0; i < a.glyphs.size; i++) {
+                    assertEquals(rainbow.colorAt(character++), a.getGlyphColor(i), runMessage + ", glyph " + i);
+                }
+            }
+            assertEquals(string.length(), character, message);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFont;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.FloatArray;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that {@link HBFont#prepareGlyphs(GlyphLayout)} only renders the glyphs of the prepared layout
+ * and does not change the metrics, which layouts already use. Packing glyphs into pages needs textures,
+ * so this runs only with GL.
+ */
+public class GlyphPreparationTests {
+
+    private static HBFontSystem fontSystem;
+
+    @BeforeAll
+    public static void setUp() {
+        fontSystem = NativeTestFixtures.createFontSystem();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (fontSystem != null) {
+            fontSystem.dispose();
+        }
+    }
+
+    @BeforeEach
+    public void assumeGl() {
+        NativeTestFixtures.assumeHarfBuzzNatives();
+        assumeTrue(Gdx.gl != null, "GL not available");
+    }
+
+    private static void glyphBounds(GlyphLayout<HBFont> layout, FloatArray out) {
+        out.clear();
+        for (GlyphRun<HBFont> run : layout.getRuns()) {
+            for (int i = 0; i < run.glyphs.size; i++) {
+                final HBFont.HBGlyph glyph = (HBFont.HBGlyph) run.glyphs.get(i);
+                out.add(glyph.xOffset);
+                out.add(glyph.yOffset);
+                out.add(glyph.width);
+                out.add(glyph.height);
+            }
+        }
+    }
+
+    private static void assertBoundsStable(HBFontSystem.FontParameters parameters) {
+        final HBFont font = fontSystem.createIncrementalFont(NativeTestFixtures.caladea("regular"), 23f, 1f, parameters);
+        try {
+            final LayoutText<HBFont> text = new LayoutText<>();
+            text.init(font, 0f);
+            text.setText("Lorem ipsum dolor sit amet, Příliš žluťoučký kůň; AVATAR (1234) fi ffl.");
+            final GlyphLayout<HBFont> layout = font.createGlyphLayout();
+            layout.layoutText(text, 0f, 0f, Align.left, null);
+
+            final FloatArray before = new FloatArray();
+            glyphBounds(layout, before);
+            assertTrue(before.size > 0);
+            layout.prepareGlyphs();
+            final FloatArray after = new FloatArray();
+            glyphBounds(layout, after);
+            assertArrayEquals(before.toArray(), after.toArray());
+
+            // Glyphs of a new layout are the same ones
+            layout.layoutText(text, 0f, 0f, Align.left, null);
+            glyphBounds(layout, after);
+            assertArrayEquals(before.toArray(), after.toArray());
+        } finally {
+            font.dispose();
+        }
+    }
+
+    @Test
+    public void boundsDoNotChangeWhenPrepared() {
+        assertBoundsStable(new HBFontSystem.FontParameters());
+    }
+
+    @Test
+    public void onlyGlyphsOfPreparedLayoutAreRendered() {
+        final HBFont font = fontSystem.createIncrementalFont(NativeTestFixtures.caladea("regular"), 23f, 1f,
+                new HBFontSystem.FontParameters());
+        try {
+            final LayoutText<HBFont> text = new LayoutText<>();
+            text.init(font, 0f);
+            text.setText("abc");
+            final GlyphLayout<HBFont> drawn = font.createGlyphLayout();
+            drawn.layoutText(text, 0f, 0f, Align.left, null);
+            text.setText("xyz");
+            final GlyphLayout<HBFont> measured = font.createGlyphLayout();
+            measured.layoutText(text, 0f, 0f, Align.left, null);
+
+            drawn.prepareGlyphs();
+            for (GlyphRun<HBFont> run : drawn.getRuns()) {
+                for (int i = 0; i < run.glyphs.size; i++) {
+                    assertNotEquals(-1, run.glyphs.get(i).page);
+                }
+            }
+            for (GlyphRun<HBFont> run : measured.getRuns()) {
+                for (int i = 0; i < run.glyphs.size; i++) {
+                    assertEquals(-1, run.glyphs.get(i).page);
+                }
+            }
+            drawn.clear();
+            measured.clear();
+        } finally {
+            font.dispose();
+        }
+    }
+
+    @Test
+    public void boundsWithBorderAndShadowDoNotChangeWhenPrepared() {
+        final HBFontSystem.FontParameters parameters = new HBFontSystem.FontParameters();
+        parameters.borderWidth = 1.5f;
+        parameters.borderColor = Color.RED;
+        parameters.shadowOffsetX = 2;
+        parameters.shadowOffsetY = -1;
+        assertBoundsStable(parameters);
+    }
+}
@@ -0,0 +1,99 @@
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.StringBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Layout of texts with millions of characters and more than 32K runs.
+ */
+public class LargeLayoutTests {
+
+    private static BitmapFont regular, bold;
+
+    @BeforeAll
+    public static void setUp() {
+        regular = LayoutTestFixtures.loadFont("regular");
+        bold = LayoutTestFixtures.loadFont("bold");
+    }
+
+    /** Log-like text with a bold region on each line, so that there are many runs. */
+    private static LayoutText<BitmapFont> createLog(int lines) {
+        final StringBuilder sb = new StringBuilder();
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(regular, 0f);
+        final IntArray boldStarts = new IntArray();
+        for (int i = 0; i < lines; i++) {
+            sb.append("[").append(i).append("] ");
+            boldStarts.add(sb.length);
+            sb.append("INFO");
+            boldStarts.add(sb.length);
+            sb.append(" Message number ").append(i).append(" of the log, which is long enough to be wrapped sometimes\n");
+        }
+        text.setText(sb);
+        for (int i = 0; i < boldStarts.size; i += 2) {
+            text.addRegion(boldStarts.get(i), bold, 0f);
+            text.addRegion(boldStarts.get(i + 1), regular, 0f);
+        }
+        return text;
+    }
+
+    private static void checkLayout(LayoutText<BitmapFont> text, GlyphLayout<BitmapFont> layout) {
+        final Array<GlyphRun<BitmapFont>> runs = layout.getRuns();
+        assertTrue(runs.size > 0x8000, "More than 32K runs");
+        final GlyphRun<BitmapFont> lastRun = runs.peek();
+        assertEquals(text.length(), lastRun.charactersEnd);
+
+        // Each run is found through its characters, even far beyond 64K
+        for (int r = 0; r < runs.size; r += 101) {
+            final GlyphRun<BitmapFont> run = runs.get(r);
+            if (run.charactersStart == run.charactersEnd || run.glyphs.size == 0) {
+                continue;
+            }
+            final Rectangle caret = layout.getCaretPosition(run.charactersStart);
+            assertEquals(-layout.getLineBottom(run.line), caret.y, "Caret of run " + r);
+
+            final float x = caret.x + (run.isLtr() ? 1f : -1f);
+            final int index = layout.getIndexAt(x, caret.y + caret.height * 0.5f, false);
+            assertTrue(index >= run.charactersStart && index < run.charactersEnd,
+                    "Index " + index + " in run " + r + " [" + run.charactersStart + ", " + run.charactersEnd + ")");
+        }
+
+        assertEquals(-layout.getHeight(), layout.getCaretPosition(text.length()).y);
+    }
+
+    @Test
+    public void multiMegabyteText() {
+        final LayoutText<BitmapFont> text = createLog(40000);
+        assertTrue(text.length() > 3_000_000);
+
+        final GlyphLayout<BitmapFont> layout = regular.createGlyphLayout();
+        layout.layoutText(text, 2000f, 0f, Align.left, null);
+        checkLayout(text, layout);
+
+        layout.layoutText(text, 0f, 0f, Align.right, null);
+        checkLayout(text, layout);
+    }
+
+    @Test
+    public void multiMegabyteSelection() {
+        final LayoutText<BitmapFont> text = createLog(20000);
+        final GlyphLayout<BitmapFont> layout = regular.createGlyphLayout();
+        layout.layoutText(text, 1500f, 0f, Align.left, null);
+
+        final int from = text.length() - 5000;
+        final int to = text.length() - 10;
+        final float firstY = layout.getCaretPosition(from).y;
+        final Array<Rectangle> rectangles = layout.getSelectionRectangles(from, to);
+        assertTrue(rectangles.size > 10);
+        assertEquals(firstY, rectangles.first().y);
+    }
+}
@@ -0,0 +1,104 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of hit-testing, caret and selection queries of {@link GlyphLayout}.
+ */
+public class LayoutQueryTests {
+
+    private static BitmapFont font;
+
+    @BeforeAll
+    public static void setUp() {
+        font = new BitmapFont("regular", null);
+        font.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-regular64.fnt"), 1f);
+    }
+
+    private static GlyphLayout<BitmapFont> layout(String string, float availableWidth, int align) {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText(string);
+        final GlyphLayout<BitmapFont> layout = font.createGlyphLayout();
+        layout.layoutText(text, availableWidth, 0f, align, null);
+        return layout;
+    }
+
+    @Test
+    public void indexAtCaret() {
+        final String string = "Lorem ipsum dolor sit amet,\nconsectetur adipiscing elit.\n\nVivamus vel\tmauris";
+        for (int align : new int[]{Align.left, Align.center, Align.right}) {
+            final GlyphLayout<BitmapFont> layout = layout(string, 300f, align);
+            assertTrue(layout.getLineCount() > 4, "Text is wrapped");
+            for (int i = 0; i < string.length(); i++) {
+                if (string.charAt(i) == '\n') {
+                    continue;
+                }
+                final Rectangle caret = layout.getCaretPosition(i);
+                final Rectangle nextCaret = new Rectangle(layout.getCaretPosition(i + 1));
+                if (nextCaret.y != caret.y || nextCaret.x <= caret.x) {
+                    // Last character on line
+                    continue;
+                }
+                final float x = caret.x + (nextCaret.x - caret.x) * 0.25f;
+                final float y = caret.y + caret.height * 0.5f;
+                assertEquals(i, layout.getIndexAt(x, y, false), "Index of " + i + " at " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    public void selectionRectangles() {
+        final GlyphLayout<BitmapFont> layout = layout("Lorem ipsum dolor\nsit amet", 0f, Align.left);
+        assertEquals(0, layout.getSelectionRectangles(3, 3).size);
+
+        // Single line
+        final Rectangle start = new Rectangle(layout.getCaretPosition(1));
+        final Rectangle end = new Rectangle(layout.getCaretPosition(9));
+        Array<Rectangle> rectangles = layout.getSelectionRectangles(9, 1);
+        assertEquals(1, rectangles.size);
+        assertEquals(new Rectangle(start.x, start.y, end.x - start.x, start.height), rectangles.first());
+
+        // Across lines, linebreak itself has no width
+        final Rectangle secondLine = new Rectangle(layout.getCaretPosition(21));
+        final float selectionStartX = layout.getCaretPosition(6).x;
+        rectangles = layout.getSelectionRectangles(6, 21);
+        assertEquals(2, rectangles.size);
+        assertEquals(selectionStartX, rectangles.get(0).x);
+        assertEquals(rectangles.get(0).y, start.y);
+        assertEquals(new Rectangle(0f, secondLine.y, secondLine.x, secondLine.height), rectangles.get(1));
+    }
+
+    @Test
+    public void selectionOfWrappedText() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("word ").append(i).append(i % 7 == 0 ? '\n' : ' ');
+        }
+        final String string = sb.toString();
+        final GlyphLayout<BitmapFont> layout = layout(string, 700f, Align.center);
+        final int from = string.indexOf("word 1000");
+        final int to = string.indexOf("word 1100");
+        final float firstY = layout.getCaretPosition(from).y;
+        final float lastY = layout.getCaretPosition(to - 1).y;
+        // Rectangles are valid only until the next query
+        final Array<Rectangle> rectangles = layout.getSelectionRectangles(from, to);
+
+        assertEquals(firstY, rectangles.first().y);
+        assertEquals(lastY, rectangles.peek().y);
+        float previousY = Float.POSITIVE_INFINITY;
+        for (Rectangle rectangle : rectangles) {
+            assertTrue(rectangle.y < previousY, "One rectangle per line");
+            assertTrue(rectangle.width > 0f);
+            previousY = rectangle.y;
+        }
+    }
+}
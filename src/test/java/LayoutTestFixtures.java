@@ -0,0 +1,53 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import java.util.Random;
+
+/**
+ * Fonts and texts shared by layout tests.
+ */
+final class LayoutTestFixtures {
+
+    private LayoutTestFixtures() {
+    }
+
+    /** @param name style of the test font, "regular" or "bold" */
+    static BitmapFont loadFont(String name) {
+        final BitmapFont font = new BitmapFont(name, null);
+        font.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-" + name + "64.fnt"), 1f);
+        return font;
+    }
+
+    static final String[] WORDS = {"lorem", "ipsum", "dolor", "sit", "amet,", "consectetur", "adipiscing",
+            "elit.", "Vivamus\tvel", "טֶקסט", "מילים", "(1234)", "a", "Supercalifragilisticexpialidocious"};
+
+    /** Random paragraphs of {@link #WORDS} with different line endings, in regions of random font and color.
+     * @param length minimum length of the text
+     * @param paragraphWords paragraphs have less than this many words */
+    static LayoutText<BitmapFont> createText(long seed, int length, int paragraphWords, BitmapFont regular, BitmapFont bold) {
+        final Random random = new Random(seed);
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length < length) {
+            final int words = random.nextInt(paragraphWords);
+            for (int i = 0; i < words; i++) {
+                if (i != 0) sb.append(' ');
+                sb.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            switch (random.nextInt(4)) {
+                case 0: sb.append("\r\n"); break;
+                case 1: sb.append("\n\n"); break;
+                default: sb.append('\n');
+            }
+        }
+
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(regular, 0f);
+        text.setText(sb);
+        for (int i = random.nextInt(200); i < sb.length; i += 1 + random.nextInt(400)) {
+            text.addRegion(i, random.nextBoolean() ? regular : bold, random.nextInt(4));
+        }
+        return text;
+    }
+}
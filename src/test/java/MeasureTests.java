@@ -0,0 +1,93 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.TextMeasurement;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.utils.Align;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link GlyphLayout#measure(LayoutText, float, TextMeasurement)}, which must agree with the full layout.
+ */
+public class MeasureTests {
+
+    private static BitmapFont font;
+    private static BitmapFont bigFont;
+
+    @BeforeAll
+    public static void setUp() {
+        font = new BitmapFont("regular", null);
+        font.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-regular64.fnt"), 1f);
+        bigFont = new BitmapFont("bold", null);
+        bigFont.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-bold64.fnt"), 1.5f);
+    }
+
+    private static final String[] TEXTS = {
+            "",
+            "Lorem",
+            "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt",
+            "Lorem ipsum dolor sit amet,\nconsectetur adipiscing elit.\n\nVivamus vel\tmauris",
+            "Trailing newline\n",
+            "Collapsed spaces          \nafter wrap",
+            "Collapsed spaces at the end          ",
+            "Supercalifragilisticexpialidocious antidisestablishmentarianism",
+            "\tTab\tstops\tat the\tstart",
+    };
+
+    private static void assertMeasureMatchesLayout(LayoutText<BitmapFont> text, float availableWidth) {
+        final GlyphLayout<BitmapFont> layout = font.createGlyphLayout();
+        layout.layoutText(text, availableWidth, 0f, Align.left, null);
+        final int runCount = layout.getRuns().size;
+
+        final TextMeasurement measurement = layout.measure(text, availableWidth, null);
+        final String message = "\"" + text + "\" in " + availableWidth + ": " + measurement;
+        assertEquals(layout.getLineCount(), measurement.lineCount, message);
+        assertEquals(layout.getHeight(), measurement.height, 0.001f, message);
+        assertEquals(layout.getWidth(), measurement.width, 8f, message);
+        assertEquals(runCount, layout.getRuns().size, "Layout is not modified");
+    }
+
+    @Test
+    public void measureMatchesLayout() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        for (Locale locale : new Locale[]{null, Locale.ENGLISH}) {
+            for (String string : TEXTS) {
+                text.init(font, 0f);
+                text.setLocale(locale);
+                text.setText(string);
+                for (float availableWidth : new float[]{0f, 50f, 200f, 333f, 500f, 1000f}) {
+                    assertMeasureMatchesLayout(text, availableWidth);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mixedFonts() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText("Small text, then BIG TEXT, then small text again.\nOnly small.");
+        text.addRegion(17, bigFont, 0f);
+        text.addRegion(26, font, 0f);
+        for (float availableWidth : new float[]{0f, 150f, 400f, 800f}) {
+            assertMeasureMatchesLayout(text, availableWidth);
+        }
+    }
+
+    @Test
+    public void resultIsReused() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText("Lorem ipsum\ndolor");
+        final TextMeasurement measurement = new TextMeasurement();
+        assertSame(measurement, font.createGlyphLayout().measure(text, 0f, measurement));
+        assertEquals(2, measurement.lineCount);
+        assertEquals(2 * font.lineHeight, measurement.height, 0.001f);
+        assertTrue(measurement.width > 0f);
+    }
+}
@@ -0,0 +1,125 @@
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.PreparedText;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFont;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that HarfBuzz layout without height limits, whose line breaks are chosen from measured advances,
+ * wraps the same way as the layout with a height limit, which wraps runs as they overflow,
+ * and that {@link PreparedText} is laid out the same way as the text it was prepared from.
+ * Skipped when natives are not available.
+ */
+public class MeasuredLineBreakTests {
+
+    private static HBFontSystem fontSystem;
+    private static HBFont font;
+
+    @BeforeAll
+    public static void setUp() {
+        fontSystem = NativeTestFixtures.createFontSystem();
+        if (fontSystem != null) {
+            font = fontSystem.createIncrementalFont(NativeTestFixtures.caladea("regular"), 20f, 1f, new HBFontSystem.FontParameters());
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (font != null) {
+            font.dispose();
+        }
+        if (fontSystem != null) {
+            fontSystem.dispose();
+        }
+    }
+
+    @BeforeEach
+    public void assumeNatives() {
+        NativeTestFixtures.assumeHarfBuzzNatives();
+    }
+
+    private static final String[] TEXTS = {
+            "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Vivamus vel mauris quis nisl ultrices efficitur.",
+            "Ligatures: office affluent ffi fl. Kerning: AVAVA To Te Wa LT r, fo y.",
+            "Příliš žluťoučký kůň úpěl ďábelské ódy.\nVoix ambiguë d'un cœur qui préfère les jattes de kiwis.\n",
+            "Trailing spaces        \n\nand empty lines    ",
+            "Averylongwordwithoutanyspacesthatdoesnotfitonanysinglelineatall",
+    };
+
+    @Test
+    public void measuredLineBreaksMatchWrapping() {
+        final LayoutText<HBFont> text = new LayoutText<>();
+        final GlyphLayout<HBFont> expected = font.createGlyphLayout();
+        final GlyphLayout<HBFont> actual = font.createGlyphLayout();
+        for (String string : TEXTS) {
+            text.init(font, 0f);
+            text.setText(string);
+            for (float availableWidth : new float[]{30f, 100f, 250f}) {
+                // Any height limit disables the measured line breaking
+                expected.layoutText(text, availableWidth, 1_000_000f, Align.left, "...");
+                actual.layoutText(text, availableWidth, 0f, Align.left, "...");
+
+                final String message = "\"" + string + "\" in " + availableWidth;
+                assertEquals(expected.getWidth(), actual.getWidth(), 0.001f, message);
+                assertEquals(expected.getHeight(), actual.getHeight(), message);
+                assertEquals(expected.getLineCount(), actual.getLineCount(), message);
+                final Array<GlyphRun<HBFont>> expectedRuns = expected.getRuns();
+                final Array<GlyphRun<HBFont>> actualRuns = actual.getRuns();
+                for (int i = 0; i <= string.length(); i++) {
+                    // Runs split after wrapping have their positions shifted, which may round differently
+                    final Rectangle expectedCaret = expected.getCaretPosition(i);
+                    final Rectangle actualCaret = actual.getCaretPosition(i);
+                    assertEquals(expectedCaret.x, actualCaret.x, 0.001f, message + ", caret " + i);
+                    assertEquals(expectedCaret.y, actualCaret.y, message + ", caret " + i);
+                    assertEquals(expectedCaret.height, actualCaret.height, message + ", caret " + i);
+                }
+                int expectedGlyphs = 0;
+                int actualGlyphs = 0;
+                for (GlyphRun<HBFont> run : expectedRuns) {
+                    expectedGlyphs += run.glyphs.size;
+                }
+                for (GlyphRun<HBFont> run : actualRuns) {
+                    actualGlyphs += run.glyphs.size;
+                }
+                assertEquals(expectedGlyphs, actualGlyphs, message);
+            }
+        }
+    }
+
+    @Test
+    public void preparedTextMatchesLayout() {
+        final LayoutText<HBFont> text = new LayoutText<>();
+        final GlyphLayout<HBFont> expected = font.createGlyphLayout();
+        final GlyphLayout<HBFont> actual = font.createGlyphLayout();
+        for (String string : TEXTS) {
+            text.init(font, 0f);
+            text.setText(string);
+            final PreparedText<HBFont> prepared = PreparedText.prepare(text);
+            for (float availableWidth : new float[]{0f, 30f, 250f}) {
+                for (float availableHeight : new float[]{0f, -2f}) {
+                    expected.layoutText(text, availableWidth, availableHeight, Align.left, "...");
+                    actual.layoutText(prepared, availableWidth, availableHeight, Align.left, "...");
+
+                    final String message = "\"" + string + "\" in " + availableWidth + " x " + availableHeight;
+                    assertEquals(expected.getWidth(), actual.getWidth(), message);
+                    assertEquals(expected.getHeight(), actual.getHeight(), message);
+                    assertEquals(expected.getRuns().size, actual.getRuns().size, message);
+                    for (int i = 0; i <= string.length(); i++) {
+                        assertEquals(expected.getCaretPosition(i), actual.getCaretPosition(i), message + ", caret " + i);
+                    }
+                }
+            }
+            prepared.dispose();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.graphics.text.harfbuzz.HarfBuzz;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.SharedLibraryLoader;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Native libraries and fonts shared by tests which need natives.
+ * Tests are skipped when the natives can't be loaded, but not when something fails after loading them.
+ */
+final class NativeTestFixtures {
+
+    private NativeTestFixtures() {
+    }
+
+    private static boolean gdxLoaded, gdxAvailable;
+    private static boolean harfBuzzLoaded, harfBuzzAvailable;
+
+    /** @return true if natives of libGDX and its FreeType extension are loaded */
+    static synchronized boolean loadGdxNatives() {
+        if (!gdxLoaded) {
+            gdxLoaded = true;
+            try {
+                GdxNativesLoader.load();
+                new SharedLibraryLoader().load("gdx-freetype");
+                gdxAvailable = true;
+            } catch (GdxRuntimeException | UnsatisfiedLinkError e) {
+                // Not available on this platform or not on the classpath
+            }
+        }
+        return gdxAvailable;
+    }
+
+    /** @return true if {@link #loadGdxNatives()} and natives of HarfBuzz are loaded */
+    static synchronized boolean loadHarfBuzzNatives() {
+        if (!harfBuzzLoaded) {
+            harfBuzzLoaded = true;
+            if (loadGdxNatives()) {
+                try {
+                    HarfBuzz.initialize();
+                    harfBuzzAvailable = true;
+                } catch (GdxRuntimeException | UnsatisfiedLinkError e) {
+                    // Not available on this platform or not on the classpath
+                }
+            }
+        }
+        return harfBuzzAvailable;
+    }
+
+    /** Skip the current test when {@link #loadGdxNatives()} fails. */
+    static void assumeGdxNatives() {
+        assumeTrue(loadGdxNatives(), "Natives not available");
+    }
+
+    /** Skip the current test when {@link #loadHarfBuzzNatives()} fails. */
+    static void assumeHarfBuzzNatives() {
+        assumeTrue(loadHarfBuzzNatives(), "HarfBuzz natives not available");
+    }
+
+    /** @return new font system, or null when HarfBuzz natives are not available */
+    static HBFontSystem createFontSystem() {
+        return loadHarfBuzzNatives() ? new HBFontSystem() : null;
+    }
+
+    /** @param style of the test font, for example "regular" or "bold" */
+    static FileHandle caladea(String style) {
+        return new FileHandle("test-fonts/caladea/caladea-" + style + ".ttf");
+    }
+}
@@ -0,0 +1,79 @@
+import com.badlogic.gdx.graphics.text.Glyph;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.PackedGlyphLayout;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link PackedGlyphLayout} contains the same glyphs as the {@link GlyphLayout} it was packed from.
+ */
+public class PackedLayoutTests {
+
+    private static BitmapFont regular, bold;
+
+    @BeforeAll
+    public static void setUp() {
+        regular = LayoutTestFixtures.loadFont("regular");
+        bold = LayoutTestFixtures.loadFont("bold");
+    }
+
+    @Test
+    public void sameGlyphs() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(regular, 0f);
+        text.setText("Lorem ipsum dolor sit amet, (טֶקסט מילים) consectetur\tadipiscing elit.\nVivamus vel mauris");
+        text.addRegion(6, bold, 0f);
+        text.addRegion(12, regular, 0f);
+        text.addRegion(18, regular, 1f);
+
+        final GlyphLayout<BitmapFont> layout = regular.createGlyphLayout();
+        layout.layoutText(text, 700f, 0f, Align.center, null);
+
+        final PackedGlyphLayout<BitmapFont> packed = new PackedGlyphLayout<>();
+        packed.set(layout);
+        assertEquals(layout.getWidth(), packed.getWidth());
+        assertEquals(layout.getHeight(), packed.getHeight());
+
+        // Runs with the same font, color and direction are merged
+        final Array<GlyphRun<BitmapFont>> runs = layout.getRuns();
+        assertTrue(packed.getRunCount() < runs.size);
+        assertEquals(0, packed.getRunGlyphStart(0));
+        assertEquals(packed.getGlyphCount(), packed.getRunGlyphEnd(packed.getRunCount() - 1));
+
+        int g = 0;
+        int packedRun = 0;
+        for (GlyphRun<BitmapFont> run : runs) {
+            for (int i = 0; i < run.glyphs.size; i++) {
+                final Glyph glyph = run.glyphs.get(i);
+                if (glyph.page == -1) {
+                    continue;
+                }
+                while (g >= packed.getRunGlyphEnd(packedRun)) {
+                    packedRun++;
+                }
+                assertSame(glyph, packed.getGlyph(g));
+                assertEquals(run.x + run.glyphX.get(i), packed.getGlyphX(g));
+                assertEquals(run.y + run.glyphY.get(i), packed.getGlyphY(g));
+                assertSame(run.font, packed.getRunFont(packedRun));
+                assertEquals(run.getGlyphColor(i), packed.getRunColor(packedRun));
+                assertEquals(!run.isLtr(), packed.isRunFlipMirrored(packedRun));
+                g++;
+            }
+        }
+        assertEquals(g, packed.getGlyphCount());
+
+        // Packed glyphs are independent of the layout
+        layout.clear();
+        assertEquals(g, packed.getGlyphCount());
+        packed.clear();
+        assertEquals(0, packed.getGlyphCount());
+        assertEquals(0, packed.getRunCount());
+    }
+}
@@ -0,0 +1,94 @@
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link GlyphLayout#layoutTextParallel} gives the same results as {@link GlyphLayout#layoutText}.
+ */
+public class ParallelLayoutTests {
+
+    private static BitmapFont regular, bold;
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    public static void setUp() {
+        regular = LayoutTestFixtures.loadFont("regular");
+        bold = LayoutTestFixtures.loadFont("bold");
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    private static LayoutText<BitmapFont> createText(long seed, int length) {
+        return LayoutTestFixtures.createText(seed, length, 120, regular, bold);
+    }
+
+    private static void assertSameLayout(GlyphLayout<BitmapFont> expected, GlyphLayout<BitmapFont> actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getLineCount(), actual.getLineCount());
+        final Array<GlyphRun<BitmapFont>> expectedRuns = expected.getRuns();
+        final Array<GlyphRun<BitmapFont>> actualRuns = actual.getRuns();
+        assertEquals(expectedRuns.size, actualRuns.size);
+        for (int i = 0; i < expectedRuns.size; i++) {
+            final GlyphRun<BitmapFont> e = expectedRuns.get(i);
+            final GlyphRun<BitmapFont> a = actualRuns.get(i);
+            final String message = "Run " + i;
+            assertEquals(e.charactersStart, a.charactersStart, message);
+            assertEquals(e.charactersEnd, a.charactersEnd, message);
+            assertEquals(e.line, a.line, message);
+            assertEquals(e.x, a.x, message);
+            assertEquals(e.y, a.y, message);
+            assertEquals(e.width, a.width, message);
+            assertEquals(e.font, a.font, message);
+            assertEquals(e.color, a.color, message);
+            assertEquals(e.characterFlags, a.characterFlags, message);
+            assertArrayEquals(e.glyphs.toArray(), a.glyphs.toArray(), message);
+            assertArrayEquals(e.glyphX.toArray(), a.glyphX.toArray(), message);
+            assertArrayEquals(e.glyphY.toArray(), a.glyphY.toArray(), message);
+            assertArrayEquals(e.characterPositions.toArray(), a.characterPositions.toArray(), message);
+        }
+    }
+
+    private static void testLayout(long seed, int length, float availableWidth, int align) {
+        final LayoutText<BitmapFont> text = createText(seed, length);
+
+        final GlyphLayout<BitmapFont> sequential = regular.createGlyphLayout();
+        sequential.layoutText(text, availableWidth, 0f, align, null);
+        final GlyphLayout<BitmapFont> parallel = regular.createGlyphLayout();
+        parallel.layoutTextParallel(text, availableWidth, 0f, align, null, pool);
+
+        assertSameLayout(sequential, parallel);
+        for (int i = 0; i <= text.length(); i += 97) {
+            final Rectangle expectedCaret = new Rectangle(sequential.getCaretPosition(i));
+            assertEquals(expectedCaret, parallel.getCaretPosition(i), "Caret at " + i);
+        }
+    }
+
+    @Test
+    public void sameAsSequential() {
+        testLayout(1, 30000, 800f, Align.left);
+        testLayout(2, 30000, 0f, Align.left);
+        testLayout(3, 40000, 1500f, Align.center);
+        testLayout(4, 20000, 300f, Align.right);
+    }
+
+    @Test
+    public void smallTextFallsBack() {
+        testLayout(5, 100, 500f, Align.left);
+    }
+}
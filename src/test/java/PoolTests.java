@@ -0,0 +1,115 @@
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.graphics.text.util.InstrumentedPool;
+import com.badlogic.gdx.graphics.text.util.PerThreadPool;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link InstrumentedPool} and {@link PerThreadPool}.
+ */
+public class PoolTests {
+
+    private static PerThreadPool<StringBuilder> createPool(String name, int maxFree) {
+        return new PerThreadPool<StringBuilder>(name, 4, maxFree) {
+            @Override
+            protected StringBuilder newObject() {
+                return new StringBuilder();
+            }
+
+            @Override
+            protected void reset(StringBuilder object) {
+                object.setLength(0);
+            }
+        };
+    }
+
+    @Test
+    public void statistics() {
+        final InstrumentedPool<StringBuilder> pool = createPool("statistics", 3).get();
+
+        final Array<StringBuilder> objects = new Array<>();
+        for (int i = 0; i < 5; i++) {
+            objects.add(pool.obtain().append(i));
+        }
+        assertEquals(5, pool.getObtainCount());
+        assertEquals(5, pool.getAllocationCount());
+
+        pool.freeAll(objects);
+        assertEquals(5, pool.getFreeCount());
+        assertEquals(2, pool.getDiscardCount());
+        assertEquals(3, pool.getFree());
+        assertEquals(3, pool.peak);
+        assertEquals(0, objects.get(4).length(), "Discarded objects are reset too");
+
+        pool.obtain();
+        assertEquals(6, pool.getObtainCount());
+        assertEquals(5, pool.getAllocationCount());
+
+        pool.resetStatistics();
+        assertEquals(0, pool.getObtainCount());
+        assertEquals(2, pool.peak);
+    }
+
+    @Test
+    public void capsAndTrim() {
+        final PerThreadPool<StringBuilder> perThreadPool = createPool("capsAndTrim", 100);
+        final InstrumentedPool<StringBuilder> pool = perThreadPool.get();
+        final Array<StringBuilder> objects = new Array<>();
+        for (int i = 0; i < 50; i++) {
+            objects.add(pool.obtain());
+        }
+        pool.freeAll(objects);
+        assertEquals(50, pool.getFree());
+
+        // Owner thread trims immediately
+        perThreadPool.setMaxFree(20);
+        assertEquals(20, pool.getFree());
+        assertEquals(20, pool.getMaxFree());
+        PerThreadPool.trimAll(5);
+        assertEquals(5, pool.getFree());
+    }
+
+    @Test
+    public void perThread() throws InterruptedException {
+        final PerThreadPool<StringBuilder> perThreadPool = createPool("perThread", 10);
+        assertSame(perThreadPool, PerThreadPool.find("perThread"));
+        assertSame(perThreadPool.get(), perThreadPool.get());
+
+        final StringBuilder[] fromOtherThread = new StringBuilder[1];
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final InstrumentedPool<StringBuilder> pool = perThreadPool.get();
+                fromOtherThread[0] = pool.obtain();
+                pool.free(pool.obtain());
+            }
+        });
+        thread.start();
+        thread.join();
+
+        final Array<InstrumentedPool<StringBuilder>> pools = perThreadPool.getPools();
+        assertEquals(2, pools.size);
+
+        // Pools of other threads are trimmed on their next use
+        final InstrumentedPool<StringBuilder> otherPool = pools.get(0).owner == thread ? pools.get(0) : pools.get(1);
+        assertSame(thread, otherPool.owner);
+        assertEquals(1, otherPool.getFree());
+        otherPool.requestTrim(0);
+        assertEquals(1, otherPool.getFree());
+
+        // Object can be freed to a pool of a different thread
+        perThreadPool.get().free(fromOtherThread[0]);
+        assertEquals(1, perThreadPool.get().getFree());
+    }
+
+    @Test
+    public void glyphRunPoolIsRegistered() {
+        final GlyphRun<BitmapFont> run = GlyphRun.<BitmapFont>pool().obtain();
+        GlyphRun.<BitmapFont>pool().free(run);
+        assertNotNull(PerThreadPool.find("GlyphRun"));
+        assertTrue(((InstrumentedPool<?>) GlyphRun.pool()).getFreeCount() > 0);
+    }
+}
@@ -0,0 +1,182 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.text.Font;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.PreparedText;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFont;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that layout of {@link PreparedText} gives the same results as the layout of the text it was prepared from.
+ */
+public class PreparedTextTests {
+
+    private static BitmapFont font;
+    private static BitmapFont bigFont;
+
+    @BeforeAll
+    public static void setUp() {
+        font = new BitmapFont("regular", null);
+        font.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-regular64.fnt"), 1f);
+        bigFont = new BitmapFont("bold", null);
+        bigFont.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-bold64.fnt"), 1.5f);
+    }
+
+    private static <F extends Font<F>> void assertSameLayout(GlyphLayout<F> expected, GlyphLayout<F> actual, String message) {
+        assertEquals(expected.getWidth(), actual.getWidth(), message);
+        assertEquals(expected.getHeight(), actual.getHeight(), message);
+        assertEquals(expected.getLineCount(), actual.getLineCount(), message);
+        final Array<GlyphRun<F>> expectedRuns = expected.getRuns();
+        final Array<GlyphRun<F>> actualRuns = actual.getRuns();
+        assertEquals(expectedRuns.size, actualRuns.size, message);
+        for (int r = 0; r < expectedRuns.size; r++) {
+            final GlyphRun<F> e = expectedRuns.get(r);
+            final GlyphRun<F> a = actualRuns.get(r);
+            final String runMessage = message + ", run " + r;
+            assertEquals(e.x, a.x, runMessage);
+            assertEquals(e.y, a.y, runMessage);
+            assertEquals(e.width, a.width, runMessage);
+            assertEquals(e.line, a.line, runMessage);
+            assertSame(e.font, a.font, runMessage);
+            assertEquals(e.color, a.color, runMessage);
+            assertEquals(e.charactersStart, a.charactersStart, runMessage);
+            assertEquals(e.charactersEnd, a.charactersEnd, runMessage);
+            assertArrayEquals(e.glyphX.toArray(), a.glyphX.toArray(), runMessage);
+            assertArrayEquals(e.glyphs.toArray(), a.glyphs.toArray(), runMessage);
+        }
+    }
+
+    @Test
+    public void preparedTextMatchesLayout() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText("Lorem ipsum dolor sit amet,\nconsectetur\tadipiscing elit.\n\nVivamus vel mauris quis nisl ultrices efficitur.");
+        text.addRegion(12, bigFont, 1f);
+        text.addRegion(30, font, 2f);
+        final PreparedText<BitmapFont> prepared = PreparedText.prepare(text);
+
+        final GlyphLayout<BitmapFont> expected = font.createGlyphLayout();
+        final GlyphLayout<BitmapFont> actual = font.createGlyphLayout();
+        for (float availableWidth : new float[]{0f, 100f, 400f, 1000f}) {
+            for (float availableHeight : new float[]{0f, -2f, 300f}) {
+                for (int align : new int[]{Align.left, Align.center}) {
+                    expected.layoutText(text, availableWidth, availableHeight, align, "...");
+                    actual.layoutText(prepared, availableWidth, availableHeight, align, "...");
+                    assertSameLayout(expected, actual, availableWidth + " x " + availableHeight + ", align " + align);
+                }
+            }
+        }
+        prepared.dispose();
+    }
+
+    @Test
+    public void preparedTextIsCopied() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText("Prepared text");
+        final PreparedText<BitmapFont> prepared = PreparedText.prepare(text);
+        text.setText("Changed after preparation");
+
+        final GlyphLayout<BitmapFont> expected = font.createGlyphLayout();
+        final GlyphLayout<BitmapFont> actual = font.createGlyphLayout();
+        text.setText("Prepared text");
+        expected.layoutText(text, 0f, 0f, Align.left, null);
+        actual.layoutText(prepared, 0f, 0f, Align.left, null);
+        assertSameLayout(expected, actual, "copy");
+        assertEquals("Prepared text", prepared.getText().toString());
+        prepared.dispose();
+    }
+
+    @Test
+    public void emptyPreparedText() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText("");
+        final PreparedText<BitmapFont> prepared = PreparedText.prepare(text);
+        final GlyphLayout<BitmapFont> layout = font.createGlyphLayout();
+        layout.layoutText(prepared, 100f, 0f, Align.left, null);
+        assertEquals(1, layout.getLineCount());
+        assertEquals(font.lineHeight, layout.getHeight());
+        prepared.dispose();
+    }
+
+    /** Text is prepared on a worker thread, while the main thread lays out text of another font.
+     * Skipped when natives are not available. */
+    @Test
+    public void preparedOnWorkerThread() throws InterruptedException {
+        NativeTestFixtures.assumeHarfBuzzNatives();
+        final HBFontSystem fontSystem = new HBFontSystem();
+        final HBFontSystem.FontParameters parameters = new HBFontSystem.FontParameters();
+        final HBFont workerFont = fontSystem.createIncrementalFont(NativeTestFixtures.caladea("regular"), 20f, 1f, parameters);
+        final HBFont mainFont = fontSystem.createIncrementalFont(NativeTestFixtures.caladea("bold"), 20f, 1f, parameters);
+        // Different locales and scripts, so that both threads look up languages and scripts of HarfBuzz
+        final Locale[] locales = Locale.getAvailableLocales();
+        final String string = "Lorem ipsum dolor sit amet, Ωμέγα αβγ, Привет мир, שלום עולם.\nVivamus vel mauris 1234.";
+        final int count = 200;
+
+        final Array<PreparedText<HBFont>> prepared = new Array<>();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final LayoutText<HBFont> text = new LayoutText<>();
+                    for (int i = 0; i < count; i++) {
+                        text.init(workerFont, 0f);
+                        text.setText(string);
+                        text.setLocale(locales[i % locales.length]);
+                        prepared.add(PreparedText.prepare(text));
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        }, "PreparedTextTests worker");
+
+        try {
+            worker.start();
+            final LayoutText<HBFont> text = new LayoutText<>();
+            final GlyphLayout<HBFont> layout = mainFont.createGlyphLayout();
+            for (int i = 0; worker.isAlive(); i++) {
+                text.init(mainFont, 0f);
+                text.setText(string);
+                text.setLocale(locales[locales.length - 1 - i % locales.length]);
+                layout.layoutText(text, 200f, 0f, Align.left, null);
+            }
+            worker.join();
+            if (failure.get() != null) {
+                throw new AssertionError("Preparation failed", failure.get());
+            }
+            assertEquals(count, prepared.size);
+
+            final GlyphLayout<HBFont> expected = workerFont.createGlyphLayout();
+            for (int i = 0; i < count; i++) {
+                text.init(workerFont, 0f);
+                text.setText(string);
+                text.setLocale(locales[i % locales.length]);
+                expected.layoutText(text, 200f, 0f, Align.left, null);
+                layout.layoutText(prepared.get(i), 200f, 0f, Align.left, null);
+                assertSameLayout(expected, layout, "text " + i);
+            }
+        } finally {
+            worker.join();
+            for (PreparedText<HBFont> preparedText : prepared) {
+                preparedText.dispose();
+            }
+            workerFont.dispose();
+            mainFont.dispose();
+            fontSystem.dispose();
+        }
+    }
+}
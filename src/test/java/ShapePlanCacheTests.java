@@ -0,0 +1,98 @@
+import com.badlogic.gdx.graphics.text.FontFeatures;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.PreparedText;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFont;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
+import com.badlogic.gdx.graphics.text.util.TextMetricsHistogram;
+import com.badlogic.gdx.utils.Align;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link HBFont} creates one shape plan per segment properties and features, reuses it in later layouts,
+ * and destroys all of them when disposed.
+ * Skipped when natives are not available.
+ */
+public class ShapePlanCacheTests {
+
+    private static HBFontSystem fontSystem;
+
+    @BeforeAll
+    public static void setUp() {
+        fontSystem = NativeTestFixtures.createFontSystem();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (fontSystem != null) {
+            fontSystem.dispose();
+        }
+    }
+
+    @BeforeEach
+    public void assumeNatives() {
+        NativeTestFixtures.assumeHarfBuzzNatives();
+    }
+
+    @AfterEach
+    public void disableMetrics() {
+        TextMetrics.setListener(null);
+    }
+
+    private static LayoutText<HBFont> text(HBFont font, String string, FontFeatures features) {
+        final LayoutText<HBFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText(string);
+        if (features != null) {
+            text.addRegion(0, font, 0f, features);
+        }
+        return text;
+    }
+
+    @Test
+    public void plansAreReusedAndDestroyed() {
+        final HBFontSystem.FontParameters parameters = new HBFontSystem.FontParameters();
+        // All runs go through HarfBuzz
+        parameters.simpleShaping = false;
+        final HBFont font = fontSystem.createIncrementalFont(NativeTestFixtures.caladea("regular"), 20f, 1f, parameters);
+        final TextMetricsHistogram metrics = new TextMetricsHistogram();
+        TextMetrics.setListener(metrics);
+
+        final GlyphLayout<HBFont> layout = font.createGlyphLayout();
+        layout.layoutText(text(font, "Lorem ipsum dolor sit amet, fi ffl AVATAR", null), 0f, 0f, Align.left, null);
+        final long latinPlans = metrics.getFontCounter(font, TextMetrics.Counter.SHAPE_PLANS_CREATED);
+        assertEquals(1, latinPlans);
+
+        // Same segment properties and features, in a different text, wrapped, and through prepared text
+        layout.layoutText(text(font, "Příliš žluťoučký kůň úpěl ďábelské ódy.\nfi", null), 100f, 0f, Align.left, null);
+        final PreparedText<HBFont> prepared = PreparedText.prepare(text(font, "Lorem ipsum", null));
+        layout.layoutText(prepared, 0f, 0f, Align.left, "...");
+        prepared.dispose();
+        assertEquals(latinPlans, metrics.getFontCounter(font, TextMetrics.Counter.SHAPE_PLANS_CREATED));
+
+        // Another script
+        layout.layoutText(text(font, "Ωμέγα", null), 0f, 0f, Align.left, null);
+        final long greekPlans = metrics.getFontCounter(font, TextMetrics.Counter.SHAPE_PLANS_CREATED);
+        assertEquals(latinPlans + 1, greekPlans);
+        layout.layoutText(text(font, "Lorem Ωμέγα ipsum", null), 0f, 0f, Align.left, null);
+        assertEquals(greekPlans, metrics.getFontCounter(font, TextMetrics.Counter.SHAPE_PLANS_CREATED));
+
+        // Other features, equal ones share the plan
+        layout.layoutText(text(font, "fi ffl", FontFeatures.of("-liga")), 0f, 0f, Align.left, null);
+        final long featurePlans = metrics.getFontCounter(font, TextMetrics.Counter.SHAPE_PLANS_CREATED);
+        assertEquals(greekPlans + 1, featurePlans);
+        layout.layoutText(text(font, "Lorem ipsum", FontFeatures.of("-liga")), 0f, 0f, Align.left, null);
+        assertEquals(featurePlans, metrics.getFontCounter(font, TextMetrics.Counter.SHAPE_PLANS_CREATED));
+
+        layout.clear();
+        font.dispose();
+        assertEquals(featurePlans, metrics.getFontCounter(font, TextMetrics.Counter.SHAPE_PLANS_DESTROYED));
+    }
+}
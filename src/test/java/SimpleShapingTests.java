@@ -0,0 +1,291 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeType;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFont;
+import com.badlogic.gdx.graphics.text.harfbuzz.HBFontSystem;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
+import com.badlogic.gdx.graphics.text.util.TextMetricsHistogram;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests of {@link HBFontSystem.FontParameters#simpleShaping}, which must lay out exactly as HarfBuzz does.
+ * Uses a copy of a test font, stripped of OpenType layout tables and with a TrueType kern table instead,
+ * and the original font, whose GPOS kerning leaves only some runs to the simple shaper.
+ * Skipped when natives are not available.
+ */
+public class SimpleShapingTests {
+
+    private static HBFontSystem fontSystem;
+    private static final FileHandle originalFontFile = NativeTestFixtures.caladea("regular");
+    private static File fontFile;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        fontSystem = NativeTestFixtures.createFontSystem();
+        if (fontSystem == null) {
+            return;
+        }
+        fontFile = File.createTempFile("simple-shaping", ".ttf");
+        new FileHandle(fontFile).writeBytes(createSimpleFont(originalFontFile), false);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (fontSystem != null) {
+            fontSystem.dispose();
+        }
+        if (fontFile != null) {
+            assertTrue(fontFile.delete());
+        }
+    }
+
+    @BeforeEach
+    public void assumeNatives() {
+        NativeTestFixtures.assumeHarfBuzzNatives();
+    }
+
+    @AfterEach
+    public void disableMetrics() {
+        TextMetrics.setListener(null);
+    }
+
+    private static final String[] KERNED_PAIRS = {"AV", "VA", "To", "Te", "Wa", "LT", "r,", "fo", "y."};
+    private static final short[] KERNED_VALUES = {-121, -121, -83, -79, -61, -97, -51, 31, -45};
+
+    /** @return font data without GSUB, GPOS and GDEF, with kern table of {@link #KERNED_PAIRS} */
+    private static byte[] createSimpleFont(FileHandle file) throws IOException {
+        final ByteBuffer font = ByteBuffer.wrap(file.readBytes());
+
+        final FreeType.Library library = FreeType.initFreeType();
+        final TreeMap<Integer, Short> kerning = new TreeMap<>();
+        try {
+            final FreeType.Face face = library.newFace(file, 0);
+            for (int i = 0; i < KERNED_PAIRS.length; i++) {
+                final int left = face.getCharIndex(KERNED_PAIRS[i].charAt(0));
+                final int right = face.getCharIndex(KERNED_PAIRS[i].charAt(1));
+                assertTrue(left != 0 && right != 0);
+                kerning.put(left << 16 | right, KERNED_VALUES[i]);
+            }
+            face.dispose();
+        } finally {
+            library.dispose();
+        }
+
+        // Format 0 kern table
+        final ByteArrayOutputStream kernBytes = new ByteArrayOutputStream();
+        final DataOutputStream kern = new DataOutputStream(kernBytes);
+        final int pairs = kerning.size();
+        final int maxPowerOf2 = Integer.highestOneBit(pairs);
+        kern.writeShort(0); // version
+        kern.writeShort(1); // nTables
+        kern.writeShort(0); // subtable version
+        kern.writeShort(6 + 8 + pairs * 6); // length
+        kern.writeShort(0x0001); // coverage: horizontal, format 0
+        kern.writeShort(pairs);
+        kern.writeShort(maxPowerOf2 * 6);
+        kern.writeShort(Integer.numberOfTrailingZeros(maxPowerOf2));
+        kern.writeShort(pairs * 6 - maxPowerOf2 * 6);
+        for (Integer pair : kerning.keySet()) {
+            kern.writeInt(pair);
+            kern.writeShort(kerning.get(pair));
+        }
+
+        final TreeMap<String, byte[]> tables = new TreeMap<>();
+        final int numTables = font.getShort(4) & 0xFFFF;
+        for (int t = 0; t < numTables; t++) {
+            final int record = 12 + t * 16;
+            final String tag = new String(Arrays.copyOfRange(font.array(), record, record + 4), "ISO-8859-1");
+            if (tag.equals("GSUB") || tag.equals("GPOS") || tag.equals("GDEF") || tag.equals("kern")) {
+                continue;
+            }
+            final int offset = font.getInt(record + 8);
+            final int length = font.getInt(record + 12);
+            tables.put(tag, Arrays.copyOfRange(font.array(), offset, offset + length));
+        }
+        tables.put("kern", kernBytes.toByteArray());
+
+        // Write the font with sorted table directory
+        final ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(outBytes);
+        final int tableCount = tables.size();
+        final int maxTablePowerOf2 = Integer.highestOneBit(tableCount);
+        out.writeInt(font.getInt(0));
+        out.writeShort(tableCount);
+        out.writeShort(maxTablePowerOf2 * 16);
+        out.writeShort(Integer.numberOfTrailingZeros(maxTablePowerOf2));
+        out.writeShort(tableCount * 16 - maxTablePowerOf2 * 16);
+        int offset = 12 + tableCount * 16;
+        for (String tag : tables.keySet()) {
+            final byte[] data = tables.get(tag);
+            out.write(tag.getBytes("ISO-8859-1"));
+            out.writeInt(checksum(data));
+            out.writeInt(offset);
+            out.writeInt(data.length);
+            offset += (data.length + 3) & ~3;
+        }
+        for (byte[] data : tables.values()) {
+            out.write(data);
+            for (int pad = data.length; (pad & 3) != 0; pad++) {
+                out.writeByte(0);
+            }
+        }
+        return outBytes.toByteArray();
+    }
+
+    private static int checksum(byte[] data) {
+        int sum = 0;
+        for (int i = 0; i < data.length; i += 4) {
+            int word = 0;
+            for (int b = 0; b < 4; b++) {
+                word = (word << 8) | (i + b < data.length ? data[i + b] & 0xFF : 0);
+            }
+            sum += word;
+        }
+        return sum;
+    }
+
+    private static HBFont createFont(FileHandle file, float size, boolean simpleShaping, boolean kerning) {
+        final HBFontSystem.FontParameters parameters = new HBFontSystem.FontParameters();
+        parameters.simpleShaping = simpleShaping;
+        parameters.kerning = kerning;
+        return fontSystem.createIncrementalFont(file, size, 1f, parameters);
+    }
+
+    private static HBFont createFont(float size, boolean simpleShaping, boolean kerning) {
+        return createFont(new FileHandle(fontFile), size, simpleShaping, kerning);
+    }
+
+    private static final String[] TEXTS = {
+            "AVAVA To Te Wa LT r, fo y.",
+            "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Vivamus vel mauris quis nisl ultrices efficitur.",
+            "Příliš žluťoučký kůň úpěl ďábelské ódy.\nVoix ambiguë d'un cœur qui préfère les jattes de kiwis.",
+            "Mixed → with non-Latin Ωμέγα and arrows ← in between. AVATAR",
+            "Numbers 1234567890 and punctuation: (\"quoted\"), [brackets]; {braces}!",
+            "Soft\u00ADhyphen and combining e\u0301 marks",
+    };
+
+    private static void assertSameLayout(HBFont expectedFont, HBFont actualFont) {
+        final LayoutText<HBFont> text = new LayoutText<>();
+        final GlyphLayout<HBFont> expected = expectedFont.createGlyphLayout();
+        final GlyphLayout<HBFont> actual = actualFont.createGlyphLayout();
+        for (String string : TEXTS) {
+            for (float availableWidth : new float[]{0f, 100f, 300f}) {
+                text.init(expectedFont, 0f);
+                text.setText(string);
+                expected.layoutText(text, availableWidth, 0f, Align.left, "...");
+                text.init(actualFont, 0f);
+                text.setText(string);
+                actual.layoutText(text, availableWidth, 0f, Align.left, "...");
+
+                final String message = "\"" + string + "\" in " + availableWidth;
+                assertEquals(expected.getWidth(), actual.getWidth(), message);
+                assertEquals(expected.getHeight(), actual.getHeight(), message);
+                final Array<GlyphRun<HBFont>> expectedRuns = expected.getRuns();
+                final Array<GlyphRun<HBFont>> actualRuns = actual.getRuns();
+                assertEquals(expectedRuns.size, actualRuns.size, message);
+                for (int r = 0; r < expectedRuns.size; r++) {
+                    final GlyphRun<HBFont> e = expectedRuns.get(r);
+                    final GlyphRun<HBFont> a = actualRuns.get(r);
+                    final String runMessage = message + ", run " + r;
+                    assertEquals(e.x, a.x, runMessage);
+                    assertEquals(e.y, a.y, runMessage);
+                    assertEquals(e.width, a.width, runMessage);
+                    assertEquals(e.charactersStart, a.charactersStart, runMessage);
+                    assertEquals(e.charactersEnd, a.charactersEnd, runMessage);
+                    assertEquals(e.characterFlags, a.characterFlags, runMessage);
+                    assertArrayEquals(e.characterPositions.toArray(), a.characterPositions.toArray(), runMessage);
+                    assertArrayEquals(e.glyphX.toArray(), a.glyphX.toArray(), runMessage);
+                    assertArrayEquals(e.glyphY.toArray(), a.glyphY.toArray(), runMessage);
+                    assertEquals(e.glyphs.size, a.glyphs.size, runMessage);
+                    for (int g = 0; g < e.glyphs.size; g++) {
+                        assertEquals(e.glyphs.get(g).glyphId, a.glyphs.get(g).glyphId, runMessage);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void simpleShapingMatchesHarfBuzz() {
+        for (float size : new float[]{16f, 23f}) {
+            for (boolean kerning : new boolean[]{true, false}) {
+                final HBFont harfBuzz = createFont(size, false, kerning);
+                final HBFont simple = createFont(size, true, kerning);
+                final TextMetricsHistogram metrics = new TextMetricsHistogram();
+                TextMetrics.setListener(metrics);
+                try {
+                    assertSameLayout(harfBuzz, simple);
+                    assertEquals(0, metrics.getFontCounter(harfBuzz, TextMetrics.Counter.GLYPHS_SHAPED_SIMPLE));
+                    assertTrue(metrics.getFontCounter(simple, TextMetrics.Counter.GLYPHS_SHAPED_SIMPLE) > 0, "Simple shaper was used");
+                } finally {
+                    harfBuzz.dispose();
+                    simple.dispose();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void layoutTablesAreCheckedPerRun() {
+        for (boolean kerning : new boolean[]{true, false}) {
+            final HBFont harfBuzz = createFont(originalFontFile, 20f, false, kerning);
+            final HBFont simple = createFont(originalFontFile, 20f, true, kerning);
+            final TextMetricsHistogram metrics = new TextMetricsHistogram();
+            TextMetrics.setListener(metrics);
+            try {
+                assertSameLayout(harfBuzz, simple);
+                final long shaped = metrics.getFontCounter(simple, TextMetrics.Counter.GLYPHS_SHAPED);
+                final long shapedSimple = metrics.getFontCounter(simple, TextMetrics.Counter.GLYPHS_SHAPED_SIMPLE);
+                if (kerning) {
+                    // Runs with glyphs of GPOS kern lookups are left to HarfBuzz
+                    assertTrue(shapedSimple < shaped, shapedSimple + " < " + shaped);
+                } else {
+                    // No other lookups, so only runs with unsupported characters are left to HarfBuzz
+                    assertTrue(shapedSimple > 0, "Simple shaper was used");
+                }
+            } finally {
+                harfBuzz.dispose();
+                simple.dispose();
+            }
+        }
+    }
+
+    @Test
+    public void kerningIsApplied() {
+        final HBFont kerned = createFont(32f, true, true);
+        final HBFont notKerned = createFont(32f, true, false);
+        try {
+            final LayoutText<HBFont> text = new LayoutText<>();
+            final GlyphLayout<HBFont> layout = kerned.createGlyphLayout();
+            text.init(kerned, 0f);
+            text.setText("AVAVAV");
+            layout.layoutText(text, 0f, 0f, Align.left, null);
+            final float kernedWidth = layout.getWidth();
+            text.init(notKerned, 0f);
+            text.setText("AVAVAV");
+            layout.layoutText(text, 0f, 0f, Align.left, null);
+            assertTrue(kernedWidth < layout.getWidth(), kernedWidth + " < " + layout.getWidth());
+        } finally {
+            kerned.dispose();
+            notKerned.dispose();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.GlyphRun;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the single-line fast path of {@link GlyphLayout#layoutText} (used when there is no available width)
+ * gives the same results as the full layout (which is used when there is some, even if it is never reached).
+ */
+public class SingleLineLayoutTests {
+
+    private static BitmapFont font;
+    private static BitmapFont bigFont;
+
+    @BeforeAll
+    public static void setUp() {
+        font = new BitmapFont("regular", null);
+        font.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-regular64.fnt"), 1f);
+        bigFont = new BitmapFont("bold", null);
+        bigFont.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-bold64.fnt"), 1.5f);
+    }
+
+    private static final String[] TEXTS = {
+            "",
+            "L",
+            "Lorem ipsum",
+            "  Spaces around  ",
+            "Score: 1234567890 (+15%)",
+            "Příliš žluťoučký kůň",
+            "Missing \uD83D\uDE00 glyphs \u200B and \uFFFF",
+            "Broken \uD83D surrogate",
+            "Hebrew טֶקסט in the middle",
+            "Tab\tstop",
+            "Two\nlines",
+    };
+
+    private static final float FULL_LAYOUT_WIDTH = 1_000_000f;
+
+    private static void assertSameLayout(LayoutText<BitmapFont> text, int align) {
+        final GlyphLayout<BitmapFont> expected = font.createGlyphLayout();
+        expected.layoutText(text, FULL_LAYOUT_WIDTH, 0f, Align.left, "...");
+        final GlyphLayout<BitmapFont> actual = font.createGlyphLayout();
+        actual.layoutText(text, 0f, 0f, align, "...");
+
+        final String message = "\"" + text + "\"";
+        assertEquals(expected.getWidth(), actual.getWidth(), message);
+        assertEquals(expected.getAlignWidth(), actual.getAlignWidth(), message);
+        assertEquals(expected.getHeight(), actual.getHeight(), message);
+        assertEquals(expected.getLineCount(), actual.getLineCount(), message);
+
+        final Array<GlyphRun<BitmapFont>> expectedRuns = expected.getRuns();
+        final Array<GlyphRun<BitmapFont>> actualRuns = actual.getRuns();
+        assertEquals(expectedRuns.size, actualRuns.size, message);
+        for (int r = 0; r < expectedRuns.size; r++) {
+            final GlyphRun<BitmapFont> e = expectedRuns.get(r);
+            final GlyphRun<BitmapFont> a = actualRuns.get(r);
+            final String runMessage = message + ", run " + r;
+            assertNull(a.checkpoints, runMessage);
+            assertEquals(e.x, a.x, runMessage);
+            assertEquals(e.y, a.y, runMessage);
+            assertEquals(e.width, a.width, runMessage);
+            assertEquals(e.line, a.line, runMessage);
+            assertSame(e.font, a.font, runMessage);
+            assertEquals(e.color, a.color, runMessage);
+            assertEquals(e.charactersLevel, a.charactersLevel, runMessage);
+            assertEquals(e.charactersStart, a.charactersStart, runMessage);
+            assertEquals(e.charactersEnd, a.charactersEnd, runMessage);
+            assertEquals(e.characterFlags, a.characterFlags, runMessage);
+            assertArrayEquals(e.characterPositions.toArray(), a.characterPositions.toArray(), runMessage);
+            assertArrayEquals(e.glyphX.toArray(), a.glyphX.toArray(), runMessage);
+            assertArrayEquals(e.glyphY.toArray(), a.glyphY.toArray(), runMessage);
+            assertArrayEquals(e.glyphs.toArray(), a.glyphs.toArray(), runMessage);
+        }
+
+        for (int i = 0; i <= text.length(); i++) {
+            assertEquals(expected.getCaretPosition(i), actual.getCaretPosition(i), message + ", caret " + i);
+        }
+        for (float x = -10f; x < expected.getWidth() + 10f; x += 7f) {
+            assertEquals(expected.getIndexAt(x, -1f, true), actual.getIndexAt(x, -1f, true), message + ", x " + x);
+        }
+    }
+
+    @Test
+    public void singleLineMatchesFullLayout() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        for (String string : TEXTS) {
+            text.init(font, 0f);
+            text.setText(string);
+            assertSameLayout(text, Align.left);
+        }
+    }
+
+    @Test
+    public void alignmentDoesNotMoveSingleLine() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText("Centered label");
+        assertSameLayout(text, Align.center);
+        assertSameLayout(text, Align.right);
+
+        final GlyphLayout<BitmapFont> layout = font.createGlyphLayout();
+        layout.layoutText(text, 0f, 0f, Align.right, null);
+        assertEquals(Align.right, layout.getHorizontalAlign());
+        assertEquals(new Rectangle(0f, -font.lineHeight, 0f, font.lineHeight), layout.getCaretPosition(0));
+    }
+
+    @Test
+    public void regions() {
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText("Uniform regions are still a single line");
+        text.addRegion(0, font, 1f);
+        text.addRegion(8, font, 1f);
+        assertSameLayout(text, Align.left);
+
+        text.addRegion(20, font, 2f);
+        assertSameLayout(text, Align.left);
+
+        text.addRegion(20, bigFont, 1f);
+        assertSameLayout(text, Align.left);
+    }
+}
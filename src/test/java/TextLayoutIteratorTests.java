@@ -81,7 +81,8 @@ public class TextLayoutIteratorTests {
                 }
             }
 
-            layoutText.init(text.chars, text.length, initialFont, initialColor, null, true);
+            layoutText.init(initialFont, initialColor);
+            layoutText.setText(text.chars, text.length);
             for (int i = 0; i < regionStarts.size; i++) {
                 layoutText.addRegion(regionStarts.get(i), regionFonts.get(i), regionColors.get(i));
             }
@@ -171,10 +172,64 @@ public class TextLayoutIteratorTests {
         testBlocks("helloB1", "hello");
         testBlocks("B1hello", FONT_BOLD, 1, "hello");
         testBlocks("helloB1world", "hello", FONT_BOLD, 1, "world");
-        testBlocks("aBb1cR2d", "a", FONT_BOLD, "b", 1, "c", FONT, 2, "d");
+        // Color-only changes do not split runs
+        testBlocks("aBb1cR2d", "a", FONT_BOLD, "bc", FONT, 2, "d");
         testBlocks("a\tBb\n1cR2d", "a", "\t", FONT_BOLD, "b", "\n", 1, "c", FONT, 2, "d");
     }
 
+    @Test
+    public void featuresTest() {
+        final LayoutText<TestFont> layoutText = new LayoutText<>();
+        layoutText.init(FONT, 0f);
+        layoutText.setText("0123456789");
+        layoutText.addRegion(2, FONT, 0f, FontFeatures.of("tnum"));
+        layoutText.addRegion(4, FONT, 0f, FontFeatures.of("+tnum"));
+        layoutText.addRegion(6, FONT, 0f, FontFeatures.of("tnum", "-liga"));
+        layoutText.addRegion(8, FONT, 0f, FontFeatures.NONE);
+
+        final LayoutTextRunArray<TestFont> runs = LayoutTextRunArray.obtain(layoutText);
+        assertEquals(4, runs.size);
+        assertEquals(0, runs.get(0).start);
+        assertNull(runs.get(0).features);
+        assertEquals(2, runs.get(1).start);
+        assertEquals(FontFeatures.of("tnum"), runs.get(1).features);
+        assertEquals(6, runs.get(2).start);
+        assertEquals(0, runs.get(2).features.get("liga", 1));
+        assertEquals(8, runs.get(3).start);
+        LayoutTextRunArray.free(runs);
+    }
+
+    private static void assertScriptRuns(String text, Object... expected) {
+        final LayoutText<TestFont> layoutText = new LayoutText<>();
+        layoutText.init(FONT, 0f);
+        layoutText.setText(text);
+
+        final LayoutTextRunArray<TestFont> runs = LayoutTextRunArray.obtain(layoutText, true);
+        assertEquals(expected.length / 2, runs.size, "Run count of '"+text+"'");
+        for (int i = 0; i < runs.size; i++) {
+            final TextRun<TestFont> run = runs.get(i);
+            assertEquals(expected[i * 2], text.substring(run.start, run.end));
+            assertEquals(expected[i * 2 + 1], run.script, "For "+expected[i * 2]);
+        }
+        LayoutTextRunArray.free(runs);
+    }
+
+    @Test
+    public void scriptTest() {
+        final Character.UnicodeScript LATIN = Character.UnicodeScript.LATIN;
+        final Character.UnicodeScript CYRILLIC = Character.UnicodeScript.CYRILLIC;
+        final Character.UnicodeScript COMMON = Character.UnicodeScript.COMMON;
+        assertScriptRuns("hello", "hello", LATIN);
+        assertScriptRuns("123 hello!", "123 hello!", LATIN);
+        assertScriptRuns("123 ", "123 ", COMMON);
+        assertScriptRuns("hello \u043C\u0438\u0440 (\u043C\u0438\u0440) 42",
+                "hello ", LATIN, "\u043C\u0438\u0440 (\u043C\u0438\u0440) 42", CYRILLIC);
+        assertScriptRuns("hello\n\u043C\u0438\u0440 42\nfoo",
+                "hello", LATIN, "\n", null, "\u043C\u0438\u0440 42", CYRILLIC, "\n", null, "foo", LATIN);
+        // Bidi splits the runs, but neutral space still takes the preceding script
+        assertScriptRuns(HEBREW + " a", HEBREW, Character.UnicodeScript.HEBREW, " ", Character.UnicodeScript.HEBREW, "a", LATIN);
+    }
+
     private static final String HEBREW = "טֶקסט";// Because editing RTL is pain
 
     @Test
@@ -202,7 +257,17 @@ public class TextLayoutIteratorTests {
         }
 
         @Override
-        public void prepareGlyphs() {}
+        public void prepareGlyphs(GlyphLayout<TestFont> layout) {}
+
+        @Override
+        public boolean covers(int codepoint) {
+            return false;
+        }
+
+        @Override
+        public boolean coversAll(CharSequence text) {
+            return text.length() == 0;
+        }
 
         @Override
         public TestFont getFallback() {
@@ -0,0 +1,91 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.graphics.text.util.TextMetrics;
+import com.badlogic.gdx.graphics.text.util.TextMetrics.Counter;
+import com.badlogic.gdx.graphics.text.util.TextMetrics.Stage;
+import com.badlogic.gdx.graphics.text.util.TextMetricsHistogram;
+import com.badlogic.gdx.utils.Align;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of {@link TextMetrics} reporting and {@link TextMetricsHistogram}.
+ */
+public class TextMetricsTests {
+
+    private static BitmapFont font;
+
+    @BeforeAll
+    public static void setUp() {
+        font = new BitmapFont("regular", null);
+        font.loadGlyphs(new FileHandle("test-fonts/some-time-later/some-time-later-regular64.fnt"), 1f);
+    }
+
+    @AfterEach
+    public void disable() {
+        TextMetrics.setListener(null);
+    }
+
+    @Test
+    public void layoutIsReported() {
+        final TextMetricsHistogram metrics = new TextMetricsHistogram();
+        final LayoutText<BitmapFont> text = new LayoutText<>();
+        text.init(font, 0f);
+        text.setText("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt");
+        final GlyphLayout<BitmapFont> layout = font.createGlyphLayout();
+
+        layout.layoutText(text, 500f, 0f, Align.left, null);
+        assertEquals(0, metrics.getCount(Stage.LAYOUT), "Nothing is reported when disabled");
+
+        TextMetrics.setListener(metrics);
+        assertTrue(TextMetrics.isEnabled());
+        layout.layoutText(text, 500f, 0f, Align.left, null);
+        layout.layoutText(text, 500f, 0f, Align.left, null);
+
+        assertEquals(2, metrics.getCount(Stage.LAYOUT));
+        assertEquals(2, metrics.getCount(Stage.ITEMIZE));
+        assertTrue(metrics.getCount(Stage.WRAP) >= 2, "Text is wrapped");
+        assertTrue(metrics.getTotalNanos(Stage.LAYOUT) >= metrics.getTotalNanos(Stage.ITEMIZE));
+        assertEquals(2 * layout.getRuns().size, metrics.getCounter(Counter.RUNS_CREATED));
+        assertEquals(metrics.getTotalNanos(Stage.LAYOUT), metrics.getFontNanos(font, Stage.LAYOUT));
+        assertEquals(2 * layout.getRuns().size, metrics.getFontCounter(font, Counter.RUNS_CREATED));
+        assertTrue(metrics.getFonts().contains(font, true));
+        assertTrue(metrics.toString().contains("LAYOUT"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(Stage.LAYOUT));
+        assertEquals(0, metrics.getCounter(Counter.RUNS_CREATED));
+        assertEquals(0, metrics.getFonts().size);
+    }
+
+    @Test
+    public void histogram() {
+        assertEquals(0, TextMetricsHistogram.bucketOf(0));
+        assertEquals(0, TextMetricsHistogram.bucketOf(1));
+        assertEquals(1, TextMetricsHistogram.bucketOf(2));
+        assertEquals(1, TextMetricsHistogram.bucketOf(3));
+        assertEquals(10, TextMetricsHistogram.bucketOf(1024));
+        assertEquals(TextMetricsHistogram.BUCKETS - 1, TextMetricsHistogram.bucketOf(Long.MAX_VALUE));
+
+        final TextMetricsHistogram metrics = new TextMetricsHistogram();
+        for (int i = 0; i < 99; i++) {
+            metrics.timing(Stage.SHAPE, null, 1000);
+        }
+        metrics.timing(Stage.SHAPE, null, 1_000_000);
+
+        assertEquals(100, metrics.getCount(Stage.SHAPE));
+        assertEquals(99 * 1000 + 1_000_000, metrics.getTotalNanos(Stage.SHAPE));
+        assertEquals(1_000_000, metrics.getMaxNanos(Stage.SHAPE));
+        assertEquals(99, metrics.getHistogram(Stage.SHAPE)[TextMetricsHistogram.bucketOf(1000)]);
+        assertEquals(1024, metrics.getPercentileNanos(Stage.SHAPE, 0.5f));
+        assertEquals(1024, metrics.getPercentileNanos(Stage.SHAPE, 0.99f));
+        assertEquals(1_000_000, metrics.getPercentileNanos(Stage.SHAPE, 1f));
+        assertEquals(0, metrics.getPercentileNanos(Stage.WRAP, 0.5f));
+        assertTrue(metrics.getFonts().size == 0, "Reports without font are not attributed");
+    }
+}
@@ -0,0 +1,97 @@
+import com.badlogic.gdx.graphics.text.GlyphLayout;
+import com.badlogic.gdx.graphics.text.LayoutText;
+import com.badlogic.gdx.graphics.text.VirtualGlyphLayout;
+import com.badlogic.gdx.graphics.text.bitmap.BitmapFont;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Align;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link VirtualGlyphLayout} gives the same results as {@link GlyphLayout#layoutText},
+ * while laying out only what is needed.
+ */
+public class VirtualLayoutTests {
+
+    private static BitmapFont regular, bold;
+
+    @BeforeAll
+    public static void setUp() {
+        regular = LayoutTestFixtures.loadFont("regular");
+        bold = LayoutTestFixtures.loadFont("bold");
+    }
+
+    private static LayoutText<BitmapFont> createText(long seed, int length) {
+        return LayoutTestFixtures.createText(seed, length, 60, regular, bold);
+    }
+
+    private static void assertSameQueries(LayoutText<BitmapFont> text, GlyphLayout<BitmapFont> expected, VirtualGlyphLayout<BitmapFont> actual) {
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int i = 0; i <= text.length(); i += 37) {
+            final Rectangle expectedCaret = new Rectangle(expected.getCaretPosition(i));
+            assertEquals(expectedCaret, actual.getCaretPosition(i), "Caret at " + i);
+
+            final float x = expectedCaret.x + 3f;
+            final float y = expectedCaret.y + expectedCaret.height * 0.5f;
+            assertEquals(expected.getIndexAt(x, y, true), actual.getIndexAt(x, y, true), "Index at caret " + i);
+        }
+    }
+
+    private static void testLayout(long seed, int length, float availableWidth, int align) {
+        final LayoutText<BitmapFont> text = createText(seed, length);
+
+        final GlyphLayout<BitmapFont> sequential = regular.createGlyphLayout();
+        sequential.layoutText(text, availableWidth, 0f, align, null);
+
+        final VirtualGlyphLayout<BitmapFont> exact = new VirtualGlyphLayout<>(16);
+        exact.setText(text, availableWidth, align, true);
+        assertSameQueries(text, sequential, exact);
+
+        // Estimated heights become exact once every paragraph was laid out
+        final VirtualGlyphLayout<BitmapFont> estimated = new VirtualGlyphLayout<>(16);
+        estimated.setText(text, availableWidth, align, false);
+        for (int p = estimated.getParagraphCount() - 1; p >= 0; p--) {
+            estimated.getParagraphLayout(p);
+        }
+        assertSameQueries(text, sequential, estimated);
+    }
+
+    @Test
+    public void sameAsSequential() {
+        testLayout(1, 30000, 800f, Align.left);
+        testLayout(2, 30000, 0f, Align.left);
+        testLayout(3, 20000, 1500f, Align.center);
+        testLayout(4, 20000, 300f, Align.right);
+        testLayout(5, 0, 500f, Align.left);
+    }
+
+    @Test
+    public void laysOutOnlyWhatIsNeeded() {
+        final LayoutText<BitmapFont> text = createText(6, 60000);
+        final VirtualGlyphLayout<BitmapFont> layout = new VirtualGlyphLayout<>(8);
+        layout.setText(text, 1000f, Align.left, false);
+        final int paragraphs = layout.getParagraphCount();
+        assertTrue(paragraphs > 100);
+        assertTrue(layout.getHeight() > 0f);
+        for (int p = 0; p < paragraphs; p++) {
+            assertFalse(layout.isParagraphHeightExact(p));
+        }
+
+        final int middle = paragraphs / 2;
+        final Rectangle caret = layout.getCaretPosition(layout.getParagraphStart(middle));
+        assertEquals(-layout.getParagraphTop(middle), caret.y + caret.height, 0.001f);
+        final int index = layout.getIndexAt(0f, caret.y + caret.height * 0.5f, true);
+        assertTrue(index >= layout.getParagraphStart(middle) && index <= layout.getParagraphEnd(middle));
+
+        int exactParagraphs = 0;
+        for (int p = 0; p < paragraphs; p++) {
+            if (layout.isParagraphHeightExact(p)) {
+                exactParagraphs++;
+            }
+        }
+        assertEquals(1, exactParagraphs);
+        assertTrue(layout.isParagraphHeightExact(middle));
+    }
+}